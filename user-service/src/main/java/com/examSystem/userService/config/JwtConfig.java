@@ -158,6 +158,18 @@ public class JwtConfig {
         }
     }
 
+    /**
+     * 解析访问Token，一次解析同时完成签名、过期和类型校验，无效时返回null
+     */
+    public Claims parseAccessToken(String token) {
+        try {
+            Claims claims = getAllClaimsFromToken(token);
+            return "access".equals(claims.get("type")) ? claims : null;
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
     /**
      * 验证刷新Token
      */
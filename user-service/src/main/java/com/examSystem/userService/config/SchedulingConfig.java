@@ -1,19 +1,117 @@
 package com.examSystem.userService.config;
 
+import com.examSystem.userService.service.scheduled.MonitoredTaskScheduler;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.aop.interceptor.AsyncUncaughtExceptionHandler;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.AsyncConfigurer;
 import org.springframework.scheduling.annotation.EnableAsync;
 import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
 
 /**
  * 调度配置类
- * 
+ *
  * 启用Spring的调度和异步功能
  * 用于考试自动开始、结束等定时任务
+ *
+ * 定时任务按类型分到两个独立线程池：默认的taskScheduler执行考试开始/结束、心跳、答案刷盘等
+ * 对延迟敏感的短任务；统计、备份、报告等批处理任务通过 @Scheduled(scheduler = "batchTaskScheduler")
+ * 放到batch线程池，长时间运行不会推迟前者。@Async任务使用有界线程池，队列满时由调用线程执行
  */
 @Configuration
 @EnableScheduling
 @EnableAsync
-public class SchedulingConfig {
-    // Spring Boot会自动配置默认的TaskScheduler和TaskExecutor
-    // 如果需要自定义，可以在这里添加Bean配置
-}
\ No newline at end of file
+public class SchedulingConfig implements AsyncConfigurer {
+
+    private static final Logger logger = LoggerFactory.getLogger(SchedulingConfig.class);
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.scheduling.pools.critical-size:4}")
+    private int criticalPoolSize;
+
+    @Value("${app.scheduling.pools.batch-size:2}")
+    private int batchPoolSize;
+
+    @Value("${app.scheduling.pools.async-core-size:2}")
+    private int asyncCorePoolSize;
+
+    @Value("${app.scheduling.pools.async-max-size:8}")
+    private int asyncMaxPoolSize;
+
+    @Value("${app.scheduling.pools.async-queue-capacity:100}")
+    private int asyncQueueCapacity;
+
+    /**
+     * 延迟敏感的定时任务线程池（@Scheduled默认使用名为taskScheduler的调度器）
+     */
+    @Bean
+    public MonitoredTaskScheduler taskScheduler() {
+        return new MonitoredTaskScheduler("critical", criticalPoolSize, meterRegistry);
+    }
+
+    /**
+     * 批处理定时任务线程池
+     */
+    @Bean
+    public MonitoredTaskScheduler batchTaskScheduler() {
+        return new MonitoredTaskScheduler("batch", batchPoolSize, meterRegistry);
+    }
+
+    /**
+     * @Async任务的有界线程池
+     */
+    @Bean
+    public ThreadPoolTaskExecutor asyncTaskExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(asyncCorePoolSize);
+        executor.setMaxPoolSize(asyncMaxPoolSize);
+        executor.setQueueCapacity(asyncQueueCapacity);
+        executor.setThreadNamePrefix("async-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+
+        Counter rejected = Counter.builder("exam.executor.rejected")
+            .description("线程池已满、由调用线程执行的任务数")
+            .tag("pool", "async")
+            .register(meterRegistry);
+        ThreadPoolExecutor.CallerRunsPolicy callerRuns = new ThreadPoolExecutor.CallerRunsPolicy();
+        executor.setRejectedExecutionHandler((task, pool) -> {
+            rejected.increment();
+            callerRuns.rejectedExecution(task, pool);
+        });
+
+        Gauge.builder("exam.executor.queued", executor, ThreadPoolTaskExecutor::getQueueSize)
+            .description("等待执行的任务数")
+            .tag("pool", "async")
+            .register(meterRegistry);
+        Gauge.builder("exam.executor.active", executor, ThreadPoolTaskExecutor::getActiveCount)
+            .description("正在执行任务的线程数")
+            .tag("pool", "async")
+            .register(meterRegistry);
+        return executor;
+    }
+
+    @Override
+    public Executor getAsyncExecutor() {
+        return asyncTaskExecutor();
+    }
+
+    @Override
+    public AsyncUncaughtExceptionHandler getAsyncUncaughtExceptionHandler() {
+        return (e, method, params) -> logger.error("Async task {}.{} failed",
+            method.getDeclaringClass().getSimpleName(), method.getName(), e);
+    }
+}
@@ -152,7 +152,8 @@ public class SecurityConfig {
                     "/actuator/info",
                     "/v3/api-docs/**",
                     "/swagger-ui/**",
-                    "/swagger-ui.html"
+                    "/swagger-ui.html",
+                    "/ws/**" // WebSocket握手，STOMP CONNECT时再认证
                 ).permitAll()
                 
                 // 管理员端点
@@ -21,6 +21,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 /**
  * 管理员考试管理控制器
@@ -476,6 +477,57 @@ public class AdminExamController {
         }
     }
 
+    /**
+     * 将学生加入考试报名名单
+     */
+    @PostMapping("/{examId}/enrollments")
+    public ResponseEntity<ApiResponse<Integer>> enrollStudents(
+            @PathVariable Long examId,
+            @RequestBody Map<String, Object> requestData) {
+
+        try {
+            @SuppressWarnings("unchecked")
+            List<Number> studentIds = (List<Number>) requestData.get("studentIds");
+            int enrolled = adminExamService.enrollStudents(examId,
+                    studentIds.stream().map(Number::longValue).collect(Collectors.toList()));
+            return ResponseEntity.ok(ApiResponse.success("考试报名成功", enrolled));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(ApiResponse.error("考试报名失败: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * 获取考试报名名单
+     */
+    @GetMapping("/{examId}/enrollments")
+    public ResponseEntity<ApiResponse<List<Long>>> getEnrolledStudents(@PathVariable Long examId) {
+        try {
+            List<Long> studentIds = adminExamService.getEnrolledStudentIds(examId);
+            return ResponseEntity.ok(ApiResponse.success(studentIds));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(ApiResponse.error("获取考试报名名单失败: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * 将学生移出考试报名名单
+     */
+    @DeleteMapping("/{examId}/enrollments/{studentId}")
+    public ResponseEntity<ApiResponse<Void>> unenrollStudent(
+            @PathVariable Long examId,
+            @PathVariable Long studentId) {
+
+        try {
+            adminExamService.unenrollStudent(examId, studentId);
+            return ResponseEntity.ok(ApiResponse.success("取消报名成功"));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(ApiResponse.error("取消报名失败: " + e.getMessage()));
+        }
+    }
+
     /**
      * 更新考试状态
      */
@@ -1,8 +1,10 @@
 package com.examSystem.userService.controller.admin;
 
 import com.examSystem.userService.dto.common.ApiResponse;
+import com.examSystem.userService.entity.ExamItemStatistics;
 import com.examSystem.userService.service.admin.AdminGradeStatisticsService;
 import com.examSystem.userService.service.admin.AdminGradeStatisticsService.*;
+import com.examSystem.userService.service.admin.ItemAnalysisService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
@@ -30,6 +32,9 @@ public class AdminGradeStatisticsController {
     @Autowired
     private AdminGradeStatisticsService gradeStatisticsService;
 
+    @Autowired
+    private ItemAnalysisService itemAnalysisService;
+
     /**
      * 获取考试详细统计信息
      */
@@ -44,6 +49,19 @@ public class AdminGradeStatisticsController {
         }
     }
 
+    /**
+     * 立即重新分析考试的题目（正确率、平均分、难度和区分度），并更新题目统计
+     */
+    @PostMapping("/exam/{examId}/item-analysis")
+    public ResponseEntity<ApiResponse<List<ExamItemStatistics>>> analyzeExamItems(@PathVariable Long examId) {
+        try {
+            return ResponseEntity.ok(ApiResponse.success(itemAnalysisService.analyzeExam(examId)));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(ApiResponse.error("题目分析失败: " + e.getMessage()));
+        }
+    }
+
     /**
      * 获取用户统计信息
      */
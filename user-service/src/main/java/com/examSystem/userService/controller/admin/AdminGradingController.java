@@ -0,0 +1,178 @@
+package com.examSystem.userService.controller.admin;
+
+import com.examSystem.userService.dto.common.ApiResponse;
+import com.examSystem.userService.entity.GradingTask;
+import com.examSystem.userService.entity.RegradeJob;
+import com.examSystem.userService.service.grading.BulkGradingEngine;
+import com.examSystem.userService.service.grading.BulkGradingEngine.BulkGradingJob;
+import com.examSystem.userService.service.grading.BulkGradingEngine.BulkGradingStatus;
+import com.examSystem.userService.service.grading.GradingQueueService;
+import com.examSystem.userService.service.grading.RegradeJobService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 管理员评分控制器
+ *
+ * 提供批量评分任务和重新评分任务的提交和进度查询接口，以及评分队列的监控和死信处理
+ */
+@RestController
+@RequestMapping("/api/admin/grading")
+@CrossOrigin(origins = "*")
+public class AdminGradingController {
+
+    @Autowired
+    private BulkGradingEngine bulkGradingEngine;
+
+    @Autowired
+    private RegradeJobService regradeJobService;
+
+    @Autowired
+    private GradingQueueService gradingQueueService;
+
+    /**
+     * 提交批量评分任务
+     */
+    @PostMapping("/bulk")
+    public ResponseEntity<ApiResponse<BulkGradingStatus>> submitBulkGrading(@RequestBody List<Long> attemptIds) {
+        try {
+            if (attemptIds == null || attemptIds.isEmpty()) {
+                return ResponseEntity.badRequest().body(ApiResponse.error("考试记录ID列表不能为空"));
+            }
+            BulkGradingJob job = bulkGradingEngine.submit(attemptIds, false);
+            return ResponseEntity.status(HttpStatus.ACCEPTED)
+                    .body(ApiResponse.success(bulkGradingEngine.getStatus(job.getJobId())));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(ApiResponse.error("提交批量评分失败: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * 查询批量评分任务进度
+     */
+    @GetMapping("/bulk/{jobId}")
+    public ResponseEntity<ApiResponse<BulkGradingStatus>> getBulkGradingStatus(@PathVariable String jobId) {
+        try {
+            return ResponseEntity.ok(ApiResponse.success(bulkGradingEngine.getStatus(jobId)));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(ApiResponse.error("获取评分任务进度失败: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * 提交重新评分任务（标准答案修正后，重评该题目在所有考试中的答案）
+     *
+     * keyQuestionId为空时使用题目自身的当前标准答案
+     */
+    @PostMapping("/regrade")
+    public ResponseEntity<ApiResponse<RegradeJob>> submitRegrade(@RequestParam Long questionId,
+                                                                 @RequestParam(required = false) Long keyQuestionId) {
+        try {
+            RegradeJob job = regradeJobService.submit(questionId, keyQuestionId != null ? keyQuestionId : questionId);
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(ApiResponse.success(job));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(ApiResponse.error("提交重新评分失败: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * 查询最近的重新评分任务
+     */
+    @GetMapping("/regrade")
+    public ResponseEntity<ApiResponse<List<RegradeJob>>> getRecentRegradeJobs() {
+        try {
+            return ResponseEntity.ok(ApiResponse.success(regradeJobService.getRecentJobs()));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(ApiResponse.error("获取重新评分任务失败: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * 查询重新评分任务进度
+     */
+    @GetMapping("/regrade/{jobId}")
+    public ResponseEntity<ApiResponse<RegradeJob>> getRegradeStatus(@PathVariable Long jobId) {
+        try {
+            return ResponseEntity.ok(ApiResponse.success(regradeJobService.getJob(jobId)));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(ApiResponse.error("获取重新评分任务进度失败: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * 从检查点重新执行失败的重新评分任务
+     */
+    @PostMapping("/regrade/{jobId}/resume")
+    public ResponseEntity<ApiResponse<RegradeJob>> resumeRegrade(@PathVariable Long jobId) {
+        try {
+            return ResponseEntity.ok(ApiResponse.success(regradeJobService.resume(jobId)));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest()
+                    .body(ApiResponse.error("重新执行任务失败: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * 查询评分队列各状态的任务数
+     */
+    @GetMapping("/queue")
+    public ResponseEntity<ApiResponse<Map<String, Long>>> getQueueStatus() {
+        try {
+            return ResponseEntity.ok(ApiResponse.success(gradingQueueService.getQueueStatus()));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(ApiResponse.error("获取评分队列状态失败: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * 查询评分队列的死信任务
+     */
+    @GetMapping("/queue/dead-letters")
+    public ResponseEntity<ApiResponse<List<GradingTask>>> getDeadLetters(
+            @RequestParam(defaultValue = "50") int limit) {
+        try {
+            return ResponseEntity.ok(ApiResponse.success(gradingQueueService.getDeadLetters(Math.min(limit, 500))));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(ApiResponse.error("获取死信任务失败: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * 死信任务重新入队
+     */
+    @PostMapping("/queue/dead-letters/{taskId}/retry")
+    public ResponseEntity<ApiResponse<Void>> retryDeadLetter(@PathVariable Long taskId) {
+        try {
+            gradingQueueService.retryDeadLetter(taskId);
+            return ResponseEntity.ok(ApiResponse.success("死信任务已重新入队"));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest()
+                    .body(ApiResponse.error("重新入队失败: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * 全部死信任务重新入队
+     */
+    @PostMapping("/queue/dead-letters/retry")
+    public ResponseEntity<ApiResponse<Integer>> retryAllDeadLetters() {
+        try {
+            return ResponseEntity.ok(ApiResponse.success(gradingQueueService.retryAllDeadLetters()));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(ApiResponse.error("重新入队失败: " + e.getMessage()));
+        }
+    }
+}
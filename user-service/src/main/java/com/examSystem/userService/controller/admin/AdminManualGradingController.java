@@ -0,0 +1,126 @@
+package com.examSystem.userService.controller.admin;
+
+import com.examSystem.userService.dto.common.ApiResponse;
+import com.examSystem.userService.service.grading.ManualGradingService;
+import com.examSystem.userService.service.grading.ManualGradingService.LeaseBatch;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+
+import java.math.BigDecimal;
+
+/**
+ * 管理员人工评分控制器
+ *
+ * 评分员按批认领考试中待评分的主观题答案，逐个提交评分；
+ * 长时间评分时定期续租，结束评分时归还未评完的答案
+ */
+@RestController
+@RequestMapping("/api/admin/grading/manual")
+@CrossOrigin(origins = "*")
+public class AdminManualGradingController {
+
+    @Autowired
+    private ManualGradingService manualGradingService;
+
+    /**
+     * 认领下一批待评分答案
+     */
+    @PostMapping("/exams/{examId}/lease")
+    public ResponseEntity<ApiResponse<LeaseBatch>> leaseNext(@PathVariable Long examId,
+                                                             Authentication authentication) {
+        try {
+            Long graderId = getUserIdFromAuth(authentication);
+            return ResponseEntity.ok(ApiResponse.success(manualGradingService.leaseNext(examId, graderId)));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(ApiResponse.error("认领待评分答案失败: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * 续租持有的全部答案
+     */
+    @PostMapping("/exams/{examId}/renew")
+    public ResponseEntity<ApiResponse<Integer>> renew(@PathVariable Long examId, Authentication authentication) {
+        try {
+            Long graderId = getUserIdFromAuth(authentication);
+            return ResponseEntity.ok(ApiResponse.success(manualGradingService.renew(examId, graderId)));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(ApiResponse.error("续租失败: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * 归还持有的全部答案
+     */
+    @PostMapping("/exams/{examId}/release")
+    public ResponseEntity<ApiResponse<Integer>> release(@PathVariable Long examId, Authentication authentication) {
+        try {
+            Long graderId = getUserIdFromAuth(authentication);
+            return ResponseEntity.ok(ApiResponse.success(manualGradingService.release(examId, graderId)));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(ApiResponse.error("归还答案失败: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * 考试待人工评分的答案数
+     */
+    @GetMapping("/exams/{examId}/pending")
+    public ResponseEntity<ApiResponse<Long>> getPendingCount(@PathVariable Long examId) {
+        try {
+            return ResponseEntity.ok(ApiResponse.success(manualGradingService.getPendingCount(examId)));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(ApiResponse.error("获取待评分数量失败: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * 提交人工评分
+     */
+    @PostMapping("/answers/{answerId}")
+    public ResponseEntity<ApiResponse<Void>> submitGrade(@PathVariable Long answerId,
+                                                         @RequestBody ManualGradeRequest request,
+                                                         Authentication authentication) {
+        try {
+            Long graderId = getUserIdFromAuth(authentication);
+            manualGradingService.submitGrade(graderId, answerId, request.getScore(), request.getFeedback());
+            return ResponseEntity.ok(ApiResponse.success("评分已提交"));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest()
+                    .body(ApiResponse.error("提交评分失败: " + e.getMessage()));
+        }
+    }
+
+    // 私有辅助方法
+
+    private Long getUserIdFromAuth(Authentication authentication) {
+        // 从认证信息中提取评分员ID，与学生端一致以用户名作为用户ID
+        if (authentication != null && authentication.getPrincipal() instanceof org.springframework.security.core.userdetails.UserDetails) {
+            org.springframework.security.core.userdetails.UserDetails userDetails =
+                (org.springframework.security.core.userdetails.UserDetails) authentication.getPrincipal();
+            return Long.parseLong(userDetails.getUsername());
+        }
+        throw new RuntimeException("用户未认证");
+    }
+
+    // 请求DTO类
+
+    public static class ManualGradeRequest {
+        private BigDecimal score;
+        private String feedback;
+
+        // Getters and Setters
+        public BigDecimal getScore() { return score; }
+        public void setScore(BigDecimal score) { this.score = score; }
+
+        public String getFeedback() { return feedback; }
+        public void setFeedback(String feedback) { this.feedback = feedback; }
+    }
+}
@@ -0,0 +1,53 @@
+package com.examSystem.userService.controller.student;
+
+import com.examSystem.userService.service.student.AnswerSocketDispatcher;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.messaging.handler.annotation.DestinationVariable;
+import org.springframework.messaging.handler.annotation.MessageMapping;
+import org.springframework.messaging.handler.annotation.Payload;
+import org.springframework.stereotype.Controller;
+
+import java.security.Principal;
+
+/**
+ * 学生答案自动保存（STOMP）
+ *
+ * 客户端向 /app/student/exams/{examId}/attempts/{attemptId}/answers 发送答案帧，
+ * 确认消息推送到 /user/queue/answer-acks。
+ * 身份来自连接建立时的认证，每帧不再经过HTTP过滤器链
+ */
+@Controller
+public class StudentAnswerSocketController {
+
+    @Autowired
+    private AnswerSocketDispatcher answerSocketDispatcher;
+
+    /**
+     * 提交答案帧
+     */
+    @MessageMapping("/student/exams/{examId}/attempts/{attemptId}/answers")
+    public void submitAnswer(@DestinationVariable Long examId,
+                             @DestinationVariable Long attemptId,
+                             @Payload AnswerFrame frame,
+                             Principal principal) {
+        Long studentId = Long.valueOf(principal.getName());
+        answerSocketDispatcher.dispatch(studentId, examId, attemptId,
+            frame.getQuestionId(), frame.getStudentAnswer(), frame.getSequence());
+    }
+
+    // 内部类定义
+
+    public static class AnswerFrame {
+        private Long questionId;
+        private String studentAnswer;
+        private Long sequence;
+
+        // Getters and Setters
+        public Long getQuestionId() { return questionId; }
+        public void setQuestionId(Long questionId) { this.questionId = questionId; }
+        public String getStudentAnswer() { return studentAnswer; }
+        public void setStudentAnswer(String studentAnswer) { this.studentAnswer = studentAnswer; }
+        public Long getSequence() { return sequence; }
+        public void setSequence(Long sequence) { this.sequence = sequence; }
+    }
+}
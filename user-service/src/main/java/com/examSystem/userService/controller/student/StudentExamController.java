@@ -2,8 +2,13 @@ package com.examSystem.userService.controller.student;
 
 import com.examSystem.userService.dto.common.ApiResponse;
 import com.examSystem.userService.entity.Exam;
+import com.examSystem.userService.service.student.ExamStartAdmissionService;
+import com.examSystem.userService.service.student.ExamStartAdmissionService.StartStatus;
+import com.examSystem.userService.service.student.ExamStartAdmissionService.StartTicketStatus;
+import com.examSystem.userService.service.student.AttemptProgressTracker.AttemptProgress;
 import com.examSystem.userService.service.student.StudentExamService;
 import com.examSystem.userService.service.student.StudentExamService.*;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
@@ -33,6 +38,9 @@ public class StudentExamController {
     @Autowired
     private StudentExamService studentExamService;
 
+    @Autowired
+    private ExamStartAdmissionService examStartAdmissionService;
+
     /**
      * 获取可参加的考试列表
      */
@@ -83,22 +91,44 @@ public class StudentExamController {
 
     /**
      * 开始考试
+     *
+     * 开考请求经过准入队列，排队中时返回202和票据位置
      */
     @PostMapping("/{examId}/start")
-    public ResponseEntity<ApiResponse<ExamSession>> startExam(
+    public ResponseEntity<ApiResponse<StartTicketStatus>> startExam(
             @PathVariable Long examId,
-            Authentication authentication) {
+            Authentication authentication,
+            HttpServletRequest request) {
         
         try {
             Long studentId = getUserIdFromAuth(authentication);
-            ExamSession session = studentExamService.startExam(examId, studentId);
-            return ResponseEntity.ok(ApiResponse.success("考试开始成功", session));
+            StartTicketStatus ticket = examStartAdmissionService.requestStart(examId, studentId, getClientIp(request));
+            return toStartResponse(ticket);
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST)
                     .body(ApiResponse.error("开始考试失败: " + e.getMessage()));
         }
     }
 
+    /**
+     * 查询开考排队状态
+     */
+    @GetMapping("/{examId}/start/{ticketId}")
+    public ResponseEntity<ApiResponse<StartTicketStatus>> getStartTicket(
+            @PathVariable Long examId,
+            @PathVariable String ticketId,
+            Authentication authentication) {
+
+        try {
+            Long studentId = getUserIdFromAuth(authentication);
+            StartTicketStatus ticket = examStartAdmissionService.getTicketStatus(ticketId, examId, studentId);
+            return toStartResponse(ticket);
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(ApiResponse.error("查询排队状态失败: " + e.getMessage()));
+        }
+    }
+
     /**
      * 获取考试题目列表
      */
@@ -131,7 +161,8 @@ public class StudentExamController {
         try {
             Long studentId = getUserIdFromAuth(authentication);
             AnswerSubmissionResult result = studentExamService.submitAnswer(
-                examId, studentId, request.getAttemptId(), questionId, request.getStudentAnswer());
+                examId, studentId, request.getAttemptId(), questionId, request.getStudentAnswer(),
+                request.getSequence());
             return ResponseEntity.ok(ApiResponse.success("答案提交成功", result));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST)
@@ -150,20 +181,15 @@ public class StudentExamController {
         
         try {
             Long studentId = getUserIdFromAuth(authentication);
-            List<AnswerSubmissionResult> results = new java.util.ArrayList<>();
-            
+
+            List<AnswerInput> answers = new java.util.ArrayList<>(request.getAnswers().size());
             for (BatchAnswerSubmissionRequest.Answer answer : request.getAnswers()) {
-                try {
-                    AnswerSubmissionResult result = studentExamService.submitAnswer(
-                        examId, studentId, request.getAttemptId(), answer.getQuestionId(), answer.getStudentAnswer());
-                    results.add(result);
-                } catch (Exception e) {
-                    results.add(new AnswerSubmissionResult(
-                        null, answer.getQuestionId(), answer.getStudentAnswer(), 
-                        java.time.LocalDateTime.now(), false, "提交失败: " + e.getMessage()));
-                }
+                answers.add(new AnswerInput(answer.getQuestionId(), answer.getStudentAnswer(), answer.getSequence()));
             }
-            
+
+            List<AnswerSubmissionResult> results = studentExamService.submitAnswersBatch(
+                examId, studentId, request.getAttemptId(), answers);
+
             return ResponseEntity.ok(ApiResponse.success("批量提交完成", results));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST)
@@ -281,18 +307,17 @@ public class StudentExamController {
         
         try {
             Long studentId = getUserIdFromAuth(authentication);
-            List<StudentQuestion> questions = studentExamService.getExamQuestions(examId, studentId, attemptId);
-            
-            long answeredCount = questions.stream().mapToLong(q -> q.isAnswered() ? 1 : 0).sum();
-            double progressPercentage = questions.isEmpty() ? 0 : (double) answeredCount / questions.size() * 100;
-            
-            Map<String, Object> progress = Map.of(
-                "totalQuestions", questions.size(),
-                "answeredQuestions", answeredCount,
-                "unansweredQuestions", questions.size() - answeredCount,
-                "progressPercentage", Math.round(progressPercentage * 100.0) / 100.0
-            );
-            
+            AttemptProgress attemptProgress = studentExamService.getExamProgress(examId, studentId, attemptId);
+
+            Map<String, Object> progress = new java.util.LinkedHashMap<>();
+            progress.put("totalQuestions", attemptProgress.getTotalQuestions());
+            progress.put("answeredQuestions", attemptProgress.getAnsweredQuestions());
+            progress.put("unansweredQuestions", attemptProgress.getUnansweredQuestions());
+            progress.put("progressPercentage", attemptProgress.getCompletionPercentage());
+            progress.put("lastQuestionId", attemptProgress.getLastQuestionId());
+            progress.put("lastAnswerTime", attemptProgress.getLastAnswerTime());
+            progress.put("secondsPerQuestion", attemptProgress.getSecondsPerQuestion());
+
             return ResponseEntity.ok(ApiResponse.success(progress));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST)
@@ -314,6 +339,26 @@ public class StudentExamController {
         throw new RuntimeException("用户未认证");
     }
 
+    private String getClientIp(HttpServletRequest request) {
+        String xForwardedFor = request.getHeader("X-Forwarded-For");
+        if (xForwardedFor != null && !xForwardedFor.isEmpty()) {
+            return xForwardedFor.split(",")[0].trim();
+        }
+        return request.getRemoteAddr();
+    }
+
+    private ResponseEntity<ApiResponse<StartTicketStatus>> toStartResponse(StartTicketStatus ticket) {
+        if (ticket.getStatus() == StartStatus.QUEUED) {
+            return ResponseEntity.status(HttpStatus.ACCEPTED)
+                    .body(ApiResponse.success("排队中，当前位置: " + ticket.getPosition(), ticket));
+        }
+        if (ticket.getStatus() == StartStatus.FAILED) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(ApiResponse.error("开始考试失败: " + ticket.getMessage()));
+        }
+        return ResponseEntity.ok(ApiResponse.success("考试开始成功", ticket));
+    }
+
     private long calculateRemainingTime(StudentExamInfo examInfo) {
         if (examInfo.getLastAttempt() != null && "IN_PROGRESS".equals(examInfo.getLastAttempt().getStatus())) {
             java.time.LocalDateTime endTime = examInfo.getLastAttempt().getEndTime();
@@ -328,6 +373,7 @@ public class StudentExamController {
     public static class AnswerSubmissionRequest {
         private Long attemptId;
         private String studentAnswer;
+        private Long sequence; // 客户端写入序号（每个考试记录单调递增）
 
         // 构造函数
         public AnswerSubmissionRequest() {}
@@ -342,6 +388,8 @@ public class StudentExamController {
         public void setAttemptId(Long attemptId) { this.attemptId = attemptId; }
         public String getStudentAnswer() { return studentAnswer; }
         public void setStudentAnswer(String studentAnswer) { this.studentAnswer = studentAnswer; }
+        public Long getSequence() { return sequence; }
+        public void setSequence(Long sequence) { this.sequence = sequence; }
     }
 
     public static class BatchAnswerSubmissionRequest {
@@ -365,6 +413,7 @@ public class StudentExamController {
         public static class Answer {
             private Long questionId;
             private String studentAnswer;
+            private Long sequence;
 
             // 构造函数
             public Answer() {}
@@ -379,6 +428,8 @@ public class StudentExamController {
             public void setQuestionId(Long questionId) { this.questionId = questionId; }
             public String getStudentAnswer() { return studentAnswer; }
             public void setStudentAnswer(String studentAnswer) { this.studentAnswer = studentAnswer; }
+            public Long getSequence() { return sequence; }
+            public void setSequence(Long sequence) { this.sequence = sequence; }
         }
     }
 
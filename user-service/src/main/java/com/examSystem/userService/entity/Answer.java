@@ -0,0 +1,205 @@
+package com.examSystem.userService.entity;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.NotNull;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * 答题记录实体类
+ *
+ * 基于数据库设计文档中的answers表结构
+ * 每个考试记录的每道题目只保留一条答案(attempt_id, question_id唯一)
+ */
+@Entity
+@Table(name = "answers",
+       uniqueConstraints = {
+           @UniqueConstraint(name = "uk_answers_attempt_question",
+                           columnNames = {"attempt_id", "question_id"})
+       },
+       indexes = {
+           @Index(name = "idx_answers_attempt_id", columnList = "attempt_id"),
+           @Index(name = "idx_answers_question_id", columnList = "question_id"),
+           @Index(name = "idx_answers_answered_at", columnList = "answered_at")
+       })
+public class Answer {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "attempt_id", nullable = false)
+    @NotNull(message = "考试记录ID不能为空")
+    private Long attemptId;
+
+    @Column(name = "question_id", nullable = false)
+    @NotNull(message = "题目ID不能为空")
+    private Long questionId;
+
+    @Column(name = "user_answer", columnDefinition = "TEXT")
+    private String studentAnswer;
+
+    // 评分信息
+    @Column(name = "is_correct")
+    private Boolean isCorrect;
+
+    @Column(name = "points_earned", precision = 6, scale = 2)
+    private BigDecimal score;
+
+    @Column(name = "feedback", columnDefinition = "TEXT")
+    private String gradingComment;
+
+    // 时间信息
+    @Column(name = "answered_at")
+    private LocalDateTime submitTime;
+
+    @Column(name = "graded_at")
+    private LocalDateTime gradedAt;
+
+    @Column(name = "time_spent")
+    private Integer timeSpent = 0; // 用时(秒)
+
+    @Column(name = "client_sequence")
+    private Long clientSequence; // 客户端写入序号，同一题目只接受更大的序号
+
+    // 人工评分租约
+    @Column(name = "grading_lease_owner")
+    private Long gradingLeaseOwner; // 持有评分租约的评分员ID
+
+    @Column(name = "grading_lease_expires_at")
+    private LocalDateTime gradingLeaseExpiresAt; // 租约过期后答案回到待评分池
+
+    // 默认构造函数
+    public Answer() {}
+
+    // 构造函数
+    public Answer(Long attemptId, Long questionId, String studentAnswer) {
+        this.attemptId = attemptId;
+        this.questionId = questionId;
+        this.studentAnswer = studentAnswer;
+        this.submitTime = LocalDateTime.now();
+    }
+
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getAttemptId() {
+        return attemptId;
+    }
+
+    public void setAttemptId(Long attemptId) {
+        this.attemptId = attemptId;
+    }
+
+    public Long getQuestionId() {
+        return questionId;
+    }
+
+    public void setQuestionId(Long questionId) {
+        this.questionId = questionId;
+    }
+
+    public String getStudentAnswer() {
+        return studentAnswer;
+    }
+
+    public void setStudentAnswer(String studentAnswer) {
+        this.studentAnswer = studentAnswer;
+    }
+
+    public Boolean getIsCorrect() {
+        return isCorrect;
+    }
+
+    public void setIsCorrect(Boolean isCorrect) {
+        this.isCorrect = isCorrect;
+    }
+
+    public BigDecimal getScore() {
+        return score;
+    }
+
+    public void setScore(BigDecimal score) {
+        this.score = score;
+    }
+
+    public String getGradingComment() {
+        return gradingComment;
+    }
+
+    public void setGradingComment(String gradingComment) {
+        this.gradingComment = gradingComment;
+    }
+
+    public LocalDateTime getSubmitTime() {
+        return submitTime;
+    }
+
+    public void setSubmitTime(LocalDateTime submitTime) {
+        this.submitTime = submitTime;
+    }
+
+    public LocalDateTime getGradedAt() {
+        return gradedAt;
+    }
+
+    public void setGradedAt(LocalDateTime gradedAt) {
+        this.gradedAt = gradedAt;
+    }
+
+    public Integer getTimeSpent() {
+        return timeSpent;
+    }
+
+    public void setTimeSpent(Integer timeSpent) {
+        this.timeSpent = timeSpent;
+    }
+
+    public Long getClientSequence() {
+        return clientSequence;
+    }
+
+    public void setClientSequence(Long clientSequence) {
+        this.clientSequence = clientSequence;
+    }
+
+    public Long getGradingLeaseOwner() {
+        return gradingLeaseOwner;
+    }
+
+    public void setGradingLeaseOwner(Long gradingLeaseOwner) {
+        this.gradingLeaseOwner = gradingLeaseOwner;
+    }
+
+    public LocalDateTime getGradingLeaseExpiresAt() {
+        return gradingLeaseExpiresAt;
+    }
+
+    public void setGradingLeaseExpiresAt(LocalDateTime gradingLeaseExpiresAt) {
+        this.gradingLeaseExpiresAt = gradingLeaseExpiresAt;
+    }
+
+    // 业务方法
+    public boolean isGraded() {
+        return gradedAt != null || isCorrect != null;
+    }
+
+    @Override
+    public String toString() {
+        return "Answer{" +
+                "id=" + id +
+                ", attemptId=" + attemptId +
+                ", questionId=" + questionId +
+                ", isCorrect=" + isCorrect +
+                ", score=" + score +
+                ", submitTime=" + submitTime +
+                '}';
+    }
+}
@@ -113,6 +113,10 @@ public class Exam {
     @Column(name = "grading_config", columnDefinition = "jsonb")
     private String gradingConfig = "{}"; // 评分配置
 
+    @Column(name = "answer_storage_mode", length = 20)
+    @Enumerated(EnumType.STRING)
+    private AnswerStorageMode answerStorageMode = AnswerStorageMode.ROWS; // 答题过程中的答案存储方式
+
     // 题目设置
     @Column(name = "shuffle_questions")
     private Boolean shuffleQuestions = false;
@@ -158,6 +162,16 @@ public class Exam {
     @Column(name = "avg_duration")
     private String avgDuration; // 存储为字符串，如 "01:30:00"
 
+    // 平均分和平均用时的累计值，随考试记录事件增量更新
+    @Column(name = "score_sum", precision = 14, scale = 2)
+    private BigDecimal scoreSum = BigDecimal.ZERO;
+
+    @Column(name = "scored_attempts")
+    private Integer scoredAttempts = 0;
+
+    @Column(name = "duration_sum_seconds")
+    private Long durationSumSeconds = 0L;
+
     // 时间戳
     @Column(name = "published_at")
     private LocalDateTime publishedAt;
@@ -231,6 +245,27 @@ public class Exam {
         }
     }
 
+    public enum AnswerStorageMode {
+        ROWS("rows", "逐题写入answers表"),
+        DOCUMENT("document", "按考试记录写入答题卡文档，交卷时展开");
+
+        private final String code;
+        private final String description;
+
+        AnswerStorageMode(String code, String description) {
+            this.code = code;
+            this.description = description;
+        }
+
+        public String getCode() {
+            return code;
+        }
+
+        public String getDescription() {
+            return description;
+        }
+    }
+
     // 默认构造函数
     public Exam() {}
 
@@ -398,6 +433,14 @@ public class Exam {
         this.gradingConfig = gradingConfig;
     }
 
+    public AnswerStorageMode getAnswerStorageMode() {
+        return answerStorageMode;
+    }
+
+    public void setAnswerStorageMode(AnswerStorageMode answerStorageMode) {
+        this.answerStorageMode = answerStorageMode;
+    }
+
     public Boolean getShuffleQuestions() {
         return shuffleQuestions;
     }
@@ -510,6 +553,30 @@ public class Exam {
         this.avgDuration = avgDuration;
     }
 
+    public BigDecimal getScoreSum() {
+        return scoreSum;
+    }
+
+    public void setScoreSum(BigDecimal scoreSum) {
+        this.scoreSum = scoreSum;
+    }
+
+    public Integer getScoredAttempts() {
+        return scoredAttempts;
+    }
+
+    public void setScoredAttempts(Integer scoredAttempts) {
+        this.scoredAttempts = scoredAttempts;
+    }
+
+    public Long getDurationSumSeconds() {
+        return durationSumSeconds;
+    }
+
+    public void setDurationSumSeconds(Long durationSumSeconds) {
+        this.durationSumSeconds = durationSumSeconds;
+    }
+
     public LocalDateTime getPublishedAt() {
         return publishedAt;
     }
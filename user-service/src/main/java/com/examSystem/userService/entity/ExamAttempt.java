@@ -72,6 +72,10 @@ public class ExamAttempt {
     @DecimalMin(value = "0", message = "总分不能为负")
     private BigDecimal pointsPossible;
 
+    // 已计入考试平均分的成绩，与score不同时由考试统计增量刷新补差
+    @Column(name = "aggregated_score", precision = 8, scale = 2)
+    private BigDecimal aggregatedScore;
+
     // 时间跟踪
     @CreatedDate
     @Column(name = "started_at", nullable = false, updatable = false)
@@ -97,9 +101,8 @@ public class ExamAttempt {
     private Integer remainingTime; // 剩余时间(秒)
 
     // 环境信息
-    @Column(name = "ip_address", nullable = false)
-    @NotNull(message = "IP地址不能为空")
-    private String ipAddress;
+    @Column(name = "ip_address")
+    private String ipAddress; // 预创建的考试记录在学生认领前为空
 
     @Column(name = "user_agent", columnDefinition = "TEXT")
     private String userAgent;
@@ -159,6 +162,7 @@ public class ExamAttempt {
 
     // 枚举定义
     public enum AttemptStatus {
+        PROVISIONED("provisioned", "已预创建"),
         STARTED("started", "已开始"),
         IN_PROGRESS("in_progress", "进行中"),
         PAUSED("paused", "已暂停"),
@@ -278,6 +282,14 @@ public class ExamAttempt {
         this.pointsPossible = pointsPossible;
     }
 
+    public BigDecimal getAggregatedScore() {
+        return aggregatedScore;
+    }
+
+    public void setAggregatedScore(BigDecimal aggregatedScore) {
+        this.aggregatedScore = aggregatedScore;
+    }
+
     public LocalDateTime getStartedAt() {
         return startedAt;
     }
@@ -0,0 +1,97 @@
+package com.examSystem.userService.entity;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.NotNull;
+
+import java.time.LocalDateTime;
+
+/**
+ * 考试报名实体类
+ *
+ * 记录考试的应考学生名单，用于在考试开放前预创建考试记录
+ */
+@Entity
+@Table(name = "exam_enrollments",
+       uniqueConstraints = {
+           @UniqueConstraint(name = "uk_exam_enrollment",
+                           columnNames = {"exam_id", "user_id"})
+       },
+       indexes = {
+           @Index(name = "idx_exam_enrollments_exam_id", columnList = "exam_id"),
+           @Index(name = "idx_exam_enrollments_user_id", columnList = "user_id")
+       })
+public class ExamEnrollment {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "exam_id", nullable = false)
+    @NotNull(message = "考试ID不能为空")
+    private Long examId;
+
+    @Column(name = "user_id", nullable = false)
+    @NotNull(message = "用户ID不能为空")
+    private Long userId;
+
+    @Column(name = "enrolled_at", nullable = false)
+    private LocalDateTime enrolledAt;
+
+    @PrePersist
+    protected void onCreate() {
+        if (enrolledAt == null) {
+            enrolledAt = LocalDateTime.now();
+        }
+    }
+
+    // 构造函数
+    public ExamEnrollment() {}
+
+    public ExamEnrollment(Long examId, Long userId) {
+        this.examId = examId;
+        this.userId = userId;
+    }
+
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getExamId() {
+        return examId;
+    }
+
+    public void setExamId(Long examId) {
+        this.examId = examId;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public LocalDateTime getEnrolledAt() {
+        return enrolledAt;
+    }
+
+    public void setEnrolledAt(LocalDateTime enrolledAt) {
+        this.enrolledAt = enrolledAt;
+    }
+
+    @Override
+    public String toString() {
+        return "ExamEnrollment{" +
+                "id=" + id +
+                ", examId=" + examId +
+                ", userId=" + userId +
+                ", enrolledAt=" + enrolledAt +
+                '}';
+    }
+}
@@ -0,0 +1,162 @@
+package com.examSystem.userService.entity;
+
+import jakarta.persistence.*;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * 考试题目分析统计实体类
+ *
+ * 每个考试中每道题目的作答汇总（分析引擎单次扫描已评分答案得出），
+ * 题目表上的正确率、平均分、难度和区分度由各考试的汇总按作答数合并而来
+ */
+@Entity
+@Table(name = "exam_item_statistics",
+       uniqueConstraints = {
+           @UniqueConstraint(name = "uk_exam_item_statistics",
+                           columnNames = {"exam_id", "question_id"})
+       },
+       indexes = {
+           @Index(name = "idx_exam_item_statistics_question_id", columnList = "question_id")
+       })
+public class ExamItemStatistics {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "exam_id", nullable = false)
+    private Long examId;
+
+    @Column(name = "question_id", nullable = false)
+    private Long questionId;
+
+    @Column(name = "points", nullable = false, precision = 6, scale = 2)
+    private BigDecimal points = BigDecimal.ZERO; // 该题在本考试中的分值
+
+    @Column(name = "responses", nullable = false)
+    private Integer responses = 0; // 已评分的作答数
+
+    @Column(name = "correct_count", nullable = false)
+    private Integer correctCount = 0;
+
+    @Column(name = "score_sum", nullable = false, precision = 14, scale = 2)
+    private BigDecimal scoreSum = BigDecimal.ZERO;
+
+    @Column(name = "time_sum", nullable = false)
+    private Long timeSum = 0L; // 作答用时合计(秒)
+
+    @Column(name = "timed_responses", nullable = false)
+    private Integer timedResponses = 0; // 记录了用时的作答数
+
+    @Column(name = "group_size", nullable = false)
+    private Integer groupSize = 0; // 高分组/低分组各自的考试记录数（27%），不足时为0
+
+    @Column(name = "discrimination", precision = 5, scale = 4)
+    private BigDecimal discrimination; // 高低分组得分率之差，可为负
+
+    @Column(name = "analyzed_at", nullable = false)
+    private LocalDateTime analyzedAt;
+
+    // 构造函数
+    public ExamItemStatistics() {
+        this.analyzedAt = LocalDateTime.now();
+    }
+
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getExamId() {
+        return examId;
+    }
+
+    public void setExamId(Long examId) {
+        this.examId = examId;
+    }
+
+    public Long getQuestionId() {
+        return questionId;
+    }
+
+    public void setQuestionId(Long questionId) {
+        this.questionId = questionId;
+    }
+
+    public BigDecimal getPoints() {
+        return points;
+    }
+
+    public void setPoints(BigDecimal points) {
+        this.points = points;
+    }
+
+    public Integer getResponses() {
+        return responses;
+    }
+
+    public void setResponses(Integer responses) {
+        this.responses = responses;
+    }
+
+    public Integer getCorrectCount() {
+        return correctCount;
+    }
+
+    public void setCorrectCount(Integer correctCount) {
+        this.correctCount = correctCount;
+    }
+
+    public BigDecimal getScoreSum() {
+        return scoreSum;
+    }
+
+    public void setScoreSum(BigDecimal scoreSum) {
+        this.scoreSum = scoreSum;
+    }
+
+    public Long getTimeSum() {
+        return timeSum;
+    }
+
+    public void setTimeSum(Long timeSum) {
+        this.timeSum = timeSum;
+    }
+
+    public Integer getTimedResponses() {
+        return timedResponses;
+    }
+
+    public void setTimedResponses(Integer timedResponses) {
+        this.timedResponses = timedResponses;
+    }
+
+    public Integer getGroupSize() {
+        return groupSize;
+    }
+
+    public void setGroupSize(Integer groupSize) {
+        this.groupSize = groupSize;
+    }
+
+    public BigDecimal getDiscrimination() {
+        return discrimination;
+    }
+
+    public void setDiscrimination(BigDecimal discrimination) {
+        this.discrimination = discrimination;
+    }
+
+    public LocalDateTime getAnalyzedAt() {
+        return analyzedAt;
+    }
+
+    public void setAnalyzedAt(LocalDateTime analyzedAt) {
+        this.analyzedAt = analyzedAt;
+    }
+}
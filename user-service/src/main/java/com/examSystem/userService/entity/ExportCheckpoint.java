@@ -0,0 +1,122 @@
+package com.examSystem.userService.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * 数据导出检查点实体类
+ *
+ * 每个导出日期的每张表一条记录。lastId为已写入完整分片文件的最大行ID（水位），
+ * 导出中断（如节点重启）后从水位之后继续，分片编号接着parts递增
+ */
+@Entity
+@Table(name = "export_checkpoints",
+       uniqueConstraints = {
+           @UniqueConstraint(name = "uk_export_checkpoints",
+                           columnNames = {"export_date", "table_name"})
+       })
+public class ExportCheckpoint {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "export_date", nullable = false)
+    private LocalDate exportDate; // 导出的数据日期
+
+    @Column(name = "table_name", nullable = false, length = 50)
+    private String tableName;
+
+    @Column(name = "last_id", nullable = false)
+    private Long lastId = 0L;
+
+    @Column(name = "exported_rows", nullable = false)
+    private Long exportedRows = 0L;
+
+    @Column(name = "parts", nullable = false)
+    private Integer parts = 0; // 已完成的分片文件数
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false, length = 20)
+    private ExportStatus status = ExportStatus.RUNNING;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    // 构造函数
+    public ExportCheckpoint() {
+        this.updatedAt = LocalDateTime.now();
+    }
+
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public LocalDate getExportDate() {
+        return exportDate;
+    }
+
+    public void setExportDate(LocalDate exportDate) {
+        this.exportDate = exportDate;
+    }
+
+    public String getTableName() {
+        return tableName;
+    }
+
+    public void setTableName(String tableName) {
+        this.tableName = tableName;
+    }
+
+    public Long getLastId() {
+        return lastId;
+    }
+
+    public void setLastId(Long lastId) {
+        this.lastId = lastId;
+    }
+
+    public Long getExportedRows() {
+        return exportedRows;
+    }
+
+    public void setExportedRows(Long exportedRows) {
+        this.exportedRows = exportedRows;
+    }
+
+    public Integer getParts() {
+        return parts;
+    }
+
+    public void setParts(Integer parts) {
+        this.parts = parts;
+    }
+
+    public ExportStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(ExportStatus status) {
+        this.status = status;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
+    // 枚举定义
+    public enum ExportStatus {
+        RUNNING,    // 导出中或已中断，下次从水位继续
+        COMPLETED   // 已完成
+    }
+}
@@ -0,0 +1,144 @@
+package com.examSystem.userService.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * 评分队列任务实体类
+ *
+ * 考试记录结束时写入grading_queue表，各节点的评分线程以
+ * FOR UPDATE SKIP LOCKED 认领小批任务，失败按退避重试，超过次数转入死信（DEAD）
+ */
+@Entity
+@Table(name = "grading_queue", indexes = {
+    @Index(name = "idx_grading_queue_status_available", columnList = "status, available_at")
+})
+public class GradingTask {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "attempt_id", nullable = false, unique = true)
+    private Long attemptId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false, length = 20)
+    private GradingTaskStatus status = GradingTaskStatus.PENDING;
+
+    @Column(name = "attempts", nullable = false)
+    private Integer attempts = 0; // 已执行次数
+
+    @Column(name = "available_at", nullable = false)
+    private LocalDateTime availableAt; // 最早可认领时间（重试退避）
+
+    @Column(name = "locked_by", length = 64)
+    private String lockedBy;
+
+    @Column(name = "locked_at")
+    private LocalDateTime lockedAt;
+
+    @Column(name = "last_error", length = 500)
+    private String lastError;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    // 构造函数
+    public GradingTask() {
+        this.createdAt = LocalDateTime.now();
+        this.availableAt = this.createdAt;
+    }
+
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getAttemptId() {
+        return attemptId;
+    }
+
+    public void setAttemptId(Long attemptId) {
+        this.attemptId = attemptId;
+    }
+
+    public GradingTaskStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(GradingTaskStatus status) {
+        this.status = status;
+    }
+
+    public Integer getAttempts() {
+        return attempts;
+    }
+
+    public void setAttempts(Integer attempts) {
+        this.attempts = attempts;
+    }
+
+    public LocalDateTime getAvailableAt() {
+        return availableAt;
+    }
+
+    public void setAvailableAt(LocalDateTime availableAt) {
+        this.availableAt = availableAt;
+    }
+
+    public String getLockedBy() {
+        return lockedBy;
+    }
+
+    public void setLockedBy(String lockedBy) {
+        this.lockedBy = lockedBy;
+    }
+
+    public LocalDateTime getLockedAt() {
+        return lockedAt;
+    }
+
+    public void setLockedAt(LocalDateTime lockedAt) {
+        this.lockedAt = lockedAt;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    public void setLastError(String lastError) {
+        this.lastError = lastError;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
+    // 枚举定义
+    public enum GradingTaskStatus {
+        PENDING,  // 等待认领（含退避中的重试）
+        RUNNING,  // 已被某节点认领
+        DONE,     // 评分完成
+        DEAD      // 重试次数用尽，等待人工处理
+    }
+}
@@ -154,9 +154,9 @@ public class Question {
     private BigDecimal difficultyIndex;
 
     @Column(name = "discrimination_index", precision = 3, scale = 2)
-    @DecimalMin(value = "0", message = "区分度不能为负")
+    @DecimalMin(value = "-1", message = "区分度不能小于-1")
     @DecimalMax(value = "1", message = "区分度不能超过1")
-    private BigDecimal discriminationIndex;
+    private BigDecimal discriminationIndex; // 负值表示低分组得分率高于高分组，题目需要复查
 
     // 版本控制
     @Column(name = "version")
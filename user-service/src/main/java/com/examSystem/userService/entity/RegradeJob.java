@@ -0,0 +1,196 @@
+package com.examSystem.userService.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * 重新评分任务实体类
+ *
+ * 标准答案修正后，按考试记录ID顺序分块重评该题目的所有答案。
+ * lastAttemptId为已完成的检查点，任务中断（如节点重启）后从检查点之后继续
+ */
+@Entity
+@Table(name = "regrade_jobs", indexes = {
+    @Index(name = "idx_regrade_jobs_status", columnList = "status, heartbeat_at")
+})
+public class RegradeJob {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "question_id", nullable = false)
+    private Long questionId; // 需要重评的答案所属题目
+
+    @Column(name = "key_question_id", nullable = false)
+    private Long keyQuestionId; // 提供标准答案的题目（新版本修正时为新版本ID）
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false, length = 20)
+    private RegradeStatus status = RegradeStatus.PENDING;
+
+    @Column(name = "last_attempt_id", nullable = false)
+    private Long lastAttemptId = 0L;
+
+    @Column(name = "processed_answers", nullable = false)
+    private Long processedAnswers = 0L;
+
+    @Column(name = "changed_answers", nullable = false)
+    private Long changedAnswers = 0L;
+
+    @Column(name = "rescored_attempts", nullable = false)
+    private Long rescoredAttempts = 0L;
+
+    @Column(name = "total_answers")
+    private Long totalAnswers;
+
+    @Column(name = "error_message", length = 500)
+    private String errorMessage;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "heartbeat_at")
+    private LocalDateTime heartbeatAt;
+
+    @Column(name = "finished_at")
+    private LocalDateTime finishedAt;
+
+    // 构造函数
+    public RegradeJob() {
+        this.createdAt = LocalDateTime.now();
+    }
+
+    public RegradeJob(Long questionId, Long keyQuestionId) {
+        this();
+        this.questionId = questionId;
+        this.keyQuestionId = keyQuestionId;
+    }
+
+    public boolean isFinished() {
+        return status == RegradeStatus.COMPLETED || status == RegradeStatus.FAILED;
+    }
+
+    public double getProgressPercentage() {
+        if (status == RegradeStatus.COMPLETED) {
+            return 100;
+        }
+        if (totalAnswers == null || totalAnswers == 0) {
+            return 0;
+        }
+        return Math.min(100, Math.round((double) processedAnswers / totalAnswers * 10000) / 100.0);
+    }
+
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getQuestionId() {
+        return questionId;
+    }
+
+    public void setQuestionId(Long questionId) {
+        this.questionId = questionId;
+    }
+
+    public Long getKeyQuestionId() {
+        return keyQuestionId;
+    }
+
+    public void setKeyQuestionId(Long keyQuestionId) {
+        this.keyQuestionId = keyQuestionId;
+    }
+
+    public RegradeStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(RegradeStatus status) {
+        this.status = status;
+    }
+
+    public Long getLastAttemptId() {
+        return lastAttemptId;
+    }
+
+    public void setLastAttemptId(Long lastAttemptId) {
+        this.lastAttemptId = lastAttemptId;
+    }
+
+    public Long getProcessedAnswers() {
+        return processedAnswers;
+    }
+
+    public void setProcessedAnswers(Long processedAnswers) {
+        this.processedAnswers = processedAnswers;
+    }
+
+    public Long getChangedAnswers() {
+        return changedAnswers;
+    }
+
+    public void setChangedAnswers(Long changedAnswers) {
+        this.changedAnswers = changedAnswers;
+    }
+
+    public Long getRescoredAttempts() {
+        return rescoredAttempts;
+    }
+
+    public void setRescoredAttempts(Long rescoredAttempts) {
+        this.rescoredAttempts = rescoredAttempts;
+    }
+
+    public Long getTotalAnswers() {
+        return totalAnswers;
+    }
+
+    public void setTotalAnswers(Long totalAnswers) {
+        this.totalAnswers = totalAnswers;
+    }
+
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+
+    public void setErrorMessage(String errorMessage) {
+        this.errorMessage = errorMessage;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public LocalDateTime getHeartbeatAt() {
+        return heartbeatAt;
+    }
+
+    public void setHeartbeatAt(LocalDateTime heartbeatAt) {
+        this.heartbeatAt = heartbeatAt;
+    }
+
+    public LocalDateTime getFinishedAt() {
+        return finishedAt;
+    }
+
+    public void setFinishedAt(LocalDateTime finishedAt) {
+        this.finishedAt = finishedAt;
+    }
+
+    // 枚举定义
+    public enum RegradeStatus {
+        PENDING,    // 等待执行
+        RUNNING,    // 执行中（心跳超时视为中断，可被接管）
+        COMPLETED,  // 已完成
+        FAILED      // 失败
+    }
+}
@@ -0,0 +1,190 @@
+package com.examSystem.userService.repository;
+
+import com.examSystem.userService.service.grading.ScoreUnits;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 答题记录批量写入
+ *
+ * 使用多行 INSERT ... ON CONFLICT (attempt_id, question_id) 一次写入多条答案，
+ * 替代逐条 findByAttemptIdAndQuestionId + save 的读改写流程。
+ * 写入时已评分的答案（见 AnswerRow#withGrade）同时写入 is_correct 和 points_earned
+ */
+@Repository
+public class AnswerBatchRepository {
+
+    // PostgreSQL单条语句最多65535个绑定参数，每行7个参数
+    private static final int MAX_ROWS_PER_STATEMENT = 1000;
+
+    // points_possible为非空列，新插入的答案取该题在考试中的分值；VALUES中的参数可能推断为text，逐列显式转换
+    private static final String UPSERT_PREFIX =
+        "INSERT INTO answers (attempt_id, question_id, user_answer, answered_at, client_sequence, " +
+        "is_correct, points_earned, points_possible) " +
+        "SELECT v.attempt_id::bigint, v.question_id::bigint, v.user_answer::text, v.answered_at::timestamp, " +
+        "v.client_sequence::bigint, v.is_correct::boolean, v.points_earned::numeric, " +
+        "COALESCE((SELECT eq.points FROM exam_attempts ea JOIN exam_questions eq ON eq.exam_id = ea.exam_id " +
+        "WHERE ea.id = v.attempt_id::bigint AND eq.question_id = v.question_id::bigint), 0) " +
+        "FROM (VALUES ";
+
+    private static final String VALUES_ALIAS =
+        ") AS v(attempt_id, question_id, user_answer, answered_at, client_sequence, is_correct, points_earned)";
+
+    // 只允许较新的答案覆盖已有答案，避免延迟到达的旧数据回写：
+    // 双方都带客户端序号时按序号比较，否则按提交时间比较
+    static final String UPSERT_SUFFIX =
+        " ON CONFLICT (attempt_id, question_id) DO UPDATE SET " +
+        "user_answer = EXCLUDED.user_answer, answered_at = EXCLUDED.answered_at, " +
+        "client_sequence = EXCLUDED.client_sequence, " +
+        "is_correct = EXCLUDED.is_correct, points_earned = EXCLUDED.points_earned " +
+        "WHERE CASE WHEN answers.client_sequence IS NOT NULL AND EXCLUDED.client_sequence IS NOT NULL " +
+        "THEN answers.client_sequence < EXCLUDED.client_sequence " +
+        "ELSE answers.answered_at IS NULL OR answers.answered_at <= EXCLUDED.answered_at END";
+
+    // 展开答题卡时只覆盖严格更旧的记录：已展开过的答案再次展开时保持不变，不会覆盖其后写入的评分
+    private static final String EXPLODE_SUFFIX =
+        " ON CONFLICT (attempt_id, question_id) DO UPDATE SET " +
+        "user_answer = EXCLUDED.user_answer, answered_at = EXCLUDED.answered_at, " +
+        "client_sequence = EXCLUDED.client_sequence, " +
+        "is_correct = EXCLUDED.is_correct, points_earned = EXCLUDED.points_earned " +
+        "WHERE CASE WHEN answers.client_sequence IS NOT NULL AND EXCLUDED.client_sequence IS NOT NULL " +
+        "THEN answers.client_sequence < EXCLUDED.client_sequence " +
+        "ELSE answers.answered_at IS NULL OR answers.answered_at < EXCLUDED.answered_at END";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * 批量写入答案，返回受影响的行数
+     */
+    public int upsertAnswers(Collection<AnswerRow> rows) {
+        return upsert(rows, UPSERT_SUFFIX);
+    }
+
+    /**
+     * 写入从答题卡展开的答案，返回受影响的行数
+     *
+     * 与 {@link #upsertAnswers} 相同，但只覆盖严格更旧的记录，重复展开是幂等的
+     */
+    public int explodeAnswers(Collection<AnswerRow> rows) {
+        return upsert(rows, EXPLODE_SUFFIX);
+    }
+
+    // 私有辅助方法
+
+    private int upsert(Collection<AnswerRow> rows, String conflictClause) {
+        if (rows == null || rows.isEmpty()) {
+            return 0;
+        }
+
+        // 同一语句中重复的(attempt_id, question_id)会导致ON CONFLICT报错，保留较新的一条
+        Map<String, AnswerRow> deduplicated = new LinkedHashMap<>();
+        for (AnswerRow row : rows) {
+            deduplicated.merge(row.getAttemptId() + ":" + row.getQuestionId(), row,
+                (existing, candidate) -> candidate.isNewerThan(existing) ? candidate : existing);
+        }
+
+        List<AnswerRow> pending = new ArrayList<>(deduplicated.values());
+        int affected = 0;
+        for (int from = 0; from < pending.size(); from += MAX_ROWS_PER_STATEMENT) {
+            List<AnswerRow> chunk = pending.subList(from, Math.min(from + MAX_ROWS_PER_STATEMENT, pending.size()));
+            affected += upsertChunk(chunk, conflictClause);
+        }
+        return affected;
+    }
+
+    private int upsertChunk(List<AnswerRow> chunk, String conflictClause) {
+        StringBuilder sql = new StringBuilder(
+            UPSERT_PREFIX.length() + chunk.size() * 16 + VALUES_ALIAS.length() + conflictClause.length());
+        sql.append(UPSERT_PREFIX);
+
+        Object[] args = new Object[chunk.size() * 7];
+        int i = 0;
+        for (AnswerRow row : chunk) {
+            if (i > 0) {
+                sql.append(',');
+            }
+            sql.append("(?,?,?,?,?,?,?)");
+            args[i++] = row.getAttemptId();
+            args[i++] = row.getQuestionId();
+            args[i++] = row.getStudentAnswer();
+            args[i++] = Timestamp.valueOf(row.getSubmitTime());
+            args[i++] = row.getClientSequence();
+            args[i++] = row.getCorrect();
+            args[i++] = row.getScoreUnits() != null ? ScoreUnits.toBigDecimal(row.getScoreUnits()) : null;
+        }
+        sql.append(VALUES_ALIAS).append(conflictClause);
+
+        return jdbcTemplate.update(sql.toString(), args);
+    }
+
+    // 内部类定义
+
+    /**
+     * 待写入的答案行（不可变）
+     */
+    public static class AnswerRow {
+        private final Long attemptId;
+        private final Long questionId;
+        private final String studentAnswer;
+        private final LocalDateTime submitTime;
+        private final Long clientSequence;
+        private final Boolean correct;
+        private final Long scoreUnits;
+
+        public AnswerRow(Long attemptId, Long questionId, String studentAnswer, LocalDateTime submitTime) {
+            this(attemptId, questionId, studentAnswer, submitTime, null);
+        }
+
+        public AnswerRow(Long attemptId, Long questionId, String studentAnswer, LocalDateTime submitTime,
+                         Long clientSequence) {
+            this(attemptId, questionId, studentAnswer, submitTime, clientSequence, null, null);
+        }
+
+        private AnswerRow(Long attemptId, Long questionId, String studentAnswer, LocalDateTime submitTime,
+                          Long clientSequence, Boolean correct, Long scoreUnits) {
+            this.attemptId = attemptId;
+            this.questionId = questionId;
+            this.studentAnswer = studentAnswer;
+            this.submitTime = submitTime;
+            this.clientSequence = clientSequence;
+            this.correct = correct;
+            this.scoreUnits = scoreUnits;
+        }
+
+        /**
+         * 附带评分结果的副本（得分为定点单位，见ScoreUnits）
+         */
+        public AnswerRow withGrade(boolean correct, long scoreUnits) {
+            return new AnswerRow(attemptId, questionId, studentAnswer, submitTime, clientSequence, correct, scoreUnits);
+        }
+
+        /**
+         * 是否应覆盖同一题目的另一条答案：双方都带序号时比较序号，否则比较提交时间
+         */
+        public boolean isNewerThan(AnswerRow other) {
+            if (clientSequence != null && other.clientSequence != null) {
+                return clientSequence > other.clientSequence;
+            }
+            return !submitTime.isBefore(other.submitTime);
+        }
+
+        // Getters
+        public Long getAttemptId() { return attemptId; }
+        public Long getQuestionId() { return questionId; }
+        public String getStudentAnswer() { return studentAnswer; }
+        public LocalDateTime getSubmitTime() { return submitTime; }
+        public Long getClientSequence() { return clientSequence; }
+        public Boolean getCorrect() { return correct; }
+        public Long getScoreUnits() { return scoreUnits; }
+    }
+}
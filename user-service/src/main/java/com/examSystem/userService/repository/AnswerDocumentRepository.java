@@ -0,0 +1,127 @@
+package com.examSystem.userService.repository;
+
+import com.examSystem.userService.repository.AnswerBatchRepository.AnswerRow;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 答题卡文档存储
+ *
+ * 文档模式下考试进行中的答案保存在exam_attempts.answers_summary中，格式为
+ * {"version": n, "answers": {"题目ID": {"a": 答案, "t": 提交时间, "s": 客户端序号}}}。
+ * 自动保存只合并增量，交卷或评分时一次性评分并展开为answers表记录（见 AnswerBatchRepository#explodeAnswers）
+ */
+@Repository
+public class AnswerDocumentRepository {
+
+    // 增量中的题目只有比文档中已有的更新时才覆盖（规则同AnswerRow#isNewerThan），每次写入版本号加1
+    private static final String APPLY_DELTA_SQL =
+        "UPDATE exam_attempts a SET answers_summary = COALESCE(a.answers_summary, '{}'::jsonb) || jsonb_build_object(" +
+        "'version', COALESCE((a.answers_summary->>'version')::bigint, 0) + 1, " +
+        "'answers', COALESCE(a.answers_summary->'answers', '{}'::jsonb) || COALESCE((" +
+        "SELECT jsonb_object_agg(d.key, d.value) FROM jsonb_each(CAST(? AS jsonb)) d " +
+        "WHERE a.answers_summary->'answers'->d.key IS NULL OR CASE " +
+        "WHEN a.answers_summary->'answers'->d.key->>'s' IS NOT NULL AND d.value->>'s' IS NOT NULL " +
+        "THEN (a.answers_summary->'answers'->d.key->>'s')::bigint < (d.value->>'s')::bigint " +
+        "ELSE (a.answers_summary->'answers'->d.key->>'t')::timestamp <= (d.value->>'t')::timestamp END" +
+        "), '{}'::jsonb)) " +
+        "WHERE a.id = ?";
+
+    private static final String LOAD_SQL =
+        "SELECT answers_summary->'answers' FROM exam_attempts WHERE id = ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * 将各考试记录的答案增量合并到答题卡文档，所有考试记录共用一次JDBC批量往返
+     */
+    public void applyDeltas(Map<Long, ? extends Collection<AnswerRow>> deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+
+        List<Object[]> batchArgs = new ArrayList<>(deltas.size());
+        for (Map.Entry<Long, ? extends Collection<AnswerRow>> entry : deltas.entrySet()) {
+            if (!entry.getValue().isEmpty()) {
+                batchArgs.add(new Object[] { toDeltaJson(entry.getValue()), entry.getKey() });
+            }
+        }
+        if (!batchArgs.isEmpty()) {
+            jdbcTemplate.batchUpdate(APPLY_DELTA_SQL, batchArgs);
+        }
+    }
+
+    /**
+     * 读取答题卡文档中的答案（题目ID -> 答案）
+     */
+    public Map<Long, AnswerRow> loadAnswers(Long attemptId) {
+        List<String> documents = jdbcTemplate.queryForList(LOAD_SQL, String.class, attemptId);
+        if (documents.isEmpty() || documents.get(0) == null) {
+            return Collections.emptyMap();
+        }
+
+        try {
+            JsonNode answers = objectMapper.readTree(documents.get(0));
+            Map<Long, AnswerRow> result = new HashMap<>(answers.size() * 2);
+            Iterator<Map.Entry<String, JsonNode>> fields = answers.fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                JsonNode value = field.getValue();
+                Long questionId = Long.valueOf(field.getKey());
+                result.put(questionId, new AnswerRow(
+                    attemptId,
+                    questionId,
+                    value.path("a").isNull() ? null : value.path("a").asText(),
+                    LocalDateTime.parse(value.path("t").asText()),
+                    value.hasNonNull("s") ? value.get("s").asLong() : null));
+            }
+            return result;
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("答题卡解析失败: " + attemptId, e);
+        }
+    }
+
+    private String toDeltaJson(Collection<AnswerRow> rows) {
+        // 同一增量中重复的题目保留较新的一条
+        Map<Long, AnswerRow> latest = new LinkedHashMap<>();
+        for (AnswerRow row : rows) {
+            latest.merge(row.getQuestionId(), row,
+                (existing, candidate) -> candidate.isNewerThan(existing) ? candidate : existing);
+        }
+
+        Map<String, Map<String, Object>> delta = new LinkedHashMap<>();
+        for (AnswerRow row : latest.values()) {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("a", row.getStudentAnswer());
+            entry.put("t", row.getSubmitTime().toString());
+            if (row.getClientSequence() != null) {
+                entry.put("s", row.getClientSequence());
+            }
+            delta.put(row.getQuestionId().toString(), entry);
+        }
+
+        try {
+            return objectMapper.writeValueAsString(delta);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("答题卡增量序列化失败", e);
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.examSystem.userService.repository;
+
+import com.examSystem.userService.entity.Answer;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * 答题记录数据访问接口
+ *
+ * 基于数据库设计文档中的answers表结构
+ * 批量写入(upsert)见 {@link AnswerBatchRepository}
+ */
+@Repository
+public interface AnswerRepository extends JpaRepository<Answer, Long> {
+
+    /**
+     * 查找考试记录的所有答案
+     */
+    List<Answer> findByAttemptId(Long attemptId);
+
+    /**
+     * 批量查找多个考试记录的答案
+     */
+    List<Answer> findByAttemptIdIn(Collection<Long> attemptIds);
+
+    /**
+     * 查找考试记录中指定题目的答案
+     */
+    Optional<Answer> findByAttemptIdAndQuestionId(Long attemptId, Long questionId);
+
+    /**
+     * 统计考试记录已作答的题目数
+     */
+    long countByAttemptId(Long attemptId);
+
+    /**
+     * 查找需要人工评分的答案（主观题且尚未评分）
+     */
+    @Query("SELECT a FROM Answer a, ExamAttempt ea, Question q " +
+           "WHERE a.attemptId = ea.id AND a.questionId = q.id AND ea.examId = :examId " +
+           "AND q.type = 'ESSAY' AND a.gradedAt IS NULL " +
+           "ORDER BY a.id")
+    List<Answer> findAnswersNeedingManualGrading(@Param("examId") Long examId);
+}
@@ -0,0 +1,101 @@
+package com.examSystem.userService.repository;
+
+import com.examSystem.userService.entity.ExamAttempt.AttemptStatus;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * 考试记录截止时间数据访问
+ *
+ * 截止时间 = 开始时间 + min(考试时长, 全部题目都限时时的限时合计) + 宽限期，
+ * 与 AttemptDeadlineScheduler 在开考时计算的一致
+ */
+@Repository
+public class AttemptDeadlineRepository {
+
+    private static final String DEADLINE_EXPRESSION =
+        "(ea.started_at + LEAST(make_interval(mins => e.duration_minutes), " +
+        "CASE WHEN t.untimed = 0 THEN make_interval(secs => t.total_limit) END) " +
+        "+ make_interval(mins => COALESCE(e.grace_period_minutes, 0)))";
+
+    private static final String DEADLINE_FROM =
+        "FROM exam_attempts ea JOIN exams e ON e.id = ea.exam_id " +
+        "LEFT JOIN (SELECT exam_id, SUM(time_limit_seconds) AS total_limit, " +
+        "COUNT(*) FILTER (WHERE time_limit_seconds IS NULL) AS untimed FROM exam_questions GROUP BY exam_id) t " +
+        "ON t.exam_id = ea.exam_id " +
+        "WHERE ea.status = 'IN_PROGRESS' AND ea.started_at IS NOT NULL AND e.duration_minutes IS NOT NULL";
+
+    private static final String FIND_IN_PROGRESS_SQL =
+        "SELECT ea.id, " + DEADLINE_EXPRESSION + " " + DEADLINE_FROM;
+
+    private static final String FIND_OVERDUE_SQL =
+        "SELECT ea.id " + DEADLINE_FROM + " AND " + DEADLINE_EXPRESSION + " <= ? ORDER BY ea.id LIMIT ?";
+
+    // 全部题目都设置了单题限时时返回限时合计，否则为NULL
+    private static final String SECTION_LIMIT_SQL =
+        "SELECT CASE WHEN COUNT(*) > 0 AND COUNT(*) = COUNT(time_limit_seconds) " +
+        "THEN SUM(time_limit_seconds) END FROM exam_questions WHERE exam_id = ?";
+
+    // 只有仍在进行中的考试记录会被结束，多个节点同时触发时只有一个生效；状态按 AttemptStatus 名称绑定
+    private static final String MARK_TIMEOUT_SQL =
+        "UPDATE exam_attempts SET status = ?, submitted_at = ?, last_activity = ? " +
+        "WHERE id = ? AND status = 'IN_PROGRESS' RETURNING started_at";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * 全部进行中考试记录的截止时间（启动时重建时间轮）
+     */
+    public List<AttemptDeadline> findInProgressDeadlines() {
+        return jdbcTemplate.query(FIND_IN_PROGRESS_SQL, (rs, rowNum) -> new AttemptDeadline(
+            rs.getLong(1), rs.getTimestamp(2).toLocalDateTime()));
+    }
+
+    /**
+     * 已过截止时间仍在进行中的考试记录
+     */
+    public List<Long> findOverdueAttemptIds(LocalDateTime now, int limit) {
+        return jdbcTemplate.queryForList(FIND_OVERDUE_SQL, Long.class, Timestamp.valueOf(now), limit);
+    }
+
+    /**
+     * 考试各章节单题限时的合计（秒），有题目未限时则为null
+     */
+    public Integer findSectionTimeLimitSeconds(Long examId) {
+        return jdbcTemplate.queryForObject(SECTION_LIMIT_SQL, Integer.class, examId);
+    }
+
+    /**
+     * 把进行中的考试记录标记为自动提交（超时），返回其开始时间；已结束的返回空
+     */
+    public Optional<LocalDateTime> markTimeout(Long attemptId, LocalDateTime now) {
+        Timestamp timestamp = Timestamp.valueOf(now);
+        List<LocalDateTime> startedAt = jdbcTemplate.query(MARK_TIMEOUT_SQL,
+            (rs, rowNum) -> rs.getTimestamp(1).toLocalDateTime(),
+            AttemptStatus.AUTO_SUBMITTED.name(), timestamp, timestamp, attemptId);
+        return startedAt.isEmpty() ? Optional.empty() : Optional.of(startedAt.get(0));
+    }
+
+    // 内部类定义
+
+    public static class AttemptDeadline {
+        private final Long attemptId;
+        private final LocalDateTime deadline;
+
+        public AttemptDeadline(Long attemptId, LocalDateTime deadline) {
+            this.attemptId = attemptId;
+            this.deadline = deadline;
+        }
+
+        // Getters
+        public Long getAttemptId() { return attemptId; }
+        public LocalDateTime getDeadline() { return deadline; }
+    }
+}
@@ -0,0 +1,74 @@
+package com.examSystem.userService.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * 考试记录预创建
+ *
+ * 考试开放前按报名名单批量插入PROVISIONED状态的exam_attempts行，
+ * 学生开始考试时只需一条条件UPDATE认领自己的记录
+ */
+@Repository
+public class AttemptProvisioningRepository {
+
+    // IP地址留空，由学生认领时写入实际的客户端地址
+    private static final String PROVISION_SQL =
+        "INSERT INTO exam_attempts (attempt_code, exam_id, user_id, status, started_at, last_activity, " +
+        "attempt_number) " +
+        "SELECT replace(gen_random_uuid()::text, '-', ''), en.exam_id, en.user_id, 'PROVISIONED', ?, ?, 1 " +
+        "FROM exam_enrollments en " +
+        "WHERE en.exam_id = ? AND NOT EXISTS (" +
+        "SELECT 1 FROM exam_attempts a WHERE a.exam_id = en.exam_id AND a.user_id = en.user_id)";
+
+    // 子查询加行锁：并发认领同一学生的记录时，后到者等待并在重新检查后得到空结果。
+    // 剩余时间按截止时间写入，与新建考试记录一致
+    private static final String CLAIM_SQL =
+        "UPDATE exam_attempts SET status = 'IN_PROGRESS', started_at = ?, last_activity = ?, remaining_time = ?, " +
+        "ip_address = ? " +
+        "WHERE id = (SELECT id FROM exam_attempts WHERE exam_id = ? AND user_id = ? AND status = 'PROVISIONED' " +
+        "ORDER BY id LIMIT 1 FOR UPDATE) " +
+        "RETURNING id";
+
+    private static final String RELEASE_EXPIRED_SQL =
+        "DELETE FROM exam_attempts a USING exams e " +
+        "WHERE a.exam_id = e.id AND a.status = 'PROVISIONED' " +
+        "AND e.available_until IS NOT NULL AND e.available_until < ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * 为考试报名名单中尚无考试记录的学生预创建记录，返回创建数量
+     */
+    public int provisionAttempts(Long examId, LocalDateTime now) {
+        Timestamp timestamp = Timestamp.valueOf(now);
+        return jdbcTemplate.update(PROVISION_SQL, timestamp, timestamp, examId);
+    }
+
+    /**
+     * 认领学生的预创建记录并置为进行中（写入截止前的剩余时间和客户端IP），返回考试记录ID
+     */
+    public Optional<Long> claimProvisionedAttempt(Long examId, Long studentId, LocalDateTime startTime,
+                                                  LocalDateTime deadline, String ipAddress) {
+        Timestamp timestamp = Timestamp.valueOf(startTime);
+        int remainingSeconds = (int) Duration.between(startTime, deadline).getSeconds();
+        List<Long> ids = jdbcTemplate.queryForList(CLAIM_SQL, Long.class,
+            timestamp, timestamp, remainingSeconds, ipAddress, examId, studentId);
+        return ids.isEmpty() ? Optional.empty() : Optional.of(ids.get(0));
+    }
+
+    /**
+     * 删除已过开放时间仍未被认领的预创建记录，返回删除数量
+     */
+    public int releaseExpiredAttempts(LocalDateTime now) {
+        return jdbcTemplate.update(RELEASE_EXPIRED_SQL, Timestamp.valueOf(now));
+    }
+}
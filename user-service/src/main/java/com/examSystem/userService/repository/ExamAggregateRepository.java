@@ -0,0 +1,157 @@
+package com.examSystem.userService.repository;
+
+import com.examSystem.userService.entity.ExamAttempt.AttemptStatus;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * 考试统计字段的增量维护
+ *
+ * 参与人数、完成人数和用时合计按内存中合并的增量用 x = x + delta 原子累加；
+ * 平均分以考试记录的aggregated_score（已计入的成绩）为基准补差，评分、重评重复写入不会重复计入。
+ * 平均值由累计值在同一条语句中算出
+ */
+@Repository
+public class ExamAggregateRepository {
+
+    // 已结束的考试记录：主动交卷、超时或考试结束时自动提交、评分及复核完成
+    private static final String FINISHED_STATUSES = statusList(
+        AttemptStatus.SUBMITTED, AttemptStatus.AUTO_SUBMITTED, AttemptStatus.GRADED, AttemptStatus.REVIEWED);
+
+    // 计入平均分的成绩：已结束的考试记录的成绩
+    private static final String COUNTED_SCORE =
+        "(CASE WHEN a.status IN " + FINISHED_STATUSES + " THEN a.score END)";
+
+    private static final String APPLY_COUNT_DELTAS_SQL =
+        "UPDATE exams e SET attempts_count = COALESCE(e.attempts_count, 0) + d.attempts, " +
+        "completed_attempts = COALESCE(e.completed_attempts, 0) + d.completed, " +
+        "duration_sum_seconds = COALESCE(e.duration_sum_seconds, 0) + d.duration, " +
+        "avg_duration = CASE WHEN COALESCE(e.completed_attempts, 0) + d.completed > 0 " +
+        "THEN to_char(make_interval(secs => (COALESCE(e.duration_sum_seconds, 0) + d.duration) " +
+        "/ (COALESCE(e.completed_attempts, 0) + d.completed)), 'HH24:MI:SS') ELSE e.avg_duration END " +
+        "FROM unnest(CAST(? AS bigint[]), CAST(? AS integer[]), CAST(? AS integer[]), CAST(? AS bigint[])) " +
+        "AS d(exam_id, attempts, completed, duration) " +
+        "WHERE e.id = d.exam_id";
+
+    private static final String SCORE_DELTAS_BY_ATTEMPT_SQL = scoreDeltasSql("a.id = ANY(CAST(? AS bigint[]))");
+
+    private static final String SCORE_DELTAS_BY_EXAM_SQL = scoreDeltasSql("a.exam_id = ANY(CAST(? AS bigint[]))");
+
+    // 近期有考试记录开始或交卷、且已静默一段时间的考试（仍在写入的考试等下一轮，避免与未刷新的增量重复）
+    private static final String FIND_EXAMS_TO_RECONCILE_SQL =
+        "SELECT exam_id FROM exam_attempts WHERE started_at >= ? OR submitted_at >= ? " +
+        "GROUP BY exam_id HAVING MAX(GREATEST(started_at, submitted_at)) < ? " +
+        "ORDER BY exam_id LIMIT ?";
+
+    private static final String RECOUNT_SQL =
+        "UPDATE exams e SET attempts_count = t.attempts, completed_attempts = t.completed, " +
+        "duration_sum_seconds = t.duration, " +
+        "avg_duration = CASE WHEN t.completed > 0 " +
+        "THEN to_char(make_interval(secs => t.duration / t.completed), 'HH24:MI:SS') END, " +
+        "score_sum = t.score_sum, scored_attempts = t.scored, " +
+        "avg_score = CASE WHEN t.scored > 0 THEN ROUND(t.score_sum / t.scored, 2) END " +
+        "FROM (SELECT a.exam_id, COUNT(*) FILTER (WHERE a.status <> '" + AttemptStatus.PROVISIONED.name() + "') AS attempts, " +
+        "COUNT(*) FILTER (WHERE a.status IN " + FINISHED_STATUSES + ") AS completed, " +
+        "CAST(COALESCE(SUM(EXTRACT(EPOCH FROM a.submitted_at - a.started_at)) " +
+        "FILTER (WHERE a.status IN " + FINISHED_STATUSES + "), 0) AS bigint) AS duration, " +
+        "COUNT(a.aggregated_score) AS scored, COALESCE(SUM(a.aggregated_score), 0) AS score_sum " +
+        "FROM exam_attempts a WHERE a.exam_id = ANY(CAST(? AS bigint[])) GROUP BY a.exam_id) t " +
+        "WHERE e.id = t.exam_id";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * 累加各考试的参与人数、完成人数和用时增量，并重算平均用时
+     */
+    public int applyCountDeltas(List<Long> examIds, List<Integer> attempts, List<Integer> completed,
+                                List<Long> durationSeconds) {
+        if (examIds.isEmpty()) {
+            return 0;
+        }
+        return jdbcTemplate.update(connection -> {
+            PreparedStatement statement = connection.prepareStatement(APPLY_COUNT_DELTAS_SQL);
+            statement.setArray(1, connection.createArrayOf("bigint", examIds.toArray()));
+            statement.setArray(2, connection.createArrayOf("integer", attempts.toArray()));
+            statement.setArray(3, connection.createArrayOf("integer", completed.toArray()));
+            statement.setArray(4, connection.createArrayOf("bigint", durationSeconds.toArray()));
+            return statement;
+        });
+    }
+
+    /**
+     * 把成绩变化的考试记录补差计入所属考试的平均分，返回更新的考试数
+     */
+    public int applyScoreDeltas(Collection<Long> attemptIds) {
+        if (attemptIds.isEmpty()) {
+            return 0;
+        }
+        return updateByIds(SCORE_DELTAS_BY_ATTEMPT_SQL, attemptIds);
+    }
+
+    /**
+     * 需要核对统计的考试
+     */
+    public List<Long> findExamsToReconcile(LocalDateTime activeSince, LocalDateTime quietBefore, int limit) {
+        Timestamp since = Timestamp.valueOf(activeSince);
+        return jdbcTemplate.queryForList(FIND_EXAMS_TO_RECONCILE_SQL, Long.class,
+            since, since, Timestamp.valueOf(quietBefore), limit);
+    }
+
+    /**
+     * 先补计未刷新的成绩变化，再按考试记录重算考试的全部统计字段
+     */
+    @Transactional
+    public void reconcileExams(List<Long> examIds) {
+        if (examIds.isEmpty()) {
+            return;
+        }
+        updateByIds(SCORE_DELTAS_BY_EXAM_SQL, examIds);
+        updateByIds(RECOUNT_SQL, examIds);
+    }
+
+    // 私有辅助方法
+
+    private int updateByIds(String sql, Collection<Long> ids) {
+        return jdbcTemplate.update(connection -> {
+            PreparedStatement statement = connection.prepareStatement(sql);
+            statement.setArray(1, connection.createArrayOf("bigint", ids.toArray()));
+            return statement;
+        });
+    }
+
+    // 锁定成绩与已计入值不同的考试记录，更新已计入值，并把新旧差值按考试累加到考试表
+    // 按(exam_id, id)的固定顺序加锁，并发的增量刷新与核对不会交叉等待而死锁
+    private static String scoreDeltasSql(String attemptFilter) {
+        return "WITH previous AS (SELECT a.id, a.aggregated_score FROM exam_attempts a WHERE " + attemptFilter + " " +
+            "AND " + COUNTED_SCORE + " IS DISTINCT FROM a.aggregated_score ORDER BY a.exam_id, a.id FOR UPDATE), " +
+            "changed AS (UPDATE exam_attempts a SET aggregated_score = " + COUNTED_SCORE + " FROM previous " +
+            "WHERE a.id = previous.id AND " + COUNTED_SCORE + " IS DISTINCT FROM previous.aggregated_score " +
+            "RETURNING a.exam_id, a.aggregated_score AS new_score, previous.aggregated_score AS old_score), " +
+            "deltas AS (SELECT exam_id, SUM(COALESCE(new_score, 0) - COALESCE(old_score, 0)) AS score_delta, " +
+            "COUNT(new_score) - COUNT(old_score) AS scored_delta FROM changed GROUP BY exam_id) " +
+            "UPDATE exams e SET score_sum = COALESCE(e.score_sum, 0) + d.score_delta, " +
+            "scored_attempts = COALESCE(e.scored_attempts, 0) + d.scored_delta, " +
+            "avg_score = CASE WHEN COALESCE(e.scored_attempts, 0) + d.scored_delta > 0 " +
+            "THEN ROUND((COALESCE(e.score_sum, 0) + d.score_delta) / (COALESCE(e.scored_attempts, 0) + d.scored_delta), 2) " +
+            "END " +
+            "FROM deltas d WHERE e.id = d.exam_id";
+    }
+
+    // 按 AttemptStatus 名称拼出 SQL 的 IN 列表，与JPA的@Enumerated(STRING)映射保持一致
+    private static String statusList(AttemptStatus... statuses) {
+        return Arrays.stream(statuses)
+            .map(status -> "'" + status.name() + "'")
+            .collect(Collectors.joining(", ", "(", ")"));
+    }
+}
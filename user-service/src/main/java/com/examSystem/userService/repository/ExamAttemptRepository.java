@@ -48,6 +48,12 @@ public interface ExamAttemptRepository extends JpaRepository<ExamAttempt, Long>
      */
     List<ExamAttempt> findByUserIdAndExamIdOrderByStartedAtDesc(Long userId, Long examId);
 
+    /**
+     * 根据用户ID和考试ID查找考试记录，排除指定状态（按开始时间升序）
+     */
+    List<ExamAttempt> findByUserIdAndExamIdAndStatusNotOrderByStartedAtAsc(Long userId, Long examId,
+                                                                         ExamAttempt.AttemptStatus status);
+
     /**
      * 根据用户ID和考试ID查找最新的考试记录
      */
@@ -107,6 +113,13 @@ public interface ExamAttemptRepository extends JpaRepository<ExamAttempt, Long>
     @Query("SELECT COUNT(ea) FROM ExamAttempt ea WHERE ea.examId = :examId")
     long countByExamId(@Param("examId") Long examId);
 
+    /**
+     * 统计考试中尚未结束的考试记录数
+     */
+    @Query("SELECT COUNT(ea) FROM ExamAttempt ea WHERE ea.examId = :examId AND " +
+           "ea.status IN ('STARTED', 'IN_PROGRESS', 'PAUSED')")
+    long countUnfinishedByExamId(@Param("examId") Long examId);
+
     /**
      * 统计考试的完成次数
      */
@@ -0,0 +1,67 @@
+package com.examSystem.userService.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+/**
+ * 考试数据导出的游标读取
+ *
+ * 按主键顺序逐行读出时间窗口内的考试记录、答案和安全日志，
+ * 从水位（已导出的最大ID）之后开始，中断后可从检查点继续
+ */
+@Repository
+public class ExamDataExportRepository {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * 以游标逐行读出表在时间窗口内、ID大于水位的全部行（需在事务中执行，PostgreSQL只在非自动提交时使用游标）
+     */
+    @Transactional(readOnly = true)
+    public void streamRows(ExportTable table, LocalDateTime from, LocalDateTime to, long afterId, int fetchSize,
+                           RowCallbackHandler handler) {
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(table.getSql());
+            statement.setFetchSize(fetchSize);
+            statement.setTimestamp(1, Timestamp.valueOf(from));
+            statement.setTimestamp(2, Timestamp.valueOf(to));
+            statement.setLong(3, afterId);
+            return statement;
+        }, handler);
+    }
+
+    // 内部类定义
+
+    /**
+     * 导出的表：按所属考试记录的交卷时间或日志时间划分日期，结果按ID排序以便记录水位
+     */
+    public enum ExportTable {
+        EXAM_ATTEMPTS("exam_attempts",
+            "SELECT * FROM exam_attempts WHERE submitted_at >= ? AND submitted_at < ? AND id > ? ORDER BY id"),
+        ANSWERS("answers",
+            "SELECT an.* FROM answers an JOIN exam_attempts a ON a.id = an.attempt_id " +
+            "WHERE a.submitted_at >= ? AND a.submitted_at < ? AND an.id > ? ORDER BY an.id"),
+        SECURITY_LOGS("security_logs",
+            "SELECT * FROM security_logs WHERE created_at >= ? AND created_at < ? AND id > ? ORDER BY id");
+
+        private final String tableName;
+        private final String sql;
+
+        ExportTable(String tableName, String sql) {
+            this.tableName = tableName;
+            this.sql = sql;
+        }
+
+        // Getters
+        public String getTableName() { return tableName; }
+        public String getSql() { return sql; }
+    }
+}
@@ -0,0 +1,68 @@
+package com.examSystem.userService.repository;
+
+import com.examSystem.userService.entity.ExamAttempt.AttemptStatus;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 考试结束数据访问
+ *
+ * 每个考试在一个短事务中结束：条件更新考试状态，再用一条 UPDATE ... RETURNING
+ * 把全部进行中的考试记录置为AUTO_SUBMITTED并取回被结束的记录，评分入队等后续处理在提交后进行
+ */
+@Repository
+public class ExamEndingRepository {
+
+    // 只结束仍为ACTIVE的考试，多个节点或重复执行时只有一次生效
+    private static final String END_EXAM_SQL =
+        "UPDATE exams SET status = 'COMPLETED', updated_at = ? WHERE id = ? AND status = 'ACTIVE'";
+
+    // 状态按 AttemptStatus 名称绑定，与JPA的@Enumerated(STRING)映射保持一致
+    private static final String END_ATTEMPTS_SQL =
+        "UPDATE exam_attempts SET status = ?, submitted_at = ?, last_activity = ? " +
+        "WHERE exam_id = ? AND status = 'IN_PROGRESS' " +
+        "RETURNING id, user_id, started_at";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * 结束考试及其全部进行中的考试记录，返回被结束的考试记录；考试已被结束时返回空列表
+     */
+    @Transactional
+    public List<EndedAttempt> endExam(Long examId, LocalDateTime now) {
+        Timestamp timestamp = Timestamp.valueOf(now);
+        if (jdbcTemplate.update(END_EXAM_SQL, timestamp, examId) == 0) {
+            return Collections.emptyList();
+        }
+        return jdbcTemplate.query(END_ATTEMPTS_SQL, (rs, rowNum) -> new EndedAttempt(
+            rs.getLong(1), rs.getLong(2), rs.getTimestamp(3).toLocalDateTime()),
+            AttemptStatus.AUTO_SUBMITTED.name(), timestamp, timestamp, examId);
+    }
+
+    // 内部类定义
+
+    public static class EndedAttempt {
+        private final Long attemptId;
+        private final Long studentId;
+        private final LocalDateTime startedAt;
+
+        public EndedAttempt(Long attemptId, Long studentId, LocalDateTime startedAt) {
+            this.attemptId = attemptId;
+            this.studentId = studentId;
+            this.startedAt = startedAt;
+        }
+
+        // Getters
+        public Long getAttemptId() { return attemptId; }
+        public Long getStudentId() { return studentId; }
+        public LocalDateTime getStartedAt() { return startedAt; }
+    }
+}
@@ -0,0 +1,69 @@
+package com.examSystem.userService.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 考试报名名单
+ *
+ * 管理端维护的应考学生名单，考试开放前由 {@link AttemptProvisioningRepository} 按名单预创建考试记录
+ */
+@Repository
+public class ExamEnrollmentRepository {
+
+    // 已报名的学生保持不变，重复提交名单是幂等的
+    private static final String ENROLL_SQL =
+        "INSERT INTO exam_enrollments (exam_id, user_id, enrolled_at) " +
+        "SELECT ?, u.user_id, ? FROM unnest(CAST(? AS bigint[])) AS u(user_id) " +
+        "ON CONFLICT (exam_id, user_id) DO NOTHING";
+
+    // 取消报名时一并删除尚未认领的预创建记录，已开考的记录保留
+    private static final String UNENROLL_SQL =
+        "WITH removed AS (DELETE FROM exam_enrollments WHERE exam_id = ? AND user_id = ? " +
+        "RETURNING exam_id, user_id) " +
+        "DELETE FROM exam_attempts a USING removed r " +
+        "WHERE a.exam_id = r.exam_id AND a.user_id = r.user_id AND a.status = 'PROVISIONED'";
+
+    private static final String FIND_USER_IDS_SQL =
+        "SELECT user_id FROM exam_enrollments WHERE exam_id = ? ORDER BY user_id";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * 将学生加入考试报名名单，返回新报名的人数
+     */
+    public int enroll(Long examId, Collection<Long> userIds, LocalDateTime now) {
+        if (userIds.isEmpty()) {
+            return 0;
+        }
+        return jdbcTemplate.update(connection -> {
+            PreparedStatement statement = connection.prepareStatement(ENROLL_SQL);
+            statement.setLong(1, examId);
+            statement.setTimestamp(2, Timestamp.valueOf(now));
+            statement.setArray(3, connection.createArrayOf("bigint", userIds.toArray()));
+            return statement;
+        });
+    }
+
+    /**
+     * 将学生移出考试报名名单
+     */
+    public void unenroll(Long examId, Long userId) {
+        jdbcTemplate.update(UNENROLL_SQL, examId, userId);
+    }
+
+    /**
+     * 考试报名名单中的学生ID
+     */
+    public List<Long> findUserIds(Long examId) {
+        return jdbcTemplate.queryForList(FIND_USER_IDS_SQL, Long.class, examId);
+    }
+}
@@ -10,6 +10,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -116,6 +117,13 @@ public interface ExamQuestionRepository extends JpaRepository<ExamQuestion, Long
      */
     boolean existsByExamIdAndQuestionId(Long examId, Long questionId);
 
+    /**
+     * 在给定题目ID中筛选属于考试的题目ID
+     */
+    @Query("SELECT eq.questionId FROM ExamQuestion eq WHERE eq.examId = :examId AND eq.questionId IN :questionIds")
+    List<Long> findQuestionIdsByExamIdAndQuestionIdIn(@Param("examId") Long examId,
+                                                     @Param("questionIds") Collection<Long> questionIds);
+
     /**
      * 删除考试中的所有题目
      */
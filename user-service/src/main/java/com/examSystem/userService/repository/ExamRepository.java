@@ -253,6 +253,13 @@ public interface ExamRepository extends JpaRepository<Exam, Long> {
            "e.availableFrom IS NOT NULL AND e.availableFrom <= :now")
     List<Exam> findExamsToStart(@Param("now") LocalDateTime now);
 
+    /**
+     * 查找即将开放的已发布考试
+     */
+    @Query("SELECT e FROM Exam e WHERE e.status = 'PUBLISHED' AND " +
+           "e.availableFrom > :from AND e.availableFrom <= :to")
+    List<Exam> findExamsOpeningBetween(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
     /**
      * 获取考试参与统计
      */
@@ -0,0 +1,76 @@
+package com.examSystem.userService.repository;
+
+import com.examSystem.userService.entity.ExportCheckpoint;
+import com.examSystem.userService.entity.ExportCheckpoint.ExportStatus;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * 数据导出检查点数据访问
+ *
+ * 检查点在导出游标所在的只读事务之外独立提交，分片文件落盘后立即生效
+ */
+@Repository
+public class ExportCheckpointRepository {
+
+    private static final String FIND_SQL =
+        "SELECT id, export_date, table_name, last_id, exported_rows, parts, status, updated_at " +
+        "FROM export_checkpoints WHERE export_date = ? AND table_name = ?";
+
+    private static final String SAVE_SQL =
+        "INSERT INTO export_checkpoints (export_date, table_name, last_id, exported_rows, parts, status, updated_at) " +
+        "VALUES (?, ?, ?, ?, ?, ?, ?) " +
+        "ON CONFLICT (export_date, table_name) DO UPDATE SET last_id = EXCLUDED.last_id, " +
+        "exported_rows = EXCLUDED.exported_rows, parts = EXCLUDED.parts, status = EXCLUDED.status, " +
+        "updated_at = EXCLUDED.updated_at";
+
+    private static final String FIND_INCOMPLETE_DATES_SQL =
+        "SELECT DISTINCT export_date FROM export_checkpoints WHERE status = 'RUNNING' AND export_date >= ? " +
+        "ORDER BY export_date";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    public Optional<ExportCheckpoint> find(LocalDate exportDate, String tableName) {
+        return jdbcTemplate.query(FIND_SQL, (rs, rowNum) -> {
+            ExportCheckpoint checkpoint = new ExportCheckpoint();
+            checkpoint.setId(rs.getLong(1));
+            checkpoint.setExportDate(rs.getDate(2).toLocalDate());
+            checkpoint.setTableName(rs.getString(3));
+            checkpoint.setLastId(rs.getLong(4));
+            checkpoint.setExportedRows(rs.getLong(5));
+            checkpoint.setParts(rs.getInt(6));
+            checkpoint.setStatus(ExportStatus.valueOf(rs.getString(7)));
+            checkpoint.setUpdatedAt(rs.getTimestamp(8).toLocalDateTime());
+            return checkpoint;
+        }, Date.valueOf(exportDate), tableName).stream().findFirst();
+    }
+
+    /**
+     * 保存导出进度（新事务提交，不受调用方只读事务影响）
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void save(LocalDate exportDate, String tableName, long lastId, long exportedRows, int parts,
+                     ExportStatus status) {
+        jdbcTemplate.update(SAVE_SQL, Date.valueOf(exportDate), tableName, lastId, exportedRows, parts,
+            status.name(), Timestamp.valueOf(LocalDateTime.now()));
+    }
+
+    /**
+     * 指定日期之后仍有表未导出完成的日期
+     */
+    public List<LocalDate> findIncompleteDates(LocalDate since) {
+        return jdbcTemplate.query(FIND_INCOMPLETE_DATES_SQL, (rs, rowNum) -> rs.getDate(1).toLocalDate(),
+            Date.valueOf(since));
+    }
+}
@@ -0,0 +1,240 @@
+package com.examSystem.userService.repository;
+
+import com.examSystem.userService.entity.GradingTask;
+import com.examSystem.userService.entity.GradingTask.GradingTaskStatus;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 评分队列数据访问
+ *
+ * 认领使用 FOR UPDATE SKIP LOCKED：多个节点同时认领时互不等待、也不会拿到同一任务。
+ * 认领的任务带租约（locked_at），节点中断后租约过期的任务重新回到等待状态
+ */
+@Repository
+public class GradingQueueRepository {
+
+    private static final int MAX_ROWS_PER_STATEMENT = 1000;
+
+    private static final String ENQUEUE_PREFIX =
+        "INSERT INTO grading_queue (attempt_id, status, attempts, available_at, created_at) VALUES ";
+
+    // 已在队列中等待或执行的考试记录不重复入队；已完成的重新入队。
+    // 死信保持不变，只能由管理员显式重试（见retryDeadLetter），否则补录会无限重试同一失败记录
+    private static final String ENQUEUE_SUFFIX =
+        " ON CONFLICT (attempt_id) DO UPDATE SET status = 'PENDING', attempts = 0, " +
+        "available_at = EXCLUDED.available_at, last_error = NULL, locked_by = NULL, locked_at = NULL, " +
+        "updated_at = EXCLUDED.created_at " +
+        "WHERE grading_queue.status = 'DONE'";
+
+    private static final String CLAIM_SQL =
+        "UPDATE grading_queue q SET status = 'RUNNING', locked_by = ?, locked_at = ?, " +
+        "attempts = q.attempts + 1, updated_at = ? " +
+        "WHERE q.id IN (SELECT id FROM grading_queue WHERE status = 'PENDING' AND available_at <= ? " +
+        "ORDER BY available_at, id LIMIT ? FOR UPDATE SKIP LOCKED) " +
+        "RETURNING q.id, q.attempt_id, q.attempts";
+
+    private static final String COMPLETE_SQL =
+        "UPDATE grading_queue SET status = 'DONE', locked_by = NULL, locked_at = NULL, last_error = NULL, " +
+        "updated_at = ? WHERE id = ? AND locked_by = ?";
+
+    private static final String RETRY_SQL =
+        "UPDATE grading_queue SET status = 'PENDING', available_at = ?, locked_by = NULL, locked_at = NULL, " +
+        "last_error = ?, updated_at = ? WHERE id = ? AND locked_by = ?";
+
+    private static final String DEAD_LETTER_SQL =
+        "UPDATE grading_queue SET status = 'DEAD', locked_by = NULL, locked_at = NULL, " +
+        "last_error = ?, updated_at = ? WHERE id = ? AND locked_by = ?";
+
+    private static final String RELEASE_EXPIRED_SQL =
+        "UPDATE grading_queue SET status = 'PENDING', locked_by = NULL, locked_at = NULL, updated_at = ? " +
+        "WHERE status = 'RUNNING' AND locked_at < ?";
+
+    private static final String PURGE_DONE_SQL =
+        "DELETE FROM grading_queue WHERE status = 'DONE' AND updated_at < ?";
+
+    private static final String COUNT_BY_STATUS_SQL =
+        "SELECT status, COUNT(*) FROM grading_queue GROUP BY status";
+
+    private static final String FIND_DEAD_SQL =
+        "SELECT id, attempt_id, status, attempts, available_at, locked_by, locked_at, last_error, " +
+        "created_at, updated_at FROM grading_queue WHERE status = 'DEAD' ORDER BY updated_at DESC LIMIT ?";
+
+    private static final String RETRY_DEAD_SQL =
+        "UPDATE grading_queue SET status = 'PENDING', attempts = 0, available_at = ?, last_error = NULL, " +
+        "updated_at = ? WHERE id = ? AND status = 'DEAD'";
+
+    private static final String RETRY_ALL_DEAD_SQL =
+        "UPDATE grading_queue SET status = 'PENDING', attempts = 0, available_at = ?, last_error = NULL, " +
+        "updated_at = ? WHERE status = 'DEAD'";
+
+    private static final RowMapper<GradingTask> TASK_MAPPER = (rs, rowNum) -> {
+        GradingTask task = new GradingTask();
+        task.setId(rs.getLong("id"));
+        task.setAttemptId(rs.getLong("attempt_id"));
+        task.setStatus(GradingTaskStatus.valueOf(rs.getString("status")));
+        task.setAttempts(rs.getInt("attempts"));
+        task.setAvailableAt(toLocalDateTime(rs.getTimestamp("available_at")));
+        task.setLockedBy(rs.getString("locked_by"));
+        task.setLockedAt(toLocalDateTime(rs.getTimestamp("locked_at")));
+        task.setLastError(rs.getString("last_error"));
+        task.setCreatedAt(toLocalDateTime(rs.getTimestamp("created_at")));
+        task.setUpdatedAt(toLocalDateTime(rs.getTimestamp("updated_at")));
+        return task;
+    };
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * 考试记录入队（幂等），返回新入队或重新入队的数量
+     */
+    public int enqueue(Collection<Long> attemptIds, LocalDateTime now) {
+        if (attemptIds == null || attemptIds.isEmpty()) {
+            return 0;
+        }
+
+        List<Long> pending = new ArrayList<>(attemptIds);
+        Timestamp timestamp = Timestamp.valueOf(now);
+        int affected = 0;
+        for (int from = 0; from < pending.size(); from += MAX_ROWS_PER_STATEMENT) {
+            List<Long> chunk = pending.subList(from, Math.min(from + MAX_ROWS_PER_STATEMENT, pending.size()));
+            StringBuilder sql = new StringBuilder(ENQUEUE_PREFIX.length() + chunk.size() * 20 + ENQUEUE_SUFFIX.length());
+            sql.append(ENQUEUE_PREFIX);
+            Object[] args = new Object[chunk.size() * 3];
+            int i = 0;
+            for (Long attemptId : chunk) {
+                if (i > 0) {
+                    sql.append(',');
+                }
+                sql.append("(?,'PENDING',0,?,?)");
+                args[i++] = attemptId;
+                args[i++] = timestamp;
+                args[i++] = timestamp;
+            }
+            sql.append(ENQUEUE_SUFFIX);
+            affected += jdbcTemplate.update(sql.toString(), args);
+        }
+        return affected;
+    }
+
+    /**
+     * 认领最多limit个已到期的任务（单条语句自动提交，认领后即对其他节点不可见）
+     */
+    public List<ClaimedTask> claim(String workerId, int limit, LocalDateTime now) {
+        Timestamp timestamp = Timestamp.valueOf(now);
+        return jdbcTemplate.query(CLAIM_SQL, (rs, rowNum) -> new ClaimedTask(
+            rs.getLong(1), rs.getLong(2), rs.getInt(3)),
+            workerId, timestamp, timestamp, timestamp, limit);
+    }
+
+    /**
+     * 标记任务完成（仅当仍由该节点持有时）
+     */
+    public boolean complete(Long taskId, String workerId, LocalDateTime now) {
+        return jdbcTemplate.update(COMPLETE_SQL, Timestamp.valueOf(now), taskId, workerId) > 0;
+    }
+
+    /**
+     * 任务失败，在availableAt之后重试
+     */
+    public boolean retryLater(Long taskId, String workerId, String error, LocalDateTime availableAt,
+                              LocalDateTime now) {
+        return jdbcTemplate.update(RETRY_SQL, Timestamp.valueOf(availableAt), error, Timestamp.valueOf(now),
+            taskId, workerId) > 0;
+    }
+
+    /**
+     * 任务转入死信
+     */
+    public boolean deadLetter(Long taskId, String workerId, String error, LocalDateTime now) {
+        return jdbcTemplate.update(DEAD_LETTER_SQL, error, Timestamp.valueOf(now), taskId, workerId) > 0;
+    }
+
+    /**
+     * 租约过期（认领节点已中断）的任务重新回到等待状态
+     */
+    public int releaseExpiredLeases(LocalDateTime lockedBefore, LocalDateTime now) {
+        return jdbcTemplate.update(RELEASE_EXPIRED_SQL, Timestamp.valueOf(now), Timestamp.valueOf(lockedBefore));
+    }
+
+    /**
+     * 删除早于指定时间完成的任务
+     */
+    public int purgeDone(LocalDateTime before) {
+        return jdbcTemplate.update(PURGE_DONE_SQL, Timestamp.valueOf(before));
+    }
+
+    /**
+     * 各状态的任务数
+     */
+    public Map<String, Long> countByStatus() {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (GradingTaskStatus status : GradingTaskStatus.values()) {
+            counts.put(status.name(), 0L);
+        }
+        jdbcTemplate.query(COUNT_BY_STATUS_SQL, rs -> {
+            counts.put(rs.getString(1), rs.getLong(2));
+        });
+        return counts;
+    }
+
+    /**
+     * 最近的死信任务
+     */
+    public List<GradingTask> findDeadLetters(int limit) {
+        return jdbcTemplate.query(FIND_DEAD_SQL, TASK_MAPPER, limit);
+    }
+
+    /**
+     * 死信任务重新入队
+     */
+    public boolean retryDeadLetter(Long taskId, LocalDateTime now) {
+        Timestamp timestamp = Timestamp.valueOf(now);
+        return jdbcTemplate.update(RETRY_DEAD_SQL, timestamp, timestamp, taskId) > 0;
+    }
+
+    /**
+     * 全部死信任务重新入队，返回重新入队的数量
+     */
+    public int retryAllDeadLetters(LocalDateTime now) {
+        Timestamp timestamp = Timestamp.valueOf(now);
+        return jdbcTemplate.update(RETRY_ALL_DEAD_SQL, timestamp, timestamp);
+    }
+
+    private static LocalDateTime toLocalDateTime(Timestamp timestamp) {
+        return timestamp != null ? timestamp.toLocalDateTime() : null;
+    }
+
+    // 内部类定义
+
+    /**
+     * 已认领的任务
+     */
+    public static class ClaimedTask {
+        private final Long id;
+        private final Long attemptId;
+        private final int attempts;
+
+        public ClaimedTask(Long id, Long attemptId, int attempts) {
+            this.id = id;
+            this.attemptId = attemptId;
+            this.attempts = attempts;
+        }
+
+        // Getters
+        public Long getId() { return id; }
+        public Long getAttemptId() { return attemptId; }
+        public int getAttempts() { return attempts; }
+    }
+}
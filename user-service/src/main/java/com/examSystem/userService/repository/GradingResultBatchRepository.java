@@ -0,0 +1,199 @@
+package com.examSystem.userService.repository;
+
+import com.examSystem.userService.service.grading.AutoGradingService.GradingResult;
+import com.examSystem.userService.service.grading.AutoGradingService.QuestionGradingResult;
+import com.examSystem.userService.service.grading.ScoreUnits;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 评分结果批量写入
+ *
+ * 使用JDBC批量更新一次写入多个考试记录的答案评分和总分，
+ * 单个考试记录的答案评分按题目ID展开为数组，与总分在同一条语句中写入，
+ * 替代逐条 save 的写入流程
+ */
+@Repository
+public class GradingResultBatchRepository {
+
+    // 已人工评分的答案保持不变（同UPDATE_ATTEMPT_ANSWERS_SQL）
+    private static final String UPDATE_ANSWER_SQL =
+        "UPDATE answers SET is_correct = ?, points_earned = ?, feedback = ? " +
+        "WHERE attempt_id = ? AND question_id = ? AND graded_at IS NULL";
+
+    private static final String UPDATE_ATTEMPT_SQL =
+        "UPDATE exam_attempts SET score = ?, status = 'GRADED', graded_at = ? WHERE id = ?";
+
+    // 按题目ID把评分结果展开为行（unnest），一条语句更新考试记录的全部答案；
+    // 已人工评分的答案（graded_at只由人工评分写入）保持不变
+    private static final String UPDATE_ATTEMPT_ANSWERS_SQL =
+        "UPDATE answers an SET is_correct = r.is_correct, points_earned = r.points_earned, feedback = COALESCE(r.feedback, an.feedback) " +
+        "FROM unnest(CAST(? AS bigint[]), CAST(? AS boolean[]), CAST(? AS numeric[]), CAST(? AS text[])) " +
+        "AS r(question_id, is_correct, points_earned, feedback) " +
+        "WHERE an.attempt_id = ? AND an.question_id = r.question_id AND an.graded_at IS NULL";
+
+    // 答案评分和总分在同一往返中写入（数据修改CTE无论是否被引用都会执行）
+    private static final String SAVE_RESULT_SQL =
+        "WITH graded AS (" + UPDATE_ATTEMPT_ANSWERS_SQL + " RETURNING an.id) " +
+        "UPDATE exam_attempts SET score = ?, status = 'GRADED', graded_at = ? WHERE id = ?";
+
+    private static final String RESET_ANSWERS_SQL =
+        "UPDATE answers SET is_correct = NULL, points_earned = NULL, feedback = NULL " +
+        "WHERE attempt_id = ? AND graded_at IS NULL";
+
+    // 总分为百分比，保留2位小数（同交卷计算）
+    private static final String RESCORE_ATTEMPT_SQL =
+        "UPDATE exam_attempts SET score = ROUND(" +
+        "(SELECT COALESCE(SUM(points_earned), 0) FROM answers WHERE attempt_id = ?) * 100 / ?, 2), " +
+        "graded_at = ? WHERE id = ?";
+
+    private static final String SUM_ATTEMPT_SQL =
+        "SELECT COALESCE(SUM(points_earned), 0), COUNT(*) FILTER (WHERE is_correct), " +
+        "COUNT(*) FILTER (WHERE is_correct IS NULL) FROM answers WHERE attempt_id = ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * 在一个事务中写入一批评分结果
+     */
+    @Transactional
+    public void saveResults(Collection<GradingResult> results) {
+        if (results == null || results.isEmpty()) {
+            return;
+        }
+
+        Timestamp gradedAt = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> answerArgs = new ArrayList<>();
+        List<Object[]> attemptArgs = new ArrayList<>(results.size());
+        for (GradingResult result : results) {
+            for (QuestionGradingResult questionResult : result.getQuestionResults()) {
+                answerArgs.add(new Object[] {
+                    questionResult.isCorrect(),
+                    questionResult.getScore(),
+                    questionResult.getComment(),
+                    result.getAttemptId(),
+                    questionResult.getQuestionId()
+                });
+            }
+            attemptArgs.add(new Object[] { result.getTotalScore(), gradedAt, result.getAttemptId() });
+        }
+
+        // 未作答的题目没有answers记录，对应更新影响0行
+        jdbcTemplate.batchUpdate(UPDATE_ANSWER_SQL, answerArgs);
+        jdbcTemplate.batchUpdate(UPDATE_ATTEMPT_SQL, attemptArgs);
+    }
+
+    /**
+     * 写入单个考试记录的评分结果：全部答案评分和总分一条语句完成
+     */
+    public void saveResult(GradingResult result) {
+        jdbcTemplate.update(connection -> {
+            PreparedStatement statement = connection.prepareStatement(SAVE_RESULT_SQL);
+            int index = bindAnswerGrades(connection, statement, result.getAttemptId(), result.getQuestionResults());
+            statement.setBigDecimal(index++, result.getTotalScore());
+            statement.setTimestamp(index++, Timestamp.valueOf(LocalDateTime.now()));
+            statement.setLong(index, result.getAttemptId());
+            return statement;
+        });
+    }
+
+    /**
+     * 只写入单个考试记录的答案评分（总分由调用方随实体保存）
+     */
+    public int saveAnswerGrades(Long attemptId, List<QuestionGradingResult> questionResults) {
+        if (questionResults.isEmpty()) {
+            return 0;
+        }
+        return jdbcTemplate.update(connection -> {
+            PreparedStatement statement = connection.prepareStatement(UPDATE_ATTEMPT_ANSWERS_SQL);
+            bindAnswerGrades(connection, statement, attemptId, questionResults);
+            return statement;
+        });
+    }
+
+    /**
+     * 清除考试记录答案的自动评分（重新评分前），人工评分保留
+     */
+    public int resetAnswerGrades(Long attemptId) {
+        return jdbcTemplate.update(RESET_ANSWERS_SQL, attemptId);
+    }
+
+    /**
+     * 按answers表当前得分重算考试记录总分并更新评分时间（如人工评分后）
+     */
+    public int rescoreAttempt(Long attemptId, long maxScoreUnits) {
+        if (maxScoreUnits <= 0) {
+            return 0;
+        }
+        return jdbcTemplate.update(RESCORE_ATTEMPT_SQL, attemptId, ScoreUnits.toBigDecimal(maxScoreUnits),
+            Timestamp.valueOf(LocalDateTime.now()), attemptId);
+    }
+
+    /**
+     * 汇总考试记录在写入时已评出的得分（一次聚合查询）
+     */
+    public AttemptScoreTotals sumAttemptScores(Long attemptId) {
+        return jdbcTemplate.queryForObject(SUM_ATTEMPT_SQL, (rs, rowNum) -> new AttemptScoreTotals(
+            ScoreUnits.toUnits(rs.getBigDecimal(1)),
+            rs.getInt(2),
+            rs.getInt(3)), attemptId);
+    }
+
+    // 私有辅助方法
+
+    // 绑定UPDATE_ATTEMPT_ANSWERS_SQL的参数，返回下一个参数位置
+    private int bindAnswerGrades(Connection connection, PreparedStatement statement, Long attemptId,
+                                 List<QuestionGradingResult> questionResults) throws SQLException {
+        int size = questionResults.size();
+        Long[] questionIds = new Long[size];
+        Boolean[] correct = new Boolean[size];
+        BigDecimal[] scores = new BigDecimal[size];
+        String[] comments = new String[size];
+        for (int i = 0; i < size; i++) {
+            QuestionGradingResult questionResult = questionResults.get(i);
+            questionIds[i] = questionResult.getQuestionId();
+            correct[i] = questionResult.isCorrect();
+            scores[i] = questionResult.getScore();
+            comments[i] = questionResult.getComment();
+        }
+
+        statement.setArray(1, connection.createArrayOf("bigint", questionIds));
+        statement.setArray(2, connection.createArrayOf("boolean", correct));
+        statement.setArray(3, connection.createArrayOf("numeric", scores));
+        statement.setArray(4, connection.createArrayOf("text", comments));
+        statement.setLong(5, attemptId);
+        return 6;
+    }
+
+    // 内部类定义
+
+    public static class AttemptScoreTotals {
+        private final long earnedUnits;
+        private final int correctAnswers;
+        private final int ungradedAnswers;
+
+        public AttemptScoreTotals(long earnedUnits, int correctAnswers, int ungradedAnswers) {
+            this.earnedUnits = earnedUnits;
+            this.correctAnswers = correctAnswers;
+            this.ungradedAnswers = ungradedAnswers;
+        }
+
+        // Getters
+        public long getEarnedUnits() { return earnedUnits; }
+        public int getCorrectAnswers() { return correctAnswers; }
+        public int getUngradedAnswers() { return ungradedAnswers; }
+    }
+}
@@ -0,0 +1,215 @@
+package com.examSystem.userService.repository;
+
+import com.examSystem.userService.entity.ExamItemStatistics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 题目分析数据访问
+ *
+ * 已评分答案以游标流式读出（每行附带所属考试记录在本考试中的名次），
+ * 分析结果按考试写入exam_item_statistics，再一条语句合并到题目表的统计字段
+ */
+@Repository
+public class ItemAnalysisRepository {
+
+    private static final int FETCH_SIZE = 1000;
+
+    // 考试记录按得分排名，答案无需排序即可判断所属的高分组/低分组
+    private static final String STREAM_GRADED_ANSWERS_SQL =
+        "WITH ranked AS (" +
+        "SELECT id, ROW_NUMBER() OVER (ORDER BY score DESC NULLS LAST, id) AS attempt_rank, " +
+        "COUNT(*) OVER () AS attempt_count FROM exam_attempts " +
+        "WHERE exam_id = ? AND graded_at IS NOT NULL AND status <> 'IN_PROGRESS') " +
+        "SELECT r.attempt_rank, r.attempt_count, an.question_id, an.is_correct, an.points_earned, " +
+        "an.time_spent, an.graded_at IS NOT NULL " +
+        "FROM ranked r JOIN answers an ON an.attempt_id = r.id WHERE an.points_earned IS NOT NULL";
+
+    private static final String UPSERT_STATISTICS_SQL =
+        "INSERT INTO exam_item_statistics (exam_id, question_id, points, responses, correct_count, score_sum, " +
+        "time_sum, timed_responses, group_size, discrimination, analyzed_at) " +
+        "SELECT ?, s.question_id, s.points, s.responses, s.correct_count, s.score_sum, s.time_sum, " +
+        "s.timed_responses, s.group_size, s.discrimination, ? " +
+        "FROM unnest(CAST(? AS bigint[]), CAST(? AS numeric[]), CAST(? AS int[]), CAST(? AS int[]), " +
+        "CAST(? AS numeric[]), CAST(? AS bigint[]), CAST(? AS int[]), CAST(? AS int[]), CAST(? AS numeric[])) " +
+        "AS s(question_id, points, responses, correct_count, score_sum, time_sum, timed_responses, group_size, discrimination) " +
+        "ON CONFLICT (exam_id, question_id) DO UPDATE SET points = EXCLUDED.points, " +
+        "responses = EXCLUDED.responses, correct_count = EXCLUDED.correct_count, score_sum = EXCLUDED.score_sum, " +
+        "time_sum = EXCLUDED.time_sum, timed_responses = EXCLUDED.timed_responses, " +
+        "group_size = EXCLUDED.group_size, discrimination = EXCLUDED.discrimination, " +
+        "analyzed_at = EXCLUDED.analyzed_at";
+
+    // 已从试卷移除的题目不再计入
+    private static final String DELETE_REMOVED_SQL =
+        "DELETE FROM exam_item_statistics WHERE exam_id = ? AND NOT (question_id = ANY(CAST(? AS bigint[])))";
+
+    // 各考试的汇总按作答数合并；区分度按分组人数加权并保留符号（-1到1），负值表示低分组反而答得更好
+    private static final String ROLLUP_QUESTIONS_SQL =
+        "UPDATE questions q SET " +
+        "correct_rate = ROUND(s.correct_count * 100.0 / s.responses, 2), " +
+        "avg_score = ROUND(s.score_sum / s.responses, 2), " +
+        "avg_time_seconds = CASE WHEN s.timed_responses > 0 " +
+        "THEN CAST(ROUND(CAST(s.time_sum AS numeric) / s.timed_responses) AS integer) END, " +
+        "difficulty_index = CASE WHEN s.possible > 0 THEN LEAST(1, ROUND(s.score_sum / s.possible, 2)) END, " +
+        "discrimination_index = CASE WHEN s.group_weight > 0 " +
+        "THEN GREATEST(-1, LEAST(1, ROUND(s.weighted_discrimination / s.group_weight, 2))) END " +
+        "FROM (SELECT question_id, SUM(responses) AS responses, SUM(correct_count) AS correct_count, " +
+        "SUM(score_sum) AS score_sum, SUM(points * responses) AS possible, SUM(time_sum) AS time_sum, " +
+        "SUM(timed_responses) AS timed_responses, " +
+        "SUM(group_size) FILTER (WHERE discrimination IS NOT NULL) AS group_weight, " +
+        "SUM(discrimination * group_size) AS weighted_discrimination " +
+        "FROM exam_item_statistics WHERE question_id = ANY(CAST(? AS bigint[])) AND responses > 0 " +
+        "GROUP BY question_id) s " +
+        "WHERE q.id = s.question_id";
+
+    // 有考试记录在上次分析之后完成评分的考试
+    private static final String FIND_EXAMS_NEEDING_ANALYSIS_SQL =
+        "SELECT ea.exam_id FROM exam_attempts ea " +
+        "LEFT JOIN (SELECT exam_id, MIN(analyzed_at) AS analyzed_at FROM exam_item_statistics GROUP BY exam_id) s " +
+        "ON s.exam_id = ea.exam_id " +
+        "WHERE ea.graded_at > ? AND ea.status <> 'IN_PROGRESS' " +
+        "AND (s.analyzed_at IS NULL OR ea.graded_at > s.analyzed_at) " +
+        "GROUP BY ea.exam_id ORDER BY MIN(ea.graded_at) LIMIT ?";
+
+    private static final String FIND_QUESTION_IDS_SQL =
+        "SELECT question_id FROM exam_item_statistics WHERE exam_id = ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * 以游标逐行读出考试的全部已评分答案（需在事务中执行，PostgreSQL只在非自动提交时使用游标）
+     */
+    @Transactional(readOnly = true)
+    public void streamGradedAnswers(Long examId, GradedAnswerHandler handler) {
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(STREAM_GRADED_ANSWERS_SQL);
+            statement.setFetchSize(FETCH_SIZE);
+            statement.setLong(1, examId);
+            return statement;
+        }, rs -> {
+            int timeSpent = rs.getInt(6);
+            boolean timed = !rs.wasNull();
+            Boolean correct = rs.getBoolean(4);
+            if (rs.wasNull()) {
+                correct = null;
+            }
+            handler.handle(rs.getInt(1), rs.getInt(2), rs.getLong(3), correct, rs.getBigDecimal(5),
+                timed ? timeSpent : -1, rs.getBoolean(7));
+        });
+    }
+
+    /**
+     * 写入考试的题目分析结果（覆盖上次结果），并合并到题目表的统计字段
+     */
+    @Transactional
+    public void saveExamStatistics(Long examId, List<ExamItemStatistics> statistics, LocalDateTime analyzedAt) {
+        int size = statistics.size();
+        Long[] questionIds = new Long[size];
+        BigDecimal[] points = new BigDecimal[size];
+        Integer[] responses = new Integer[size];
+        Integer[] correctCounts = new Integer[size];
+        BigDecimal[] scoreSums = new BigDecimal[size];
+        Long[] timeSums = new Long[size];
+        Integer[] timedResponses = new Integer[size];
+        Integer[] groupSizes = new Integer[size];
+        BigDecimal[] discriminations = new BigDecimal[size];
+        for (int i = 0; i < size; i++) {
+            ExamItemStatistics item = statistics.get(i);
+            questionIds[i] = item.getQuestionId();
+            points[i] = item.getPoints();
+            responses[i] = item.getResponses();
+            correctCounts[i] = item.getCorrectCount();
+            scoreSums[i] = item.getScoreSum();
+            timeSums[i] = item.getTimeSum();
+            timedResponses[i] = item.getTimedResponses();
+            groupSizes[i] = item.getGroupSize();
+            discriminations[i] = item.getDiscrimination();
+        }
+
+        // 合并范围包括本次从试卷移除的题目
+        Set<Long> affectedQuestionIds = new LinkedHashSet<>(
+            jdbcTemplate.queryForList(FIND_QUESTION_IDS_SQL, Long.class, examId));
+
+        jdbcTemplate.update(connection -> {
+            PreparedStatement statement = connection.prepareStatement(DELETE_REMOVED_SQL);
+            statement.setLong(1, examId);
+            statement.setArray(2, connection.createArrayOf("bigint", questionIds));
+            return statement;
+        });
+
+        if (size > 0) {
+            jdbcTemplate.update(connection -> {
+                PreparedStatement statement = connection.prepareStatement(UPSERT_STATISTICS_SQL);
+                statement.setLong(1, examId);
+                statement.setTimestamp(2, Timestamp.valueOf(analyzedAt));
+                statement.setArray(3, connection.createArrayOf("bigint", questionIds));
+                statement.setArray(4, connection.createArrayOf("numeric", points));
+                statement.setArray(5, connection.createArrayOf("integer", responses));
+                statement.setArray(6, connection.createArrayOf("integer", correctCounts));
+                statement.setArray(7, connection.createArrayOf("numeric", scoreSums));
+                statement.setArray(8, connection.createArrayOf("bigint", timeSums));
+                statement.setArray(9, connection.createArrayOf("integer", timedResponses));
+                statement.setArray(10, connection.createArrayOf("integer", groupSizes));
+                statement.setArray(11, connection.createArrayOf("numeric", discriminations));
+                return statement;
+            });
+        }
+
+        Collections.addAll(affectedQuestionIds, questionIds);
+        rollupQuestionStatistics(affectedQuestionIds);
+    }
+
+    /**
+     * 按各考试的分析结果重算题目表的统计字段
+     */
+    public int rollupQuestionStatistics(Collection<Long> questionIds) {
+        if (questionIds.isEmpty()) {
+            return 0;
+        }
+        Long[] ids = questionIds.toArray(new Long[0]);
+        return jdbcTemplate.update(connection -> {
+            PreparedStatement statement = connection.prepareStatement(ROLLUP_QUESTIONS_SQL);
+            statement.setArray(1, connection.createArrayOf("bigint", ids));
+            return statement;
+        });
+    }
+
+    /**
+     * 查找自上次分析以来有新评分的考试（只检查gradedAfter之后评分的考试记录）
+     */
+    public List<Long> findExamsNeedingAnalysis(LocalDateTime gradedAfter, int limit) {
+        return jdbcTemplate.queryForList(FIND_EXAMS_NEEDING_ANALYSIS_SQL, Long.class,
+            Timestamp.valueOf(gradedAfter), limit);
+    }
+
+    // 内部类定义
+
+    /**
+     * 逐行处理流式读出的已评分答案
+     */
+    @FunctionalInterface
+    public interface GradedAnswerHandler {
+
+        /**
+         * @param attemptRank 所属考试记录按得分的名次（从1开始）
+         * @param attemptCount 考试已评分的考试记录总数
+         * @param timeSpent 作答用时(秒)，未记录时为-1
+         * @param manuallyGraded 是否已人工评分
+         */
+        void handle(int attemptRank, int attemptCount, long questionId, Boolean correct, BigDecimal pointsEarned,
+                    int timeSpent, boolean manuallyGraded);
+    }
+}
@@ -0,0 +1,155 @@
+package com.examSystem.userService.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * 人工评分租约数据访问
+ *
+ * 待评分的主观题答案按答案ID键集分页认领：候选行以 FOR UPDATE SKIP LOCKED 锁定，
+ * 同时认领的评分员互不等待、也不会拿到同一答案。租约过期的答案自动回到待评分池
+ */
+@Repository
+public class ManualGradingRepository {
+
+    private static final String LEASE_SQL =
+        "WITH candidates AS (" +
+        "SELECT an.id FROM answers an " +
+        "JOIN exam_attempts ea ON ea.id = an.attempt_id " +
+        "JOIN questions q ON q.id = an.question_id " +
+        "WHERE ea.exam_id = ? AND ea.status <> 'IN_PROGRESS' AND q.type = 'ESSAY' " +
+        "AND an.graded_at IS NULL AND an.id > ? " +
+        "AND (an.grading_lease_expires_at IS NULL OR an.grading_lease_expires_at < ?) " +
+        "ORDER BY an.id LIMIT ? FOR UPDATE OF an SKIP LOCKED) " +
+        "UPDATE answers a SET grading_lease_owner = ?, grading_lease_expires_at = ? " +
+        "FROM candidates c WHERE a.id = c.id " +
+        "RETURNING a.id, a.attempt_id, a.question_id, a.user_answer";
+
+    private static final String COUNT_PENDING_SQL =
+        "SELECT COUNT(*) FROM answers an " +
+        "JOIN exam_attempts ea ON ea.id = an.attempt_id " +
+        "JOIN questions q ON q.id = an.question_id " +
+        "WHERE ea.exam_id = ? AND ea.status <> 'IN_PROGRESS' AND q.type = 'ESSAY' AND an.graded_at IS NULL";
+
+    private static final String RENEW_PREFIX =
+        "UPDATE answers SET grading_lease_expires_at = ? " +
+        "WHERE grading_lease_owner = ? AND grading_lease_expires_at >= ? AND graded_at IS NULL AND id IN (";
+
+    private static final String RELEASE_PREFIX =
+        "UPDATE answers SET grading_lease_owner = NULL, grading_lease_expires_at = NULL " +
+        "WHERE grading_lease_owner = ? AND graded_at IS NULL AND id IN (";
+
+    // 只有仍持有未过期租约的评分员才能提交，过期后被他人认领的答案不会被覆盖
+    private static final String SUBMIT_SQL =
+        "UPDATE answers SET points_earned = ?, is_correct = ?, feedback = ?, graded_at = ?, " +
+        "grading_lease_owner = NULL, grading_lease_expires_at = NULL " +
+        "WHERE id = ? AND grading_lease_owner = ? AND grading_lease_expires_at >= ? AND graded_at IS NULL";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * 认领答案ID大于afterAnswerId的最多limit条待评分答案，按答案ID升序返回
+     */
+    public List<LeasedAnswer> lease(Long examId, Long graderId, Long afterAnswerId, int limit,
+                                    LocalDateTime now, LocalDateTime expiresAt) {
+        Timestamp nowTimestamp = Timestamp.valueOf(now);
+        List<LeasedAnswer> leased = jdbcTemplate.query(LEASE_SQL, (rs, rowNum) -> new LeasedAnswer(
+            rs.getLong(1), rs.getLong(2), rs.getLong(3), rs.getString(4)),
+            examId, afterAnswerId, nowTimestamp, limit, graderId, Timestamp.valueOf(expiresAt));
+        // RETURNING不保证顺序
+        leased.sort(Comparator.comparing(LeasedAnswer::getAnswerId));
+        return leased;
+    }
+
+    /**
+     * 考试待人工评分的答案数（含已被认领的）
+     */
+    public long countPending(Long examId) {
+        Long count = jdbcTemplate.queryForObject(COUNT_PENDING_SQL, Long.class, examId);
+        return count != null ? count : 0L;
+    }
+
+    /**
+     * 续租评分员仍持有的答案，返回续租成功的数量
+     */
+    public int renew(Long graderId, Collection<Long> answerIds, LocalDateTime now, LocalDateTime expiresAt) {
+        if (answerIds.isEmpty()) {
+            return 0;
+        }
+        Object[] args = new Object[answerIds.size() + 3];
+        args[0] = Timestamp.valueOf(expiresAt);
+        args[1] = graderId;
+        args[2] = Timestamp.valueOf(now);
+        return jdbcTemplate.update(inClause(RENEW_PREFIX, answerIds, args, 3), args);
+    }
+
+    /**
+     * 归还评分员持有的答案
+     */
+    public int release(Long graderId, Collection<Long> answerIds) {
+        if (answerIds.isEmpty()) {
+            return 0;
+        }
+        Object[] args = new Object[answerIds.size() + 1];
+        args[0] = graderId;
+        return jdbcTemplate.update(inClause(RELEASE_PREFIX, answerIds, args, 1), args);
+    }
+
+    /**
+     * 提交人工评分，租约已失效或答案已评分时返回false
+     */
+    public boolean submitGrade(Long answerId, Long graderId, BigDecimal score, boolean correct, String feedback,
+                               LocalDateTime now) {
+        Timestamp timestamp = Timestamp.valueOf(now);
+        return jdbcTemplate.update(SUBMIT_SQL, score, correct, feedback, timestamp, answerId, graderId, timestamp) > 0;
+    }
+
+    // 拼接 IN (?,?,...) 并从offset起填充参数
+    private String inClause(String prefix, Collection<Long> ids, Object[] args, int offset) {
+        StringBuilder sql = new StringBuilder(prefix.length() + ids.size() * 2 + 1);
+        sql.append(prefix);
+        int i = offset;
+        for (Long id : ids) {
+            if (i > offset) {
+                sql.append(',');
+            }
+            sql.append('?');
+            args[i++] = id;
+        }
+        return sql.append(')').toString();
+    }
+
+    // 内部类定义
+
+    /**
+     * 已认领的待评分答案
+     */
+    public static class LeasedAnswer {
+        private final Long answerId;
+        private final Long attemptId;
+        private final Long questionId;
+        private final String studentAnswer;
+
+        public LeasedAnswer(Long answerId, Long attemptId, Long questionId, String studentAnswer) {
+            this.answerId = answerId;
+            this.attemptId = attemptId;
+            this.questionId = questionId;
+            this.studentAnswer = studentAnswer;
+        }
+
+        // Getters
+        public Long getAnswerId() { return answerId; }
+        public Long getAttemptId() { return attemptId; }
+        public Long getQuestionId() { return questionId; }
+        public String getStudentAnswer() { return studentAnswer; }
+    }
+}
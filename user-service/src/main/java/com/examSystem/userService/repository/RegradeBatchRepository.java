@@ -0,0 +1,199 @@
+package com.examSystem.userService.repository;
+
+import com.examSystem.userService.service.grading.ScoreUnits;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 重新评分批量读写
+ *
+ * 按考试记录ID键集分页读取某道题目的答案，评分变化的答案以JDBC批量更新写回，
+ * 受影响考试记录的总分用一条集合更新按answers表重新汇总。
+ * 每块的写入与任务检查点在同一事务中提交，中断后从检查点继续不会重复或遗漏
+ */
+@Repository
+public class RegradeBatchRepository {
+
+    private static final String COUNT_ANSWERS_SQL =
+        "SELECT COUNT(*) FROM answers WHERE question_id = ?";
+
+    private static final String LOAD_CHUNK_SQL =
+        "SELECT an.attempt_id, a.exam_id, a.status, an.user_answer, an.is_correct, an.points_earned " +
+        "FROM answers an JOIN exam_attempts a ON a.id = an.attempt_id " +
+        "WHERE an.question_id = ? AND an.attempt_id > ? ORDER BY an.attempt_id LIMIT ?";
+
+    // 已人工评分的答案保持不变
+    private static final String UPDATE_ANSWER_SQL =
+        "UPDATE answers SET is_correct = ?, points_earned = ?, feedback = ? " +
+        "WHERE attempt_id = ? AND question_id = ? AND graded_at IS NULL";
+
+    // 总分为百分比（同交卷计算，保留2位小数），进行中的考试记录在交卷时汇总，这里跳过
+    private static final String RESCORE_ATTEMPTS_PREFIX =
+        "UPDATE exam_attempts a SET score = ROUND(s.earned * 100 / ?, 2) " +
+        "FROM (SELECT attempt_id, COALESCE(SUM(points_earned), 0) AS earned FROM answers " +
+        "WHERE attempt_id IN (";
+
+    private static final String RESCORE_ATTEMPTS_SUFFIX =
+        ") GROUP BY attempt_id) s WHERE a.id = s.attempt_id AND a.status <> 'IN_PROGRESS'";
+
+    private static final String CHECKPOINT_SQL =
+        "UPDATE regrade_jobs SET last_attempt_id = ?, processed_answers = processed_answers + ?, " +
+        "changed_answers = changed_answers + ?, rescored_attempts = rescored_attempts + ?, heartbeat_at = ? " +
+        "WHERE id = ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * 统计题目的答案数（用于进度显示）
+     */
+    public long countAnswers(Long questionId) {
+        Long count = jdbcTemplate.queryForObject(COUNT_ANSWERS_SQL, Long.class, questionId);
+        return count != null ? count : 0L;
+    }
+
+    /**
+     * 读取检查点之后的一块答案，按考试记录ID升序
+     */
+    public List<RegradeAnswer> loadChunk(Long questionId, Long afterAttemptId, int limit) {
+        return jdbcTemplate.query(LOAD_CHUNK_SQL, (rs, rowNum) -> new RegradeAnswer(
+            rs.getLong(1),
+            rs.getLong(2),
+            rs.getString(3),
+            rs.getString(4),
+            (Boolean) rs.getObject(5),
+            rs.getBigDecimal(6) != null ? ScoreUnits.toUnits(rs.getBigDecimal(6)) : null),
+            questionId, afterAttemptId, limit);
+    }
+
+    /**
+     * 在一个事务中写回一块的评分变化、重算受影响考试记录的总分并推进检查点
+     */
+    @Transactional
+    public void applyChunk(Long jobId, Long questionId, List<AnswerGrade> changed,
+                           Collection<AttemptRescore> rescores, Long lastAttemptId, int processedAnswers) {
+        if (!changed.isEmpty()) {
+            List<Object[]> answerArgs = new ArrayList<>(changed.size());
+            for (AnswerGrade grade : changed) {
+                answerArgs.add(new Object[] {
+                    grade.isCorrect(),
+                    ScoreUnits.toBigDecimal(grade.getScoreUnits()),
+                    grade.getComment(),
+                    grade.getAttemptId(),
+                    questionId
+                });
+            }
+            jdbcTemplate.batchUpdate(UPDATE_ANSWER_SQL, answerArgs);
+        }
+
+        int rescored = 0;
+        for (AttemptRescore rescore : rescores) {
+            rescored += rescoreAttempts(rescore);
+        }
+
+        jdbcTemplate.update(CHECKPOINT_SQL, lastAttemptId, processedAnswers, changed.size(), rescored,
+            Timestamp.valueOf(LocalDateTime.now()), jobId);
+    }
+
+    private int rescoreAttempts(AttemptRescore rescore) {
+        if (rescore.getAttemptIds().isEmpty() || rescore.getMaxScoreUnits() <= 0) {
+            return 0;
+        }
+
+        StringBuilder sql = new StringBuilder(RESCORE_ATTEMPTS_PREFIX.length()
+            + rescore.getAttemptIds().size() * 2 + RESCORE_ATTEMPTS_SUFFIX.length());
+        sql.append(RESCORE_ATTEMPTS_PREFIX);
+        Object[] args = new Object[rescore.getAttemptIds().size() + 1];
+        args[0] = ScoreUnits.toBigDecimal(rescore.getMaxScoreUnits());
+        int i = 1;
+        for (Long attemptId : rescore.getAttemptIds()) {
+            if (i > 1) {
+                sql.append(',');
+            }
+            sql.append('?');
+            args[i++] = attemptId;
+        }
+        sql.append(RESCORE_ATTEMPTS_SUFFIX);
+        return jdbcTemplate.update(sql.toString(), args);
+    }
+
+    // 内部类定义
+
+    /**
+     * 待重评的答案及其当前评分
+     */
+    public static class RegradeAnswer {
+        private final Long attemptId;
+        private final Long examId;
+        private final String attemptStatus;
+        private final String studentAnswer;
+        private final Boolean correct;
+        private final Long scoreUnits;
+
+        public RegradeAnswer(Long attemptId, Long examId, String attemptStatus, String studentAnswer,
+                             Boolean correct, Long scoreUnits) {
+            this.attemptId = attemptId;
+            this.examId = examId;
+            this.attemptStatus = attemptStatus;
+            this.studentAnswer = studentAnswer;
+            this.correct = correct;
+            this.scoreUnits = scoreUnits;
+        }
+
+        // Getters
+        public Long getAttemptId() { return attemptId; }
+        public Long getExamId() { return examId; }
+        public String getAttemptStatus() { return attemptStatus; }
+        public String getStudentAnswer() { return studentAnswer; }
+        public Boolean getCorrect() { return correct; }
+        public Long getScoreUnits() { return scoreUnits; }
+    }
+
+    /**
+     * 重评后的答案评分
+     */
+    public static class AnswerGrade {
+        private final Long attemptId;
+        private final boolean correct;
+        private final long scoreUnits;
+        private final String comment;
+
+        public AnswerGrade(Long attemptId, boolean correct, long scoreUnits, String comment) {
+            this.attemptId = attemptId;
+            this.correct = correct;
+            this.scoreUnits = scoreUnits;
+            this.comment = comment;
+        }
+
+        // Getters
+        public Long getAttemptId() { return attemptId; }
+        public boolean isCorrect() { return correct; }
+        public long getScoreUnits() { return scoreUnits; }
+        public String getComment() { return comment; }
+    }
+
+    /**
+     * 同一考试中需要重算总分的考试记录
+     */
+    public static class AttemptRescore {
+        private final long maxScoreUnits;
+        private final List<Long> attemptIds;
+
+        public AttemptRescore(long maxScoreUnits, List<Long> attemptIds) {
+            this.maxScoreUnits = maxScoreUnits;
+            this.attemptIds = attemptIds;
+        }
+
+        // Getters
+        public long getMaxScoreUnits() { return maxScoreUnits; }
+        public List<Long> getAttemptIds() { return attemptIds; }
+    }
+}
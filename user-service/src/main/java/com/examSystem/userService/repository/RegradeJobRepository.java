@@ -0,0 +1,43 @@
+package com.examSystem.userService.repository;
+
+import com.examSystem.userService.entity.RegradeJob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 重新评分任务数据访问层
+ */
+@Repository
+public interface RegradeJobRepository extends JpaRepository<RegradeJob, Long> {
+
+    /**
+     * 查找可执行的任务：等待中的任务，以及心跳超时（执行节点已中断）的任务
+     */
+    @Query("SELECT j FROM RegradeJob j WHERE j.status = 'PENDING' " +
+           "OR (j.status = 'RUNNING' AND (j.heartbeatAt IS NULL OR j.heartbeatAt < :staleBefore)) " +
+           "ORDER BY j.id")
+    List<RegradeJob> findResumableJobs(@Param("staleBefore") LocalDateTime staleBefore);
+
+    /**
+     * 认领任务，返回1表示认领成功；多个节点同时认领时只有一个成功
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE RegradeJob j SET j.status = 'RUNNING', j.heartbeatAt = :now WHERE j.id = :jobId " +
+           "AND (j.status = 'PENDING' OR (j.status = 'RUNNING' " +
+           "AND (j.heartbeatAt IS NULL OR j.heartbeatAt < :staleBefore)))")
+    int claim(@Param("jobId") Long jobId, @Param("now") LocalDateTime now,
+              @Param("staleBefore") LocalDateTime staleBefore);
+
+    /**
+     * 查找最近的任务
+     */
+    List<RegradeJob> findTop50ByOrderByIdDesc();
+}
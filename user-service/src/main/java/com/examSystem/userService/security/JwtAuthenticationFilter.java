@@ -145,6 +145,7 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
                path.startsWith("/actuator/info") ||
                path.startsWith("/v3/api-docs") ||
                path.startsWith("/swagger-ui") ||
-               path.equals("/swagger-ui.html");
+               path.equals("/swagger-ui.html") ||
+               path.startsWith("/ws");
     }
 }
\ No newline at end of file
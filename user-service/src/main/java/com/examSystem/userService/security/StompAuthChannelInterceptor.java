@@ -0,0 +1,148 @@
+package com.examSystem.userService.security;
+
+import com.examSystem.userService.config.JwtConfig;
+import io.jsonwebtoken.Claims;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageDeliveryException;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.util.StringUtils;
+
+import java.security.Principal;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * STOMP连接认证拦截器
+ *
+ * 在CONNECT帧中校验JWT并把用户身份绑定到WebSocket会话，之后的帧不再解析Token、
+ * 也不查询用户；SEND/SUBSCRIBE帧检查会话已认证且Token未过期。
+ * SUBSCRIBE帧另按目标授权：考试监考推送（/topic/exam/{examId}/**）只允许教师和管理员订阅，
+ * 个人队列只能通过 /user/queue/** 订阅（由用户目标解析为本会话用户的队列），其余目标一律拒绝。
+ * 会话用户名为用户ID，与 convertAndSendToUser 的目标一致
+ */
+@Component
+public class StompAuthChannelInterceptor implements ChannelInterceptor {
+
+    private static final Logger logger = LoggerFactory.getLogger(StompAuthChannelInterceptor.class);
+
+    private static final String AUTHORIZATION_HEADER = "Authorization";
+    private static final String BEARER_PREFIX = "Bearer ";
+    private static final String TOKEN_EXPIRATION_ATTRIBUTE = "tokenExpiration";
+
+    private static final String EXAM_TOPIC_PATTERN = "/topic/exam/{examId}/**";
+    private static final String USER_QUEUE_PATTERN = "/user/queue/**";
+
+    // 可订阅考试监考推送的角色
+    private static final Set<String> MONITOR_AUTHORITIES = Set.of("ROLE_TEACHER", "ROLE_ADMIN", "ROLE_SUPER_ADMIN");
+
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+
+    @Autowired
+    private JwtConfig jwtConfig;
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (accessor == null || accessor.getCommand() == null) {
+            return message;
+        }
+
+        StompCommand command = accessor.getCommand();
+        if (command == StompCommand.CONNECT) {
+            authenticate(accessor);
+        } else if (command == StompCommand.SEND) {
+            checkAuthenticated(accessor);
+        } else if (command == StompCommand.SUBSCRIBE) {
+            checkAuthenticated(accessor);
+            authorizeSubscription(accessor);
+        }
+        return message;
+    }
+
+    // 私有辅助方法
+
+    private void authenticate(StompHeaderAccessor accessor) {
+        String bearerToken = accessor.getFirstNativeHeader(AUTHORIZATION_HEADER);
+        if (!StringUtils.hasText(bearerToken) || !bearerToken.startsWith(BEARER_PREFIX)) {
+            throw new MessageDeliveryException("缺少认证信息");
+        }
+
+        Claims claims = jwtConfig.parseAccessToken(bearerToken.substring(BEARER_PREFIX.length()));
+        if (claims == null || claims.get("userId") == null) {
+            throw new MessageDeliveryException("认证失败");
+        }
+
+        List<SimpleGrantedAuthority> authorities = new ArrayList<>();
+        Object roles = claims.get("roles");
+        if (roles instanceof List<?> roleList) {
+            for (Object role : roleList) {
+                authorities.add(new SimpleGrantedAuthority("ROLE_" + role));
+            }
+        }
+
+        String userId = claims.get("userId").toString();
+        accessor.setUser(new UsernamePasswordAuthenticationToken(userId, null, authorities));
+        Map<String, Object> sessionAttributes = accessor.getSessionAttributes();
+        if (sessionAttributes != null) {
+            sessionAttributes.put(TOKEN_EXPIRATION_ATTRIBUTE, claims.getExpiration());
+        }
+        logger.debug("STOMP session {} authenticated for user: {}", accessor.getSessionId(), userId);
+    }
+
+    private void checkAuthenticated(StompHeaderAccessor accessor) {
+        if (accessor.getUser() == null) {
+            throw new MessageDeliveryException("用户未认证");
+        }
+
+        Map<String, Object> sessionAttributes = accessor.getSessionAttributes();
+        Object expiration = sessionAttributes != null ? sessionAttributes.get(TOKEN_EXPIRATION_ATTRIBUTE) : null;
+        if (expiration instanceof Date expiresAt && expiresAt.before(new Date())) {
+            throw new MessageDeliveryException("认证已过期，请重新连接");
+        }
+    }
+
+    private void authorizeSubscription(StompHeaderAccessor accessor) {
+        String destination = accessor.getDestination();
+        if (destination == null) {
+            throw new MessageDeliveryException("缺少订阅目标");
+        }
+
+        if (pathMatcher.match(USER_QUEUE_PATTERN, destination)) {
+            return;
+        }
+        if (pathMatcher.match(EXAM_TOPIC_PATTERN, destination) && hasMonitorAuthority(accessor.getUser())) {
+            return;
+        }
+        logger.warn("STOMP session {} of user {} denied subscription to {}",
+            accessor.getSessionId(), accessor.getUser().getName(), destination);
+        throw new MessageDeliveryException("无权订阅该目标");
+    }
+
+    private boolean hasMonitorAuthority(Principal user) {
+        if (!(user instanceof Authentication authentication)) {
+            return false;
+        }
+        for (GrantedAuthority authority : authentication.getAuthorities()) {
+            if (MONITOR_AUTHORITIES.contains(authority.getAuthority())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
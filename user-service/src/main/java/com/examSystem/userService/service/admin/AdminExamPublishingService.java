@@ -3,8 +3,8 @@ package com.examSystem.userService.service.admin;
 import com.examSystem.userService.entity.Exam;
 import com.examSystem.userService.repository.ExamRepository;
 import com.examSystem.userService.repository.ExamQuestionRepository;
+import com.examSystem.userService.service.scheduled.ClusterTaskLeadership;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -28,6 +28,9 @@ public class AdminExamPublishingService {
     @Autowired
     private ExamQuestionRepository examQuestionRepository;
 
+    @Autowired
+    private ClusterTaskLeadership clusterTaskLeadership;
+
     /**
      * 发布考试
      */
@@ -261,8 +264,10 @@ public class AdminExamPublishingService {
      * 自动开始考试（定时任务）
      */
     @Scheduled(fixedRate = 60000) // 每分钟执行一次
-    @Async
     public void autoStartExams() {
+        if (!clusterTaskLeadership.acquire("publishing.autoStartExams")) {
+            return;
+        }
         List<Exam> examsToStart = getExamsToStart();
         for (Exam exam : examsToStart) {
             try {
@@ -278,8 +283,10 @@ public class AdminExamPublishingService {
      * 自动结束考试（定时任务）
      */
     @Scheduled(fixedRate = 60000) // 每分钟执行一次
-    @Async
     public void autoEndExams() {
+        if (!clusterTaskLeadership.acquire("publishing.autoEndExams")) {
+            return;
+        }
         List<Exam> examsToEnd = getExamsToAutoEnd();
         for (Exam exam : examsToEnd) {
             try {
@@ -294,9 +301,11 @@ public class AdminExamPublishingService {
     /**
      * 检查并处理过期考试（定时任务）
      */
-    @Scheduled(fixedRate = 300000) // 每5分钟执行一次
-    @Async
+    @Scheduled(fixedRate = 300000, scheduler = "batchTaskScheduler") // 每5分钟执行一次
     public void processExpiredExams() {
+        if (!clusterTaskLeadership.acquire("publishing.processExpiredExams")) {
+            return;
+        }
         List<Exam> expiredExams = getExpiredExams();
         for (Exam exam : expiredExams) {
             try {
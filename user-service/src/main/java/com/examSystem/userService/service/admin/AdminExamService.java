@@ -3,9 +3,12 @@ package com.examSystem.userService.service.admin;
 import com.examSystem.userService.entity.Exam;
 import com.examSystem.userService.entity.ExamQuestion;
 import com.examSystem.userService.entity.Question;
+import com.examSystem.userService.repository.ExamAttemptRepository;
+import com.examSystem.userService.repository.ExamEnrollmentRepository;
 import com.examSystem.userService.repository.ExamRepository;
 import com.examSystem.userService.repository.ExamQuestionRepository;
 import com.examSystem.userService.repository.QuestionRepository;
+import com.examSystem.userService.service.student.ExamPaperCache;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -33,9 +36,18 @@ public class AdminExamService {
     @Autowired
     private ExamQuestionRepository examQuestionRepository;
 
+    @Autowired
+    private ExamAttemptRepository examAttemptRepository;
+
     @Autowired
     private QuestionRepository questionRepository;
 
+    @Autowired
+    private ExamPaperCache examPaperCache;
+
+    @Autowired
+    private ExamEnrollmentRepository examEnrollmentRepository;
+
     /**
      * 创建新考试
      */
@@ -120,8 +132,18 @@ public class AdminExamService {
         if (examUpdate.getSettings() != null) {
             existingExam.setSettings(examUpdate.getSettings());
         }
+        if (examUpdate.getAnswerStorageMode() != null
+                && examUpdate.getAnswerStorageMode() != existingExam.getAnswerStorageMode()) {
+            // 进行中的考试记录已按原存储方式保存答案，切换后会读不到
+            if (examAttemptRepository.countUnfinishedByExamId(id) > 0) {
+                throw new RuntimeException("考试有进行中的考试记录，不能修改答案存储方式");
+            }
+            existingExam.setAnswerStorageMode(examUpdate.getAnswerStorageMode());
+        }
 
-        return examRepository.save(existingExam);
+        Exam saved = examRepository.save(existingExam);
+        examPaperCache.evict(id);
+        return saved;
     }
 
     /**
@@ -266,6 +288,7 @@ public class AdminExamService {
         examQuestion.setIsRequired(true);
 
         ExamQuestion saved = examQuestionRepository.save(examQuestion);
+        examPaperCache.evict(examId);
 
         // 更新考试统计信息
         updateExamQuestionStatistics(examId);
@@ -297,6 +320,7 @@ public class AdminExamService {
 
         // 删除关联关系
         examQuestionRepository.deleteByExamIdAndQuestionId(examId, questionId);
+        examPaperCache.evict(examId);
 
         // 更新考试统计信息
         updateExamQuestionStatistics(examId);
@@ -307,6 +331,7 @@ public class AdminExamService {
      */
     public void batchRemoveQuestionsFromExam(Long examId, List<Long> questionIds) {
         examQuestionRepository.batchDeleteByExamIdAndQuestionIds(examId, questionIds);
+        examPaperCache.evict(examId);
         updateExamQuestionStatistics(examId);
     }
 
@@ -331,6 +356,7 @@ public class AdminExamService {
      */
     public void updateQuestionPoints(Long examId, Long questionId, BigDecimal points) {
         examQuestionRepository.updatePoints(examId, questionId, points);
+        examPaperCache.evict(examId);
         updateExamQuestionStatistics(examId);
     }
 
@@ -339,6 +365,7 @@ public class AdminExamService {
      */
     public void updateQuestionOrder(Long examId, Long questionId, Integer order) {
         examQuestionRepository.updateQuestionOrder(examId, questionId, order);
+        examPaperCache.evict(examId);
     }
 
     /**
@@ -346,6 +373,34 @@ public class AdminExamService {
      */
     public void reorderExamQuestions(Long examId) {
         examQuestionRepository.reorderQuestions(examId);
+        examPaperCache.evict(examId);
+    }
+
+    /**
+     * 将学生加入考试报名名单，返回新报名的人数
+     *
+     * 考试开放前按名单预创建考试记录，开放后报名的学生开考时直接创建记录
+     */
+    public int enrollStudents(Long examId, List<Long> studentIds) {
+        if (!examRepository.existsById(examId)) {
+            throw new RuntimeException("考试不存在: " + examId);
+        }
+        return examEnrollmentRepository.enroll(examId, studentIds, LocalDateTime.now());
+    }
+
+    /**
+     * 将学生移出考试报名名单（尚未认领的预创建考试记录一并删除）
+     */
+    public void unenrollStudent(Long examId, Long studentId) {
+        examEnrollmentRepository.unenroll(examId, studentId);
+    }
+
+    /**
+     * 获取考试报名名单
+     */
+    @Transactional(readOnly = true)
+    public List<Long> getEnrolledStudentIds(Long examId) {
+        return examEnrollmentRepository.findUserIds(examId);
     }
 
     /**
@@ -2,6 +2,9 @@ package com.examSystem.userService.service.admin;
 
 import com.examSystem.userService.entity.Question;
 import com.examSystem.userService.repository.QuestionRepository;
+import com.examSystem.userService.service.grading.AnswerKeyCache;
+import com.examSystem.userService.service.grading.RegradeJobService;
+import com.examSystem.userService.service.student.ExamPaperCache;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -11,6 +14,7 @@ import org.springframework.transaction.annotation.Transactional;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -27,6 +31,15 @@ public class AdminQuestionService {
     @Autowired
     private QuestionRepository questionRepository;
 
+    @Autowired
+    private ExamPaperCache examPaperCache;
+
+    @Autowired
+    private AnswerKeyCache answerKeyCache;
+
+    @Autowired
+    private RegradeJobService regradeJobService;
+
     /**
      * 创建新题目
      */
@@ -63,6 +76,8 @@ public class AdminQuestionService {
     public Question updateQuestion(Long id, Question questionUpdate) {
         Question existingQuestion = questionRepository.findById(id)
             .orElseThrow(() -> new RuntimeException("题目不存在: " + id));
+        Question.QuestionType previousType = existingQuestion.getType();
+        String previousAnswers = existingQuestion.getCorrectAnswer();
 
         // 更新基本信息
         if (questionUpdate.getTitle() != null) {
@@ -80,8 +95,8 @@ public class AdminQuestionService {
         if (questionUpdate.getOptions() != null) {
             existingQuestion.setOptions(questionUpdate.getOptions());
         }
-        if (questionUpdate.getCorrectAnswers() != null) {
-            existingQuestion.setCorrectAnswers(questionUpdate.getCorrectAnswers());
+        if (questionUpdate.getCorrectAnswer() != null) {
+            existingQuestion.setCorrectAnswer(questionUpdate.getCorrectAnswer());
         }
         if (questionUpdate.getExplanation() != null) {
             existingQuestion.setExplanation(questionUpdate.getExplanation());
@@ -102,7 +117,16 @@ public class AdminQuestionService {
             existingQuestion.setHints(questionUpdate.getHints());
         }
 
-        return questionRepository.save(existingQuestion);
+        Question saved = questionRepository.save(existingQuestion);
+        examPaperCache.evictByQuestion(id);
+        answerKeyCache.evict(id);
+
+        // 标准答案修正后重评已有答案
+        if (isAutoGradable(saved) && (previousType != saved.getType()
+                || !Objects.equals(previousAnswers, saved.getCorrectAnswer()))) {
+            regradeJobService.submit(id, id);
+        }
+        return saved;
     }
 
     /**
@@ -288,7 +312,7 @@ public class AdminQuestionService {
         newVersion.setType(newVersionData.getType() != null ? newVersionData.getType() : originalQuestion.getType());
         newVersion.setDifficulty(newVersionData.getDifficulty() != null ? newVersionData.getDifficulty() : originalQuestion.getDifficulty());
         newVersion.setOptions(newVersionData.getOptions() != null ? newVersionData.getOptions() : originalQuestion.getOptions());
-        newVersion.setCorrectAnswers(newVersionData.getCorrectAnswers() != null ? newVersionData.getCorrectAnswers() : originalQuestion.getCorrectAnswers());
+        newVersion.setCorrectAnswer(newVersionData.getCorrectAnswer() != null ? newVersionData.getCorrectAnswer() : originalQuestion.getCorrectAnswer());
         newVersion.setExplanation(newVersionData.getExplanation() != null ? newVersionData.getExplanation() : originalQuestion.getExplanation());
         newVersion.setSubject(originalQuestion.getSubject());
         newVersion.setTopic(originalQuestion.getTopic());
@@ -317,6 +341,13 @@ public class AdminQuestionService {
 
         // 将旧版本标记为非最新
         questionRepository.markOldVersionsAsNotLatest(parentId, savedNewVersion.getId());
+        examPaperCache.evictByQuestion(originalQuestionId);
+
+        // 新版本修正了标准答案时，按新答案重评原题目的已有答案
+        if (isAutoGradable(savedNewVersion) && savedNewVersion.getType() == originalQuestion.getType()
+                && !Objects.equals(originalQuestion.getCorrectAnswer(), savedNewVersion.getCorrectAnswer())) {
+            regradeJobService.submit(originalQuestionId, savedNewVersion.getId());
+        }
 
         return savedNewVersion;
     }
@@ -366,6 +397,8 @@ public class AdminQuestionService {
 
     /**
      * 批量更新题目统计信息
+     *
+     * 统计字段由 {@link ItemAnalysisService} 根据已评分答案定期重算，这里仅用于手工修正
      */
     public void updateQuestionStatistics(Long questionId, BigDecimal correctRate, 
                                        BigDecimal avgScore, Integer avgTimeSeconds, 
@@ -437,4 +470,14 @@ public class AdminQuestionService {
     public boolean isQuestionInUse(Long questionId) {
         return questionRepository.isQuestionInUse(questionId);
     }
-}
\ No newline at end of file
+
+    // 私有辅助方法
+
+    private boolean isAutoGradable(Question question) {
+        Question.QuestionType type = question.getType();
+        return type == Question.QuestionType.SINGLE_CHOICE
+            || type == Question.QuestionType.MULTIPLE_CHOICE
+            || type == Question.QuestionType.TRUE_FALSE
+            || type == Question.QuestionType.FILL_BLANK;
+    }
+}
@@ -0,0 +1,205 @@
+package com.examSystem.userService.service.admin;
+
+import com.examSystem.userService.entity.ExamItemStatistics;
+import com.examSystem.userService.repository.ItemAnalysisRepository;
+import com.examSystem.userService.service.grading.ScoreUnits;
+import com.examSystem.userService.service.scheduled.ClusterTaskLeadership;
+import com.examSystem.userService.service.student.ExamPaperCache;
+import com.examSystem.userService.service.student.ExamPaperCache.ExamPaper;
+import com.examSystem.userService.service.student.ExamPaperCache.PaperQuestion;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 题目分析服务
+ *
+ * 对一个考试的已评分答案单次流式扫描，按题目在原始类型数组中累加作答数、答对数、得分和用时；
+ * 考试记录按得分排名，前27%为高分组、后27%为低分组，两组的得分率之差即区分度。
+ * 结果按考试保存后合并到题目表；定时任务只重新分析上次分析之后有新评分的考试
+ */
+@Service
+public class ItemAnalysisService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ItemAnalysisService.class);
+
+    // 高分组和低分组各占考试记录的比例
+    private static final double GROUP_RATIO = 0.27;
+
+    @Autowired
+    private ItemAnalysisRepository itemAnalysisRepository;
+
+    @Autowired
+    private ExamPaperCache examPaperCache;
+
+    @Autowired
+    private ClusterTaskLeadership clusterTaskLeadership;
+
+    @Value("${app.grading.item-analysis.min-attempts:10}")
+    private int minAttemptsForDiscrimination;
+
+    @Value("${app.grading.item-analysis.batch-size:20}")
+    private int batchSize;
+
+    @Value("${app.grading.item-analysis.lookback-hours:24}")
+    private long lookbackHours;
+
+    @Value("${app.grading.item-analysis.commit-grace-seconds:60}")
+    private long commitGraceSeconds;
+
+    /**
+     * 分析考试的全部已评分答案，保存结果并更新题目统计
+     */
+    public List<ExamItemStatistics> analyzeExam(Long examId) {
+        // 分析期间提交的评分可能晚于扫描可见，记录的分析时间提前一个宽限期，下一轮会再分析一次
+        LocalDateTime analyzedAt = LocalDateTime.now().minusSeconds(commitGraceSeconds);
+
+        ExamPaper paper = examPaperCache.get(examId);
+        ItemAccumulator accumulator = new ItemAccumulator(paper);
+        itemAnalysisRepository.streamGradedAnswers(examId, accumulator::accept);
+
+        List<ExamItemStatistics> statistics = accumulator.toStatistics(examId, minAttemptsForDiscrimination);
+        itemAnalysisRepository.saveExamStatistics(examId, statistics, analyzedAt);
+        return statistics;
+    }
+
+    /**
+     * 增量分析：重新分析上次分析之后有考试记录完成评分的考试
+     */
+    @Scheduled(fixedDelayString = "${app.grading.item-analysis.interval-ms:300000}", scheduler = "batchTaskScheduler")
+    public void analyzeRecentlyGradedExams() {
+        if (!clusterTaskLeadership.acquire("grading.analyzeRecentlyGradedExams")) {
+            return;
+        }
+        List<Long> examIds;
+        try {
+            examIds = itemAnalysisRepository.findExamsNeedingAnalysis(
+                LocalDateTime.now().minusHours(lookbackHours), batchSize);
+        } catch (Exception e) {
+            logger.error("Failed to find exams needing item analysis", e);
+            return;
+        }
+
+        for (Long examId : examIds) {
+            try {
+                analyzeExam(examId);
+            } catch (Exception e) {
+                logger.error("Item analysis failed for exam {}", examId, e);
+            }
+        }
+        if (!examIds.isEmpty()) {
+            logger.info("Item analysis refreshed for {} exams", examIds.size());
+        }
+    }
+
+    // 内部类定义
+
+    /**
+     * 单次扫描的累加器，题目按试卷顺序编号，全部统计存于原始类型数组
+     */
+    private static class ItemAccumulator {
+        private final Map<Long, Integer> indexByQuestionId;
+        private final long[] questionIds;
+        private final long[] pointsUnits;
+        private final boolean[] essay;
+        private final int[] responses;
+        private final int[] correctCounts;
+        private final long[] scoreUnits;
+        private final long[] timeSums;
+        private final int[] timedResponses;
+        private final long[] upperScoreUnits;
+        private final long[] lowerScoreUnits;
+        private int attemptCount;
+
+        ItemAccumulator(ExamPaper paper) {
+            List<PaperQuestion> questions = paper.getQuestions();
+            int size = questions.size();
+            indexByQuestionId = new HashMap<>(size * 2);
+            questionIds = new long[size];
+            pointsUnits = new long[size];
+            essay = new boolean[size];
+            responses = new int[size];
+            correctCounts = new int[size];
+            scoreUnits = new long[size];
+            timeSums = new long[size];
+            timedResponses = new int[size];
+            upperScoreUnits = new long[size];
+            lowerScoreUnits = new long[size];
+            for (int i = 0; i < size; i++) {
+                PaperQuestion question = questions.get(i);
+                indexByQuestionId.put(question.getQuestionId(), i);
+                questionIds[i] = question.getQuestionId();
+                pointsUnits[i] = paper.getPointsUnits(question.getQuestionId());
+                essay[i] = "ESSAY".equals(question.getType());
+            }
+        }
+
+        void accept(int attemptRank, int attemptCount, long questionId, Boolean correct, BigDecimal pointsEarned,
+                    int timeSpent, boolean manuallyGraded) {
+            this.attemptCount = attemptCount;
+            Integer index = indexByQuestionId.get(questionId);
+            // 已从试卷移除的题目，以及写入时暂记0分、尚未人工评分的主观题不计入
+            if (index == null || (essay[index] && !manuallyGraded)) {
+                return;
+            }
+
+            int i = index;
+            long units = ScoreUnits.toUnits(pointsEarned);
+            responses[i]++;
+            scoreUnits[i] += units;
+            if (Boolean.TRUE.equals(correct)) {
+                correctCounts[i]++;
+            }
+            if (timeSpent > 0) {
+                timeSums[i] += timeSpent;
+                timedResponses[i]++;
+            }
+
+            int groupSize = groupSize(attemptCount);
+            if (attemptRank <= groupSize) {
+                upperScoreUnits[i] += units;
+            } else if (attemptRank > attemptCount - groupSize) {
+                lowerScoreUnits[i] += units;
+            }
+        }
+
+        List<ExamItemStatistics> toStatistics(Long examId, int minAttemptsForDiscrimination) {
+            int groupSize = attemptCount >= minAttemptsForDiscrimination ? groupSize(attemptCount) : 0;
+            List<ExamItemStatistics> statistics = new ArrayList<>(questionIds.length);
+            for (int i = 0; i < questionIds.length; i++) {
+                ExamItemStatistics item = new ExamItemStatistics();
+                item.setExamId(examId);
+                item.setQuestionId(questionIds[i]);
+                item.setPoints(ScoreUnits.toBigDecimal(pointsUnits[i]));
+                item.setResponses(responses[i]);
+                item.setCorrectCount(correctCounts[i]);
+                item.setScoreSum(ScoreUnits.toBigDecimal(scoreUnits[i]));
+                item.setTimeSum(timeSums[i]);
+                item.setTimedResponses(timedResponses[i]);
+                item.setGroupSize(groupSize);
+                // 未作答的考试记录在组内按0分计
+                if (groupSize > 0 && pointsUnits[i] > 0) {
+                    item.setDiscrimination(BigDecimal.valueOf(upperScoreUnits[i] - lowerScoreUnits[i])
+                        .divide(BigDecimal.valueOf(groupSize * pointsUnits[i]), 4, RoundingMode.HALF_UP));
+                }
+                statistics.add(item);
+            }
+            return statistics;
+        }
+
+        private static int groupSize(int attemptCount) {
+            return Math.max(1, (int) Math.round(attemptCount * GROUP_RATIO));
+        }
+    }
+}
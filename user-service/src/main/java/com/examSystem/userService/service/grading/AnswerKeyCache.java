@@ -0,0 +1,105 @@
+package com.examSystem.userService.service.grading;
+
+import com.examSystem.userService.entity.Question;
+import com.examSystem.userService.service.grading.AutoGradingService.QuestionGradingResult;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 标准答案编译缓存
+ *
+ * 按(题目ID, 版本)缓存编译后的 {@link AnswerKeyMatcher}。
+ * 题目原地修改不会改变版本号，因此命中时再核对题型、计分规则和标准答案原文，不一致则重新编译；
+ * 这些比较远比重新解析便宜，也无需跨节点失效通知。
+ * 分值随考试而定（exam_questions.points），评分时由调用方按试卷传入
+ */
+@Component
+public class AnswerKeyCache {
+
+    private final Map<String, CompiledQuestion> compiledQuestions = new ConcurrentHashMap<>();
+
+    /**
+     * 获取题目的编译结果
+     */
+    public CompiledQuestion get(Question question) {
+        String type = String.valueOf(question.getType());
+        String correctAnswer = question.getCorrectAnswer();
+        boolean partialCredit = Boolean.TRUE.equals(question.getPartialCredit());
+        boolean negativeMarking = Boolean.TRUE.equals(question.getNegativeMarking());
+        String cacheKey = question.getId() + ":" + question.getVersion();
+
+        CompiledQuestion compiled = compiledQuestions.get(cacheKey);
+        if (compiled == null
+                || !compiled.isCompiledFrom(type, correctAnswer, partialCredit, negativeMarking)) {
+            compiled = new CompiledQuestion(type, correctAnswer, partialCredit, negativeMarking,
+                AnswerKeyMatcher.compile(type, correctAnswer, partialCredit, negativeMarking));
+            compiledQuestions.put(cacheKey, compiled);
+        }
+        return compiled;
+    }
+
+    /**
+     * 移除题目所有版本的编译结果
+     */
+    public void evict(Long questionId) {
+        String prefix = questionId + ":";
+        compiledQuestions.keySet().removeIf(key -> key.startsWith(prefix));
+    }
+
+    // 内部类定义
+
+    /**
+     * 题目编译结果：答案匹配器（不支持自动评分的题型为null）
+     */
+    public static class CompiledQuestion {
+        private final String type;
+        private final String correctAnswer;
+        private final boolean partialCredit;
+        private final boolean negativeMarking;
+        private final AnswerKeyMatcher matcher;
+
+        CompiledQuestion(String type, String correctAnswer, boolean partialCredit, boolean negativeMarking,
+                         AnswerKeyMatcher matcher) {
+            this.type = type;
+            this.correctAnswer = correctAnswer;
+            this.partialCredit = partialCredit;
+            this.negativeMarking = negativeMarking;
+            this.matcher = matcher;
+        }
+
+        boolean isCompiledFrom(String type, String correctAnswer, boolean partialCredit, boolean negativeMarking) {
+            return this.type.equals(type) && Objects.equals(this.correctAnswer, correctAnswer)
+                && this.partialCredit == partialCredit && this.negativeMarking == negativeMarking;
+        }
+
+        /**
+         * 对学生答案评分：未作答得0分，主观题标记待人工评分，客观题按匹配器计分
+         *
+         * @param pointsUnits 题目在所属考试中的分值（定点单位）
+         */
+        public QuestionGradingResult grade(Long questionId, String studentAnswer, long pointsUnits) {
+            if (studentAnswer == null || studentAnswer.trim().isEmpty()) {
+                return new QuestionGradingResult(questionId, false, 0L, "未作答");
+            }
+            if ("ESSAY".equals(type)) {
+                // 主观题暂时标记为未通过、0分，由人工评分覆盖
+                return new QuestionGradingResult(questionId, false, 0L, "主观题，需要人工评分");
+            }
+            if (matcher == null) {
+                return new QuestionGradingResult(questionId, false, 0L, "不支持的题型");
+            }
+
+            // 部分得分，或启用负分时的扣分（比例为负）
+            AnswerKeyMatcher.Match match = matcher.match(studentAnswer);
+            long scoreUnits = ScoreUnits.scale(pointsUnits, match.getCreditNumerator(), match.getCreditDenominator());
+            return new QuestionGradingResult(questionId, match.isCorrect(), scoreUnits, match.getComment());
+        }
+
+        // Getters
+        public String getType() { return type; }
+        public AnswerKeyMatcher getMatcher() { return matcher; }
+    }
+}
@@ -0,0 +1,372 @@
+package com.examSystem.userService.service.grading;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * 编译后的标准答案
+ *
+ * 每道题的标准答案只解析一次（见 {@link AnswerKeyCache}），
+ * 评分时只需规范化学生答案并比较。评分规则与原逐题解析的实现保持一致
+ */
+public interface AnswerKeyMatcher {
+
+    /**
+     * 比较学生答案（非空）与标准答案
+     */
+    Match match(String studentAnswer);
+
+    /**
+     * 按题型编译标准答案，不支持自动评分的题型返回null
+     */
+    static AnswerKeyMatcher compile(String type, String correctAnswer) {
+        return compile(type, correctAnswer, true, false);
+    }
+
+    /**
+     * 按题型和计分规则编译标准答案（部分得分、负分只作用于多选题）
+     */
+    static AnswerKeyMatcher compile(String type, String correctAnswer, boolean partialCredit,
+                                    boolean negativeMarking) {
+        if (type == null) {
+            return null;
+        }
+        if (correctAnswer == null) {
+            return studentAnswer -> Match.wrong("答案不完整");
+        }
+        switch (type) {
+            case "SINGLE_CHOICE":
+                return new SingleChoiceMatcher(correctAnswer);
+            case "MULTIPLE_CHOICE":
+                return new MultipleChoiceMatcher(correctAnswer, partialCredit, negativeMarking);
+            case "TRUE_FALSE":
+                return new TrueFalseMatcher(correctAnswer);
+            case "FILL_BLANK":
+                return FillBlankMatcher.compile(correctAnswer);
+            default:
+                return null;
+        }
+    }
+
+    // 内部类定义
+
+    /**
+     * 比较结果：是否完全正确、得分比例和评语
+     *
+     * 得分比例以分数 numerator/denominator 表示（-1 ~ 1），
+     * 便于按定点分值精确换算（见 {@link ScoreUnits#scale(long, long, long)}）
+     */
+    final class Match {
+        private final boolean correct;
+        private final long creditNumerator;
+        private final long creditDenominator;
+        private final String comment;
+
+        Match(boolean correct, long creditNumerator, long creditDenominator, String comment) {
+            this.correct = correct;
+            this.creditNumerator = creditNumerator;
+            this.creditDenominator = creditDenominator;
+            this.comment = comment;
+        }
+
+        static Match correct(String comment) {
+            return new Match(true, 1, 1, comment);
+        }
+
+        static Match wrong(String comment) {
+            return new Match(false, 0, 1, comment);
+        }
+
+        public double getCreditRatio() {
+            return (double) creditNumerator / creditDenominator;
+        }
+
+        // Getters
+        public boolean isCorrect() { return correct; }
+        public long getCreditNumerator() { return creditNumerator; }
+        public long getCreditDenominator() { return creditDenominator; }
+        public String getComment() { return comment; }
+    }
+
+    /**
+     * 单选题：忽略大小写和首尾空格比较
+     */
+    final class SingleChoiceMatcher implements AnswerKeyMatcher {
+        private final String key;
+        private final String wrongComment;
+
+        SingleChoiceMatcher(String correctAnswer) {
+            this.key = correctAnswer.trim();
+            this.wrongComment = "错误，正确答案是: " + correctAnswer;
+        }
+
+        @Override
+        public Match match(String studentAnswer) {
+            return key.equalsIgnoreCase(studentAnswer.trim()) ? Match.correct("正确") : Match.wrong(wrongComment);
+        }
+    }
+
+    /**
+     * 多选题：逗号分隔的选项集合，按 long 位掩码比较，命中数和错选数由popcount得出。
+     *
+     * 计分规则：完全正确得满分；启用部分得分时按 命中/并集 给分，否则不得分；
+     * 启用负分时每个错选再扣除 1/正确选项数，最低扣至负满分
+     */
+    final class MultipleChoiceMatcher implements AnswerKeyMatcher {
+        // 单个字母A-Z、数字0-9使用固定位，其他选项从第36位起依次分配
+        private static final int FIRST_NAMED_BIT = 36;
+
+        private final Map<String, Integer> namedBits;
+        private final long mask;
+        private final int correctCount;
+        private final boolean partialCredit;
+        private final boolean negativeMarking;
+
+        MultipleChoiceMatcher(String correctAnswer, boolean partialCredit, boolean negativeMarking) {
+            this.partialCredit = partialCredit;
+            this.negativeMarking = negativeMarking;
+
+            Map<String, Integer> bits = new HashMap<>();
+            long compiled = 0L;
+            int nextBit = FIRST_NAMED_BIT;
+            for (String option : correctAnswer.split(",")) {
+                String trimmed = option.trim();
+                if (trimmed.isEmpty()) {
+                    continue;
+                }
+                int bit = trimmed.length() == 1 ? charBit(trimmed.charAt(0)) : -1;
+                if (bit < 0) {
+                    String normalized = trimmed.toUpperCase();
+                    Integer named = bits.get(normalized);
+                    if (named == null) {
+                        if (nextBit >= Long.SIZE) {
+                            throw new IllegalArgumentException("多选题选项过多: " + correctAnswer);
+                        }
+                        named = nextBit++;
+                        bits.put(normalized, named);
+                    }
+                    bit = named;
+                }
+                compiled |= 1L << bit;
+            }
+            this.namedBits = bits;
+            this.mask = compiled;
+            this.correctCount = Long.bitCount(compiled);
+        }
+
+        @Override
+        public Match match(String studentAnswer) {
+            long selected = 0L;
+            int unknownSelections = 0;
+            List<String> unknown = null;
+
+            int length = studentAnswer.length();
+            int start = 0;
+            while (start <= length) {
+                int end = studentAnswer.indexOf(',', start);
+                if (end < 0) {
+                    end = length;
+                }
+                int from = start;
+                int to = end;
+                while (from < to && studentAnswer.charAt(from) <= ' ') { // 与String.trim一致
+                    from++;
+                }
+                while (to > from && studentAnswer.charAt(to - 1) <= ' ') {
+                    to--;
+                }
+                start = end + 1;
+                if (from == to) {
+                    continue;
+                }
+
+                int bit = to - from == 1 ? charBit(studentAnswer.charAt(from)) : -1;
+                if (bit >= 0) {
+                    selected |= 1L << bit;
+                    continue;
+                }
+                String normalized = studentAnswer.substring(from, to).toUpperCase();
+                Integer named = namedBits.get(normalized);
+                if (named != null) {
+                    selected |= 1L << named;
+                } else {
+                    // 标准答案之外的多字符选项没有固定位，按去重后的个数计入错选
+                    if (unknown == null) {
+                        unknown = new ArrayList<>(2);
+                    }
+                    if (!unknown.contains(normalized)) {
+                        unknown.add(normalized);
+                        unknownSelections++;
+                    }
+                }
+            }
+            return score(Long.bitCount(selected & mask), Long.bitCount(selected & ~mask) + unknownSelections);
+        }
+
+        private Match score(int hits, int wrongSelections) {
+            if (hits == correctCount && wrongSelections == 0) {
+                return Match.correct("完全正确");
+            }
+
+            // 比例 = 命中/(正确选项数+错选数)，负分时再减 错选数/正确选项数，统一到公分母
+            long union = correctCount + wrongSelections;
+            long numerator = partialCredit && hits > 0 ? (long) hits * correctCount : 0;
+            long denominator = union * correctCount;
+            if (negativeMarking && wrongSelections > 0 && correctCount > 0) {
+                numerator = Math.max(-denominator, numerator - (long) wrongSelections * union);
+            }
+
+            if (numerator == 0 || denominator == 0) {
+                return Match.wrong(hits > 0 ? "部分正确，未启用部分得分" : "完全错误");
+            }
+            double ratio = (double) numerator / denominator;
+            return new Match(false, numerator, denominator, String.format(
+                numerator > 0 ? "部分正确，得分比例: %.2f" : "错选扣分，得分比例: %.2f", ratio));
+        }
+
+        // 字母（忽略大小写）占第0-25位，数字占第26-35位，其他字符返回-1
+        private static int charBit(char c) {
+            if (c >= 'A' && c <= 'Z') {
+                return c - 'A';
+            }
+            if (c >= 'a' && c <= 'z') {
+                return c - 'a';
+            }
+            if (c >= '0' && c <= '9') {
+                return 26 + (c - '0');
+            }
+            return -1;
+        }
+    }
+
+    /**
+     * 判断题：标准答案预先规范化为 true/false
+     */
+    final class TrueFalseMatcher implements AnswerKeyMatcher {
+        private final String key;
+        private final String wrongComment;
+
+        TrueFalseMatcher(String correctAnswer) {
+            this.key = normalizeBoolean(correctAnswer);
+            this.wrongComment = key != null
+                ? "错误，正确答案是: " + ("true".equals(key) ? "正确" : "错误")
+                : "错误，正确答案是: " + correctAnswer;
+        }
+
+        @Override
+        public Match match(String studentAnswer) {
+            return key != null && key.equals(normalizeBoolean(studentAnswer))
+                ? Match.correct("正确")
+                : Match.wrong(wrongComment);
+        }
+
+        static String normalizeBoolean(String answer) {
+            switch (answer.trim().toLowerCase()) {
+                case "true":
+                case "正确":
+                case "对":
+                case "是":
+                case "t":
+                case "1":
+                    return "true";
+                case "false":
+                case "错误":
+                case "错":
+                case "否":
+                case "f":
+                case "0":
+                    return "false";
+                default:
+                    return null;
+            }
+        }
+    }
+
+    /**
+     * 填空题：依次尝试精确匹配、可选答案（分号分隔）、数值容差（1%）和去标点的文本匹配
+     */
+    final class FillBlankMatcher implements AnswerKeyMatcher {
+        private static final Pattern PUNCTUATION_OR_SPACE = Pattern.compile("[\\p{Punct}\\s]+");
+
+        private final String key;
+        private final Set<String> alternates;
+        private final Double numericKey;
+        private final String cleanedKey;
+        private final String mismatchComment;
+
+        private FillBlankMatcher(String key, Set<String> alternates, Double numericKey, String cleanedKey,
+                                 String mismatchComment) {
+            this.key = key;
+            this.alternates = alternates;
+            this.numericKey = numericKey;
+            this.cleanedKey = cleanedKey;
+            this.mismatchComment = mismatchComment;
+        }
+
+        static FillBlankMatcher compile(String correctAnswer) {
+            String key = correctAnswer.trim();
+            if (correctAnswer.contains(";")) {
+                Set<String> alternates = new HashSet<>();
+                for (String possible : correctAnswer.split(";")) {
+                    alternates.add(possible.trim().toLowerCase(Locale.ROOT));
+                }
+                return new FillBlankMatcher(key, alternates, null, null, null);
+            }
+            return new FillBlankMatcher(key, null, parseNumber(correctAnswer), cleanText(correctAnswer),
+                "正确答案: " + correctAnswer);
+        }
+
+        @Override
+        public Match match(String studentAnswer) {
+            String trimmed = studentAnswer.trim();
+            if (key.equalsIgnoreCase(trimmed)) {
+                return Match.correct("完全匹配");
+            }
+            if (alternates != null) {
+                return alternates.contains(trimmed.toLowerCase(Locale.ROOT))
+                    ? Match.correct("匹配可选答案")
+                    : Match.wrong("");
+            }
+            if (numericKey != null) {
+                Double student = parseNumber(studentAnswer);
+                if (student != null) {
+                    double tolerance = Math.abs(numericKey) * 0.01; // 1% 容差
+                    return Math.abs(numericKey - student) <= tolerance
+                        ? Match.correct("数值匹配（容差范围内）")
+                        : Match.wrong("数值不匹配，" + mismatchComment);
+                }
+            }
+            return cleanedKey.equalsIgnoreCase(cleanText(studentAnswer))
+                ? Match.correct("文本匹配")
+                : Match.wrong("不匹配，" + mismatchComment);
+        }
+
+        // 先按首字符排除明显的非数值文本，避免以异常作为常规分支
+        static Double parseNumber(String text) {
+            String trimmed = text.trim();
+            if (trimmed.isEmpty()) {
+                return null;
+            }
+            char first = trimmed.charAt(0);
+            if (!Character.isDigit(first) && first != '-' && first != '+' && first != '.'
+                    && first != 'N' && first != 'I') {
+                return null;
+            }
+            try {
+                return Double.parseDouble(trimmed);
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+
+        static String cleanText(String text) {
+            return PUNCTUATION_OR_SPACE.matcher(text).replaceAll(" ").trim();
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.examSystem.userService.service.grading;
+
+/**
+ * 考试记录结束事件（交卷、超时、考试结束时自动交卷）
+ *
+ * 在结束考试记录的事务中同步发布，评分队列在同一事务中入队，
+ * 状态变更和评分任务要么同时提交，要么同时回滚
+ */
+public class AttemptFinishedEvent {
+
+    private final Long attemptId;
+    private final String reason;
+
+    public AttemptFinishedEvent(Long attemptId, String reason) {
+        this.attemptId = attemptId;
+        this.reason = reason;
+    }
+
+    // Getters
+    public Long getAttemptId() { return attemptId; }
+    public String getReason() { return reason; }
+}
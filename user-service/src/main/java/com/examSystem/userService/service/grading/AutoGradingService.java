@@ -5,23 +5,25 @@ import com.examSystem.userService.entity.Question;
 import com.examSystem.userService.entity.ExamAttempt;
 import com.examSystem.userService.entity.Exam;
 import com.examSystem.userService.repository.AnswerRepository;
-import com.examSystem.userService.repository.QuestionRepository;
 import com.examSystem.userService.repository.ExamAttemptRepository;
 import com.examSystem.userService.repository.ExamRepository;
+import com.examSystem.userService.repository.GradingResultBatchRepository;
+import com.examSystem.userService.service.grading.AnswerKeyCache.CompiledQuestion;
+import com.examSystem.userService.service.scheduled.ExamAggregateBuffer;
+import com.examSystem.userService.service.student.AnswerWriteBuffer;
+import com.examSystem.userService.service.student.ExamPaperCache;
+import com.examSystem.userService.service.student.ExamPaperCache.ExamPaper;
+import com.examSystem.userService.service.student.ExamPaperCache.PaperQuestion;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
-import org.springframework.scheduling.annotation.Async;
 
 import java.math.BigDecimal;
-import java.math.RoundingMode;
-import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
 import java.util.HashMap;
-import java.util.Arrays;
-import java.util.Set;
-import java.util.HashSet;
 import java.util.concurrent.CompletableFuture;
 import java.util.regex.Pattern;
 
@@ -43,7 +45,7 @@ public class AutoGradingService {
     private AnswerRepository answerRepository;
 
     @Autowired
-    private QuestionRepository questionRepository;
+    private ExamPaperCache examPaperCache;
 
     @Autowired
     private ExamAttemptRepository examAttemptRepository;
@@ -51,6 +53,22 @@ public class AutoGradingService {
     @Autowired
     private ExamRepository examRepository;
 
+    @Autowired
+    private AnswerWriteBuffer answerWriteBuffer;
+
+    @Autowired
+    private AnswerKeyCache answerKeyCache;
+
+    @Autowired
+    private GradingResultBatchRepository gradingResultBatchRepository;
+
+    @Autowired
+    private ExamAggregateBuffer examAggregateBuffer;
+
+    @Lazy
+    @Autowired
+    private BulkGradingEngine bulkGradingEngine;
+
     /**
      * 自动为考试尝试评分
      */
@@ -61,101 +79,55 @@ public class AutoGradingService {
         Exam exam = examRepository.findById(attempt.getExamId())
             .orElseThrow(() -> new RuntimeException("考试不存在"));
 
+        // 评分前确保暂存答案已落库（超时自动交卷等场景不会经过finishExam）
+        answerWriteBuffer.flushAttempt(attemptId);
+
         List<Answer> answers = answerRepository.findByAttemptId(attemptId);
-        List<Question> questions = questionRepository.findByExamIdOrderByOrderNumber(attempt.getExamId());
-
-        GradingResult result = performGrading(answers, questions, exam);
-
-        // 更新考试尝试记录
-        attempt.setScore(result.getTotalScore());
-        attempt.setGradedAt(LocalDateTime.now());
-        attempt.setStatus("GRADED");
-        examAttemptRepository.save(attempt);
-
-        // 更新答案记录
-        for (QuestionGradingResult questionResult : result.getQuestionResults()) {
-            Answer answer = answers.stream()
-                .filter(a -> a.getQuestionId().equals(questionResult.getQuestionId()))
-                .findFirst()
-                .orElse(null);
-            
-            if (answer != null) {
-                answer.setIsCorrect(questionResult.isCorrect());
-                answer.setScore(questionResult.getScore());
-                answer.setGradingComment(questionResult.getComment());
-                answerRepository.save(answer);
-            }
-        }
+        ExamPaper paper = examPaperCache.get(attempt.getExamId());
+
+        GradingResult result = gradeAnswers(attemptId, answers, paper, exam);
+
+        // 答案评分和考试记录总分一条语句写入（未作答的题目没有answers记录，自然跳过）
+        gradingResultBatchRepository.saveResult(result);
+        examAggregateBuffer.recordScoreChanged(attemptId);
 
         return result;
     }
 
     /**
      * 异步批量评分
+     *
+     * 由 {@link BulkGradingEngine} 按考试分组并行评分，需要进度时使用 BulkGradingEngine#submit
      */
-    @Async
     public CompletableFuture<List<GradingResult>> gradeMultipleAttempts(List<Long> attemptIds) {
-        List<GradingResult> results = new java.util.ArrayList<>();
-        
-        for (Long attemptId : attemptIds) {
-            try {
-                GradingResult result = gradeExamAttempt(attemptId);
-                results.add(result);
-            } catch (Exception e) {
-                results.add(new GradingResult(attemptId, BigDecimal.ZERO, 0, 0, false, 
-                    new java.util.ArrayList<>(), "评分失败: " + e.getMessage()));
-            }
-        }
-        
-        return CompletableFuture.completedFuture(results);
+        return bulkGradingEngine.submit(attemptIds, true).getCompletion();
     }
 
     /**
-     * 单个题目评分
+     * 根据已加载的答案和考试试卷计算考试记录的成绩（不读写数据库）
      */
-    public QuestionGradingResult gradeQuestion(Question question, String studentAnswer) {
-        if (studentAnswer == null || studentAnswer.trim().isEmpty()) {
-            return new QuestionGradingResult(
-                question.getId(),
-                false,
-                BigDecimal.ZERO,
-                "未作答"
-            );
-        }
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public GradingResult gradeAnswers(Long attemptId, List<Answer> answers, ExamPaper paper, Exam exam) {
+        return performGrading(attemptId, answers, paper, exam);
+    }
 
-        switch (question.getType()) {
-            case "SINGLE_CHOICE":
-                return gradeSingleChoice(question, studentAnswer);
-            case "MULTIPLE_CHOICE":
-                return gradeMultipleChoice(question, studentAnswer);
-            case "TRUE_FALSE":
-                return gradeTrueFalse(question, studentAnswer);
-            case "FILL_BLANK":
-                return gradeFillBlank(question, studentAnswer);
-            case "ESSAY":
-                return gradeEssay(question, studentAnswer);
-            default:
-                return new QuestionGradingResult(
-                    question.getId(),
-                    false,
-                    BigDecimal.ZERO,
-                    "不支持的题型"
-                );
-        }
+    /**
+     * 单个题目评分
+     *
+     * @param pointsUnits 题目在所属考试中的分值（定点单位）
+     */
+    public QuestionGradingResult gradeQuestion(Question question, String studentAnswer, long pointsUnits) {
+        return answerKeyCache.get(question).grade(question.getId(), studentAnswer, pointsUnits);
     }
 
     /**
      * 重新评分（用于调整评分标准后）
      */
     public GradingResult regradeExamAttempt(Long attemptId) {
+        answerWriteBuffer.flushAttempt(attemptId);
+
         // 重置所有答案的评分状态
-        List<Answer> answers = answerRepository.findByAttemptId(attemptId);
-        for (Answer answer : answers) {
-            answer.setIsCorrect(null);
-            answer.setScore(null);
-            answer.setGradingComment(null);
-            answerRepository.save(answer);
-        }
+        gradingResultBatchRepository.resetAnswerGrades(attemptId);
 
         // 重新评分
         return gradeExamAttempt(attemptId);
@@ -163,6 +135,8 @@ public class AutoGradingService {
 
     /**
      * 获取需要人工评分的答案
+     *
+     * 多名评分员同时评分时通过 {@link ManualGradingService} 按批认领，避免重复评分
      */
     @Transactional(readOnly = true)
     public List<Answer> getAnswersNeedingManualGrading(Long examId) {
@@ -171,10 +145,12 @@ public class AutoGradingService {
 
     // 私有方法：具体评分逻辑
 
-    private GradingResult performGrading(List<Answer> answers, List<Question> questions, Exam exam) {
-        List<QuestionGradingResult> questionResults = new java.util.ArrayList<>();
-        BigDecimal totalScore = BigDecimal.ZERO;
-        BigDecimal maxPossibleScore = BigDecimal.ZERO;
+    private GradingResult performGrading(Long attemptId, List<Answer> answers, ExamPaper paper, Exam exam) {
+        List<PaperQuestion> questions = paper.getQuestions();
+        List<QuestionGradingResult> questionResults = new java.util.ArrayList<>(questions.size());
+        // 定点累加，只在生成结果时转换为BigDecimal
+        long totalUnits = 0L;
+        long maxPossibleUnits = 0L;
         int correctCount = 0;
 
         Map<Long, Answer> answerMap = new HashMap<>();
@@ -182,30 +158,39 @@ public class AutoGradingService {
             answerMap.put(answer.getQuestionId(), answer);
         }
 
-        for (Question question : questions) {
-            maxPossibleScore = maxPossibleScore.add(question.getPoints());
-            
+        for (PaperQuestion paperQuestion : questions) {
+            Question question = paper.getAnswerKey(paperQuestion.getQuestionId());
+            CompiledQuestion compiled = answerKeyCache.get(question);
+            long pointsUnits = paper.getPointsUnits(question.getId());
+            maxPossibleUnits += pointsUnits;
+
             Answer answer = answerMap.get(question.getId());
-            String studentAnswer = answer != null ? answer.getStudentAnswer() : null;
-            
-            QuestionGradingResult questionResult = gradeQuestion(question, studentAnswer);
+            QuestionGradingResult questionResult;
+            if (answer != null && answer.getGradedAt() != null) {
+                // 已人工评分的答案沿用人工评分结果，写入时也不会被覆盖
+                questionResult = new QuestionGradingResult(question.getId(),
+                    Boolean.TRUE.equals(answer.getIsCorrect()),
+                    answer.getScore() != null ? answer.getScore() : BigDecimal.ZERO,
+                    answer.getGradingComment());
+            } else {
+                String studentAnswer = answer != null ? answer.getStudentAnswer() : null;
+                questionResult = compiled.grade(question.getId(), studentAnswer, pointsUnits);
+            }
             questionResults.add(questionResult);
-            
-            totalScore = totalScore.add(questionResult.getScore());
+
+            totalUnits += questionResult.getScoreUnits();
             if (questionResult.isCorrect()) {
                 correctCount++;
             }
         }
 
-        // 计算百分比分数
-        BigDecimal percentageScore = maxPossibleScore.compareTo(BigDecimal.ZERO) > 0 
-            ? totalScore.divide(maxPossibleScore, 4, RoundingMode.HALF_UP).multiply(BigDecimal.valueOf(100))
-            : BigDecimal.ZERO;
+        // 计算百分比分数（4位小数，HALF_UP）
+        BigDecimal percentageScore = ScoreUnits.percentage(totalUnits, maxPossibleUnits, 4);
 
         boolean passed = percentageScore.compareTo(exam.getPassingScore()) >= 0;
 
         return new GradingResult(
-            null, // attemptId will be set by caller
+            attemptId,
             percentageScore,
             correctCount,
             questions.size(),
@@ -215,194 +200,6 @@ public class AutoGradingService {
         );
     }
 
-    private QuestionGradingResult gradeSingleChoice(Question question, String studentAnswer) {
-        String correctAnswer = question.getCorrectAnswer();
-        boolean isCorrect = correctAnswer != null && 
-            correctAnswer.trim().equalsIgnoreCase(studentAnswer.trim());
-        
-        BigDecimal score = isCorrect ? question.getPoints() : BigDecimal.ZERO;
-        String comment = isCorrect ? "正确" : "错误，正确答案是: " + correctAnswer;
-        
-        return new QuestionGradingResult(question.getId(), isCorrect, score, comment);
-    }
-
-    private QuestionGradingResult gradeMultipleChoice(Question question, String studentAnswer) {
-        String correctAnswer = question.getCorrectAnswer();
-        
-        if (correctAnswer == null || studentAnswer == null) {
-            return new QuestionGradingResult(question.getId(), false, BigDecimal.ZERO, "答案不完整");
-        }
-
-        // 解析多选答案（假设用逗号分隔）
-        Set<String> correctOptions = new HashSet<>(Arrays.asList(correctAnswer.split(",")));
-        Set<String> studentOptions = new HashSet<>(Arrays.asList(studentAnswer.split(",")));
-
-        // 去除空格
-        correctOptions = cleanOptions(correctOptions);
-        studentOptions = cleanOptions(studentOptions);
-
-        boolean isCorrect = correctOptions.equals(studentOptions);
-        
-        BigDecimal score;
-        String comment;
-        
-        if (isCorrect) {
-            score = question.getPoints();
-            comment = "完全正确";
-        } else {
-            // 部分分数计算
-            Set<String> intersection = new HashSet<>(correctOptions);
-            intersection.retainAll(studentOptions);
-            
-            Set<String> union = new HashSet<>(correctOptions);
-            union.addAll(studentOptions);
-            
-            if (intersection.isEmpty()) {
-                score = BigDecimal.ZERO;
-                comment = "完全错误";
-            } else {
-                double partialRatio = (double) intersection.size() / union.size();
-                score = question.getPoints().multiply(BigDecimal.valueOf(partialRatio));
-                comment = String.format("部分正确，得分比例: %.2f", partialRatio);
-            }
-        }
-        
-        return new QuestionGradingResult(question.getId(), isCorrect, score, comment);
-    }
-
-    private QuestionGradingResult gradeTrueFalse(Question question, String studentAnswer) {
-        String correctAnswer = question.getCorrectAnswer();
-        
-        // 标准化答案格式
-        String normalizedCorrect = normalizeBoolean(correctAnswer);
-        String normalizedStudent = normalizeBoolean(studentAnswer);
-        
-        boolean isCorrect = normalizedCorrect != null && normalizedCorrect.equals(normalizedStudent);
-        BigDecimal score = isCorrect ? question.getPoints() : BigDecimal.ZERO;
-        String comment = isCorrect ? "正确" : "错误，正确答案是: " + (normalizedCorrect.equals("true") ? "正确" : "错误");
-        
-        return new QuestionGradingResult(question.getId(), isCorrect, score, comment);
-    }
-
-    private QuestionGradingResult gradeFillBlank(Question question, String studentAnswer) {
-        String correctAnswer = question.getCorrectAnswer();
-        
-        if (correctAnswer == null || studentAnswer == null) {
-            return new QuestionGradingResult(question.getId(), false, BigDecimal.ZERO, "答案不完整");
-        }
-
-        // 支持多种匹配模式
-        boolean isCorrect = false;
-        String comment = "";
-
-        // 1. 精确匹配
-        if (correctAnswer.trim().equalsIgnoreCase(studentAnswer.trim())) {
-            isCorrect = true;
-            comment = "完全匹配";
-        }
-        // 2. 多个可能答案（用分号分隔）
-        else if (correctAnswer.contains(";")) {
-            String[] possibleAnswers = correctAnswer.split(";");
-            for (String possible : possibleAnswers) {
-                if (possible.trim().equalsIgnoreCase(studentAnswer.trim())) {
-                    isCorrect = true;
-                    comment = "匹配可选答案";
-                    break;
-                }
-            }
-        }
-        // 3. 数值答案的容差匹配
-        else if (isNumeric(correctAnswer) && isNumeric(studentAnswer)) {
-            double correct = Double.parseDouble(correctAnswer.trim());
-            double student = Double.parseDouble(studentAnswer.trim());
-            double tolerance = Math.abs(correct) * 0.01; // 1% 容差
-            
-            if (Math.abs(correct - student) <= tolerance) {
-                isCorrect = true;
-                comment = "数值匹配（容差范围内）";
-            } else {
-                comment = "数值不匹配，正确答案: " + correctAnswer;
-            }
-        }
-        // 4. 模糊匹配（去除标点符号和多余空格）
-        else {
-            String cleanCorrect = cleanText(correctAnswer);
-            String cleanStudent = cleanText(studentAnswer);
-            
-            if (cleanCorrect.equalsIgnoreCase(cleanStudent)) {
-                isCorrect = true;
-                comment = "文本匹配";
-            } else {
-                comment = "不匹配，正确答案: " + correctAnswer;
-            }
-        }
-
-        BigDecimal score = isCorrect ? question.getPoints() : BigDecimal.ZERO;
-        return new QuestionGradingResult(question.getId(), isCorrect, score, comment);
-    }
-
-    private QuestionGradingResult gradeEssay(Question question, String studentAnswer) {
-        // 主观题标记为需要人工评分
-        return new QuestionGradingResult(
-            question.getId(),
-            false, // 暂时标记为未评分
-            BigDecimal.ZERO, // 暂时给0分
-            "主观题，需要人工评分"
-        );
-    }
-
-    // 辅助方法
-
-    private Set<String> cleanOptions(Set<String> options) {
-        Set<String> cleaned = new HashSet<>();
-        for (String option : options) {
-            if (option != null && !option.trim().isEmpty()) {
-                cleaned.add(option.trim().toUpperCase());
-            }
-        }
-        return cleaned;
-    }
-
-    private String normalizeBoolean(String answer) {
-        if (answer == null) return null;
-        
-        String normalized = answer.trim().toLowerCase();
-        switch (normalized) {
-            case "true":
-            case "正确":
-            case "对":
-            case "是":
-            case "t":
-            case "1":
-                return "true";
-            case "false":
-            case "错误":
-            case "错":
-            case "否":
-            case "f":
-            case "0":
-                return "false";
-            default:
-                return null;
-        }
-    }
-
-    private boolean isNumeric(String str) {
-        try {
-            Double.parseDouble(str.trim());
-            return true;
-        } catch (NumberFormatException e) {
-            return false;
-        }
-    }
-
-    private String cleanText(String text) {
-        if (text == null) return "";
-        
-        // 去除标点符号和多余空格
-        return text.replaceAll("[\\p{Punct}\\s]+", " ").trim();
-    }
-
     // 内部类定义
 
     public static class GradingResult {
@@ -439,20 +236,31 @@ public class AutoGradingService {
     public static class QuestionGradingResult {
         private final Long questionId;
         private final boolean correct;
-        private final BigDecimal score;
+        private final long scoreUnits;
         private final String comment;
 
-        public QuestionGradingResult(Long questionId, boolean correct, BigDecimal score, String comment) {
+        public QuestionGradingResult(Long questionId, boolean correct, long scoreUnits, String comment) {
             this.questionId = questionId;
             this.correct = correct;
-            this.score = score;
+            this.scoreUnits = scoreUnits;
             this.comment = comment;
         }
 
+        public QuestionGradingResult(Long questionId, boolean correct, BigDecimal score, String comment) {
+            this(questionId, correct, ScoreUnits.toUnits(score), comment);
+        }
+
+        /**
+         * 得分（持久化时使用）
+         */
+        public BigDecimal getScore() {
+            return ScoreUnits.toBigDecimal(scoreUnits);
+        }
+
         // Getters
         public Long getQuestionId() { return questionId; }
         public boolean isCorrect() { return correct; }
-        public BigDecimal getScore() { return score; }
+        public long getScoreUnits() { return scoreUnits; }
         public String getComment() { return comment; }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,356 @@
+package com.examSystem.userService.service.grading;
+
+import com.examSystem.userService.entity.Answer;
+import com.examSystem.userService.entity.Exam;
+import com.examSystem.userService.entity.ExamAttempt;
+import com.examSystem.userService.repository.AnswerRepository;
+import com.examSystem.userService.repository.ExamAttemptRepository;
+import com.examSystem.userService.repository.ExamRepository;
+import com.examSystem.userService.repository.GradingResultBatchRepository;
+import com.examSystem.userService.service.grading.AutoGradingService.GradingResult;
+import com.examSystem.userService.service.scheduled.ExamAggregateBuffer;
+import com.examSystem.userService.service.student.AnswerWriteBuffer;
+import com.examSystem.userService.service.student.ExamPaperCache;
+import com.examSystem.userService.service.student.ExamPaperCache.ExamPaper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * 批量评分引擎
+ *
+ * 将考试记录按考试分组，每场考试只加载一次考试和试卷，
+ * 答案按块批量读取，各块在有界线程池中并行评分，评分结果按块以JDBC批量更新写入。
+ * 任务提交后立即返回，进度和吞吐量通过 {@link #getStatus(String)} 查询
+ */
+@Service
+public class BulkGradingEngine {
+
+    private static final Logger logger = LoggerFactory.getLogger(BulkGradingEngine.class);
+
+    @Autowired
+    private AutoGradingService autoGradingService;
+
+    @Autowired
+    private ExamAttemptRepository examAttemptRepository;
+
+    @Autowired
+    private ExamRepository examRepository;
+
+    @Autowired
+    private ExamPaperCache examPaperCache;
+
+    @Autowired
+    private AnswerRepository answerRepository;
+
+    @Autowired
+    private GradingResultBatchRepository gradingResultBatchRepository;
+
+    @Autowired
+    private AnswerWriteBuffer answerWriteBuffer;
+
+    @Autowired
+    private ExamAggregateBuffer examAggregateBuffer;
+
+    @Value("${app.grading.bulk.parallelism:8}")
+    private int parallelism;
+
+    @Value("${app.grading.bulk.chunk-size:200}")
+    private int chunkSize;
+
+    @Value("${app.grading.bulk.job-retention-minutes:60}")
+    private long jobRetentionMinutes;
+
+    // 任务依次协调，评分块共享有界线程池；队列满时由协调线程自行执行，形成背压
+    private ExecutorService coordinator;
+    private ThreadPoolExecutor workers;
+
+    private final Map<String, BulkGradingJob> jobs = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        coordinator = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "bulk-grading-coordinator");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        AtomicInteger threadCounter = new AtomicInteger();
+        workers = new ThreadPoolExecutor(parallelism, parallelism, 0L, TimeUnit.MILLISECONDS,
+            new LinkedBlockingQueue<>(parallelism * 2),
+            runnable -> {
+                Thread thread = new Thread(runnable, "bulk-grading-" + threadCounter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            },
+            new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        coordinator.shutdownNow();
+        workers.shutdownNow();
+    }
+
+    /**
+     * 提交批量评分任务
+     *
+     * @param collectResults 是否在任务完成时返回全部评分结果；仅需进度时传false以节省内存
+     */
+    public BulkGradingJob submit(List<Long> attemptIds, boolean collectResults) {
+        BulkGradingJob job = new BulkGradingJob(UUID.randomUUID().toString(), attemptIds.size(), collectResults);
+        jobs.put(job.jobId, job);
+        coordinator.execute(() -> run(job, attemptIds));
+        return job;
+    }
+
+    /**
+     * 查询批量评分任务状态
+     */
+    public BulkGradingStatus getStatus(String jobId) {
+        BulkGradingJob job = jobs.get(jobId);
+        if (job == null) {
+            throw new RuntimeException("评分任务不存在或已过期");
+        }
+        return job.toStatus();
+    }
+
+    /**
+     * 定期清理已完成的任务
+     */
+    @Scheduled(fixedRate = 600000) // 每10分钟执行一次
+    public void cleanupFinishedJobs() {
+        LocalDateTime threshold = LocalDateTime.now().minusMinutes(jobRetentionMinutes);
+        jobs.values().removeIf(job -> job.finishedAt != null && job.finishedAt.isBefore(threshold));
+    }
+
+    // 私有辅助方法
+
+    private void run(BulkGradingJob job, List<Long> attemptIds) {
+        List<CompletableFuture<Void>> chunks = new ArrayList<>();
+        try {
+            // 先加载全部考试和试卷，考试不存在时在提交任何评分块之前失败
+            Map<Long, List<Long>> byExam = groupByExam(job, attemptIds);
+            Map<Long, Exam> exams = new LinkedHashMap<>();
+            Map<Long, ExamPaper> papers = new LinkedHashMap<>();
+            for (Long examId : byExam.keySet()) {
+                Exam exam = examRepository.findById(examId)
+                    .orElseThrow(() -> new RuntimeException("考试不存在"));
+                exams.put(examId, exam);
+                papers.put(examId, examPaperCache.get(examId));
+            }
+
+            for (Map.Entry<Long, List<Long>> entry : byExam.entrySet()) {
+                Exam exam = exams.get(entry.getKey());
+                ExamPaper paper = papers.get(entry.getKey());
+                List<Long> examAttemptIds = entry.getValue();
+                for (int from = 0; from < examAttemptIds.size(); from += chunkSize) {
+                    List<Long> chunk = examAttemptIds.subList(from, Math.min(from + chunkSize, examAttemptIds.size()));
+                    chunks.add(CompletableFuture.runAsync(() -> gradeChunk(job, exam, paper, chunk), workers));
+                }
+            }
+            CompletableFuture.allOf(chunks.toArray(new CompletableFuture<?>[0])).join();
+            job.complete(null);
+        } catch (Exception e) {
+            logger.error("Bulk grading job {} failed", job.jobId, e);
+            cancelChunks(job, chunks);
+            job.complete(e);
+        }
+
+        BulkGradingStatus status = job.toStatus();
+        logger.info("Bulk grading job {} finished: {} graded, {} failed, {} attempts/s",
+            job.jobId, status.getGradedAttempts(), status.getFailedAttempts(), status.getAttemptsPerSecond());
+    }
+
+    // 标记任务取消并等待全部评分块结束：尚未开始的评分块开始时检查标记并整块计为失败，
+    // 已开始的评分块照常写完，每块只计数一次，任务结束后不再有评分结果写入
+    private void cancelChunks(BulkGradingJob job, List<CompletableFuture<Void>> chunks) {
+        job.cancelled = true;
+        CompletableFuture.allOf(chunks.toArray(new CompletableFuture<?>[0]))
+            .handle((result, failure) -> null)
+            .join();
+    }
+
+    private Map<Long, List<Long>> groupByExam(BulkGradingJob job, List<Long> attemptIds) {
+        Map<Long, List<Long>> byExam = new LinkedHashMap<>();
+        int found = 0;
+        for (int from = 0; from < attemptIds.size(); from += chunkSize) {
+            List<Long> chunk = attemptIds.subList(from, Math.min(from + chunkSize, attemptIds.size()));
+            for (ExamAttempt attempt : examAttemptRepository.findAllById(chunk)) {
+                byExam.computeIfAbsent(attempt.getExamId(), examId -> new ArrayList<>()).add(attempt.getId());
+                found++;
+            }
+        }
+        // 不存在的考试记录计为失败，保证进度可以达到100%
+        job.recordChunk(Collections.emptyList(), attemptIds.size() - found);
+        return byExam;
+    }
+
+    private void gradeChunk(BulkGradingJob job, Exam exam, ExamPaper paper, List<Long> attemptIds) {
+        if (job.cancelled) {
+            job.recordChunk(Collections.emptyList(), attemptIds.size());
+            return;
+        }
+
+        List<GradingResult> results = new ArrayList<>(attemptIds.size());
+        int failed = 0;
+        try {
+            // 超时自动交卷等场景可能仍有暂存答案
+            for (Long attemptId : attemptIds) {
+                answerWriteBuffer.flushAttempt(attemptId);
+            }
+
+            Map<Long, List<Answer>> answersByAttempt = new LinkedHashMap<>();
+            for (Long attemptId : attemptIds) {
+                answersByAttempt.put(attemptId, new ArrayList<>());
+            }
+            for (Answer answer : answerRepository.findByAttemptIdIn(attemptIds)) {
+                answersByAttempt.get(answer.getAttemptId()).add(answer);
+            }
+
+            for (Map.Entry<Long, List<Answer>> entry : answersByAttempt.entrySet()) {
+                try {
+                    results.add(autoGradingService.gradeAnswers(entry.getKey(), entry.getValue(), paper, exam));
+                } catch (Exception e) {
+                    logger.warn("Failed to grade attempt {}: {}", entry.getKey(), e.getMessage());
+                    failed++;
+                }
+            }
+
+            gradingResultBatchRepository.saveResults(results);
+            examAggregateBuffer.recordScoresChanged(results.stream()
+                .map(GradingResult::getAttemptId)
+                .collect(Collectors.toList()));
+            job.recordChunk(results, failed);
+        } catch (Exception e) {
+            logger.error("Failed to grade chunk of {} attempts for exam {}", attemptIds.size(), exam.getId(), e);
+            job.recordChunk(Collections.emptyList(), attemptIds.size());
+        }
+    }
+
+    // 内部类定义
+
+    /**
+     * 批量评分任务
+     */
+    public static class BulkGradingJob {
+        private final String jobId;
+        private final int totalAttempts;
+        private final boolean collectResults;
+        private final LocalDateTime startedAt = LocalDateTime.now();
+        private final AtomicInteger gradedAttempts = new AtomicInteger();
+        private final AtomicInteger failedAttempts = new AtomicInteger();
+        private final ConcurrentLinkedQueue<GradingResult> results = new ConcurrentLinkedQueue<>();
+        private final CompletableFuture<List<GradingResult>> completion = new CompletableFuture<>();
+        private volatile LocalDateTime finishedAt;
+        private volatile String error;
+        private volatile boolean cancelled;
+
+        BulkGradingJob(String jobId, int totalAttempts, boolean collectResults) {
+            this.jobId = jobId;
+            this.totalAttempts = totalAttempts;
+            this.collectResults = collectResults;
+        }
+
+        void recordChunk(List<GradingResult> chunkResults, int failed) {
+            gradedAttempts.addAndGet(chunkResults.size());
+            failedAttempts.addAndGet(failed);
+            if (collectResults) {
+                results.addAll(chunkResults);
+            }
+        }
+
+        void complete(Exception failure) {
+            finishedAt = LocalDateTime.now();
+            if (failure != null) {
+                error = failure.getMessage();
+                completion.completeExceptionally(failure);
+            } else {
+                completion.complete(new ArrayList<>(results));
+            }
+        }
+
+        BulkGradingStatus toStatus() {
+            LocalDateTime end = finishedAt != null ? finishedAt : LocalDateTime.now();
+            double elapsedSeconds = Math.max(Duration.between(startedAt, end).toMillis(), 1) / 1000.0;
+            int graded = gradedAttempts.get();
+            int failed = failedAttempts.get();
+            return new BulkGradingStatus(jobId, totalAttempts, graded, failed,
+                Math.round((graded + failed) / elapsedSeconds * 100) / 100.0,
+                startedAt, finishedAt, error);
+        }
+
+        // Getters
+        public String getJobId() { return jobId; }
+        public CompletableFuture<List<GradingResult>> getCompletion() { return completion; }
+    }
+
+    /**
+     * 批量评分任务状态
+     */
+    public static class BulkGradingStatus {
+        private final String jobId;
+        private final int totalAttempts;
+        private final int gradedAttempts;
+        private final int failedAttempts;
+        private final double attemptsPerSecond;
+        private final LocalDateTime startedAt;
+        private final LocalDateTime finishedAt;
+        private final String error;
+
+        public BulkGradingStatus(String jobId, int totalAttempts, int gradedAttempts, int failedAttempts,
+                                 double attemptsPerSecond, LocalDateTime startedAt, LocalDateTime finishedAt,
+                                 String error) {
+            this.jobId = jobId;
+            this.totalAttempts = totalAttempts;
+            this.gradedAttempts = gradedAttempts;
+            this.failedAttempts = failedAttempts;
+            this.attemptsPerSecond = attemptsPerSecond;
+            this.startedAt = startedAt;
+            this.finishedAt = finishedAt;
+            this.error = error;
+        }
+
+        public double getProgressPercentage() {
+            return totalAttempts == 0 ? 100 : Math.round((double) (gradedAttempts + failedAttempts) / totalAttempts * 10000) / 100.0;
+        }
+
+        public boolean isFinished() {
+            return finishedAt != null;
+        }
+
+        // Getters
+        public String getJobId() { return jobId; }
+        public int getTotalAttempts() { return totalAttempts; }
+        public int getGradedAttempts() { return gradedAttempts; }
+        public int getFailedAttempts() { return failedAttempts; }
+        public double getAttemptsPerSecond() { return attemptsPerSecond; }
+        public LocalDateTime getStartedAt() { return startedAt; }
+        public LocalDateTime getFinishedAt() { return finishedAt; }
+        public String getError() { return error; }
+    }
+}
@@ -0,0 +1,227 @@
+package com.examSystem.userService.service.grading;
+
+import com.examSystem.userService.entity.GradingTask;
+import com.examSystem.userService.repository.GradingQueueRepository;
+import com.examSystem.userService.repository.GradingQueueRepository.ClaimedTask;
+import com.examSystem.userService.service.scheduled.ClusterTaskLeadership;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 集群评分队列
+ *
+ * 考试记录结束时由 {@link AttemptFinishedEvent} 写入持久化队列，
+ * 每个节点的评分线程以 FOR UPDATE SKIP LOCKED 认领小批任务并逐个评分（每个考试记录独立事务）。
+ * 失败按指数退避重试，超过最大次数转入死信等待人工处理；评分吞吐随节点数线性扩展
+ */
+@Service
+public class GradingQueueService {
+
+    private static final Logger logger = LoggerFactory.getLogger(GradingQueueService.class);
+
+    private static final int MAX_ERROR_LENGTH = 500;
+
+    private final String nodeId = UUID.randomUUID().toString();
+
+    @Autowired
+    private GradingQueueRepository gradingQueueRepository;
+
+    @Autowired
+    private AutoGradingService autoGradingService;
+
+    @Autowired
+    private ClusterTaskLeadership clusterTaskLeadership;
+
+    @Value("${app.grading.queue.workers:4}")
+    private int workerCount;
+
+    @Value("${app.grading.queue.batch-size:10}")
+    private int batchSize;
+
+    @Value("${app.grading.queue.poll-interval-ms:1000}")
+    private long pollIntervalMs;
+
+    @Value("${app.grading.queue.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${app.grading.queue.backoff-base-seconds:10}")
+    private long backoffBaseSeconds;
+
+    @Value("${app.grading.queue.backoff-max-seconds:600}")
+    private long backoffMaxSeconds;
+
+    @Value("${app.grading.queue.lease-seconds:300}")
+    private long leaseSeconds;
+
+    @Value("${app.grading.queue.done-retention-hours:24}")
+    private long doneRetentionHours;
+
+    private ExecutorService workers;
+    private volatile boolean running;
+
+    @PostConstruct
+    public void start() {
+        AtomicInteger threadCounter = new AtomicInteger();
+        workers = Executors.newFixedThreadPool(workerCount, runnable -> {
+            Thread thread = new Thread(runnable, "grading-queue-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        running = true;
+        for (int i = 0; i < workerCount; i++) {
+            workers.execute(this::workLoop);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        // 未完成的任务在租约过期后由其他节点接管
+        running = false;
+        workers.shutdownNow();
+    }
+
+    /**
+     * 考试记录结束时入队，与结束考试记录的状态变更在同一事务中提交
+     */
+    @EventListener
+    public void onAttemptFinished(AttemptFinishedEvent event) {
+        gradingQueueRepository.enqueue(List.of(event.getAttemptId()), LocalDateTime.now());
+    }
+
+    /**
+     * 批量入队（幂等，已在队列中的考试记录不会重复评分）
+     */
+    public int enqueue(Collection<Long> attemptIds) {
+        return gradingQueueRepository.enqueue(attemptIds, LocalDateTime.now());
+    }
+
+    /**
+     * 回收租约过期的任务并清理已完成的任务
+     */
+    @Scheduled(fixedDelayString = "${app.grading.queue.maintenance-interval-ms:60000}")
+    public void maintainQueue() {
+        if (!clusterTaskLeadership.acquire("grading.maintainQueue")) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        try {
+            int released = gradingQueueRepository.releaseExpiredLeases(now.minusSeconds(leaseSeconds), now);
+            if (released > 0) {
+                logger.warn("Released {} grading tasks with expired leases", released);
+            }
+            gradingQueueRepository.purgeDone(now.minusHours(doneRetentionHours));
+        } catch (Exception e) {
+            logger.error("Grading queue maintenance failed", e);
+        }
+    }
+
+    /**
+     * 各状态的任务数
+     */
+    public Map<String, Long> getQueueStatus() {
+        return gradingQueueRepository.countByStatus();
+    }
+
+    /**
+     * 最近的死信任务
+     */
+    public List<GradingTask> getDeadLetters(int limit) {
+        return gradingQueueRepository.findDeadLetters(limit);
+    }
+
+    /**
+     * 死信任务重新入队
+     */
+    public void retryDeadLetter(Long taskId) {
+        if (!gradingQueueRepository.retryDeadLetter(taskId, LocalDateTime.now())) {
+            throw new RuntimeException("死信任务不存在: " + taskId);
+        }
+    }
+
+    /**
+     * 全部死信任务重新入队（死信不会被自动补录重新激活，只能显式重试）
+     */
+    public int retryAllDeadLetters() {
+        return gradingQueueRepository.retryAllDeadLetters(LocalDateTime.now());
+    }
+
+    // 私有辅助方法
+
+    private void workLoop() {
+        while (running) {
+            try {
+                List<ClaimedTask> tasks = gradingQueueRepository.claim(nodeId, batchSize, LocalDateTime.now());
+                if (tasks.isEmpty()) {
+                    Thread.sleep(pollIntervalMs);
+                    continue;
+                }
+                for (ClaimedTask task : tasks) {
+                    process(task);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                // 数据库暂时不可用等情况，稍后再试
+                logger.warn("Grading queue worker error: {}", e.getMessage());
+                try {
+                    Thread.sleep(pollIntervalMs);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private void process(ClaimedTask task) {
+        try {
+            autoGradingService.gradeExamAttempt(task.getAttemptId());
+            gradingQueueRepository.complete(task.getId(), nodeId, LocalDateTime.now());
+        } catch (Exception e) {
+            String error = truncate(e.getMessage());
+            LocalDateTime now = LocalDateTime.now();
+            if (task.getAttempts() >= maxAttempts) {
+                logger.error("Grading attempt {} failed {} times, moved to dead letter: {}",
+                    task.getAttemptId(), task.getAttempts(), error);
+                gradingQueueRepository.deadLetter(task.getId(), nodeId, error, now);
+            } else {
+                LocalDateTime retryAt = now.plusNanos(backoff(task.getAttempts()) * 1_000_000L);
+                logger.warn("Grading attempt {} failed (try {}), retrying at {}: {}",
+                    task.getAttemptId(), task.getAttempts(), retryAt, error);
+                gradingQueueRepository.retryLater(task.getId(), nodeId, error, retryAt, now);
+            }
+        }
+    }
+
+    // 指数退避（毫秒），附加最多20%的随机抖动，避免失败的任务同时重试
+    private long backoff(int attempts) {
+        long seconds = backoffBaseSeconds << Math.min(attempts - 1, 20);
+        long millis = Math.min(seconds, backoffMaxSeconds) * 1000;
+        return millis + ThreadLocalRandom.current().nextLong(millis / 5 + 1);
+    }
+
+    private String truncate(String message) {
+        if (message == null) {
+            return null;
+        }
+        return message.length() > MAX_ERROR_LENGTH ? message.substring(0, MAX_ERROR_LENGTH) : message;
+    }
+}
@@ -0,0 +1,281 @@
+package com.examSystem.userService.service.grading;
+
+import com.examSystem.userService.entity.Answer;
+import com.examSystem.userService.repository.AnswerRepository;
+import com.examSystem.userService.repository.GradingResultBatchRepository;
+import com.examSystem.userService.repository.ManualGradingRepository;
+import com.examSystem.userService.repository.ManualGradingRepository.LeasedAnswer;
+import com.examSystem.userService.service.scheduled.ExamAggregateBuffer;
+import com.examSystem.userService.service.student.AttemptSnapshotCache;
+import com.examSystem.userService.service.student.ExamPaperCache;
+import com.examSystem.userService.service.student.ExamPaperCache.ExamPaper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 人工评分分配服务
+ *
+ * 评分员按批认领考试中待评分的主观题答案（租约），认领按答案ID键集分页推进，
+ * 并发认领的评分员由 SKIP LOCKED 分开，不会重复评同一答案。
+ * 每次领取后在后台预取下一批，评分员提交完当前批次即可立即拿到下一批。
+ * 未提交的答案在租约过期后回到待评分池，键集扫到末尾后从头扫描以取回这些答案
+ */
+@Service
+public class ManualGradingService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ManualGradingService.class);
+
+    @Autowired
+    private ManualGradingRepository manualGradingRepository;
+
+    @Autowired
+    private AnswerRepository answerRepository;
+
+    @Autowired
+    private GradingResultBatchRepository gradingResultBatchRepository;
+
+    @Autowired
+    private AttemptSnapshotCache attemptSnapshotCache;
+
+    @Autowired
+    private ExamPaperCache examPaperCache;
+
+    @Autowired
+    private ExamAggregateBuffer examAggregateBuffer;
+
+    @Value("${app.grading.manual.batch-size:20}")
+    private int batchSize;
+
+    @Value("${app.grading.manual.lease-minutes:30}")
+    private long leaseMinutes;
+
+    @Value("${app.grading.manual.prefetch-threads:4}")
+    private int prefetchThreads;
+
+    // 评分会话：examId:graderId -> 键集游标、持有的答案和预取的下一批
+    private final Map<String, GraderSession> sessions = new ConcurrentHashMap<>();
+
+    private ThreadPoolExecutor prefetchExecutor;
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger threadCounter = new AtomicInteger();
+        prefetchExecutor = new ThreadPoolExecutor(prefetchThreads, prefetchThreads, 0L, TimeUnit.MILLISECONDS,
+            new LinkedBlockingQueue<>(prefetchThreads * 50),
+            runnable -> {
+                Thread thread = new Thread(runnable, "manual-grading-prefetch-" + threadCounter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        prefetchExecutor.shutdownNow();
+    }
+
+    /**
+     * 领取下一批待评分答案（优先使用预取的批次），并在后台预取再下一批
+     */
+    public LeaseBatch leaseNext(Long examId, Long graderId) {
+        GraderSession session = sessions.computeIfAbsent(sessionKey(examId, graderId), key -> new GraderSession());
+        synchronized (session) {
+            session.lastActivity = LocalDateTime.now();
+
+            LeaseBatch batch = takePrefetched(session);
+            if (batch == null) {
+                batch = leaseBatch(examId, graderId, session);
+            }
+            if (!batch.getAnswers().isEmpty()) {
+                prefetch(examId, graderId, session);
+            }
+            return batch;
+        }
+    }
+
+    /**
+     * 提交人工评分并重算考试记录总分
+     */
+    @Transactional
+    public void submitGrade(Long graderId, Long answerId, BigDecimal score, String feedback) {
+        Answer answer = answerRepository.findById(answerId)
+            .orElseThrow(() -> new RuntimeException("答案不存在: " + answerId));
+        ExamPaper paper = examPaperCache.get(attemptSnapshotCache.get(answer.getAttemptId()).getExamId());
+        if (!paper.containsQuestion(answer.getQuestionId())) {
+            throw new RuntimeException("题目不在试卷中: " + answer.getQuestionId());
+        }
+
+        // 分值上限为题目在本场考试中的分值
+        BigDecimal maxScore = ScoreUnits.toBigDecimal(paper.getPointsUnits(answer.getQuestionId()));
+        if (score == null || score.signum() < 0 || score.compareTo(maxScore) > 0) {
+            throw new RuntimeException("评分超出题目分值范围");
+        }
+
+        boolean correct = score.compareTo(maxScore) == 0;
+        if (!manualGradingRepository.submitGrade(answerId, graderId, score, correct, feedback, LocalDateTime.now())) {
+            throw new RuntimeException("评分租约已过期或答案已评分，请重新领取");
+        }
+        gradingResultBatchRepository.rescoreAttempt(answer.getAttemptId(), paper.getMaxScoreUnits());
+        examAggregateBuffer.recordScoreChanged(answer.getAttemptId());
+
+        GraderSession session = sessions.get(sessionKey(paper.getExamId(), graderId));
+        if (session != null) {
+            session.held.remove(answerId);
+            session.lastActivity = LocalDateTime.now();
+        }
+    }
+
+    /**
+     * 续租评分员持有的全部答案（含预取的批次），返回续租成功的数量
+     */
+    public int renew(Long examId, Long graderId) {
+        GraderSession session = sessions.get(sessionKey(examId, graderId));
+        if (session == null) {
+            return 0;
+        }
+        session.lastActivity = LocalDateTime.now();
+        LocalDateTime now = LocalDateTime.now();
+        return manualGradingRepository.renew(graderId, new ArrayList<>(session.held), now, now.plusMinutes(leaseMinutes));
+    }
+
+    /**
+     * 归还评分员持有的全部答案（结束评分时调用）
+     */
+    public int release(Long examId, Long graderId) {
+        GraderSession session = sessions.remove(sessionKey(examId, graderId));
+        if (session == null) {
+            return 0;
+        }
+        synchronized (session) {
+            awaitPrefetch(session);
+            return manualGradingRepository.release(graderId, new ArrayList<>(session.held));
+        }
+    }
+
+    /**
+     * 考试待人工评分的答案数
+     */
+    public long getPendingCount(Long examId) {
+        return manualGradingRepository.countPending(examId);
+    }
+
+    /**
+     * 定期清理长时间无操作的评分会话（其租约已过期，答案已回到待评分池）
+     */
+    @Scheduled(fixedRate = 600000) // 每10分钟执行一次
+    public void cleanupIdleSessions() {
+        LocalDateTime threshold = LocalDateTime.now().minusMinutes(leaseMinutes);
+        sessions.values().removeIf(session -> session.lastActivity.isBefore(threshold));
+    }
+
+    // 私有辅助方法
+
+    private LeaseBatch leaseBatch(Long examId, Long graderId, GraderSession session) {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime expiresAt = now.plusMinutes(leaseMinutes);
+
+        List<LeasedAnswer> answers = manualGradingRepository.lease(examId, graderId, session.cursor, batchSize,
+            now, expiresAt);
+        if (answers.size() < batchSize && session.cursor > 0) {
+            // 游标已到末尾，从头扫描取回租约过期回到池中的答案
+            List<LeasedAnswer> wrapped = new ArrayList<>(answers);
+            wrapped.addAll(manualGradingRepository.lease(examId, graderId, 0L, batchSize - answers.size(),
+                now, expiresAt));
+            answers = wrapped;
+        }
+
+        if (!answers.isEmpty()) {
+            session.cursor = answers.get(answers.size() - 1).getAnswerId();
+            for (LeasedAnswer answer : answers) {
+                session.held.add(answer.getAnswerId());
+            }
+        }
+        return new LeaseBatch(answers, expiresAt);
+    }
+
+    private void prefetch(Long examId, Long graderId, GraderSession session) {
+        try {
+            session.prefetched = CompletableFuture.supplyAsync(
+                () -> leaseBatch(examId, graderId, session), prefetchExecutor);
+        } catch (RejectedExecutionException e) {
+            // 预取只是优化，线程池繁忙时下次领取直接查询
+            session.prefetched = null;
+        }
+    }
+
+    private LeaseBatch takePrefetched(GraderSession session) {
+        LeaseBatch batch = awaitPrefetch(session);
+        // 剩余租期不足一半的预取批次不再发放，过期后自动回到待评分池
+        if (batch == null || batch.getAnswers().isEmpty()
+                || batch.getExpiresAt().isBefore(LocalDateTime.now().plusMinutes(leaseMinutes / 2))) {
+            return null;
+        }
+        return batch;
+    }
+
+    private LeaseBatch awaitPrefetch(GraderSession session) {
+        CompletableFuture<LeaseBatch> prefetched = session.prefetched;
+        session.prefetched = null;
+        if (prefetched == null) {
+            return null;
+        }
+        try {
+            return prefetched.join();
+        } catch (Exception e) {
+            logger.warn("Manual grading prefetch failed: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private String sessionKey(Long examId, Long graderId) {
+        return examId + ":" + graderId;
+    }
+
+    // 内部类定义
+
+    private static class GraderSession {
+        private volatile long cursor = 0L;
+        private final Set<Long> held = ConcurrentHashMap.newKeySet();
+        private volatile CompletableFuture<LeaseBatch> prefetched;
+        private volatile LocalDateTime lastActivity = LocalDateTime.now();
+    }
+
+    /**
+     * 一批已认领的待评分答案
+     */
+    public static class LeaseBatch {
+        private final List<LeasedAnswer> answers;
+        private final LocalDateTime expiresAt;
+
+        public LeaseBatch(List<LeasedAnswer> answers, LocalDateTime expiresAt) {
+            this.answers = Collections.unmodifiableList(answers);
+            this.expiresAt = expiresAt;
+        }
+
+        // Getters
+        public List<LeasedAnswer> getAnswers() { return answers; }
+        public LocalDateTime getExpiresAt() { return expiresAt; }
+    }
+}
@@ -0,0 +1,247 @@
+package com.examSystem.userService.service.grading;
+
+import com.examSystem.userService.entity.Question;
+import com.examSystem.userService.entity.RegradeJob;
+import com.examSystem.userService.entity.RegradeJob.RegradeStatus;
+import com.examSystem.userService.repository.QuestionRepository;
+import com.examSystem.userService.repository.RegradeBatchRepository;
+import com.examSystem.userService.repository.RegradeBatchRepository.AnswerGrade;
+import com.examSystem.userService.repository.RegradeBatchRepository.AttemptRescore;
+import com.examSystem.userService.repository.RegradeBatchRepository.RegradeAnswer;
+import com.examSystem.userService.repository.RegradeJobRepository;
+import com.examSystem.userService.service.TransactionCallbacks;
+import com.examSystem.userService.service.grading.AnswerKeyCache.CompiledQuestion;
+import com.examSystem.userService.service.grading.AutoGradingService.QuestionGradingResult;
+import com.examSystem.userService.service.scheduled.ExamAggregateBuffer;
+import com.examSystem.userService.service.student.ExamPaperCache;
+import com.examSystem.userService.service.student.ExamPaperCache.ExamPaper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 重新评分任务服务
+ *
+ * 标准答案修正后，按考试记录ID分块流式重评该题目在所有考试中的答案：
+ * 只写回评分发生变化的答案，并用集合更新重算受影响考试记录的总分。
+ * 每块完成后在同一事务中记录检查点，节点重启或中断后由定时任务从检查点接管继续
+ */
+@Service
+public class RegradeJobService {
+
+    private static final Logger logger = LoggerFactory.getLogger(RegradeJobService.class);
+
+    @Autowired
+    private RegradeJobRepository regradeJobRepository;
+
+    @Autowired
+    private RegradeBatchRepository regradeBatchRepository;
+
+    @Autowired
+    private QuestionRepository questionRepository;
+
+    @Autowired
+    private AnswerKeyCache answerKeyCache;
+
+    @Autowired
+    private ExamPaperCache examPaperCache;
+
+    @Autowired
+    private ExamAggregateBuffer examAggregateBuffer;
+
+    @Value("${app.grading.regrade.chunk-size:500}")
+    private int chunkSize;
+
+    @Value("${app.grading.regrade.stale-seconds:300}")
+    private long staleSeconds;
+
+    // 任务在单线程中依次执行，避免与考试中的评分争抢数据库连接
+    private ExecutorService runner;
+
+    private final Set<Long> activeJobs = ConcurrentHashMap.newKeySet();
+
+    @PostConstruct
+    public void init() {
+        runner = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "regrade-runner");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        runner.shutdownNow();
+    }
+
+    /**
+     * 创建重新评分任务，在当前事务提交后开始执行
+     *
+     * @param questionId 需要重评的答案所属题目
+     * @param keyQuestionId 提供修正后标准答案的题目（原地修改时与questionId相同）
+     */
+    public RegradeJob submit(Long questionId, Long keyQuestionId) {
+        RegradeJob job = regradeJobRepository.save(new RegradeJob(questionId, keyQuestionId));
+        TransactionCallbacks.afterCommit(() -> schedule(job.getId()));
+        return job;
+    }
+
+    /**
+     * 重新执行失败的任务（从检查点继续）
+     */
+    public RegradeJob resume(Long jobId) {
+        RegradeJob job = getJob(jobId);
+        if (job.getStatus() != RegradeStatus.FAILED) {
+            throw new RuntimeException("只有失败的任务可以重新执行");
+        }
+        job.setStatus(RegradeStatus.PENDING);
+        job.setErrorMessage(null);
+        job.setFinishedAt(null);
+        RegradeJob saved = regradeJobRepository.save(job);
+        TransactionCallbacks.afterCommit(() -> schedule(saved.getId()));
+        return saved;
+    }
+
+    /**
+     * 查询任务状态
+     */
+    public RegradeJob getJob(Long jobId) {
+        return regradeJobRepository.findById(jobId)
+            .orElseThrow(() -> new RuntimeException("重新评分任务不存在: " + jobId));
+    }
+
+    /**
+     * 最近的任务列表
+     */
+    public List<RegradeJob> getRecentJobs() {
+        return regradeJobRepository.findTop50ByOrderByIdDesc();
+    }
+
+    /**
+     * 定时接管未开始或已中断的任务（含本节点重启前未完成的任务）
+     */
+    @Scheduled(fixedDelayString = "${app.grading.regrade.resume-interval-ms:60000}")
+    public void resumeInterruptedJobs() {
+        LocalDateTime staleBefore = LocalDateTime.now().minusSeconds(staleSeconds);
+        for (RegradeJob job : regradeJobRepository.findResumableJobs(staleBefore)) {
+            schedule(job.getId());
+        }
+    }
+
+    // 私有辅助方法
+
+    private void schedule(Long jobId) {
+        if (activeJobs.add(jobId)) {
+            runner.execute(() -> {
+                try {
+                    claimAndRun(jobId);
+                } finally {
+                    activeJobs.remove(jobId);
+                }
+            });
+        }
+    }
+
+    private void claimAndRun(Long jobId) {
+        LocalDateTime now = LocalDateTime.now();
+        if (regradeJobRepository.claim(jobId, now, now.minusSeconds(staleSeconds)) == 0) {
+            return; // 已由其他节点执行或已结束
+        }
+
+        RegradeJob job = getJob(jobId);
+        try {
+            run(job);
+            finish(job, RegradeStatus.COMPLETED, null);
+            logger.info("Regrade job {} completed: {} answers processed, {} changed, {} attempts rescored",
+                jobId, job.getProcessedAnswers(), job.getChangedAnswers(), job.getRescoredAttempts());
+        } catch (Exception e) {
+            logger.error("Regrade job {} failed at attempt {}", jobId, job.getLastAttemptId(), e);
+            finish(job, RegradeStatus.FAILED, e.getMessage());
+        }
+    }
+
+    private void run(RegradeJob job) {
+        Question keyQuestion = questionRepository.findById(job.getKeyQuestionId())
+            .orElseThrow(() -> new RuntimeException("题目不存在: " + job.getKeyQuestionId()));
+        CompiledQuestion compiled = answerKeyCache.get(keyQuestion);
+        if (compiled.getMatcher() == null) {
+            // 主观题的人工评分不能被覆盖
+            throw new RuntimeException("该题型不支持自动重新评分: " + compiled.getType());
+        }
+
+        if (job.getTotalAnswers() == null) {
+            job.setTotalAnswers(regradeBatchRepository.countAnswers(job.getQuestionId()));
+            regradeJobRepository.save(job);
+        }
+
+        // 检查点之后的答案逐块处理，检查点随每块的写入一起提交
+        Long lastAttemptId = job.getLastAttemptId();
+        while (true) {
+            List<RegradeAnswer> chunk = regradeBatchRepository.loadChunk(job.getQuestionId(), lastAttemptId, chunkSize);
+            if (chunk.isEmpty()) {
+                return;
+            }
+
+            // 同一道题在各考试中的分值不同，按答案所属考试的试卷取分值
+            List<AnswerGrade> changed = new ArrayList<>();
+            Map<Long, List<Long>> rescoreByExam = new LinkedHashMap<>();
+            Map<Long, ExamPaper> papers = new HashMap<>();
+            for (RegradeAnswer answer : chunk) {
+                ExamPaper paper = papers.computeIfAbsent(answer.getExamId(), examPaperCache::get);
+                QuestionGradingResult result = compiled.grade(job.getQuestionId(), answer.getStudentAnswer(),
+                    paper.getPointsUnits(job.getQuestionId()));
+                if (Objects.equals(answer.getCorrect(), result.isCorrect())
+                        && Objects.equals(answer.getScoreUnits(), result.getScoreUnits())) {
+                    continue;
+                }
+                changed.add(new AnswerGrade(answer.getAttemptId(), result.isCorrect(), result.getScoreUnits(),
+                    result.getComment()));
+                if (!"IN_PROGRESS".equals(answer.getAttemptStatus())) {
+                    rescoreByExam.computeIfAbsent(answer.getExamId(), examId -> new ArrayList<>())
+                        .add(answer.getAttemptId());
+                }
+            }
+
+            List<AttemptRescore> rescores = new ArrayList<>(rescoreByExam.size());
+            rescoreByExam.forEach((examId, attemptIds) ->
+                rescores.add(new AttemptRescore(papers.get(examId).getMaxScoreUnits(), attemptIds)));
+
+            lastAttemptId = chunk.get(chunk.size() - 1).getAttemptId();
+            regradeBatchRepository.applyChunk(job.getId(), job.getQuestionId(), changed, rescores,
+                lastAttemptId, chunk.size());
+            rescoreByExam.values().forEach(examAggregateBuffer::recordScoresChanged);
+
+            job.setLastAttemptId(lastAttemptId);
+            job.setProcessedAnswers(job.getProcessedAnswers() + chunk.size());
+            job.setChangedAnswers(job.getChangedAnswers() + changed.size());
+        }
+    }
+
+    private void finish(RegradeJob job, RegradeStatus status, String errorMessage) {
+        // 计数以检查点写入的数据库值为准
+        RegradeJob current = regradeJobRepository.findById(job.getId()).orElse(job);
+        current.setStatus(status);
+        current.setErrorMessage(errorMessage != null && errorMessage.length() > 500
+            ? errorMessage.substring(0, 500) : errorMessage);
+        current.setFinishedAt(LocalDateTime.now());
+        regradeJobRepository.save(current);
+        job.setRescoredAttempts(current.getRescoredAttempts());
+    }
+}
@@ -0,0 +1,92 @@
+package com.examSystem.userService.service.grading;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * 定点分值运算
+ *
+ * 评分内循环以 long 表示分值，单位为百万分之一分，避免逐题 BigDecimal 运算的分配开销；
+ * 只在写入 ExamAttempt.score / percentage / pointsEarned 等持久化字段时转换为 BigDecimal。
+ * 舍入规则与原 BigDecimal 实现一致：HALF_UP（远离零方向进位）
+ */
+public final class ScoreUnits {
+
+    public static final int SCALE = 6;
+
+    public static final long UNITS_PER_POINT = 1_000_000L;
+
+    private static final BigDecimal ONE_HUNDRED = BigDecimal.valueOf(100);
+
+    private static final long[] POWERS_OF_TEN = {
+        1L, 10L, 100L, 1_000L, 10_000L, 100_000L, 1_000_000L, 10_000_000L, 100_000_000L
+    };
+
+    private ScoreUnits() {
+    }
+
+    /**
+     * 分值转为定点单位（超出精度的部分按HALF_UP舍入），null视为0
+     */
+    public static long toUnits(BigDecimal points) {
+        if (points == null) {
+            return 0L;
+        }
+        return points.setScale(SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    /**
+     * 定点单位转为分值
+     */
+    public static BigDecimal toBigDecimal(long units) {
+        return BigDecimal.valueOf(units, SCALE);
+    }
+
+    /**
+     * 按比例 numerator/denominator 计算得分，HALF_UP舍入到定点单位
+     */
+    public static long scale(long units, long numerator, long denominator) {
+        if (numerator == denominator) {
+            return units;
+        }
+        if (numerator == 0) {
+            return 0L;
+        }
+        return divideHalfUp(Math.multiplyExact(units, numerator), denominator);
+    }
+
+    /**
+     * 百分比分数，与 earned.divide(possible, decimals, HALF_UP).multiply(100) 的结果（数值和scale）完全相同
+     */
+    public static BigDecimal percentage(long earnedUnits, long possibleUnits, int decimals) {
+        if (possibleUnits <= 0) {
+            return BigDecimal.ZERO;
+        }
+        long quotient;
+        try {
+            quotient = divideHalfUp(Math.multiplyExact(earnedUnits, POWERS_OF_TEN[decimals]), possibleUnits);
+        } catch (ArithmeticException e) {
+            // 超出long范围时退回BigDecimal计算
+            return toBigDecimal(earnedUnits)
+                .divide(toBigDecimal(possibleUnits), decimals, RoundingMode.HALF_UP)
+                .multiply(ONE_HUNDRED);
+        }
+        return BigDecimal.valueOf(quotient, decimals).multiply(ONE_HUNDRED);
+    }
+
+    /**
+     * 整数除法，HALF_UP舍入
+     */
+    public static long divideHalfUp(long dividend, long divisor) {
+        long quotient = dividend / divisor;
+        long remainder = dividend % divisor;
+        if (remainder == 0) {
+            return quotient;
+        }
+        // |余数| * 2 >= |除数| 时向远离零方向进一
+        if (Math.abs(remainder) >= Math.abs(divisor) - Math.abs(remainder)) {
+            return (dividend < 0) == (divisor < 0) ? quotient + 1 : quotient - 1;
+        }
+        return quotient;
+    }
+}
@@ -5,6 +5,8 @@ import com.examSystem.userService.entity.Exam;
 import com.examSystem.userService.repository.ExamAttemptRepository;
 import com.examSystem.userService.repository.ExamRepository;
 import com.examSystem.userService.service.security.ExamSecurityService;
+import com.examSystem.userService.service.student.AttemptProgressTracker;
+import com.examSystem.userService.service.student.AttemptProgressTracker.AttemptProgress;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Service;
@@ -45,6 +47,9 @@ public class ExamMonitoringService {
     @Autowired
     private SimpMessagingTemplate messagingTemplate;
 
+    @Autowired
+    private AttemptProgressTracker attemptProgressTracker;
+
     // 实时会话状态存储
     private final Map<Long, StudentSession> activeSessions = new ConcurrentHashMap<>();
     
@@ -354,9 +359,9 @@ public class ExamMonitoringService {
     }
 
     private ProgressInfo calculateProgress(Long attemptId) {
-        // 这里应该查询答题进度
-        // 暂时返回模拟数据
-        return new ProgressInfo(attemptId, 65.0, 13, 20, LocalDateTime.now());
+        AttemptProgress progress = attemptProgressTracker.getProgress(attemptId);
+        return new ProgressInfo(attemptId, progress.getCompletionPercentage(),
+            progress.getAnsweredQuestions(), progress.getTotalQuestions(), progress.getLastAnswerTime());
     }
 
     private long calculateRemainingTime(ExamAttempt attempt) {
@@ -0,0 +1,235 @@
+package com.examSystem.userService.service.scheduled;
+
+import com.examSystem.userService.entity.Exam;
+import com.examSystem.userService.repository.AttemptDeadlineRepository;
+import com.examSystem.userService.repository.AttemptDeadlineRepository.AttemptDeadline;
+import com.examSystem.userService.service.TransactionCallbacks;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 考试记录截止时间调度
+ *
+ * 进行中考试记录的截止时间（含宽限期和章节单题限时）放入内存中的分层时间轮，
+ * 开考时登记、交卷时取消、节点启动时从数据库重建，到期后在一个tick内自动交卷。
+ * 数据库轮询只作为低频的兜底核对，处理本节点未登记的考试记录（如其他节点宕机时开考的）
+ */
+@Service
+public class AttemptDeadlineScheduler {
+
+    private static final Logger logger = LoggerFactory.getLogger(AttemptDeadlineScheduler.class);
+
+    // 4层x64槽，1秒tick时覆盖约194天，更远的截止时间在最高层循环等待
+    private static final int WHEEL_LEVELS = 4;
+
+    @Autowired
+    private AttemptDeadlineRepository attemptDeadlineRepository;
+
+    @Autowired
+    private ExamScheduledTaskService examScheduledTaskService;
+
+    @Autowired
+    private ClusterTaskLeadership clusterTaskLeadership;
+
+    @Value("${app.exam.deadline-wheel.tick-ms:1000}")
+    private long tickMs;
+
+    @Value("${app.exam.deadline-wheel.timeout-threads:4}")
+    private int timeoutThreads;
+
+    @Value("${app.exam.deadline-wheel.reconcile-batch-size:500}")
+    private int reconcileBatchSize;
+
+    private final Object wheelLock = new Object();
+
+    // 考试的章节限时合计（秒），未全部限时为空；兜底核对时清空以感知题目调整
+    private final Map<Long, Optional<Integer>> sectionLimits = new ConcurrentHashMap<>();
+
+    private HierarchicalTimingWheel wheel;
+    private ScheduledExecutorService ticker;
+    private ExecutorService timeoutExecutor;
+
+    @PostConstruct
+    public void start() {
+        wheel = new HierarchicalTimingWheel(WHEEL_LEVELS, currentTick());
+        ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "attempt-deadline-wheel");
+            thread.setDaemon(true);
+            return thread;
+        });
+        AtomicInteger threadCounter = new AtomicInteger();
+        timeoutExecutor = Executors.newFixedThreadPool(timeoutThreads, runnable -> {
+            Thread thread = new Thread(runnable, "attempt-timeout-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        ticker.scheduleAtFixedRate(this::tick, tickMs, tickMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        ticker.shutdownNow();
+        timeoutExecutor.shutdownNow();
+    }
+
+    /**
+     * 启动时从数据库重建全部进行中考试记录的截止时间
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        try {
+            List<AttemptDeadline> deadlines = attemptDeadlineRepository.findInProgressDeadlines();
+            for (AttemptDeadline deadline : deadlines) {
+                schedule(deadline.getAttemptId(), deadline.getDeadline());
+            }
+            logger.info("Attempt deadline wheel rebuilt with {} in-progress attempts", deadlines.size());
+        } catch (Exception e) {
+            logger.error("Failed to rebuild attempt deadline wheel, relying on reconciliation", e);
+        }
+    }
+
+    /**
+     * 开考时登记考试记录的截止时间
+     */
+    public LocalDateTime register(Long attemptId, Exam exam, LocalDateTime startTime) {
+        LocalDateTime deadline = computeDeadline(exam, startTime);
+        schedule(attemptId, deadline);
+        return deadline;
+    }
+
+    /**
+     * 考试记录已结束，取消截止时间（在事务中调用时于提交后取消，回滚时截止时间保留）
+     */
+    public void cancel(Long attemptId) {
+        TransactionCallbacks.afterCommit(() -> {
+            synchronized (wheelLock) {
+                wheel.cancel(attemptId);
+            }
+        });
+    }
+
+    /**
+     * 截止时间 = 开始时间 + min(考试时长, 章节限时合计) + 宽限期
+     */
+    public LocalDateTime computeDeadline(Exam exam, LocalDateTime startTime) {
+        long limitSeconds = exam.getDurationMinutes() * 60L;
+        Optional<Integer> sectionLimit = sectionLimits.computeIfAbsent(exam.getId(),
+            examId -> Optional.ofNullable(attemptDeadlineRepository.findSectionTimeLimitSeconds(examId)));
+        if (sectionLimit.isPresent()) {
+            limitSeconds = Math.min(limitSeconds, sectionLimit.get());
+        }
+        int graceMinutes = exam.getGracePeriodMinutes() != null ? exam.getGracePeriodMinutes() : 0;
+        return startTime.plusSeconds(limitSeconds).plusMinutes(graceMinutes);
+    }
+
+    /**
+     * 时间轮中的考试记录数
+     */
+    public int getScheduledCount() {
+        synchronized (wheelLock) {
+            return wheel.size();
+        }
+    }
+
+    /**
+     * 兜底核对：结束已过截止时间但仍在进行中的考试记录
+     */
+    @Scheduled(fixedDelayString = "${app.exam.deadline-wheel.reconcile-interval-ms:600000}")
+    public void reconcile() {
+        if (!clusterTaskLeadership.acquire("deadline.reconcile")) {
+            return;
+        }
+        sectionLimits.clear();
+        try {
+            // 留出两个tick，避免与时间轮正常触发的交卷重复
+            LocalDateTime overdueBefore = LocalDateTime.now().minusNanos(tickMs * 2 * 1_000_000L);
+            List<Long> overdue = attemptDeadlineRepository.findOverdueAttemptIds(overdueBefore, reconcileBatchSize);
+            int timedOut = 0;
+            for (Long attemptId : overdue) {
+                cancel(attemptId);
+                if (timeout(attemptId)) {
+                    timedOut++;
+                }
+            }
+            if (timedOut > 0) {
+                logger.warn("Deadline reconciliation timed out {} attempts missed by the wheel", timedOut);
+            }
+        } catch (Exception e) {
+            logger.error("Attempt deadline reconciliation failed", e);
+        }
+    }
+
+    // 私有辅助方法
+
+    private void schedule(Long attemptId, LocalDateTime deadline) {
+        boolean scheduled;
+        synchronized (wheelLock) {
+            // 向上取整，保证不早于截止时间触发
+            scheduled = wheel.schedule(attemptId, Math.floorDiv(toEpochMillis(deadline) + tickMs - 1, tickMs));
+        }
+        if (!scheduled) {
+            fire(attemptId);
+        }
+    }
+
+    private void tick() {
+        try {
+            List<Long> expired;
+            synchronized (wheelLock) {
+                expired = wheel.advanceTo(currentTick());
+            }
+            for (Long attemptId : expired) {
+                fire(attemptId);
+            }
+        } catch (Exception e) {
+            // 异常会终止周期任务，这里只记录
+            logger.error("Attempt deadline wheel tick failed", e);
+        }
+    }
+
+    private void fire(Long attemptId) {
+        try {
+            timeoutExecutor.execute(() -> timeout(attemptId));
+        } catch (RejectedExecutionException e) {
+            logger.warn("Timeout executor rejected attempt {}, left to reconciliation", attemptId);
+        }
+    }
+
+    private boolean timeout(Long attemptId) {
+        try {
+            return examScheduledTaskService.timeoutAttempt(attemptId);
+        } catch (Exception e) {
+            logger.warn("Failed to time out attempt {}, left to reconciliation: {}", attemptId, e.getMessage());
+            return false;
+        }
+    }
+
+    private long currentTick() {
+        return Math.floorDiv(System.currentTimeMillis(), tickMs);
+    }
+
+    private long toEpochMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
@@ -0,0 +1,246 @@
+package com.examSystem.userService.service.scheduled;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.stereotype.Service;
+
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 集群定时任务领导权
+ *
+ * 每个定时任务对应一把PostgreSQL会话级咨询锁（pg_try_advisory_lock，键为任务名的64位摘要），
+ * 锁由本节点的一条专用连接（不占用连接池）持有：持有者每次执行任务前校验连接仍然有效，
+ * 其他节点尝试加锁失败即跳过本轮。节点正常关闭时主动释放，宕机时随连接断开由数据库释放，
+ * 其他节点在该任务的下一轮执行时接管。不同任务的锁相互独立，可分散在不同节点上
+ */
+@Service
+public class ClusterTaskLeadership {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClusterTaskLeadership.class);
+
+    // 参与锁键摘要的前缀，区分本服务的锁与其他用途的锁
+    private static final String LOCK_KEY_PREFIX = "user-service:scheduled-task:";
+
+    private static final String TRY_LOCK_SQL = "SELECT pg_try_advisory_lock(?)";
+    private static final String UNLOCK_SQL = "SELECT pg_advisory_unlock(?)";
+
+    @Autowired
+    private DataSourceProperties dataSourceProperties;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.scheduling.leadership.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.scheduling.leadership.validation-timeout-seconds:2}")
+    private int validationTimeoutSeconds;
+
+    @Value("${app.scheduling.leadership.connect-timeout-seconds:5}")
+    private int connectTimeoutSeconds;
+
+    @Value("${app.scheduling.leadership.socket-timeout-seconds:10}")
+    private int socketTimeoutSeconds;
+
+    @Value("${app.scheduling.leadership.keepalive-idle-seconds:30}")
+    private int keepaliveIdleSeconds;
+
+    @Value("${app.scheduling.leadership.keepalive-interval-seconds:10}")
+    private int keepaliveIntervalSeconds;
+
+    @Value("${app.scheduling.leadership.keepalive-count:3}")
+    private int keepaliveCount;
+
+    private final String nodeId = resolveNodeId();
+
+    // 本节点持有领导权的任务
+    private final Set<String> ownedTasks = ConcurrentHashMap.newKeySet();
+
+    // 已注册指标的任务
+    private final Set<String> knownTasks = ConcurrentHashMap.newKeySet();
+
+    // 任务名 -> 咨询锁键
+    private final Map<String, Long> lockKeys = new ConcurrentHashMap<>();
+
+    private Connection connection;
+
+    /**
+     * 本节点是否应执行该任务：已持有或本次抢到领导权时返回true
+     */
+    public synchronized boolean acquire(String task) {
+        // 非PostgreSQL数据源（如开发环境的H2）按单节点处理
+        if (!enabled || !isPostgreSql()) {
+            return true;
+        }
+        registerGauge(task);
+        try {
+            ensureConnection();
+            if (ownedTasks.contains(task)) {
+                return true;
+            }
+            if (tryLock(task)) {
+                ownedTasks.add(task);
+                logger.info("Node {} acquired leadership of scheduled task {}", nodeId, task);
+                return true;
+            }
+            return false;
+        } catch (SQLException e) {
+            // 连接异常时锁可能已随连接释放，放弃全部领导权，下一轮重新竞争
+            logger.warn("Leadership check for task {} failed: {}", task, e.getMessage());
+            resetConnection();
+            return false;
+        }
+    }
+
+    /**
+     * 主动放弃任务的领导权
+     */
+    public synchronized void release(String task) {
+        if (!ownedTasks.remove(task) || connection == null) {
+            return;
+        }
+        try (PreparedStatement statement = connection.prepareStatement(UNLOCK_SQL)) {
+            statement.setLong(1, lockKey(task));
+            statement.execute();
+            logger.info("Node {} released leadership of scheduled task {}", nodeId, task);
+        } catch (SQLException e) {
+            logger.warn("Failed to release leadership of task {}: {}", task, e.getMessage());
+            resetConnection();
+        }
+    }
+
+    /**
+     * 本节点持有领导权的任务
+     */
+    public Set<String> getOwnedTasks() {
+        return Collections.unmodifiableSet(new TreeSet<>(ownedTasks));
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    /**
+     * 关闭时释放全部领导权，其他节点无需等待连接超时即可接管
+     */
+    @PreDestroy
+    public synchronized void shutdown() {
+        if (!ownedTasks.isEmpty()) {
+            logger.info("Node {} releasing leadership of {}", nodeId, ownedTasks);
+        }
+        resetConnection();
+    }
+
+    // 私有辅助方法
+
+    private boolean isPostgreSql() {
+        String url = dataSourceProperties.determineUrl();
+        return url != null && url.startsWith("jdbc:postgresql:");
+    }
+
+    private void ensureConnection() throws SQLException {
+        if (connection != null && connection.isValid(validationTimeoutSeconds)) {
+            return;
+        }
+        if (connection != null) {
+            logger.warn("Leadership connection lost, node {} gives up {}", nodeId, ownedTasks);
+            resetConnection();
+        }
+
+        Properties properties = new Properties();
+        if (dataSourceProperties.determineUsername() != null) {
+            properties.setProperty("user", dataSourceProperties.determineUsername());
+        }
+        if (dataSourceProperties.determinePassword() != null) {
+            properties.setProperty("password", dataSourceProperties.determinePassword());
+        }
+        // 节点失联时数据库按会话级keepalive设置尽快发现连接断开并释放锁，不依赖操作系统默认的两小时
+        properties.setProperty("tcpKeepAlive", "true");
+        properties.setProperty("options", String.format(
+            "-c tcp_keepalives_idle=%d -c tcp_keepalives_interval=%d -c tcp_keepalives_count=%d",
+            keepaliveIdleSeconds, keepaliveIntervalSeconds, keepaliveCount));
+        // 数据库不可达时不能无限阻塞调度线程（acquire持有本对象的锁）
+        properties.setProperty("connectTimeout", Integer.toString(connectTimeoutSeconds));
+        properties.setProperty("socketTimeout", Integer.toString(socketTimeoutSeconds));
+        properties.setProperty("ApplicationName", "user-service-leadership-" + nodeId);
+        connection = DriverManager.getConnection(dataSourceProperties.determineUrl(), properties);
+        connection.setAutoCommit(true);
+    }
+
+    private boolean tryLock(String task) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(TRY_LOCK_SQL)) {
+            statement.setLong(1, lockKey(task));
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next() && resultSet.getBoolean(1);
+            }
+        }
+    }
+
+    // 关闭连接即释放其持有的全部咨询锁
+    private void resetConnection() {
+        ownedTasks.clear();
+        if (connection == null) {
+            return;
+        }
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            logger.debug("Failed to close leadership connection: {}", e.getMessage());
+        }
+        connection = null;
+    }
+
+    // 任务名的SHA-256摘要取前8字节：跨节点、跨版本稳定，且不会像String.hashCode那样容易碰撞
+    private long lockKey(String task) {
+        return lockKeys.computeIfAbsent(task, name -> {
+            try {
+                byte[] digest = MessageDigest.getInstance("SHA-256")
+                    .digest((LOCK_KEY_PREFIX + name).getBytes(StandardCharsets.UTF_8));
+                return ByteBuffer.wrap(digest).getLong();
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+    }
+
+    private void registerGauge(String task) {
+        if (knownTasks.add(task)) {
+            Gauge.builder("exam.scheduler.leadership", ownedTasks, owned -> owned.contains(task) ? 1 : 0)
+                .description("本节点是否持有该定时任务的领导权")
+                .tag("task", task)
+                .tag("node", nodeId)
+                .register(meterRegistry);
+        }
+    }
+
+    private static String resolveNodeId() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            return UUID.randomUUID().toString();
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package com.examSystem.userService.service.scheduled;
+
+import com.examSystem.userService.repository.ExamAggregateRepository;
+import com.examSystem.userService.service.TransactionCallbacks;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 考试统计增量缓冲
+ *
+ * 开考、交卷（含超时和考试结束时自动交卷）、成绩写入时在事务提交后记录增量，
+ * 同一考试的增量在内存中合并，定时用一条语句按 x = x + delta 累加到考试表。
+ * 成绩只记录变化的考试记录ID，刷新时与已计入的成绩比较补差。
+ * 节点宕机丢失的增量由低频核对任务（见 {@link #reconcile()}）按考试记录重算纠正
+ */
+@Service
+public class ExamAggregateBuffer {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExamAggregateBuffer.class);
+
+    @Autowired
+    private ExamAggregateRepository examAggregateRepository;
+
+    @Value("${app.exam.aggregates.reconcile-lookback-hours:48}")
+    private long reconcileLookbackHours;
+
+    @Value("${app.exam.aggregates.reconcile-quiet-seconds:300}")
+    private long reconcileQuietSeconds;
+
+    @Value("${app.exam.aggregates.reconcile-batch-size:200}")
+    private int reconcileBatchSize;
+
+    // 考试ID -> 待刷新的计数增量
+    private final Map<Long, CountDelta> countDeltas = new ConcurrentHashMap<>();
+
+    // 成绩可能变化、待补差的考试记录
+    private final Set<Long> scoreChangedAttempts = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 记录开考（新建或认领预创建的考试记录）
+     */
+    public void recordAttemptStarted(Long examId) {
+        TransactionCallbacks.afterCommit(() -> countDeltas.compute(examId, (id, delta) -> {
+            CountDelta merged = delta != null ? delta : new CountDelta();
+            merged.attempts++;
+            return merged;
+        }));
+    }
+
+    /**
+     * 记录考试记录结束及其用时
+     */
+    public void recordAttemptCompleted(Long examId, LocalDateTime startedAt, LocalDateTime submittedAt) {
+        long durationSeconds = startedAt != null && submittedAt != null
+            ? Math.max(0, Duration.between(startedAt, submittedAt).getSeconds())
+            : 0;
+        TransactionCallbacks.afterCommit(() -> countDeltas.compute(examId, (id, delta) -> {
+            CountDelta merged = delta != null ? delta : new CountDelta();
+            merged.completed++;
+            merged.durationSeconds += durationSeconds;
+            return merged;
+        }));
+    }
+
+    /**
+     * 记录考试记录的成绩已写入或改变
+     */
+    public void recordScoreChanged(Long attemptId) {
+        TransactionCallbacks.afterCommit(() -> scoreChangedAttempts.add(attemptId));
+    }
+
+    public void recordScoresChanged(Collection<Long> attemptIds) {
+        if (attemptIds.isEmpty()) {
+            return;
+        }
+        List<Long> ids = new ArrayList<>(attemptIds);
+        TransactionCallbacks.afterCommit(() -> scoreChangedAttempts.addAll(ids));
+    }
+
+    /**
+     * 定时把合并后的增量刷新到考试表，失败的增量放回缓冲等待下一次
+     */
+    @Scheduled(fixedDelayString = "${app.exam.aggregates.flush-interval-ms:5000}")
+    public void flush() {
+        flushCounts();
+        flushScores();
+    }
+
+    /**
+     * 核对近期有变动且已静默的考试：补计未刷新的成绩变化，再按考试记录重算统计字段，返回核对的考试数
+     */
+    public int reconcile() {
+        LocalDateTime now = LocalDateTime.now();
+        List<Long> examIds = examAggregateRepository.findExamsToReconcile(
+            now.minusHours(reconcileLookbackHours), now.minusSeconds(reconcileQuietSeconds), reconcileBatchSize);
+        examAggregateRepository.reconcileExams(examIds);
+        return examIds.size();
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+        if (!countDeltas.isEmpty() || !scoreChangedAttempts.isEmpty()) {
+            logger.warn("Unable to flush exam aggregates for {} exams and {} attempts on shutdown, left to reconciliation",
+                countDeltas.size(), scoreChangedAttempts.size());
+        }
+    }
+
+    // 私有辅助方法
+
+    private void flushCounts() {
+        List<Long> examIds = new ArrayList<>();
+        List<Integer> attempts = new ArrayList<>();
+        List<Integer> completed = new ArrayList<>();
+        List<Long> durations = new ArrayList<>();
+        // 按键逐个取出，与并发的compute互斥，取出后的增量不会再被修改
+        for (Long examId : new ArrayList<>(countDeltas.keySet())) {
+            CountDelta delta = countDeltas.remove(examId);
+            if (delta != null) {
+                examIds.add(examId);
+                attempts.add(delta.attempts);
+                completed.add(delta.completed);
+                durations.add(delta.durationSeconds);
+            }
+        }
+        if (examIds.isEmpty()) {
+            return;
+        }
+
+        try {
+            examAggregateRepository.applyCountDeltas(examIds, attempts, completed, durations);
+        } catch (Exception e) {
+            logger.warn("Failed to flush exam count deltas for {} exams, will retry: {}", examIds.size(), e.getMessage());
+            for (int i = 0; i < examIds.size(); i++) {
+                int index = i;
+                countDeltas.compute(examIds.get(i), (id, delta) -> {
+                    CountDelta merged = delta != null ? delta : new CountDelta();
+                    merged.attempts += attempts.get(index);
+                    merged.completed += completed.get(index);
+                    merged.durationSeconds += durations.get(index);
+                    return merged;
+                });
+            }
+        }
+    }
+
+    private void flushScores() {
+        List<Long> attemptIds = new ArrayList<>();
+        for (Long attemptId : new ArrayList<>(scoreChangedAttempts)) {
+            if (scoreChangedAttempts.remove(attemptId)) {
+                attemptIds.add(attemptId);
+            }
+        }
+        if (attemptIds.isEmpty()) {
+            return;
+        }
+
+        try {
+            examAggregateRepository.applyScoreDeltas(attemptIds);
+        } catch (Exception e) {
+            logger.warn("Failed to flush score deltas for {} attempts, will retry: {}", attemptIds.size(), e.getMessage());
+            scoreChangedAttempts.addAll(attemptIds);
+        }
+    }
+
+    // 内部类定义
+
+    /**
+     * 单个考试的计数增量，只在ConcurrentHashMap.compute中修改
+     */
+    private static class CountDelta {
+        int attempts;
+        int completed;
+        long durationSeconds;
+    }
+}
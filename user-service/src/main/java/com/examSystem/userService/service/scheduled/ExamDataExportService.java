@@ -0,0 +1,322 @@
+package com.examSystem.userService.service.scheduled;
+
+import com.examSystem.userService.entity.ExportCheckpoint;
+import com.examSystem.userService.entity.ExportCheckpoint.ExportStatus;
+import com.examSystem.userService.repository.ExamDataExportRepository;
+import com.examSystem.userService.repository.ExamDataExportRepository.ExportTable;
+import com.examSystem.userService.repository.ExportCheckpointRepository;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 考试数据导出服务
+ *
+ * 按天把考试记录、答案和安全日志以游标逐行读出，写成gzip压缩的NDJSON分片文件
+ * （{目录}/{日期}/{表名}-{分片号}.ndjson.gz），各表并行导出，内存占用与数据量无关。
+ * 每个分片先写临时文件，写完后原子改名并提交检查点（水位、行数、分片数），
+ * 中断后从检查点继续；分片边界由水位和每片行数确定，重复导出会覆盖为相同的分片
+ */
+@Service
+public class ExamDataExportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExamDataExportService.class);
+
+    private static final int OUTPUT_BUFFER_SIZE = 64 * 1024;
+
+    private static final String PART_SUFFIX = ".ndjson.gz";
+
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    @Autowired
+    private ExamDataExportRepository examDataExportRepository;
+
+    @Autowired
+    private ExportCheckpointRepository exportCheckpointRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${app.exam.export.directory:./exports}")
+    private String exportDirectory;
+
+    @Value("${app.exam.export.fetch-size:1000}")
+    private int fetchSize;
+
+    @Value("${app.exam.export.rows-per-part:100000}")
+    private int rowsPerPart;
+
+    @Value("${app.exam.export.threads:3}")
+    private int exportThreads;
+
+    @Value("${app.exam.export.catch-up-days:7}")
+    private int catchUpDays;
+
+    private ExecutorService exportExecutor;
+
+    @PostConstruct
+    public void start() {
+        AtomicInteger threadCounter = new AtomicInteger();
+        exportExecutor = Executors.newFixedThreadPool(exportThreads, runnable -> {
+            Thread thread = new Thread(runnable, "exam-export-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void stop() {
+        exportExecutor.shutdownNow();
+    }
+
+    /**
+     * 导出前一天的数据，并补导最近几天中断未完成的日期，返回本次导出的行数
+     *
+     * 某个日期导出失败时记录日志并继续后面的日期，该日期保留RUNNING检查点，下次补导
+     */
+    public long exportPendingDays() {
+        LocalDate yesterday = LocalDate.now().minusDays(1);
+        Set<LocalDate> dates = new TreeSet<>(
+            exportCheckpointRepository.findIncompleteDates(yesterday.minusDays(catchUpDays)));
+        dates.add(yesterday);
+
+        long exportedRows = 0;
+        for (LocalDate date : dates) {
+            try {
+                exportedRows += exportDay(date);
+            } catch (RuntimeException e) {
+                logger.error("Export of {} failed, will retry on the next run", date, e);
+            }
+        }
+        return exportedRows;
+    }
+
+    /**
+     * 并行导出一天的各表，返回本次导出的行数；任一表失败时抛出异常，已完成的分片保留在检查点中
+     */
+    public long exportDay(LocalDate date) {
+        markStarted(date);
+        Path dayDirectory = Paths.get(exportDirectory, date.toString());
+        try {
+            Files.createDirectories(dayDirectory);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        List<CompletableFuture<Long>> tables = new ArrayList<>();
+        for (ExportTable table : ExportTable.values()) {
+            tables.add(CompletableFuture.supplyAsync(() -> exportTable(date, table, dayDirectory), exportExecutor));
+        }
+        CompletableFuture.allOf(tables.toArray(new CompletableFuture<?>[0])).join();
+        return tables.stream().mapToLong(CompletableFuture::join).sum();
+    }
+
+    // 私有辅助方法
+
+    // 开始前为尚无检查点的表写入RUNNING检查点，本日期在任何表写出分片前失败也能被补导发现
+    private void markStarted(LocalDate date) {
+        for (ExportTable table : ExportTable.values()) {
+            if (exportCheckpointRepository.find(date, table.getTableName()).isEmpty()) {
+                exportCheckpointRepository.save(date, table.getTableName(), 0, 0, 0, ExportStatus.RUNNING);
+            }
+        }
+    }
+
+    private long exportTable(LocalDate date, ExportTable table, Path dayDirectory) {
+        String tableName = table.getTableName();
+        ExportCheckpoint checkpoint = exportCheckpointRepository.find(date, tableName).orElse(null);
+        if (checkpoint != null && checkpoint.getStatus() == ExportStatus.COMPLETED) {
+            return 0;
+        }
+
+        PartWriter writer = checkpoint != null
+            ? new PartWriter(date, tableName, dayDirectory,
+                checkpoint.getLastId(), checkpoint.getExportedRows(), checkpoint.getParts())
+            : new PartWriter(date, tableName, dayDirectory, 0, 0, 0);
+        deleteTemporaryFiles(dayDirectory, tableName);
+        try {
+            examDataExportRepository.streamRows(table, date.atStartOfDay(), date.plusDays(1).atStartOfDay(),
+                writer.lastId, fetchSize, writer);
+            writer.finish();
+        } catch (RuntimeException e) {
+            writer.abort();
+            throw e;
+        }
+
+        logger.info("Exported {} rows of {} for {} ({} rows in {} parts in total)",
+            writer.exportedRows - writer.resumedRows, tableName, date, writer.exportedRows, writer.parts);
+        return writer.exportedRows - writer.resumedRows;
+    }
+
+    // 上次中断时未写完的分片
+    private void deleteTemporaryFiles(Path dayDirectory, String tableName) {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dayDirectory, tableName + "-*" + TEMP_SUFFIX)) {
+            for (Path file : files) {
+                Files.deleteIfExists(file);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void writeValue(JsonGenerator generator, Object value) throws IOException {
+        if (value == null) {
+            generator.writeNull();
+        } else if (value instanceof Timestamp timestamp) {
+            generator.writeString(timestamp.toLocalDateTime().toString());
+        } else if (value instanceof java.sql.Date sqlDate) {
+            generator.writeString(sqlDate.toLocalDate().toString());
+        } else if (value instanceof BigDecimal decimal) {
+            generator.writeNumber(decimal);
+        } else if (value instanceof Long || value instanceof Integer || value instanceof Short) {
+            generator.writeNumber(((Number) value).longValue());
+        } else if (value instanceof Double || value instanceof Float) {
+            generator.writeNumber(((Number) value).doubleValue());
+        } else if (value instanceof Boolean bool) {
+            generator.writeBoolean(bool);
+        } else {
+            generator.writeString(value.toString());
+        }
+    }
+
+    // 内部类定义
+
+    /**
+     * 把游标读出的行逐行写入分片文件，每满一片改名落盘并提交检查点
+     */
+    private final class PartWriter implements RowCallbackHandler {
+        private final LocalDate date;
+        private final String tableName;
+        private final Path dayDirectory;
+        private final long resumedRows;
+        private long lastId;
+        private long exportedRows;
+        private int parts;
+        private String[] columns;
+        private Path tempFile;
+        private JsonGenerator generator;
+        private int rowsInPart;
+
+        PartWriter(LocalDate date, String tableName, Path dayDirectory, long lastId, long exportedRows, int parts) {
+            this.date = date;
+            this.tableName = tableName;
+            this.dayDirectory = dayDirectory;
+            this.lastId = lastId;
+            this.exportedRows = exportedRows;
+            this.resumedRows = exportedRows;
+            this.parts = parts;
+        }
+
+        @Override
+        public void processRow(ResultSet rs) throws SQLException {
+            if (columns == null) {
+                ResultSetMetaData metaData = rs.getMetaData();
+                columns = new String[metaData.getColumnCount()];
+                for (int i = 0; i < columns.length; i++) {
+                    columns[i] = metaData.getColumnLabel(i + 1);
+                }
+            }
+
+            try {
+                if (generator == null) {
+                    openPart();
+                }
+                generator.writeStartObject();
+                for (int i = 0; i < columns.length; i++) {
+                    generator.writeFieldName(columns[i]);
+                    writeValue(generator, rs.getObject(i + 1));
+                }
+                generator.writeEndObject();
+                lastId = rs.getLong("id");
+                if (++rowsInPart >= rowsPerPart) {
+                    closePart();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        void finish() {
+            try {
+                if (generator != null) {
+                    closePart();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            exportCheckpointRepository.save(date, tableName, lastId, exportedRows, parts, ExportStatus.COMPLETED);
+        }
+
+        void abort() {
+            try {
+                if (generator != null) {
+                    generator.close();
+                }
+                if (tempFile != null) {
+                    Files.deleteIfExists(tempFile);
+                }
+            } catch (IOException e) {
+                logger.warn("Failed to remove partial export file {}: {}", tempFile, e.getMessage());
+            }
+        }
+
+        private void openPart() throws IOException {
+            tempFile = dayDirectory.resolve(partFileName(parts + 1) + TEMP_SUFFIX);
+            GZIPOutputStream output = new GZIPOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(tempFile), OUTPUT_BUFFER_SIZE), OUTPUT_BUFFER_SIZE);
+            generator = objectMapper.getFactory().createGenerator(output, JsonEncoding.UTF8);
+            generator.setRootValueSeparator(new SerializedString("\n"));
+        }
+
+        // 先落盘再提交检查点：两者之间中断时，重新导出的同号分片会覆盖已有文件
+        private void closePart() throws IOException {
+            generator.writeRaw('\n');
+            generator.close();
+            generator = null;
+            Files.move(tempFile, dayDirectory.resolve(partFileName(parts + 1)),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            tempFile = null;
+            parts++;
+            exportedRows += rowsInPart;
+            rowsInPart = 0;
+            exportCheckpointRepository.save(date, tableName, lastId, exportedRows, parts, ExportStatus.RUNNING);
+        }
+
+        private String partFileName(int part) {
+            return String.format("%s-%05d%s", tableName, part, PART_SUFFIX);
+        }
+    }
+}
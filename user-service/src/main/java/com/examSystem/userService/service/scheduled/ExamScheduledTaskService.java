@@ -2,16 +2,32 @@ package com.examSystem.userService.service.scheduled;
 
 import com.examSystem.userService.entity.Exam;
 import com.examSystem.userService.entity.ExamAttempt;
+import com.examSystem.userService.entity.ExamAttempt.AttemptStatus;
 import com.examSystem.userService.repository.ExamRepository;
 import com.examSystem.userService.repository.ExamAttemptRepository;
-import com.examSystem.userService.service.grading.AutoGradingService;
+import com.examSystem.userService.repository.AttemptProvisioningRepository;
+import com.examSystem.userService.repository.AttemptDeadlineRepository;
+import com.examSystem.userService.repository.ExamEndingRepository;
+import com.examSystem.userService.repository.ExamEndingRepository.EndedAttempt;
+import com.examSystem.userService.service.grading.AttemptFinishedEvent;
+import com.examSystem.userService.service.grading.GradingQueueService;
+import com.examSystem.userService.service.security.ExamSecurityService;
+import com.examSystem.userService.service.student.AttemptProgressTracker;
+import com.examSystem.userService.service.student.AnswerWriteBuffer;
+import com.examSystem.userService.service.student.AttemptSnapshotCache;
+import com.examSystem.userService.service.student.AttemptSnapshotCache.AttemptSnapshot;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
 
 /**
  * 考试定时任务服务
@@ -32,7 +48,43 @@ public class ExamScheduledTaskService {
     private ExamAttemptRepository examAttemptRepository;
 
     @Autowired
-    private AutoGradingService autoGradingService;
+    private GradingQueueService gradingQueueService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private AttemptSnapshotCache attemptSnapshotCache;
+
+    @Autowired
+    private ExamSecurityService examSecurityService;
+
+    @Autowired
+    private AttemptProgressTracker attemptProgressTracker;
+
+    @Autowired
+    private AttemptProvisioningRepository attemptProvisioningRepository;
+
+    @Autowired
+    private AttemptDeadlineRepository attemptDeadlineRepository;
+
+    @Autowired
+    private ExamEndingRepository examEndingRepository;
+
+    @Autowired
+    private ExamAggregateBuffer examAggregateBuffer;
+
+    @Autowired
+    private AnswerWriteBuffer answerWriteBuffer;
+
+    @Autowired
+    private ClusterTaskLeadership clusterTaskLeadership;
+
+    @Autowired
+    private ExamDataExportService examDataExportService;
+
+    @Value("${app.exam.provisioning.lead-minutes:5}")
+    private long provisioningLeadMinutes;
 
     /**
      * 每分钟检查并自动开始考试
@@ -40,6 +92,9 @@ public class ExamScheduledTaskService {
     @Scheduled(fixedRate = 60000) // 每60秒执行一次
     @Transactional
     public void autoStartExams() {
+        if (!clusterTaskLeadership.acquire("scheduled.autoStartExams")) {
+            return;
+        }
         LocalDateTime now = LocalDateTime.now();
         
         // 查找需要自动开始的考试
@@ -58,12 +113,56 @@ public class ExamScheduledTaskService {
         }
     }
 
+    /**
+     * 每分钟为即将开放的考试预创建考试记录
+     *
+     * 考试开放前lead-minutes分钟内按报名名单插入PROVISIONED记录，
+     * 开考时学生只需认领记录，避免开考瞬间的大量插入。
+     * 每条语句独立提交，单个考试失败不影响其他考试
+     */
+    @Scheduled(fixedRate = 60000) // 每60秒执行一次
+    public void provisionUpcomingAttempts() {
+        if (!clusterTaskLeadership.acquire("scheduled.provisionUpcomingAttempts")) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+
+        List<Exam> upcomingExams = examRepository.findExamsOpeningBetween(now, now.plusMinutes(provisioningLeadMinutes));
+        for (Exam exam : upcomingExams) {
+            try {
+                int provisioned = attemptProvisioningRepository.provisionAttempts(exam.getId(), now);
+                if (provisioned > 0) {
+                    System.out.println("预创建考试记录: " + exam.getTitle() + " (ID: " + exam.getId() +
+                        "), 共 " + provisioned + " 条");
+                }
+            } catch (Exception e) {
+                System.err.println("预创建考试记录失败: " + exam.getId() + ", 错误: " + e.getMessage());
+            }
+        }
+
+        // 考试关闭后仍未认领的记录不再保留
+        try {
+            int released = attemptProvisioningRepository.releaseExpiredAttempts(now);
+            if (released > 0) {
+                System.out.println("清理未认领的预创建考试记录: " + released + " 条");
+            }
+        } catch (Exception e) {
+            System.err.println("清理预创建考试记录失败: " + e.getMessage());
+        }
+    }
+
     /**
      * 每分钟检查并自动结束考试
+     *
+     * 每个考试在自己的短事务中结束（见 {@link ExamEndingRepository}），一个考试失败不影响其他考试；
+     * 提交后再刷写暂存答案并把被结束的考试记录批量入队，由各节点的评分队列线程并行评分。
+     * 入队前节点宕机时，遗漏的考试记录由补录任务重新入队
      */
     @Scheduled(fixedRate = 60000) // 每60秒执行一次
-    @Transactional
     public void autoEndExams() {
+        if (!clusterTaskLeadership.acquire("scheduled.autoEndExams")) {
+            return;
+        }
         LocalDateTime now = LocalDateTime.now();
         
         // 查找需要自动结束的考试
@@ -71,27 +170,12 @@ public class ExamScheduledTaskService {
         
         for (Exam exam : examsToEnd) {
             try {
-                exam.setStatus("ENDED");
-                examRepository.save(exam);
-                
-                // 自动结束所有进行中的考试尝试
-                List<ExamAttempt> activeAttempts = examAttemptRepository.findActiveAttemptsByExamId(exam.getId());
-                for (ExamAttempt attempt : activeAttempts) {
-                    attempt.setStatus("AUTO_COMPLETED");
-                    attempt.setSubmitTime(now);
-                    examAttemptRepository.save(attempt);
-                    
-                    // 触发自动评分
-                    try {
-                        autoGradingService.gradeExamAttempt(attempt.getId());
-                    } catch (Exception e) {
-                        System.err.println("自动评分失败: " + attempt.getId() + ", 错误: " + e.getMessage());
-                    }
-                }
+                List<EndedAttempt> endedAttempts = examEndingRepository.endExam(exam.getId(), now);
+                afterAttemptsEnded(exam.getId(), endedAttempts, now);
                 
                 // 记录日志
                 System.out.println("自动结束考试: " + exam.getTitle() + " (ID: " + exam.getId() + 
-                    "), 结束了 " + activeAttempts.size() + " 个进行中的尝试");
+                    "), 结束了 " + endedAttempts.size() + " 个进行中的尝试");
             } catch (Exception e) {
                 System.err.println("自动结束考试失败: " + exam.getId() + ", 错误: " + e.getMessage());
             }
@@ -99,81 +183,88 @@ public class ExamScheduledTaskService {
     }
 
     /**
-     * 每分钟检查并自动结束超时的考试尝试
+     * 自动结束超时的考试记录（由 {@link AttemptDeadlineScheduler} 在截止时间触发）
+     *
+     * 先把暂存答案落库，再以条件更新结束考试记录；已交卷或已被其他节点结束的返回false
      */
-    @Scheduled(fixedRate = 60000) // 每60秒执行一次
     @Transactional
-    public void autoTimeoutAttempts() {
+    public boolean timeoutAttempt(Long attemptId) {
+        answerWriteBuffer.flushAttempt(attemptId);
         LocalDateTime now = LocalDateTime.now();
-        
-        // 查找超时的考试尝试
-        List<ExamAttempt> timeoutAttempts = examAttemptRepository.findTimeoutAttempts(now);
-        
-        for (ExamAttempt attempt : timeoutAttempts) {
-            try {
-                attempt.setStatus("TIMEOUT");
-                attempt.setSubmitTime(now);
-                examAttemptRepository.save(attempt);
-                
-                // 触发自动评分
-                autoGradingService.gradeExamAttempt(attempt.getId());
-                
-                // 记录日志
-                System.out.println("自动超时考试尝试: " + attempt.getId() + 
-                    " (学生ID: " + attempt.getStudentId() + ")");
-            } catch (Exception e) {
-                System.err.println("处理超时考试失败: " + attempt.getId() + ", 错误: " + e.getMessage());
-            }
+        Optional<LocalDateTime> startedAt = attemptDeadlineRepository.markTimeout(attemptId, now);
+        if (startedAt.isEmpty()) {
+            return false;
         }
+
+        AttemptSnapshot snapshot = attemptSnapshotCache.get(attemptId);
+        examAggregateBuffer.recordAttemptCompleted(snapshot.getExamId(), startedAt.get(), now);
+        attemptSnapshotCache.update(new AttemptSnapshot(attemptId, snapshot.getStudentId(), snapshot.getExamId(),
+            AttemptStatus.AUTO_SUBMITTED.name(), snapshot.getEndTime()));
+        examSecurityService.releaseSubmissionRecords(attemptId);
+        attemptProgressTracker.release(attemptId);
+
+        // 进入评分队列，随本事务提交
+        eventPublisher.publishEvent(new AttemptFinishedEvent(attemptId, AttemptStatus.AUTO_SUBMITTED.name()));
+
+        System.out.println("自动超时考试尝试: " + attemptId + " (学生ID: " + snapshot.getStudentId() + ")");
+        return true;
     }
 
     /**
-     * 每5分钟进行自动评分
+     * 每5分钟补录评分队列
+     *
+     * 评分由各节点的评分队列线程执行（见GradingQueueService），这里只把
+     * 未经结束事件入队的待评分考试记录（如队列上线前结束的记录）补入队列，入队是幂等的；
+     * 已转入死信的考试记录不会被重新激活，需由管理员显式重试
      */
-    @Scheduled(fixedRate = 300000) // 每5分钟执行一次
-    @Transactional
+    @Scheduled(fixedRate = 300000, scheduler = "batchTaskScheduler") // 每5分钟执行一次
     public void autoGradeAttempts() {
-        // 查找需要评分的考试尝试
-        List<ExamAttempt> attemptsToGrade = examAttemptRepository.findAttemptsNeedingAutoGrading();
-        
-        for (ExamAttempt attempt : attemptsToGrade) {
-            try {
-                autoGradingService.gradeExamAttempt(attempt.getId());
-                
-                // 记录日志
-                System.out.println("自动评分完成: " + attempt.getId());
-            } catch (Exception e) {
-                System.err.println("自动评分失败: " + attempt.getId() + ", 错误: " + e.getMessage());
+        if (!clusterTaskLeadership.acquire("scheduled.autoGradeAttempts")) {
+            return;
+        }
+        try {
+            List<Long> attemptIds = examAttemptRepository.findAttemptsNeedingAutoGrading().stream()
+                .map(ExamAttempt::getId)
+                .collect(Collectors.toList());
+            int enqueued = gradingQueueService.enqueue(attemptIds);
+            if (enqueued > 0) {
+                System.out.println("补录评分队列: " + enqueued + " 个考试记录");
             }
+        } catch (Exception e) {
+            System.err.println("补录评分队列失败: " + e.getMessage());
         }
     }
 
     /**
-     * 每小时更新考试统计信息
+     * 定期核对考试统计信息
+     *
+     * 统计字段随考试记录事件增量更新（见 {@link ExamAggregateBuffer}），这里只按考试记录
+     * 重算近期有变动且已静默的考试，纠正节点宕机丢失的增量
      */
-    @Scheduled(fixedRate = 3600000) // 每小时执行一次
-    @Transactional
+    @Scheduled(fixedDelayString = "${app.exam.aggregates.reconcile-interval-ms:21600000}", scheduler = "batchTaskScheduler")
     public void updateExamStatistics() {
+        if (!clusterTaskLeadership.acquire("scheduled.updateExamStatistics")) {
+            return;
+        }
         try {
-            // 更新考试的参与人数统计
-            examRepository.updateParticipantCounts();
-            
-            // 更新考试的平均分统计
-            examRepository.updateAverageScores();
+            int reconciled = examAggregateBuffer.reconcile();
             
             // 记录日志
-            System.out.println("考试统计信息更新完成: " + LocalDateTime.now());
+            System.out.println("考试统计信息核对完成: " + reconciled + " 个考试, " + LocalDateTime.now());
         } catch (Exception e) {
-            System.err.println("更新考试统计信息失败: " + e.getMessage());
+            System.err.println("核对考试统计信息失败: " + e.getMessage());
         }
     }
 
     /**
      * 每天清理过期的考试会话
      */
-    @Scheduled(cron = "0 0 2 * * ?") // 每天凌晨2点执行
+    @Scheduled(cron = "0 0 2 * * ?", scheduler = "batchTaskScheduler") // 每天凌晨2点执行
     @Transactional
     public void cleanupExpiredSessions() {
+        if (!clusterTaskLeadership.acquire("scheduled.cleanupExpiredSessions")) {
+            return;
+        }
         LocalDateTime cutoffTime = LocalDateTime.now().minusDays(30); // 清理30天前的数据
         
         try {
@@ -194,21 +285,17 @@ public class ExamScheduledTaskService {
     /**
      * 每天备份重要考试数据
      */
-    @Scheduled(cron = "0 30 1 * * ?") // 每天凌晨1:30执行
-    @Transactional(readOnly = true)
+    @Scheduled(cron = "0 30 1 * * ?", scheduler = "batchTaskScheduler") // 每天凌晨1:30执行
     public void backupExamData() {
+        if (!clusterTaskLeadership.acquire("scheduled.backupExamData")) {
+            return;
+        }
         try {
-            // 导出当天完成的考试数据
-            LocalDateTime today = LocalDateTime.now().withHour(0).withMinute(0).withSecond(0);
-            LocalDateTime tomorrow = today.plusDays(1);
-            
-            List<ExamAttempt> completedToday = examAttemptRepository.findCompletedAttemptsBetween(today, tomorrow);
-            
-            // 这里可以实现数据导出逻辑
-            // 例如：导出到文件、发送到备份服务等
-            
+            // 导出前一天的考试记录、答案和安全日志，并补导之前中断的日期
+            long exportedRows = examDataExportService.exportPendingDays();
+
             // 记录日志
-            System.out.println("备份考试数据完成: " + completedToday.size() + " 个考试记录");
+            System.out.println("备份考试数据完成: " + exportedRows + " 行数据");
         } catch (Exception e) {
             System.err.println("备份考试数据失败: " + e.getMessage());
         }
@@ -217,9 +304,12 @@ public class ExamScheduledTaskService {
     /**
      * 每周生成考试报告
      */
-    @Scheduled(cron = "0 0 6 * * MON") // 每周一早上6点执行
+    @Scheduled(cron = "0 0 6 * * MON", scheduler = "batchTaskScheduler") // 每周一早上6点执行
     @Transactional(readOnly = true)
     public void generateWeeklyReports() {
+        if (!clusterTaskLeadership.acquire("scheduled.generateWeeklyReports")) {
+            return;
+        }
         try {
             LocalDateTime weekStart = LocalDateTime.now().minusWeeks(1).withHour(0).withMinute(0).withSecond(0);
             LocalDateTime weekEnd = LocalDateTime.now().withHour(0).withMinute(0).withSecond(0);
@@ -243,6 +333,9 @@ public class ExamScheduledTaskService {
     @Scheduled(fixedRate = 300000) // 每5分钟执行一次
     @Transactional(readOnly = true)
     public void monitorSystemHealth() {
+        if (!clusterTaskLeadership.acquire("scheduled.monitorSystemHealth")) {
+            return;
+        }
         try {
             // 检查数据库连接
             long totalExams = examRepository.count();
@@ -293,4 +386,31 @@ public class ExamScheduledTaskService {
             return "ACTIVE";
         }
     }
-}
\ No newline at end of file
+
+    // 考试结束事务提交后处理被结束的考试记录：先让会话快照拒绝新答案，再刷写暂存答案，最后批量入队评分
+    private void afterAttemptsEnded(Long examId, List<EndedAttempt> endedAttempts, LocalDateTime now) {
+        if (endedAttempts.isEmpty()) {
+            return;
+        }
+        for (EndedAttempt ended : endedAttempts) {
+            attemptSnapshotCache.update(new AttemptSnapshot(ended.getAttemptId(), ended.getStudentId(), examId,
+                AttemptStatus.AUTO_SUBMITTED.name(), now));
+            examAggregateBuffer.recordAttemptCompleted(examId, ended.getStartedAt(), now);
+        }
+        List<Long> attemptIds = new ArrayList<>(endedAttempts.size());
+        for (EndedAttempt ended : endedAttempts) {
+            try {
+                answerWriteBuffer.flushAttempt(ended.getAttemptId());
+                attemptIds.add(ended.getAttemptId());
+            } catch (Exception e) {
+                // 不入队，等定时刷写落库后由补录任务入队，避免漏评暂存答案
+                System.err.println("刷写暂存答案失败: " + ended.getAttemptId() + ", 错误: " + e.getMessage());
+            }
+        }
+        gradingQueueService.enqueue(attemptIds);
+        for (EndedAttempt ended : endedAttempts) {
+            examSecurityService.releaseSubmissionRecords(ended.getAttemptId());
+            attemptProgressTracker.release(ended.getAttemptId());
+        }
+    }
+}
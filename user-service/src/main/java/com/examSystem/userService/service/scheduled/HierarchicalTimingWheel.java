@@ -0,0 +1,131 @@
+package com.examSystem.userService.service.scheduled;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 分层时间轮
+ *
+ * 每层64个槽，第0层每槽一个tick，上一层每槽覆盖下一层一整圈。
+ * 定时项按到期tick的绝对位置放入与当前tick同属一个上层区块的最低层，
+ * 时间推进到上层槽的起点时把该槽的定时项重新放入下层，到第0层时在到期tick准确触发。
+ * 添加、取消、每tick推进均为常数时间，与定时项总数无关。
+ *
+ * 非线程安全，由调用方加锁
+ */
+public class HierarchicalTimingWheel {
+
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+
+    private final int levels;
+    private final List<List<Map<Long, Long>>> wheel; // [层][槽] -> key -> 到期tick
+    private final Map<Long, Map<Long, Long>> slotByKey = new HashMap<>(); // key -> 所在槽
+    private long currentTick;
+
+    public HierarchicalTimingWheel(int levels, long startTick) {
+        this.levels = levels;
+        this.currentTick = startTick;
+        this.wheel = new ArrayList<>(levels);
+        for (int level = 0; level < levels; level++) {
+            List<Map<Long, Long>> slots = new ArrayList<>(SLOTS);
+            for (int slot = 0; slot < SLOTS; slot++) {
+                slots.add(new HashMap<>());
+            }
+            wheel.add(slots);
+        }
+    }
+
+    /**
+     * 添加或重设定时项，已到期时返回false（由调用方立即处理）
+     */
+    public boolean schedule(Long key, long deadlineTick) {
+        cancel(key);
+        if (deadlineTick <= currentTick) {
+            return false;
+        }
+        place(key, deadlineTick);
+        return true;
+    }
+
+    /**
+     * 取消定时项
+     */
+    public boolean cancel(Long key) {
+        Map<Long, Long> slot = slotByKey.remove(key);
+        if (slot == null) {
+            return false;
+        }
+        slot.remove(key);
+        return true;
+    }
+
+    /**
+     * 推进到targetTick，返回期间到期的定时项
+     */
+    public List<Long> advanceTo(long targetTick) {
+        List<Long> expired = new ArrayList<>();
+        while (currentTick < targetTick) {
+            currentTick++;
+            cascade();
+            Map<Long, Long> due = wheel.get(0).get((int) (currentTick & SLOT_MASK));
+            if (!due.isEmpty()) {
+                for (Long key : due.keySet()) {
+                    slotByKey.remove(key);
+                    expired.add(key);
+                }
+                due.clear();
+            }
+        }
+        return expired;
+    }
+
+    public int size() {
+        return slotByKey.size();
+    }
+
+    public long getCurrentTick() {
+        return currentTick;
+    }
+
+    // 私有辅助方法
+
+    // 从高层到低层，把到达起点的上层槽重新放入下层
+    private void cascade() {
+        for (int level = levels - 1; level > 0; level--) {
+            int shift = level * SLOT_BITS;
+            if ((currentTick & ((1L << shift) - 1)) != 0) {
+                continue;
+            }
+            Map<Long, Long> slot = wheel.get(level).get((int) ((currentTick >>> shift) & SLOT_MASK));
+            if (slot.isEmpty()) {
+                continue;
+            }
+            // 先取出再放回：超出最高层范围的定时项会回到同一个槽
+            List<Map.Entry<Long, Long>> entries = new ArrayList<>(slot.entrySet());
+            slot.clear();
+            for (Map.Entry<Long, Long> entry : entries) {
+                place(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    private void place(Long key, long deadlineTick) {
+        Map<Long, Long> slot = slotOf(deadlineTick);
+        slot.put(key, deadlineTick);
+        slotByKey.put(key, slot);
+    }
+
+    // 与当前tick同属一个(level+1)层区块的最低层
+    private Map<Long, Long> slotOf(long deadlineTick) {
+        int level = 0;
+        while (level < levels - 1
+                && (deadlineTick >>> ((level + 1) * SLOT_BITS)) != (currentTick >>> ((level + 1) * SLOT_BITS))) {
+            level++;
+        }
+        return wheel.get(level).get((int) ((deadlineTick >>> (level * SLOT_BITS)) & SLOT_MASK));
+    }
+}
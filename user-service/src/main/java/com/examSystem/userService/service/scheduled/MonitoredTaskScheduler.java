@@ -0,0 +1,249 @@
+package com.examSystem.userService.service.scheduled;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.Trigger;
+import org.springframework.scheduling.TriggerContext;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.scheduling.support.ScheduledMethodRunnable;
+import org.springframework.scheduling.support.SimpleTriggerContext;
+import org.springframework.util.ClassUtils;
+
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 带监控的定时任务线程池
+ *
+ * 每个定时任务执行时记录耗时和延迟（实际开始时间与计划时间之差），
+ * 固定频率任务耗时超过执行间隔、或cron任务因上一轮未结束而错过触发时间时记为超时运行和跳过
+ * （固定延迟任务从上一轮结束才开始计时，不会超时运行，长耗时只体现在耗时指标中）；
+ * 线程池另有已到期但等待线程的任务数和活跃线程数指标
+ */
+public class MonitoredTaskScheduler extends ThreadPoolTaskScheduler {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final Logger logger = LoggerFactory.getLogger(MonitoredTaskScheduler.class);
+
+    // 统计cron跳过次数时的上限，避免长时间停顿后逐个遍历触发时间
+    private static final int MAX_COUNTED_SKIPS = 1000;
+
+    private final String poolName;
+    private final MeterRegistry meterRegistry;
+
+    public MonitoredTaskScheduler(String poolName, int poolSize, MeterRegistry meterRegistry) {
+        this.poolName = poolName;
+        this.meterRegistry = meterRegistry;
+        setPoolSize(poolSize);
+        setThreadNamePrefix(poolName + "-scheduler-");
+        setRemoveOnCancelPolicy(true);
+    }
+
+    @Override
+    public ScheduledFuture<?> schedule(Runnable task, Trigger trigger) {
+        MonitoredTask monitoredTask = new MonitoredTask(task, null, false, null);
+        return super.schedule(monitoredTask, new MonitoredTrigger(trigger, monitoredTask));
+    }
+
+    @Override
+    public ScheduledFuture<?> scheduleAtFixedRate(Runnable task, Instant startTime, Duration period) {
+        return super.scheduleAtFixedRate(new MonitoredTask(task, period, true, startTime), startTime, period);
+    }
+
+    @Override
+    public ScheduledFuture<?> scheduleAtFixedRate(Runnable task, Duration period) {
+        return super.scheduleAtFixedRate(new MonitoredTask(task, period, true, Instant.now()), period);
+    }
+
+    @Override
+    public ScheduledFuture<?> scheduleWithFixedDelay(Runnable task, Instant startTime, Duration delay) {
+        return super.scheduleWithFixedDelay(new MonitoredTask(task, delay, false, startTime), startTime, delay);
+    }
+
+    @Override
+    public ScheduledFuture<?> scheduleWithFixedDelay(Runnable task, Duration delay) {
+        return super.scheduleWithFixedDelay(new MonitoredTask(task, delay, false, Instant.now()), delay);
+    }
+
+    @Override
+    protected ScheduledExecutorService createExecutor(
+            int poolSize, ThreadFactory threadFactory, RejectedExecutionHandler rejectedExecutionHandler) {
+        ScheduledExecutorService executor =
+            super.createExecutor(poolSize, threadFactory, rejectedExecutionHandler);
+        Gauge.builder("exam.executor.queued", this, MonitoredTaskScheduler::countOverdueTasks)
+            .description("已到期但等待空闲线程的任务数")
+            .tag("pool", poolName)
+            .register(meterRegistry);
+        Gauge.builder("exam.executor.active", this, scheduler -> scheduler.getActiveCount())
+            .description("正在执行任务的线程数")
+            .tag("pool", poolName)
+            .register(meterRegistry);
+        return executor;
+    }
+
+    // 私有辅助方法
+
+    // 调度队列中保存全部周期任务的下一次执行，只有延迟已到的才是积压
+    private double countOverdueTasks() {
+        BlockingQueue<Runnable> queue;
+        try {
+            queue = getScheduledThreadPoolExecutor().getQueue();
+        } catch (IllegalStateException e) {
+            return 0;
+        }
+        int overdue = 0;
+        for (Runnable queued : queue) {
+            if (queued instanceof Delayed delayed && delayed.getDelay(TimeUnit.NANOSECONDS) <= 0) {
+                overdue++;
+            }
+        }
+        return overdue;
+    }
+
+    private static String taskName(Runnable task) {
+        if (task instanceof ScheduledMethodRunnable methodRunnable) {
+            Method method = methodRunnable.getMethod();
+            return ClassUtils.getUserClass(method.getDeclaringClass()).getSimpleName() + "." + method.getName();
+        }
+        return task.toString();
+    }
+
+    // 内部类定义
+
+    /**
+     * 记录单个定时任务每次执行的耗时、延迟和超时运行
+     */
+    private final class MonitoredTask implements Runnable {
+        private final Runnable delegate;
+        private final String taskName;
+        private final Duration interval; // cron任务为null
+        private final boolean fixedRate;
+        private final Timer successTimer;
+        private final Timer failureTimer;
+        private final Timer latenessTimer;
+        private final Counter overrunCounter;
+        private final Counter skippedCounter;
+        private volatile Instant expectedStart;
+
+        MonitoredTask(Runnable delegate, Duration interval, boolean fixedRate, Instant firstStart) {
+            this.delegate = delegate;
+            this.taskName = taskName(delegate);
+            this.interval = interval;
+            this.fixedRate = fixedRate;
+            this.expectedStart = firstStart;
+            this.successTimer = durationTimer("success");
+            this.failureTimer = durationTimer("failure");
+            this.latenessTimer = Timer.builder("exam.scheduler.task.lateness")
+                .description("定时任务实际开始时间晚于计划时间的时长")
+                .tags("pool", poolName, "task", taskName)
+                .register(meterRegistry);
+            this.overrunCounter = Counter.builder("exam.scheduler.task.overruns")
+                .description("固定频率任务耗时超过执行间隔或cron任务错过下一次触发时间的执行次数")
+                .tags("pool", poolName, "task", taskName)
+                .register(meterRegistry);
+            this.skippedCounter = Counter.builder("exam.scheduler.task.skipped")
+                .description("因上一轮未结束而错过的cron触发次数")
+                .tags("pool", poolName, "task", taskName)
+                .register(meterRegistry);
+        }
+
+        @Override
+        public void run() {
+            Instant start = Instant.now();
+            Instant expected = expectedStart;
+            if (expected != null && start.isAfter(expected)) {
+                latenessTimer.record(Duration.between(expected, start));
+            } else {
+                latenessTimer.record(Duration.ZERO);
+            }
+
+            long startNanos = System.nanoTime();
+            boolean failed = true;
+            try {
+                delegate.run();
+                failed = false;
+            } finally {
+                Duration elapsed = Duration.ofNanos(System.nanoTime() - startNanos);
+                (failed ? failureTimer : successTimer).record(elapsed);
+                if (interval != null) {
+                    // 固定频率按计划时间推进，固定延迟从本轮结束算起
+                    expectedStart = fixedRate
+                        ? (expected != null ? expected : start).plus(interval)
+                        : start.plus(elapsed).plus(interval);
+                    if (fixedRate && elapsed.compareTo(interval) > 0) {
+                        overrun(elapsed, 0);
+                    }
+                }
+            }
+        }
+
+        void expectNext(Instant next) {
+            expectedStart = next;
+        }
+
+        void overrun(Duration elapsed, int skipped) {
+            overrunCounter.increment();
+            if (skipped > 0) {
+                skippedCounter.increment(skipped);
+            }
+            logger.warn("Scheduled task {} on pool {} overran: took {} ms, interval {}, skipped {} triggers",
+                taskName, poolName, elapsed.toMillis(), interval != null ? interval : "cron", skipped);
+        }
+
+        private Timer durationTimer(String outcome) {
+            return Timer.builder("exam.scheduler.task.duration")
+                .description("定时任务执行耗时")
+                .tags("pool", poolName, "task", taskName, "outcome", outcome)
+                .register(meterRegistry);
+        }
+    }
+
+    /**
+     * 包装cron等触发器：记录下一次计划时间，并统计因本轮执行过长而错过的触发时间
+     */
+    private static final class MonitoredTrigger implements Trigger {
+        private final Trigger delegate;
+        private final MonitoredTask task;
+
+        MonitoredTrigger(Trigger delegate, MonitoredTask task) {
+            this.delegate = delegate;
+            this.task = task;
+        }
+
+        @Override
+        public Instant nextExecution(TriggerContext triggerContext) {
+            Instant next = delegate.nextExecution(triggerContext);
+            Instant lastScheduled = triggerContext.lastScheduledExecution();
+            Instant lastActual = triggerContext.lastActualExecution();
+            Instant lastCompletion = triggerContext.lastCompletion();
+            if (next != null && lastScheduled != null && lastActual != null && lastCompletion != null) {
+                // 按上一次计划时间本应依次触发、却早于实际下一次执行的触发时间
+                int skipped = 0;
+                Instant intended = delegate.nextExecution(
+                    new SimpleTriggerContext(lastScheduled, lastScheduled, lastScheduled));
+                while (intended != null && intended.isBefore(next) && skipped < MAX_COUNTED_SKIPS) {
+                    skipped++;
+                    intended = delegate.nextExecution(new SimpleTriggerContext(intended, intended, intended));
+                }
+                if (skipped > 0) {
+                    task.overrun(Duration.between(lastActual, lastCompletion), skipped);
+                }
+            }
+            task.expectNext(next);
+            return next;
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.examSystem.userService.service.security;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 答案写入序号校验
+ *
+ * 客户端为每个考试记录维护单调递增的写入序号，随每次答案写入提交。
+ * 按(考试记录, 题目)记录最后一次接受的序号，过期或重放的写入通过无锁比较直接拒绝，
+ * 客户端可以放心重试。数据库upsert同样按序号判断新旧，节点重启后仍能拒绝旧数据。
+ * 考试记录在其他节点结束时本节点不会收到释放，长时间没有写入的记录由定期清理移除
+ */
+@Component
+public class AnswerSequenceGuard {
+
+    private static final Accepted NONE = new Accepted(Long.MIN_VALUE, Long.MIN_VALUE);
+
+    // attemptId -> 该考试记录各题最后接受的序号
+    private final Map<Long, AttemptSequences> lastAccepted = new ConcurrentHashMap<>();
+
+    @Value("${app.exam.sequence-guard.idle-minutes:30}")
+    private long idleMinutes;
+
+    /**
+     * 序号大于该题最后接受的序号时记录并返回true，否则返回false
+     */
+    public boolean tryAdvance(Long attemptId, Long questionId, long sequence) {
+        AttemptSequences attempt = lastAccepted.get(attemptId);
+        if (attempt == null) {
+            attempt = lastAccepted.computeIfAbsent(attemptId, id -> new AttemptSequences());
+        }
+        attempt.lastTouched = System.currentTimeMillis();
+
+        AtomicReference<Accepted> last = attempt.questions.get(questionId);
+        if (last == null) {
+            last = attempt.questions.computeIfAbsent(questionId, id -> new AtomicReference<>(NONE));
+        }
+
+        Accepted current;
+        do {
+            current = last.get();
+            if (sequence <= current.sequence) {
+                return false;
+            }
+        } while (!last.compareAndSet(current, new Accepted(sequence, current.sequence)));
+        return true;
+    }
+
+    /**
+     * 写入失败时撤销已接受的序号，使客户端用同一序号重试时不被当作重放拒绝
+     *
+     * 恢复为接受该序号之前的序号；只在该序号仍是最后接受的序号时生效，
+     * 之后已接受更大序号的情况保持不变
+     */
+    public void revert(Long attemptId, Long questionId, long sequence) {
+        AttemptSequences attempt = lastAccepted.get(attemptId);
+        AtomicReference<Accepted> last = attempt != null ? attempt.questions.get(questionId) : null;
+        if (last == null) {
+            return;
+        }
+
+        Accepted current = last.get();
+        if (current.sequence == sequence) {
+            // 更早的序号已无从得知，再次撤销时保守地保持不变
+            last.compareAndSet(current, new Accepted(current.previous, current.previous));
+        }
+    }
+
+    /**
+     * 考试记录结束后释放其序号记录
+     */
+    public void release(Long attemptId) {
+        lastAccepted.remove(attemptId);
+    }
+
+    /**
+     * 定期移除长时间没有写入的考试记录（在其他节点结束或已转到其他节点的考试记录）
+     *
+     * 移除后迟到的旧写入仍会被数据库upsert的序号比较拒绝
+     */
+    @Scheduled(fixedRate = 300000) // 每5分钟执行一次
+    public void cleanupIdleAttempts() {
+        long threshold = System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(idleMinutes);
+        lastAccepted.values().removeIf(attempt -> attempt.lastTouched < threshold);
+    }
+
+    // 内部类定义
+
+    private static final class AttemptSequences {
+        // questionId -> 最后接受的序号及其之前的序号
+        private final Map<Long, AtomicReference<Accepted>> questions = new ConcurrentHashMap<>();
+        private volatile long lastTouched = System.currentTimeMillis();
+    }
+
+    private static final class Accepted {
+        private final long sequence;
+        private final long previous;
+
+        Accepted(long sequence, long previous) {
+            this.sequence = sequence;
+            this.previous = previous;
+        }
+    }
+}
@@ -4,6 +4,7 @@ import com.examSystem.userService.entity.ExamAttempt;
 import com.examSystem.userService.entity.SecurityLog;
 import com.examSystem.userService.repository.ExamAttemptRepository;
 import com.examSystem.userService.repository.SecurityLogRepository;
+import com.examSystem.userService.service.TransactionCallbacks;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -38,11 +39,11 @@ public class ExamSecurityService {
     @Autowired
     private SecurityLogRepository securityLogRepository;
 
+    @Autowired
+    private AnswerSequenceGuard answerSequenceGuard;
+
     // 内存中的会话令牌存储
     private final Map<String, SessionToken> activeTokens = new ConcurrentHashMap<>();
-    
-    // 防重复提交的请求记录
-    private final Map<String, Long> recentRequests = new ConcurrentHashMap<>();
 
     /**
      * 生成安全会话令牌
@@ -107,28 +108,30 @@ public class ExamSecurityService {
 
     /**
      * 防重复提交检查
+     *
+     * 按客户端写入序号判断：序号不大于该题最后接受的序号即为过期或重放的写入
      */
-    public DuplicateSubmissionResult checkDuplicateSubmission(Long studentId, Long questionId, 
-                                                            String answer, String clientFingerprint) {
-        String requestKey = studentId + ":" + questionId + ":" + calculateHash(answer);
-        Long lastSubmissionTime = recentRequests.get(requestKey);
-        
-        long currentTime = System.currentTimeMillis();
-        
-        if (lastSubmissionTime != null && (currentTime - lastSubmissionTime) < 2000) { // 2秒内重复提交
-            logSecurityEvent(studentId, null, "DUPLICATE_SUBMISSION", 
-                "重复提交检测", "题目ID: " + questionId, SecurityLevel.WARNING);
-            return new DuplicateSubmissionResult(true, "请勿重复提交，请等待2秒后再试");
+    public DuplicateSubmissionResult checkDuplicateSubmission(Long attemptId, Long questionId, long sequence) {
+        if (!answerSequenceGuard.tryAdvance(attemptId, questionId, sequence)) {
+            return new DuplicateSubmissionResult(true, "答案序号已过期，本次写入已忽略");
         }
-        
-        recentRequests.put(requestKey, currentTime);
-        
-        // 清理过期的请求记录
-        cleanupExpiredRequests();
-        
         return new DuplicateSubmissionResult(false, "提交检查通过");
     }
 
+    /**
+     * 答案写入失败时撤销序号记录，允许客户端以同一序号重试
+     */
+    public void revertSubmission(Long attemptId, Long questionId, long sequence) {
+        answerSequenceGuard.revert(attemptId, questionId, sequence);
+    }
+
+    /**
+     * 考试记录结束后释放防重复提交记录（在事务中调用时于提交后释放）
+     */
+    public void releaseSubmissionRecords(Long attemptId) {
+        TransactionCallbacks.afterCommit(() -> answerSequenceGuard.release(attemptId));
+    }
+
     /**
      * 异常行为检测
      */
@@ -360,11 +363,6 @@ public class ExamSecurityService {
         return Math.min(baseScore, 100);
     }
 
-    private void cleanupExpiredRequests() {
-        long cutoffTime = System.currentTimeMillis() - 300000; // 5分钟前
-        recentRequests.entrySet().removeIf(entry -> entry.getValue() < cutoffTime);
-    }
-
     private String calculateHash(String input) {
         try {
             MessageDigest digest = MessageDigest.getInstance("SHA-256");
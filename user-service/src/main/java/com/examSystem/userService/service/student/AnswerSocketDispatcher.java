@@ -0,0 +1,158 @@
+package com.examSystem.userService.service.student;
+
+import com.examSystem.userService.service.student.StudentExamService.AnswerSubmissionResult;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * WebSocket答案帧处理
+ *
+ * 答案帧按考试记录ID分片到单线程执行器，执行与HTTP接口相同的 submitAnswer 流程，
+ * 同一考试记录的帧按到达顺序串行处理，未带序号的帧按处理时间判定新旧时不会乱序。
+ * 结果以确认消息发送到学生的 /user/queue/answer-acks，分片队列已满时立即回复繁忙，客户端可改用HTTP提交
+ */
+@Service
+public class AnswerSocketDispatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(AnswerSocketDispatcher.class);
+
+    public static final String ACK_DESTINATION = "/queue/answer-acks";
+
+    @Autowired
+    private StudentExamService studentExamService;
+
+    @Autowired
+    private SimpMessagingTemplate messagingTemplate;
+
+    @Value("${app.exam.socket-autosave.max-threads:16}")
+    private int maxThreads;
+
+    @Value("${app.exam.socket-autosave.max-queue:20000}")
+    private int maxQueue;
+
+    private ThreadPoolExecutor[] shards;
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger threadCounter = new AtomicInteger();
+        int shardQueue = Math.max(1, maxQueue / maxThreads);
+        shards = new ThreadPoolExecutor[maxThreads];
+        for (int i = 0; i < shards.length; i++) {
+            shards[i] = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(shardQueue),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "answer-socket-" + threadCounter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (ThreadPoolExecutor shard : shards) {
+            shard.shutdown();
+        }
+    }
+
+    /**
+     * 提交答案帧，处理完成后向学生发送确认
+     */
+    public void dispatch(Long studentId, Long examId, Long attemptId, Long questionId,
+                         String studentAnswer, Long sequence) {
+        try {
+            shardOf(attemptId).execute(() -> {
+                AnswerAck ack;
+                try {
+                    AnswerSubmissionResult result = studentExamService.submitAnswer(
+                        examId, studentId, attemptId, questionId, studentAnswer, sequence);
+                    ack = new AnswerAck(examId, attemptId, questionId, sequence, result.isSuccess(),
+                        false, result.getMessage(), result.getSubmitTime());
+                } catch (Exception e) {
+                    ack = new AnswerAck(examId, attemptId, questionId, sequence, false,
+                        false, "提交答案失败: " + e.getMessage(), null);
+                }
+                sendAck(studentId, ack);
+            });
+        } catch (RejectedExecutionException e) {
+            sendAck(studentId, new AnswerAck(examId, attemptId, questionId, sequence, false,
+                true, "服务繁忙，请稍后重试", null));
+        }
+    }
+
+    /**
+     * 当前排队中的答案帧数
+     */
+    public int getQueueDepth() {
+        int depth = 0;
+        for (ThreadPoolExecutor shard : shards) {
+            depth += shard.getQueue().size();
+        }
+        return depth;
+    }
+
+    // 私有辅助方法
+
+    private ThreadPoolExecutor shardOf(Long attemptId) {
+        return shards[Math.floorMod(attemptId.hashCode(), shards.length)];
+    }
+
+    private void sendAck(Long studentId, AnswerAck ack) {
+        try {
+            messagingTemplate.convertAndSendToUser(studentId.toString(), ACK_DESTINATION, ack);
+        } catch (Exception e) {
+            logger.warn("Failed to send answer ack to student {}: {}", studentId, e.getMessage());
+        }
+    }
+
+    // 内部类定义
+
+    /**
+     * 答案确认消息
+     */
+    public static class AnswerAck {
+        private final Long examId;
+        private final Long attemptId;
+        private final Long questionId;
+        private final Long sequence;
+        private final boolean success;
+        private final boolean busy;
+        private final String message;
+        private final LocalDateTime savedAt;
+
+        public AnswerAck(Long examId, Long attemptId, Long questionId, Long sequence, boolean success,
+                         boolean busy, String message, LocalDateTime savedAt) {
+            this.examId = examId;
+            this.attemptId = attemptId;
+            this.questionId = questionId;
+            this.sequence = sequence;
+            this.success = success;
+            this.busy = busy;
+            this.message = message;
+            this.savedAt = savedAt;
+        }
+
+        // Getters
+        public Long getExamId() { return examId; }
+        public Long getAttemptId() { return attemptId; }
+        public Long getQuestionId() { return questionId; }
+        public Long getSequence() { return sequence; }
+        public boolean isSuccess() { return success; }
+        public boolean isBusy() { return busy; }
+        public String getMessage() { return message; }
+        public LocalDateTime getSavedAt() { return savedAt; }
+    }
+}
@@ -0,0 +1,41 @@
+package com.examSystem.userService.service.student;
+
+import com.examSystem.userService.repository.AnswerBatchRepository.AnswerRow;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 答案暂存区
+ *
+ * 作为 {@link AnswerWriteBuffer} 的存储层，按考试记录保存尚未落库的答案，
+ * 同一题目只保留最后一次提交
+ */
+public interface AnswerStagingStore {
+
+    /**
+     * 暂存答案，覆盖同一题目之前暂存的较旧答案（见 AnswerRow#isNewerThan）
+     */
+    void stage(AnswerRow row);
+
+    /**
+     * 获取考试记录当前暂存的答案（题目ID -> 答案）
+     */
+    Map<Long, AnswerRow> getStaged(Long attemptId);
+
+    /**
+     * 获取存在暂存答案的考试记录ID
+     */
+    List<Long> pendingAttemptIds(int limit);
+
+    /**
+     * 确认答案已落库，仅移除未被更新覆盖的条目
+     */
+    void acknowledge(Long attemptId, Collection<AnswerRow> flushed);
+
+    /**
+     * 当前暂存的考试记录数
+     */
+    long pendingAttemptCount();
+}
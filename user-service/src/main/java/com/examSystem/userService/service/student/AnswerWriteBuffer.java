@@ -0,0 +1,285 @@
+package com.examSystem.userService.service.student;
+
+import com.examSystem.userService.entity.Answer;
+import com.examSystem.userService.entity.Exam.AnswerStorageMode;
+import com.examSystem.userService.entity.Question;
+import com.examSystem.userService.repository.AnswerBatchRepository;
+import com.examSystem.userService.repository.AnswerBatchRepository.AnswerRow;
+import com.examSystem.userService.repository.AnswerDocumentRepository;
+import com.examSystem.userService.repository.AnswerRepository;
+import com.examSystem.userService.service.TransactionCallbacks;
+import com.examSystem.userService.service.grading.AnswerKeyCache;
+import com.examSystem.userService.service.grading.AutoGradingService.QuestionGradingResult;
+import com.examSystem.userService.service.student.ExamPaperCache.ExamPaper;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 答案写后缓冲（write-behind）
+ *
+ * 学生自动保存的答案先写入暂存区并立即确认，由定时任务按批次合并落库。
+ * 按考试的答案存储方式落库：ROWS模式写入answers表，DOCUMENT模式合并到答题卡文档。
+ * 交卷、评分等需要读取answers表的流程必须先调用 {@link #flushAttempt(Long)} 强制刷盘。
+ * 客观题在写入answers表时即时评分（DOCUMENT模式在展开答题卡时），is_correct和points_earned随答案一起写入，
+ * 交卷时只需汇总
+ */
+@Service
+public class AnswerWriteBuffer {
+
+    private static final Logger logger = LoggerFactory.getLogger(AnswerWriteBuffer.class);
+
+    @Autowired
+    private AnswerStagingStore stagingStore;
+
+    @Autowired
+    private AnswerBatchRepository answerBatchRepository;
+
+    @Autowired
+    private AnswerDocumentRepository answerDocumentRepository;
+
+    @Autowired
+    private AnswerRepository answerRepository;
+
+    @Autowired
+    private AttemptSnapshotCache attemptSnapshotCache;
+
+    @Autowired
+    private ExamPaperCache examPaperCache;
+
+    @Autowired
+    private AnswerKeyCache answerKeyCache;
+
+    @Value("${app.exam.answer-buffer.batch-size:500}")
+    private int batchSize;
+
+    /**
+     * 暂存答案
+     */
+    public AnswerRow stage(Long attemptId, Long questionId, String studentAnswer, Long clientSequence) {
+        AnswerRow row = new AnswerRow(attemptId, questionId, studentAnswer, LocalDateTime.now(), clientSequence);
+        stagingStore.stage(row);
+        return row;
+    }
+
+    /**
+     * 获取考试记录尚未落库的答案（题目ID -> 答案），用于读取时合并
+     */
+    public Map<Long, AnswerRow> getStagedAnswers(Long attemptId) {
+        return stagingStore.getStaged(attemptId);
+    }
+
+    /**
+     * 读取考试记录的当前答案（题目ID -> 答案），已落库的答案与暂存答案合并
+     *
+     * 答题卡文档和answers表都读取并按较新者合并：考试记录进行中切换过存储方式时，
+     * 两处都可能保存有答案
+     */
+    public Map<Long, String> loadAnswers(Long attemptId) {
+        Map<Long, AnswerRow> stored = new HashMap<>(answerDocumentRepository.loadAnswers(attemptId));
+        for (Answer answer : answerRepository.findByAttemptId(attemptId)) {
+            AnswerRow row = new AnswerRow(attemptId, answer.getQuestionId(), answer.getStudentAnswer(),
+                answer.getSubmitTime() != null ? answer.getSubmitTime() : LocalDateTime.MIN,
+                answer.getClientSequence());
+            stored.merge(row.getQuestionId(), row,
+                (existing, candidate) -> candidate.isNewerThan(existing) ? candidate : existing);
+        }
+
+        Map<Long, String> answers = new HashMap<>();
+        for (AnswerRow row : stored.values()) {
+            answers.put(row.getQuestionId(), row.getStudentAnswer());
+        }
+        for (AnswerRow staged : stagingStore.getStaged(attemptId).values()) {
+            answers.put(staged.getQuestionId(), staged.getStudentAnswer());
+        }
+        return answers;
+    }
+
+    /**
+     * 强制将考试记录的暂存答案写入answers表
+     *
+     * DOCUMENT模式下先合并暂存增量；两种模式都会把答题卡展开为answers记录，
+     * 考试记录进行中由DOCUMENT切换为ROWS时只保存在答题卡中的答案也会落到answers表。
+     * 在事务中调用时，暂存条目在事务提交后才移除，回滚不会丢失答案
+     */
+    public int flushAttempt(Long attemptId) {
+        Map<Long, AnswerRow> staged = stagingStore.getStaged(attemptId);
+        List<AnswerRow> rows = new ArrayList<>(staged.values());
+
+        if (!rows.isEmpty()) {
+            if (isDocumentMode(attemptId)) {
+                answerDocumentRepository.applyDeltas(Map.of(attemptId, rows));
+            } else {
+                answerBatchRepository.upsertAnswers(graded(rows));
+            }
+            TransactionCallbacks.afterCommit(() -> stagingStore.acknowledge(attemptId, rows));
+        }
+        // 答题卡只保存答案，展开时按当前标准答案评分，考试期间修正的标准答案同样生效；
+        // 答题卡为空或已展开时不改变answers记录
+        answerBatchRepository.explodeAnswers(graded(answerDocumentRepository.loadAnswers(attemptId).values()));
+        return rows.size();
+    }
+
+    /**
+     * 直接写入一批答案（客户端重连后的批量补交）
+     *
+     * 与该考试记录的暂存答案合并后用一条多行upsert写入，同一题目以较新者为准
+     */
+    public int writeThrough(Long attemptId, List<AnswerRow> rows) {
+        Map<Long, AnswerRow> staged = stagingStore.getStaged(attemptId);
+        Map<Long, AnswerRow> merged = new LinkedHashMap<>(staged);
+        for (AnswerRow row : rows) {
+            AnswerRow current = merged.get(row.getQuestionId());
+            if (current == null || row.isNewerThan(current)) {
+                merged.put(row.getQuestionId(), row);
+            }
+        }
+
+        int affected;
+        if (isDocumentMode(attemptId)) {
+            answerDocumentRepository.applyDeltas(Map.of(attemptId, merged.values()));
+            affected = merged.size();
+        } else {
+            affected = answerBatchRepository.upsertAnswers(graded(merged.values()));
+        }
+        if (!staged.isEmpty()) {
+            List<AnswerRow> acknowledged = new ArrayList<>(staged.values());
+            TransactionCallbacks.afterCommit(() -> stagingStore.acknowledge(attemptId, acknowledged));
+        }
+        return affected;
+    }
+
+    /**
+     * 定时批量刷盘
+     *
+     * 每轮最多处理batch-size个考试记录，轮数按本次开始时的积压量计算，
+     * 失败的条目留在暂存区等待下一次调度
+     */
+    @Scheduled(fixedDelayString = "${app.exam.answer-buffer.flush-interval-ms:1000}")
+    public void flushPending() {
+        long rounds = (stagingStore.pendingAttemptCount() + batchSize - 1) / batchSize;
+        for (long round = 0; round < rounds; round++) {
+            if (flushBatch() == 0) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * 当前待刷盘的考试记录数
+     */
+    public long getPendingAttemptCount() {
+        return stagingStore.pendingAttemptCount();
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flushPending();
+        long remaining = stagingStore.pendingAttemptCount();
+        if (remaining > 0) {
+            logger.error("Unable to flush {} staged attempts on shutdown", remaining);
+        }
+    }
+
+    // 私有辅助方法
+
+    private int flushBatch() {
+        List<Long> attemptIds = stagingStore.pendingAttemptIds(batchSize);
+        if (attemptIds.isEmpty()) {
+            return 0;
+        }
+
+        Map<Long, List<AnswerRow>> batch = new LinkedHashMap<>();
+        Map<Long, List<AnswerRow>> documentDeltas = new LinkedHashMap<>();
+        List<AnswerRow> rows = new ArrayList<>();
+        int total = 0;
+        for (Long attemptId : attemptIds) {
+            Collection<AnswerRow> staged = stagingStore.getStaged(attemptId).values();
+            if (staged.isEmpty()) {
+                continue;
+            }
+            batch.put(attemptId, new ArrayList<>(staged));
+            total += staged.size();
+            try {
+                if (isDocumentMode(attemptId)) {
+                    documentDeltas.put(attemptId, batch.get(attemptId));
+                } else {
+                    rows.addAll(staged);
+                }
+            } catch (Exception e) {
+                // 无法确定存储方式（如考试记录已删除）时按逐题写入处理
+                rows.addAll(staged);
+            }
+        }
+
+        try {
+            answerBatchRepository.upsertAnswers(graded(rows));
+            answerDocumentRepository.applyDeltas(documentDeltas);
+            batch.forEach(stagingStore::acknowledge);
+        } catch (Exception e) {
+            // 整批失败时逐个考试记录重试，避免单条脏数据阻塞整个缓冲区
+            logger.warn("Batch flush of {} staged answers failed, retrying per attempt: {}", total, e.getMessage());
+            batch.forEach((attemptId, attemptRows) ->
+                flushAttemptRows(attemptId, attemptRows, documentDeltas.containsKey(attemptId)));
+        }
+        return total;
+    }
+
+    private void flushAttemptRows(Long attemptId, List<AnswerRow> rows, boolean documentMode) {
+        try {
+            if (documentMode) {
+                answerDocumentRepository.applyDeltas(Map.of(attemptId, rows));
+            } else {
+                answerBatchRepository.upsertAnswers(graded(rows));
+            }
+            stagingStore.acknowledge(attemptId, rows);
+        } catch (Exception e) {
+            logger.error("Failed to flush staged answers for attempt {}", attemptId, e);
+        }
+    }
+
+    /**
+     * 按试卷中的标准答案为待写入的答案评分，返回带评分结果的副本。
+     * 暂存区按实例确认，确认时仍需使用原始条目；无法评分的答案原样写入，交卷时回退为完整评分
+     */
+    private List<AnswerRow> graded(Collection<AnswerRow> rows) {
+        List<AnswerRow> result = new ArrayList<>(rows.size());
+        Map<Long, ExamPaper> papers = new HashMap<>();
+        for (AnswerRow row : rows) {
+            try {
+                ExamPaper paper = papers.computeIfAbsent(row.getAttemptId(),
+                    attemptId -> examPaperCache.get(attemptSnapshotCache.get(attemptId).getExamId()));
+                Question question = paper.getAnswerKey(row.getQuestionId());
+                if (question == null) {
+                    result.add(row);
+                    continue;
+                }
+                QuestionGradingResult grade = answerKeyCache.get(question)
+                    .grade(row.getQuestionId(), row.getStudentAnswer(), paper.getPointsUnits(row.getQuestionId()));
+                result.add(row.withGrade(grade.isCorrect(), grade.getScoreUnits()));
+            } catch (Exception e) {
+                logger.debug("Unable to grade answer {}/{} at write time: {}",
+                    row.getAttemptId(), row.getQuestionId(), e.getMessage());
+                result.add(row);
+            }
+        }
+        return result;
+    }
+
+    private boolean isDocumentMode(Long attemptId) {
+        Long examId = attemptSnapshotCache.get(attemptId).getExamId();
+        return examPaperCache.get(examId).getAnswerStorageMode() == AnswerStorageMode.DOCUMENT;
+    }
+}
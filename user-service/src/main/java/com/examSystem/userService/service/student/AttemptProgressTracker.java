@@ -0,0 +1,236 @@
+package com.examSystem.userService.service.student;
+
+import com.examSystem.userService.repository.AnswerBatchRepository.AnswerRow;
+import com.examSystem.userService.service.TransactionCallbacks;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 答题进度跟踪
+ *
+ * 为每个考试记录维护增量进度（已答题数、总题数、最后作答题目、每题用时），
+ * 每次写入答案时O(1)更新。学生进度查询和监考视图直接读取，无需扫描题目和答案。
+ * 进度保存在Redis的Hash中（每个考试记录一个），各节点共享且带过期时间；
+ * 不存在时从已保存的答案初始化一次
+ */
+@Service
+public class AttemptProgressTracker {
+
+    private static final String PROGRESS_KEY_PREFIX = "exam:attempt-progress:";
+    private static final String TOTAL_FIELD = "total";
+    private static final String LAST_QUESTION_FIELD = "lastQuestion";
+    private static final String LAST_TIME_FIELD = "lastTime";
+    private static final String QUESTION_FIELD_PREFIX = "q:";
+
+    // Hash不存在时写入总题数和已作答题目，已存在时只续期；返回是否完成初始化
+    private static final DefaultRedisScript<Long> INITIALIZE_SCRIPT = new DefaultRedisScript<>(
+        "if redis.call('EXISTS', KEYS[1]) == 1 then " +
+        "  redis.call('EXPIRE', KEYS[1], ARGV[1]) " +
+        "  return 0 " +
+        "end " +
+        "redis.call('HSET', KEYS[1], 'total', ARGV[2]) " +
+        "for i = 3, #ARGV do redis.call('HSET', KEYS[1], 'q:' .. ARGV[i], 0) end " +
+        "redis.call('EXPIRE', KEYS[1], ARGV[1]) " +
+        "return 1",
+        Long.class);
+
+    // 按顺序应用ARGV[2..]中的(题目ID, 作答时间)对，两次写入之间的秒数计入后一次作答的题目；
+    // Hash不存在（未初始化或已过期）时返回0，由调用方初始化后重试
+    private static final DefaultRedisScript<Long> RECORD_SCRIPT = new DefaultRedisScript<>(
+        "if redis.call('EXISTS', KEYS[1]) == 0 then return 0 end " +
+        "local last = redis.call('HGET', KEYS[1], 'lastTime') " +
+        "if last then last = tonumber(last) end " +
+        "for i = 2, #ARGV, 2 do " +
+        "  local time = tonumber(ARGV[i + 1]) " +
+        "  local elapsed = 0 " +
+        "  if last and time > last then elapsed = math.floor((time - last) / 1000) end " +
+        "  redis.call('HINCRBY', KEYS[1], 'q:' .. ARGV[i], elapsed) " +
+        "  redis.call('HSET', KEYS[1], 'lastQuestion', ARGV[i], 'lastTime', ARGV[i + 1]) " +
+        "  last = time " +
+        "end " +
+        "redis.call('EXPIRE', KEYS[1], ARGV[1]) " +
+        "return 1",
+        Long.class);
+
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+
+    @Autowired
+    private AttemptSnapshotCache attemptSnapshotCache;
+
+    @Autowired
+    private ExamPaperCache examPaperCache;
+
+    @Autowired
+    private AnswerWriteBuffer answerWriteBuffer;
+
+    @Value("${app.exam.progress.ttl-minutes:720}")
+    private long ttlMinutes;
+
+    /**
+     * 记录一次答案写入
+     */
+    public void recordAnswer(Long attemptId, Long questionId, LocalDateTime answerTime) {
+        record(attemptId, new Object[] {
+            Long.toString(TimeUnit.MINUTES.toSeconds(ttlMinutes)),
+            questionId.toString(),
+            Long.toString(toEpochMillis(answerTime))
+        });
+    }
+
+    /**
+     * 记录一批答案写入，按作答时间顺序在一次脚本调用中应用
+     */
+    public void recordAnswers(Long attemptId, Collection<AnswerRow> rows) {
+        if (rows.isEmpty()) {
+            return;
+        }
+
+        List<AnswerRow> ordered = new ArrayList<>(rows);
+        ordered.sort(Comparator.comparing(AnswerRow::getSubmitTime));
+        Object[] args = new Object[ordered.size() * 2 + 1];
+        args[0] = Long.toString(TimeUnit.MINUTES.toSeconds(ttlMinutes));
+        int i = 1;
+        for (AnswerRow row : ordered) {
+            args[i++] = row.getQuestionId().toString();
+            args[i++] = Long.toString(toEpochMillis(row.getSubmitTime()));
+        }
+        record(attemptId, args);
+    }
+
+    /**
+     * 获取考试记录的当前进度
+     */
+    public AttemptProgress getProgress(Long attemptId) {
+        Map<Object, Object> entries = redisTemplate.opsForHash().entries(progressKey(attemptId));
+        if (entries.isEmpty()) {
+            initialize(attemptId);
+            entries = redisTemplate.opsForHash().entries(progressKey(attemptId));
+        }
+        return toProgress(attemptId, entries);
+    }
+
+    /**
+     * 考试记录结束后释放进度记录（在事务中调用时于提交后释放，所有节点生效）
+     */
+    public void release(Long attemptId) {
+        TransactionCallbacks.afterCommit(() -> redisTemplate.delete(progressKey(attemptId)));
+    }
+
+    // 私有辅助方法
+
+    private void record(Long attemptId, Object[] args) {
+        List<String> keys = List.of(progressKey(attemptId));
+        Long recorded = redisTemplate.execute(RECORD_SCRIPT, keys, args);
+        if (recorded == null || recorded == 0) {
+            initialize(attemptId);
+            redisTemplate.execute(RECORD_SCRIPT, keys, args);
+        }
+    }
+
+    // 多个节点同时初始化时只有第一个写入生效
+    private void initialize(Long attemptId) {
+        Long examId = attemptSnapshotCache.get(attemptId).getExamId();
+        int totalQuestions = examPaperCache.get(examId).getQuestions().size();
+        Set<Long> answeredQuestionIds = answerWriteBuffer.loadAnswers(attemptId).keySet();
+
+        List<String> args = new ArrayList<>(answeredQuestionIds.size() + 2);
+        args.add(Long.toString(TimeUnit.MINUTES.toSeconds(ttlMinutes)));
+        args.add(Integer.toString(totalQuestions));
+        for (Long questionId : answeredQuestionIds) {
+            args.add(questionId.toString());
+        }
+        redisTemplate.execute(INITIALIZE_SCRIPT, List.of(progressKey(attemptId)), args.toArray());
+    }
+
+    private AttemptProgress toProgress(Long attemptId, Map<Object, Object> entries) {
+        int totalQuestions = 0;
+        int answeredQuestions = 0;
+        Long lastQuestionId = null;
+        LocalDateTime lastAnswerTime = null;
+        Map<Long, Long> secondsPerQuestion = new HashMap<>();
+
+        for (Map.Entry<Object, Object> entry : entries.entrySet()) {
+            String field = entry.getKey().toString();
+            String value = entry.getValue().toString();
+            if (field.startsWith(QUESTION_FIELD_PREFIX)) {
+                answeredQuestions++;
+                long seconds = Long.parseLong(value);
+                if (seconds > 0) {
+                    secondsPerQuestion.put(Long.valueOf(field.substring(QUESTION_FIELD_PREFIX.length())), seconds);
+                }
+            } else if (TOTAL_FIELD.equals(field)) {
+                totalQuestions = Integer.parseInt(value);
+            } else if (LAST_QUESTION_FIELD.equals(field)) {
+                lastQuestionId = Long.valueOf(value);
+            } else if (LAST_TIME_FIELD.equals(field)) {
+                lastAnswerTime = LocalDateTime.ofInstant(
+                    Instant.ofEpochMilli(Long.parseLong(value)), ZoneId.systemDefault());
+            }
+        }
+        return new AttemptProgress(attemptId, answeredQuestions, totalQuestions,
+            lastQuestionId, lastAnswerTime, secondsPerQuestion);
+    }
+
+    private String progressKey(Long attemptId) {
+        return PROGRESS_KEY_PREFIX + attemptId;
+    }
+
+    private long toEpochMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    // 内部类定义
+
+    /**
+     * 答题进度（不可变）
+     */
+    public static class AttemptProgress {
+        private final Long attemptId;
+        private final int answeredQuestions;
+        private final int totalQuestions;
+        private final Long lastQuestionId;
+        private final LocalDateTime lastAnswerTime;
+        private final Map<Long, Long> secondsPerQuestion;
+
+        public AttemptProgress(Long attemptId, int answeredQuestions, int totalQuestions,
+                               Long lastQuestionId, LocalDateTime lastAnswerTime,
+                               Map<Long, Long> secondsPerQuestion) {
+            this.attemptId = attemptId;
+            this.answeredQuestions = answeredQuestions;
+            this.totalQuestions = totalQuestions;
+            this.lastQuestionId = lastQuestionId;
+            this.lastAnswerTime = lastAnswerTime;
+            this.secondsPerQuestion = Collections.unmodifiableMap(secondsPerQuestion);
+        }
+
+        public double getCompletionPercentage() {
+            return totalQuestions == 0 ? 0 : Math.round((double) answeredQuestions / totalQuestions * 10000) / 100.0;
+        }
+
+        // Getters
+        public Long getAttemptId() { return attemptId; }
+        public int getAnsweredQuestions() { return answeredQuestions; }
+        public int getTotalQuestions() { return totalQuestions; }
+        public int getUnansweredQuestions() { return Math.max(0, totalQuestions - answeredQuestions); }
+        public Long getLastQuestionId() { return lastQuestionId; }
+        public LocalDateTime getLastAnswerTime() { return lastAnswerTime; }
+        public Map<Long, Long> getSecondsPerQuestion() { return secondsPerQuestion; }
+    }
+}
@@ -0,0 +1,228 @@
+package com.examSystem.userService.service.student;
+
+import com.examSystem.userService.entity.Exam;
+import com.examSystem.userService.entity.ExamAttempt;
+import com.examSystem.userService.repository.ExamAttemptRepository;
+import com.examSystem.userService.repository.ExamRepository;
+import com.examSystem.userService.service.TransactionCallbacks;
+import com.examSystem.userService.service.scheduled.AttemptDeadlineScheduler;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 考试会话快照缓存
+ *
+ * 按attemptId缓存答题校验所需的字段（学生、考试、状态、截止时间），
+ * 避免答题期间每个请求都按主键查询exam_attempts。
+ * 状态变更在事务提交后写入本节点缓存，并通过Redis频道通知其他节点失效
+ */
+@Service
+public class AttemptSnapshotCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(AttemptSnapshotCache.class);
+
+    private static final String INVALIDATION_CHANNEL = "exam:attempt-snapshot:invalidate";
+    private static final char MESSAGE_SEPARATOR = ':';
+
+    // 用于忽略本节点自己发出的失效通知
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private final Map<Long, AttemptSnapshot> snapshots = new ConcurrentHashMap<>();
+
+    // 失效序号：每次失效递增，并记录到被失效的attemptId上，用于丢弃失效前开始的加载结果
+    private final AtomicLong invalidationSequence = new AtomicLong();
+
+    private final Map<Long, Long> invalidatedAt = new ConcurrentHashMap<>();
+
+    // 上一轮清理时的失效序号，更早的失效记录在下一轮清理时移除
+    private volatile long prunableSequence;
+
+    @Autowired
+    private ExamAttemptRepository examAttemptRepository;
+
+    @Autowired
+    private ExamRepository examRepository;
+
+    // 截止时间调度依赖考试结束流程，而后者依赖本缓存
+    @Lazy
+    @Autowired
+    private AttemptDeadlineScheduler attemptDeadlineScheduler;
+
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+
+    @Autowired
+    private RedisMessageListenerContainer listenerContainer;
+
+    @Value("${app.exam.attempt-cache.retention-minutes:60}")
+    private long retentionMinutes;
+
+    @PostConstruct
+    public void subscribe() {
+        listenerContainer.addMessageListener((message, pattern) ->
+            onInvalidation(new String(message.getBody(), StandardCharsets.UTF_8)),
+            new ChannelTopic(INVALIDATION_CHANNEL));
+    }
+
+    /**
+     * 获取考试会话快照，未命中时从数据库加载
+     */
+    public AttemptSnapshot get(Long attemptId) {
+        AttemptSnapshot cached = snapshots.get(attemptId);
+        if (cached != null) {
+            return cached;
+        }
+
+        long loadSequence = invalidationSequence.get();
+        ExamAttempt attempt = examAttemptRepository.findById(attemptId)
+            .orElseThrow(() -> new RuntimeException("考试会话不存在"));
+        AttemptSnapshot loaded = snapshotOf(attempt);
+        // 加载期间若已有状态变更写入，以变更后的快照为准
+        AttemptSnapshot existing = snapshots.putIfAbsent(attemptId, loaded);
+        if (existing != null) {
+            return existing;
+        }
+        // 加载期间收到失效时，读到的可能是变更前的行，不留在缓存中。
+        // 失效先记录序号再移除快照，因此写入后再检查不会漏掉并发的失效
+        Long invalidated = invalidatedAt.get(attemptId);
+        if (invalidated != null && invalidated > loadSequence) {
+            snapshots.remove(attemptId, loaded);
+        }
+        return loaded;
+    }
+
+    /**
+     * 记录考试会话状态变更
+     *
+     * 在事务中调用时于提交后生效，回滚不会污染缓存
+     */
+    public void update(ExamAttempt attempt) {
+        update(snapshotOf(attempt));
+    }
+
+    /**
+     * 记录考试会话状态变更（已有快照数据时使用，无需加载实体）
+     */
+    public void update(AttemptSnapshot snapshot) {
+        TransactionCallbacks.afterCommit(() -> {
+            markInvalidated(snapshot.getAttemptId());
+            snapshots.put(snapshot.getAttemptId(), snapshot);
+            publishInvalidation(snapshot.getAttemptId());
+        });
+    }
+
+    /**
+     * 使考试会话快照失效（所有节点）
+     */
+    public void evict(Long attemptId) {
+        TransactionCallbacks.afterCommit(() -> {
+            markInvalidated(attemptId);
+            snapshots.remove(attemptId);
+            publishInvalidation(attemptId);
+        });
+    }
+
+    /**
+     * 定期清理已过截止时间较久的快照
+     */
+    @Scheduled(fixedRate = 300000) // 每5分钟执行一次
+    public void cleanupExpiredSnapshots() {
+        LocalDateTime threshold = LocalDateTime.now().minusMinutes(retentionMinutes);
+        snapshots.values().removeIf(snapshot ->
+            snapshot.getEndTime() == null || snapshot.getEndTime().isBefore(threshold));
+
+        // 加载只是一次主键查询，早于上一轮清理的失效记录不会再影响进行中的加载
+        long pruneBefore = prunableSequence;
+        invalidatedAt.values().removeIf(sequence -> sequence <= pruneBefore);
+        prunableSequence = invalidationSequence.get();
+    }
+
+    // 私有辅助方法
+
+    // 考试记录没有持久化的截止时间，按开始时间和考试设置计算，与截止时间调度使用同一规则
+    private AttemptSnapshot snapshotOf(ExamAttempt attempt) {
+        Exam exam = examRepository.findById(attempt.getExamId())
+            .orElseThrow(() -> new RuntimeException("考试不存在"));
+        return AttemptSnapshot.of(attempt, attemptDeadlineScheduler.computeDeadline(exam, attempt.getStartedAt()));
+    }
+
+    private void onInvalidation(String message) {
+        int separatorIndex = message.lastIndexOf(MESSAGE_SEPARATOR);
+        if (separatorIndex < 0 || message.substring(0, separatorIndex).equals(nodeId)) {
+            return;
+        }
+        Long attemptId = Long.valueOf(message.substring(separatorIndex + 1));
+        markInvalidated(attemptId);
+        snapshots.remove(attemptId);
+    }
+
+    private void markInvalidated(Long attemptId) {
+        invalidatedAt.merge(attemptId, invalidationSequence.incrementAndGet(), Math::max);
+    }
+
+    private void publishInvalidation(Long attemptId) {
+        try {
+            redisTemplate.convertAndSend(INVALIDATION_CHANNEL, nodeId + MESSAGE_SEPARATOR + attemptId);
+        } catch (Exception e) {
+            // 通知失败时其他节点最多在快照保留期内读到旧状态，交卷等写操作仍以数据库为准
+            logger.warn("Failed to publish attempt snapshot invalidation for {}: {}", attemptId, e.getMessage());
+        }
+    }
+
+    // 内部类定义
+
+    /**
+     * 考试会话快照（不可变）
+     */
+    public static class AttemptSnapshot {
+        private final Long attemptId;
+        private final Long studentId;
+        private final Long examId;
+        private final String status;
+        private final LocalDateTime endTime;
+
+        public AttemptSnapshot(Long attemptId, Long studentId, Long examId, String status, LocalDateTime endTime) {
+            this.attemptId = attemptId;
+            this.studentId = studentId;
+            this.examId = examId;
+            this.status = status;
+            this.endTime = endTime;
+        }
+
+        public static AttemptSnapshot of(ExamAttempt attempt, LocalDateTime endTime) {
+            return new AttemptSnapshot(attempt.getId(), attempt.getUserId(), attempt.getExamId(),
+                attempt.getStatus().name(), endTime);
+        }
+
+        public boolean belongsTo(Long studentId, Long examId) {
+            return this.studentId.equals(studentId) && this.examId.equals(examId);
+        }
+
+        public boolean isInProgress() {
+            return "IN_PROGRESS".equals(status);
+        }
+
+        // Getters
+        public Long getAttemptId() { return attemptId; }
+        public Long getStudentId() { return studentId; }
+        public Long getExamId() { return examId; }
+        public String getStatus() { return status; }
+        public LocalDateTime getEndTime() { return endTime; }
+    }
+}
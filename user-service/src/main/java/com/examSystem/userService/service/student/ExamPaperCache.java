@@ -0,0 +1,340 @@
+package com.examSystem.userService.service.student;
+
+import com.examSystem.userService.entity.Exam;
+import com.examSystem.userService.entity.Exam.AnswerStorageMode;
+import com.examSystem.userService.entity.ExamQuestion;
+import com.examSystem.userService.entity.Question;
+import com.examSystem.userService.repository.ExamQuestionRepository;
+import com.examSystem.userService.repository.ExamRepository;
+import com.examSystem.userService.repository.QuestionRepository;
+import com.examSystem.userService.service.TransactionCallbacks;
+import com.examSystem.userService.service.grading.ScoreUnits;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * 考试试卷缓存
+ *
+ * 每场考试首次访问时组卷一次：按考试题目关联的顺序加载题目，去掉正确答案和解析，
+ * 并将每道题预先序列化为JSON片段。学生取题时只需拼接各自的作答状态。
+ * 题目实体（含答案）和本场考试的题目分值仅保留在服务端，供答案写入时即时评分。
+ * 考试题目关联、分值或题目内容变更后由管理端调用失效，并通过Redis频道通知其他节点；
+ * 缓存按考试数量限长，组卷超过保留时长的试卷在下次访问时重新组卷
+ */
+@Service
+public class ExamPaperCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExamPaperCache.class);
+
+    private static final String INVALIDATION_CHANNEL = "exam:paper:invalidate";
+    private static final char MESSAGE_SEPARATOR = ':';
+
+    private final String nodeId = UUID.randomUUID().toString();
+
+    // 组卷中的考试也占位，并发首次访问等待同一次组卷；组卷在映射的锁之外执行，不阻塞其他考试
+    private final Map<Long, CompletableFuture<ExamPaper>> papers = new ConcurrentHashMap<>();
+
+    @Value("${app.exam.paper-cache.max-size:500}")
+    private int maxSize;
+
+    @Value("${app.exam.paper-cache.expire-minutes:60}")
+    private long expireMinutes;
+
+    @Autowired
+    private QuestionRepository questionRepository;
+
+    @Autowired
+    private ExamQuestionRepository examQuestionRepository;
+
+    @Autowired
+    private ExamRepository examRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+
+    @Autowired
+    private RedisMessageListenerContainer listenerContainer;
+
+    @PostConstruct
+    public void subscribe() {
+        listenerContainer.addMessageListener((message, pattern) ->
+            onInvalidation(new String(message.getBody(), StandardCharsets.UTF_8)),
+            new ChannelTopic(INVALIDATION_CHANNEL));
+    }
+
+    /**
+     * 获取考试试卷，未缓存时组卷
+     *
+     * 同一考试的并发首次访问只会组卷一次；组卷失败时移除占位，下次访问重新组卷
+     */
+    public ExamPaper get(Long examId) {
+        CompletableFuture<ExamPaper> paper = papers.get(examId);
+        if (paper != null && isExpired(paper)) {
+            papers.remove(examId, paper);
+            paper = null;
+        }
+        if (paper == null) {
+            CompletableFuture<ExamPaper> compiling = new CompletableFuture<>();
+            paper = papers.putIfAbsent(examId, compiling);
+            if (paper == null) {
+                paper = compiling;
+                try {
+                    compiling.complete(compile(examId));
+                    trimToSize();
+                } catch (RuntimeException e) {
+                    papers.remove(examId, compiling);
+                    compiling.completeExceptionally(e);
+                }
+            }
+        }
+
+        try {
+            return paper.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 使考试试卷失效（所有节点），在事务提交后生效
+     */
+    public void evict(Long examId) {
+        TransactionCallbacks.afterCommit(() -> {
+            papers.remove(examId);
+            publishInvalidation(examId);
+        });
+    }
+
+    /**
+     * 使包含指定题目的所有考试试卷失效
+     */
+    public void evictByQuestion(Long questionId) {
+        for (Exam exam : examRepository.findExamsContainingQuestion(questionId)) {
+            evict(exam.getId());
+        }
+    }
+
+    // 私有辅助方法
+
+    // 题目顺序和分值以考试题目关联为准，同一道题在不同考试中的分值可以不同
+    private ExamPaper compile(Long examId) {
+        List<ExamQuestion> examQuestions = examQuestionRepository.findByExamIdOrderByQuestionOrder(examId);
+        Map<Long, Question> questionsById = new HashMap<>(examQuestions.size() * 2);
+        for (Question question : questionRepository.findAllById(examQuestions.stream()
+                .map(ExamQuestion::getQuestionId)
+                .collect(Collectors.toList()))) {
+            questionsById.put(question.getId(), question);
+        }
+
+        List<PaperQuestion> paperQuestions = new ArrayList<>(examQuestions.size());
+        Map<Long, Question> answerKeys = new HashMap<>(examQuestions.size() * 2);
+        Map<Long, Long> pointsUnits = new HashMap<>(examQuestions.size() * 2);
+        long maxScoreUnits = 0L;
+        for (ExamQuestion examQuestion : examQuestions) {
+            Question question = questionsById.get(examQuestion.getQuestionId());
+            if (question == null) {
+                continue;
+            }
+            long questionPointsUnits = ScoreUnits.toUnits(examQuestion.getPoints());
+            answerKeys.put(question.getId(), question);
+            pointsUnits.put(question.getId(), questionPointsUnits);
+            maxScoreUnits += questionPointsUnits;
+            paperQuestions.add(new PaperQuestion(
+                question.getId(),
+                String.valueOf(question.getType()),
+                question.getContent(),
+                question.getOptions(),
+                examQuestion.getQuestionOrder(),
+                serializeFragment(question, examQuestion.getQuestionOrder())));
+        }
+        AnswerStorageMode storageMode = examRepository.findById(examId)
+            .map(Exam::getAnswerStorageMode)
+            .orElse(AnswerStorageMode.ROWS);
+        return new ExamPaper(examId, paperQuestions, answerKeys, pointsUnits, maxScoreUnits, storageMode,
+            LocalDateTime.now());
+    }
+
+    private boolean isExpired(CompletableFuture<ExamPaper> paper) {
+        return isCompiled(paper)
+            && paper.join().getCompiledAt().isBefore(LocalDateTime.now().minusMinutes(expireMinutes));
+    }
+
+    private boolean isCompiled(CompletableFuture<ExamPaper> paper) {
+        return paper.isDone() && !paper.isCompletedExceptionally();
+    }
+
+    // 超出上限时按组卷时间从早到晚移除已组好的试卷，组卷中的占位不移除
+    private void trimToSize() {
+        int excess = papers.size() - maxSize;
+        if (excess <= 0) {
+            return;
+        }
+        papers.entrySet().stream()
+            .filter(entry -> isCompiled(entry.getValue()))
+            .sorted(Comparator.comparing(
+                (Map.Entry<Long, CompletableFuture<ExamPaper>> entry) -> entry.getValue().join().getCompiledAt()))
+            .limit(excess)
+            .collect(Collectors.toList())
+            .forEach(entry -> papers.remove(entry.getKey(), entry.getValue()));
+    }
+
+    /**
+     * 序列化题目的公开字段，输出以逗号开头、不含花括号的JSON片段，
+     * 便于追加在学生作答状态之后
+     */
+    private SerializableString serializeFragment(Question question, Integer orderNumber) {
+        Map<String, Object> fields = new LinkedHashMap<>();
+        fields.put("questionId", question.getId());
+        fields.put("type", String.valueOf(question.getType()));
+        fields.put("content", question.getContent());
+        fields.put("options", question.getOptions());
+        fields.put("orderNumber", orderNumber);
+
+        try {
+            String json = objectMapper.writeValueAsString(fields);
+            SerializedString fragment = new SerializedString("," + json.substring(1, json.length() - 1));
+            // 预先编码为UTF-8字节并缓存，响应输出时直接写入
+            fragment.asUnquotedUTF8();
+            return fragment;
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("试卷序列化失败: " + question.getId(), e);
+        }
+    }
+
+    private void onInvalidation(String message) {
+        int separatorIndex = message.lastIndexOf(MESSAGE_SEPARATOR);
+        if (separatorIndex < 0 || message.substring(0, separatorIndex).equals(nodeId)) {
+            return;
+        }
+        papers.remove(Long.valueOf(message.substring(separatorIndex + 1)));
+    }
+
+    private void publishInvalidation(Long examId) {
+        try {
+            redisTemplate.convertAndSend(INVALIDATION_CHANNEL, nodeId + MESSAGE_SEPARATOR + examId);
+        } catch (Exception e) {
+            logger.warn("Failed to publish exam paper invalidation for {}: {}", examId, e.getMessage());
+        }
+    }
+
+    // 内部类定义
+
+    /**
+     * 考试试卷（不可变）
+     */
+    public static class ExamPaper {
+        private final Long examId;
+        private final List<PaperQuestion> questions;
+        private final Set<Long> questionIds;
+        private final Map<Long, Question> answerKeys;
+        private final Map<Long, Long> pointsUnits;
+        private final long maxScoreUnits;
+        private final AnswerStorageMode answerStorageMode;
+        private final LocalDateTime compiledAt;
+
+        public ExamPaper(Long examId, List<PaperQuestion> questions, Map<Long, Question> answerKeys,
+                         Map<Long, Long> pointsUnits, long maxScoreUnits, AnswerStorageMode answerStorageMode,
+                         LocalDateTime compiledAt) {
+            this.examId = examId;
+            this.questions = Collections.unmodifiableList(questions);
+            this.questionIds = new HashSet<>(questions.size() * 2);
+            for (PaperQuestion question : questions) {
+                this.questionIds.add(question.getQuestionId());
+            }
+            this.answerKeys = answerKeys;
+            this.pointsUnits = pointsUnits;
+            this.maxScoreUnits = maxScoreUnits;
+            this.answerStorageMode = answerStorageMode != null ? answerStorageMode : AnswerStorageMode.ROWS;
+            this.compiledAt = compiledAt;
+        }
+
+        public boolean containsQuestion(Long questionId) {
+            return questionIds.contains(questionId);
+        }
+
+        /**
+         * 题目实体（含正确答案，仅限服务端评分使用，不得返回给学生）
+         */
+        public Question getAnswerKey(Long questionId) {
+            return answerKeys.get(questionId);
+        }
+
+        /**
+         * 题目在本场考试中的分值（定点单位），不在试卷中的题目为0
+         */
+        public long getPointsUnits(Long questionId) {
+            return pointsUnits.getOrDefault(questionId, 0L);
+        }
+
+        // Getters
+        public Long getExamId() { return examId; }
+        public List<PaperQuestion> getQuestions() { return questions; }
+        public long getMaxScoreUnits() { return maxScoreUnits; }
+        public AnswerStorageMode getAnswerStorageMode() { return answerStorageMode; }
+        public LocalDateTime getCompiledAt() { return compiledAt; }
+    }
+
+    /**
+     * 试卷中的题目（不含答案和解析）
+     */
+    public static class PaperQuestion {
+        private final Long questionId;
+        private final String type;
+        private final String content;
+        private final String options;
+        private final Integer orderNumber;
+        private final SerializableString fragment;
+
+        public PaperQuestion(Long questionId, String type, String content, String options,
+                             Integer orderNumber, SerializableString fragment) {
+            this.questionId = questionId;
+            this.type = type;
+            this.content = content;
+            this.options = options;
+            this.orderNumber = orderNumber;
+            this.fragment = fragment;
+        }
+
+        // Getters
+        public Long getQuestionId() { return questionId; }
+        public String getType() { return type; }
+        public String getContent() { return content; }
+        public String getOptions() { return options; }
+        public Integer getOrderNumber() { return orderNumber; }
+        public SerializableString getFragment() { return fragment; }
+    }
+}
@@ -0,0 +1,217 @@
+package com.examSystem.userService.service.student;
+
+import com.examSystem.userService.service.student.StudentExamService.ExamSession;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 开考准入控制
+ *
+ * 开考请求进入有界队列，由固定数量的线程依次执行startExam，
+ * 限制同时占用数据库连接的开考请求数。请求在等待窗口内完成则直接返回考试会话，
+ * 否则返回排队票据和当前位置，客户端凭票据轮询
+ */
+@Service
+public class ExamStartAdmissionService {
+
+    @Autowired
+    private StudentExamService studentExamService;
+
+    @Value("${app.exam.start-admission.max-concurrent:32}")
+    private int maxConcurrent;
+
+    @Value("${app.exam.start-admission.max-queue:10000}")
+    private int maxQueue;
+
+    @Value("${app.exam.start-admission.wait-ms:2000}")
+    private long waitMillis;
+
+    @Value("${app.exam.start-admission.ticket-ttl-seconds:300}")
+    private long ticketTtlSeconds;
+
+    private ThreadPoolExecutor executor;
+
+    // 已发放票据数与已开始处理数之差即为排队位置
+    private final AtomicLong issuedSequence = new AtomicLong();
+    private final AtomicLong admittedSequence = new AtomicLong();
+
+    private final Map<String, StartTicket> tickets = new ConcurrentHashMap<>();
+
+    // examId:studentId -> 排队中的票据，重复点击开始时复用
+    private final Map<String, StartTicket> pendingByStudent = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger threadCounter = new AtomicInteger();
+        executor = new ThreadPoolExecutor(maxConcurrent, maxConcurrent, 0L, TimeUnit.MILLISECONDS,
+            new LinkedBlockingQueue<>(maxQueue),
+            runnable -> {
+                Thread thread = new Thread(runnable, "exam-start-" + threadCounter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * 提交开考请求，在等待窗口内返回结果或排队状态
+     */
+    public StartTicketStatus requestStart(Long examId, Long studentId, String ipAddress) {
+        String studentKey = examId + ":" + studentId;
+        StartTicket ticket = pendingByStudent.computeIfAbsent(studentKey,
+            key -> enqueue(key, examId, studentId, ipAddress));
+        ticket.await(waitMillis);
+        return toStatus(ticket);
+    }
+
+    /**
+     * 查询排队票据状态
+     */
+    public StartTicketStatus getTicketStatus(String ticketId, Long examId, Long studentId) {
+        StartTicket ticket = tickets.get(ticketId);
+        if (ticket == null || !ticket.examId.equals(examId) || !ticket.studentId.equals(studentId)) {
+            throw new RuntimeException("排队票据不存在或已过期");
+        }
+        return toStatus(ticket);
+    }
+
+    /**
+     * 当前排队中的开考请求数
+     */
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    /**
+     * 定期清理已完成且过期的票据
+     */
+    @Scheduled(fixedRate = 60000) // 每60秒执行一次
+    public void cleanupExpiredTickets() {
+        LocalDateTime threshold = LocalDateTime.now().minusSeconds(ticketTtlSeconds);
+        tickets.values().removeIf(ticket -> ticket.isDone() && ticket.createdAt.isBefore(threshold));
+    }
+
+    // 私有辅助方法
+
+    private StartTicket enqueue(String studentKey, Long examId, Long studentId, String ipAddress) {
+        StartTicket ticket = new StartTicket(UUID.randomUUID().toString(), examId, studentId,
+            issuedSequence.incrementAndGet());
+        tickets.put(ticket.ticketId, ticket);
+
+        try {
+            executor.execute(() -> {
+                admittedSequence.incrementAndGet();
+                try {
+                    ticket.complete(studentExamService.startExam(examId, studentId, ipAddress), null);
+                } catch (Exception e) {
+                    ticket.complete(null, e.getMessage());
+                } finally {
+                    pendingByStudent.remove(studentKey, ticket);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            tickets.remove(ticket.ticketId);
+            throw new RuntimeException("开考人数过多，请稍后重试");
+        }
+        return ticket;
+    }
+
+    private StartTicketStatus toStatus(StartTicket ticket) {
+        if (!ticket.isDone()) {
+            long position = Math.max(1, ticket.sequence - admittedSequence.get());
+            return new StartTicketStatus(ticket.ticketId, StartStatus.QUEUED, position, null, "排队中");
+        }
+        if (ticket.session != null) {
+            return new StartTicketStatus(ticket.ticketId, StartStatus.STARTED, 0, ticket.session, "考试开始成功");
+        }
+        return new StartTicketStatus(ticket.ticketId, StartStatus.FAILED, 0, null, ticket.error);
+    }
+
+    // 内部类定义
+
+    private static class StartTicket {
+        private final String ticketId;
+        private final Long examId;
+        private final Long studentId;
+        private final long sequence;
+        private final LocalDateTime createdAt = LocalDateTime.now();
+        private final CountDownLatch done = new CountDownLatch(1);
+        private volatile ExamSession session;
+        private volatile String error;
+
+        StartTicket(String ticketId, Long examId, Long studentId, long sequence) {
+            this.ticketId = ticketId;
+            this.examId = examId;
+            this.studentId = studentId;
+            this.sequence = sequence;
+        }
+
+        void complete(ExamSession session, String error) {
+            this.session = session;
+            this.error = error;
+            done.countDown();
+        }
+
+        boolean isDone() {
+            return done.getCount() == 0;
+        }
+
+        void await(long millis) {
+            try {
+                done.await(millis, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    public static class StartTicketStatus {
+        private final String ticketId;
+        private final StartStatus status;
+        private final long position;
+        private final ExamSession session;
+        private final String message;
+
+        public StartTicketStatus(String ticketId, StartStatus status, long position,
+                                 ExamSession session, String message) {
+            this.ticketId = ticketId;
+            this.status = status;
+            this.position = position;
+            this.session = session;
+            this.message = message;
+        }
+
+        // Getters
+        public String getTicketId() { return ticketId; }
+        public StartStatus getStatus() { return status; }
+        public long getPosition() { return position; }
+        public ExamSession getSession() { return session; }
+        public String getMessage() { return message; }
+    }
+
+    public enum StartStatus {
+        QUEUED,     // 排队中
+        STARTED,    // 已开始
+        FAILED      // 开始失败
+    }
+}
@@ -0,0 +1,72 @@
+package com.examSystem.userService.service.student;
+
+import com.examSystem.userService.repository.AnswerBatchRepository.AnswerRow;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 基于本地内存的答案暂存区（默认）
+ *
+ * 进程退出前由 {@link AnswerWriteBuffer} 负责刷盘；
+ * 需要跨节点共享或防止进程崩溃丢失时使用 {@link RedisAnswerStagingStore}
+ */
+@Component
+@ConditionalOnProperty(prefix = "app.exam.answer-buffer", name = "store", havingValue = "memory", matchIfMissing = true)
+public class InMemoryAnswerStagingStore implements AnswerStagingStore {
+
+    // attemptId -> (questionId -> 答案)
+    private final Map<Long, Map<Long, AnswerRow>> staged = new ConcurrentHashMap<>();
+
+    @Override
+    public void stage(AnswerRow row) {
+        // compute在同一个key上与acknowledge互斥，避免写入已被移除的内层Map
+        staged.compute(row.getAttemptId(), (attemptId, answers) -> {
+            Map<Long, AnswerRow> target = answers != null ? answers : new ConcurrentHashMap<>();
+            target.merge(row.getQuestionId(), row,
+                (existing, candidate) -> candidate.isNewerThan(existing) ? candidate : existing);
+            return target;
+        });
+    }
+
+    @Override
+    public Map<Long, AnswerRow> getStaged(Long attemptId) {
+        Map<Long, AnswerRow> answers = staged.get(attemptId);
+        return answers != null ? new HashMap<>(answers) : Collections.emptyMap();
+    }
+
+    @Override
+    public List<Long> pendingAttemptIds(int limit) {
+        List<Long> attemptIds = new ArrayList<>(Math.min(limit, staged.size()));
+        for (Long attemptId : staged.keySet()) {
+            if (attemptIds.size() >= limit) {
+                break;
+            }
+            attemptIds.add(attemptId);
+        }
+        return attemptIds;
+    }
+
+    @Override
+    public void acknowledge(Long attemptId, Collection<AnswerRow> flushed) {
+        staged.computeIfPresent(attemptId, (id, answers) -> {
+            for (AnswerRow row : flushed) {
+                // 按引用比较，刷盘期间被覆盖的新答案保留到下一轮
+                answers.remove(row.getQuestionId(), row);
+            }
+            return answers.isEmpty() ? null : answers;
+        });
+    }
+
+    @Override
+    public long pendingAttemptCount() {
+        return staged.size();
+    }
+}
@@ -0,0 +1,145 @@
+package com.examSystem.userService.service.student;
+
+import com.examSystem.userService.repository.AnswerBatchRepository.AnswerRow;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 基于Redis的答案暂存区
+ *
+ * 每个考试记录一个Hash(题目ID -> 提交时间|答案)，另用一个Set记录待刷盘的考试记录。
+ * 节点重启不会丢失已确认的答案，任一节点都可以完成刷盘
+ */
+@Component
+@ConditionalOnProperty(prefix = "app.exam.answer-buffer", name = "store", havingValue = "redis")
+public class RedisAnswerStagingStore implements AnswerStagingStore {
+
+    private static final String ATTEMPT_KEY_PREFIX = "exam:answer-buffer:attempt:";
+    private static final String DIRTY_SET_KEY = "exam:answer-buffer:dirty";
+    private static final char SEPARATOR = '|';
+    private static final char SEQUENCE_SEPARATOR = ':';
+
+    // 新旧答案都带序号且已暂存的序号更大时放弃写入，否则覆盖并加入待刷盘集合
+    private static final DefaultRedisScript<Long> STAGE_SCRIPT = new DefaultRedisScript<>(
+        "local current = redis.call('HGET', KEYS[1], ARGV[1]) " +
+        "if current and ARGV[3] ~= '' then " +
+        "  local sequence = string.match(string.match(current, '^[^|]*'), ':(-?%d+)$') " +
+        "  if sequence and tonumber(sequence) > tonumber(ARGV[3]) then return 0 end " +
+        "end " +
+        "redis.call('HSET', KEYS[1], ARGV[1], ARGV[2]) " +
+        "redis.call('SADD', KEYS[2], ARGV[4]) " +
+        "return 1",
+        Long.class);
+
+    // 仅删除值未变化的字段；Hash清空后从待刷盘集合中移除
+    private static final DefaultRedisScript<Long> ACKNOWLEDGE_SCRIPT = new DefaultRedisScript<>(
+        "for i = 1, #ARGV - 1, 2 do " +
+        "  if redis.call('HGET', KEYS[1], ARGV[i]) == ARGV[i + 1] then redis.call('HDEL', KEYS[1], ARGV[i]) end " +
+        "end " +
+        "if redis.call('HLEN', KEYS[1]) == 0 then redis.call('SREM', KEYS[2], ARGV[#ARGV]) end " +
+        "return redis.call('HLEN', KEYS[1])",
+        Long.class);
+
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+
+    @Override
+    public void stage(AnswerRow row) {
+        String sequence = row.getClientSequence() != null ? row.getClientSequence().toString() : "";
+        redisTemplate.execute(STAGE_SCRIPT, List.of(attemptKey(row.getAttemptId()), DIRTY_SET_KEY),
+            row.getQuestionId().toString(), encode(row), sequence, row.getAttemptId().toString());
+    }
+
+    @Override
+    public Map<Long, AnswerRow> getStaged(Long attemptId) {
+        Map<Object, Object> entries = redisTemplate.opsForHash().entries(attemptKey(attemptId));
+        if (entries.isEmpty()) {
+            return Collections.emptyMap();
+        }
+
+        Map<Long, AnswerRow> answers = new HashMap<>(entries.size() * 2);
+        for (Map.Entry<Object, Object> entry : entries.entrySet()) {
+            Long questionId = Long.valueOf(entry.getKey().toString());
+            answers.put(questionId, decode(attemptId, questionId, entry.getValue().toString()));
+        }
+        return answers;
+    }
+
+    @Override
+    public List<Long> pendingAttemptIds(int limit) {
+        Set<String> members = redisTemplate.opsForSet().distinctRandomMembers(DIRTY_SET_KEY, limit);
+        if (members == null || members.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        List<Long> attemptIds = new ArrayList<>(members.size());
+        for (String member : members) {
+            attemptIds.add(Long.valueOf(member));
+        }
+        return attemptIds;
+    }
+
+    @Override
+    public void acknowledge(Long attemptId, Collection<AnswerRow> flushed) {
+        List<String> args = new ArrayList<>(flushed.size() * 2 + 1);
+        for (AnswerRow row : flushed) {
+            args.add(row.getQuestionId().toString());
+            args.add(encode(row));
+        }
+        args.add(attemptId.toString());
+
+        redisTemplate.execute(ACKNOWLEDGE_SCRIPT, List.of(attemptKey(attemptId), DIRTY_SET_KEY), args.toArray());
+    }
+
+    @Override
+    public long pendingAttemptCount() {
+        Long size = redisTemplate.opsForSet().size(DIRTY_SET_KEY);
+        return size != null ? size : 0;
+    }
+
+    // 私有辅助方法
+
+    private String attemptKey(Long attemptId) {
+        return ATTEMPT_KEY_PREFIX + attemptId;
+    }
+
+    // 编码格式: 提交时间毫秒[:客户端序号][|答案]
+    private String encode(AnswerRow row) {
+        long epochMillis = row.getSubmitTime().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        String header = row.getClientSequence() == null
+            ? Long.toString(epochMillis)
+            : epochMillis + String.valueOf(SEQUENCE_SEPARATOR) + row.getClientSequence();
+        // 未作答(null)只保存头部，与空字符串答案区分
+        return row.getStudentAnswer() == null
+            ? header
+            : header + SEPARATOR + row.getStudentAnswer();
+    }
+
+    private AnswerRow decode(Long attemptId, Long questionId, String value) {
+        int separatorIndex = value.indexOf(SEPARATOR);
+        String header = separatorIndex >= 0 ? value.substring(0, separatorIndex) : value;
+        String answer = separatorIndex >= 0 ? value.substring(separatorIndex + 1) : null;
+
+        int sequenceIndex = header.indexOf(SEQUENCE_SEPARATOR);
+        String millis = sequenceIndex >= 0 ? header.substring(0, sequenceIndex) : header;
+        Long clientSequence = sequenceIndex >= 0 ? Long.valueOf(header.substring(sequenceIndex + 1)) : null;
+
+        LocalDateTime submitTime = LocalDateTime.ofInstant(
+            Instant.ofEpochMilli(Long.parseLong(millis)), ZoneId.systemDefault());
+        return new AnswerRow(attemptId, questionId, answer, submitTime, clientSequence);
+    }
+}
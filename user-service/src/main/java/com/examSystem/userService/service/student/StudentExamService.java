@@ -2,24 +2,49 @@ package com.examSystem.userService.service.student;
 
 import com.examSystem.userService.entity.Exam;
 import com.examSystem.userService.entity.ExamAttempt;
+import com.examSystem.userService.entity.ExamAttempt.AttemptStatus;
 import com.examSystem.userService.entity.Question;
 import com.examSystem.userService.entity.Answer;
 import com.examSystem.userService.repository.ExamRepository;
 import com.examSystem.userService.repository.ExamAttemptRepository;
 import com.examSystem.userService.repository.QuestionRepository;
+import com.examSystem.userService.repository.ExamQuestionRepository;
 import com.examSystem.userService.repository.AnswerRepository;
+import com.examSystem.userService.repository.AttemptProvisioningRepository;
+import com.examSystem.userService.repository.AnswerBatchRepository.AnswerRow;
+import com.examSystem.userService.repository.GradingResultBatchRepository;
+import com.examSystem.userService.repository.GradingResultBatchRepository.AttemptScoreTotals;
+import com.examSystem.userService.service.student.AttemptSnapshotCache.AttemptSnapshot;
+import com.examSystem.userService.service.student.AttemptProgressTracker.AttemptProgress;
+import com.examSystem.userService.service.student.ExamPaperCache.ExamPaper;
+import com.examSystem.userService.service.student.ExamPaperCache.PaperQuestion;
+import com.examSystem.userService.service.grading.AnswerKeyCache;
+import com.examSystem.userService.service.grading.AttemptFinishedEvent;
+import com.examSystem.userService.service.grading.AutoGradingService.QuestionGradingResult;
+import com.examSystem.userService.service.grading.ScoreUnits;
+import com.examSystem.userService.service.scheduled.AttemptDeadlineScheduler;
+import com.examSystem.userService.service.scheduled.ExamAggregateBuffer;
+import com.examSystem.userService.service.security.ExamSecurityService;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 import java.util.Map;
-import java.util.HashMap;
+import java.util.HashSet;
+import java.util.ArrayList;
+import java.util.Set;
 
 /**
  * 学生考试服务类
@@ -43,9 +68,45 @@ public class StudentExamService {
     @Autowired
     private QuestionRepository questionRepository;
 
+    @Autowired
+    private ExamQuestionRepository examQuestionRepository;
+
     @Autowired
     private AnswerRepository answerRepository;
 
+    @Autowired
+    private AnswerWriteBuffer answerWriteBuffer;
+
+    @Autowired
+    private AttemptSnapshotCache attemptSnapshotCache;
+
+    @Autowired
+    private ExamPaperCache examPaperCache;
+
+    @Autowired
+    private AnswerKeyCache answerKeyCache;
+
+    @Autowired
+    private AttemptProvisioningRepository attemptProvisioningRepository;
+
+    @Autowired
+    private ExamSecurityService examSecurityService;
+
+    @Autowired
+    private AttemptProgressTracker attemptProgressTracker;
+
+    @Autowired
+    private GradingResultBatchRepository gradingResultBatchRepository;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private AttemptDeadlineScheduler attemptDeadlineScheduler;
+
+    @Autowired
+    private ExamAggregateBuffer examAggregateBuffer;
+
     /**
      * 获取学生可参加的考试列表
      */
@@ -73,7 +134,7 @@ public class StudentExamService {
         }
 
         // 获取学生的考试尝试记录
-        List<ExamAttempt> attempts = examAttemptRepository.findByExamIdAndStudentId(examId, studentId);
+        List<ExamAttempt> attempts = findStartedAttempts(examId, studentId);
         
         // 检查考试状态
         ExamStatus status = determineExamStatus(exam, attempts);
@@ -96,7 +157,7 @@ public class StudentExamService {
     /**
      * 开始考试
      */
-    public ExamSession startExam(Long examId, Long studentId) {
+    public ExamSession startExam(Long examId, Long studentId, String ipAddress) {
         // 验证考试和学生权限
         Exam exam = examRepository.findById(examId)
             .orElseThrow(() -> new RuntimeException("考试不存在"));
@@ -114,8 +175,21 @@ public class StudentExamService {
             throw new RuntimeException("考试已结束");
         }
 
+        // 优先认领预创建的考试记录，只需一条条件UPDATE
+        LocalDateTime endTime = attemptDeadlineScheduler.computeDeadline(exam, now);
+        Optional<Long> provisionedAttemptId = attemptProvisioningRepository.claimProvisionedAttempt(
+            examId, studentId, now, endTime, ipAddress);
+        if (provisionedAttemptId.isPresent()) {
+            Long attemptId = provisionedAttemptId.get();
+            attemptSnapshotCache.update(new AttemptSnapshot(attemptId, studentId, examId, "IN_PROGRESS", endTime));
+            attemptDeadlineScheduler.register(attemptId, exam, now);
+            examAggregateBuffer.recordAttemptStarted(examId);
+            return new ExamSession(attemptId, exam.getId(), exam.getTitle(), now, endTime, now,
+                exam.getDuration().toMinutes());
+        }
+
         // 检查尝试次数
-        List<ExamAttempt> attempts = examAttemptRepository.findByExamIdAndStudentId(examId, studentId);
+        List<ExamAttempt> attempts = findStartedAttempts(examId, studentId);
         if (attempts.size() >= exam.getMaxAttempts()) {
             throw new RuntimeException("已达到最大尝试次数");
         }
@@ -135,11 +209,15 @@ public class StudentExamService {
         newAttempt.setExamId(examId);
         newAttempt.setStudentId(studentId);
         newAttempt.setStartTime(now);
-        newAttempt.setEndTime(now.plus(exam.getDuration()));
+        newAttempt.setEndTime(endTime);
+        newAttempt.setIpAddress(ipAddress);
         newAttempt.setStatus("IN_PROGRESS");
         newAttempt.setAttemptNumber(attempts.size() + 1);
         
         ExamAttempt savedAttempt = examAttemptRepository.save(newAttempt);
+        attemptSnapshotCache.update(savedAttempt);
+        attemptDeadlineScheduler.register(savedAttempt.getId(), exam, now);
+        examAggregateBuffer.recordAttemptStarted(examId);
 
         return createExamSession(savedAttempt, exam);
     }
@@ -150,56 +228,49 @@ public class StudentExamService {
     @Transactional(readOnly = true)
     public List<StudentQuestion> getExamQuestions(Long examId, Long studentId, Long attemptId) {
         // 验证考试会话
-        ExamAttempt attempt = examAttemptRepository.findById(attemptId)
-            .orElseThrow(() -> new RuntimeException("考试会话不存在"));
+        AttemptSnapshot attempt = attemptSnapshotCache.get(attemptId);
 
-        if (!attempt.getStudentId().equals(studentId) || !attempt.getExamId().equals(examId)) {
+        if (!attempt.belongsTo(studentId, examId)) {
             throw new RuntimeException("无效的考试会话");
         }
 
-        if (!"IN_PROGRESS".equals(attempt.getStatus())) {
+        if (!attempt.isInProgress()) {
             throw new RuntimeException("考试已结束或未开始");
         }
 
-        // 获取题目列表
-        List<Question> questions = questionRepository.findByExamIdOrderByOrderNumber(examId);
-        
-        // 获取学生已提交的答案
-        List<Answer> existingAnswers = answerRepository.findByAttemptId(attemptId);
-        Map<Long, Answer> answerMap = new HashMap<>();
-        for (Answer answer : existingAnswers) {
-            answerMap.put(answer.getQuestionId(), answer);
-        }
+        // 获取预编译的试卷
+        List<PaperQuestion> questions = examPaperCache.get(examId).getQuestions();
+
+
+        // 获取学生已提交的答案（含暂存区中尚未落库的答案）
+        Map<Long, String> answerMap = answerWriteBuffer.loadAnswers(attemptId);
 
         // 转换为学生视角的题目信息
         return questions.stream().map(question -> {
-            Answer existingAnswer = answerMap.get(question.getId());
+            boolean answered = answerMap.containsKey(question.getQuestionId());
             return new StudentQuestion(
-                question.getId(),
-                question.getType(),
-                question.getContent(),
-                question.getOptions(),
-                question.getOrderNumber(),
-                existingAnswer != null ? existingAnswer.getStudentAnswer() : null,
-                existingAnswer != null
+                question,
+                answered ? answerMap.get(question.getQuestionId()) : null,
+                answered
             );
         }).collect(java.util.stream.Collectors.toList());
     }
 
     /**
      * 提交单题答案
+     *
+     * clientSequence为客户端的单调写入序号，不大于该题已接受序号的写入被忽略；为空时不做序号校验
      */
     public AnswerSubmissionResult submitAnswer(Long examId, Long studentId, Long attemptId, 
-                                             Long questionId, String studentAnswer) {
+                                             Long questionId, String studentAnswer, Long clientSequence) {
         // 验证考试会话
-        ExamAttempt attempt = examAttemptRepository.findById(attemptId)
-            .orElseThrow(() -> new RuntimeException("考试会话不存在"));
+        AttemptSnapshot attempt = attemptSnapshotCache.get(attemptId);
 
-        if (!attempt.getStudentId().equals(studentId) || !attempt.getExamId().equals(examId)) {
+        if (!attempt.belongsTo(studentId, examId)) {
             throw new RuntimeException("无效的考试会话");
         }
 
-        if (!"IN_PROGRESS".equals(attempt.getStatus())) {
+        if (!attempt.isInProgress()) {
             throw new RuntimeException("考试已结束，无法提交答案");
         }
 
@@ -211,37 +282,124 @@ public class StudentExamService {
         }
 
         // 验证题目
-        Question question = questionRepository.findByIdAndExamId(questionId, examId)
-            .orElseThrow(() -> new RuntimeException("题目不存在"));
+        if (!examPaperCache.get(examId).containsQuestion(questionId)) {
+            throw new RuntimeException("题目不存在");
+        }
 
-        // 查找或创建答案记录
-        Optional<Answer> existingAnswer = answerRepository.findByAttemptIdAndQuestionId(attemptId, questionId);
-        Answer answer;
-        
-        if (existingAnswer.isPresent()) {
-            answer = existingAnswer.get();
-            answer.setStudentAnswer(studentAnswer);
-            answer.setSubmitTime(LocalDateTime.now());
-        } else {
-            answer = new Answer();
-            answer.setAttemptId(attemptId);
-            answer.setQuestionId(questionId);
-            answer.setStudentAnswer(studentAnswer);
-            answer.setSubmitTime(LocalDateTime.now());
+        // 过期或重放的写入直接忽略，客户端可安全重试
+        if (clientSequence != null
+                && examSecurityService.checkDuplicateSubmission(attemptId, questionId, clientSequence).isDuplicate()) {
+            return new AnswerSubmissionResult(null, questionId, studentAnswer, LocalDateTime.now(),
+                false, "答案序号已过期，本次写入已忽略");
         }
 
-        Answer savedAnswer = answerRepository.save(answer);
+        // 答案写入暂存区，由AnswerWriteBuffer批量落库
+        AnswerRow staged;
+        try {
+            staged = answerWriteBuffer.stage(attemptId, questionId, studentAnswer, clientSequence);
+        } catch (RuntimeException e) {
+            if (clientSequence != null) {
+                examSecurityService.revertSubmission(attemptId, questionId, clientSequence);
+            }
+            throw e;
+        }
+        attemptProgressTracker.recordAnswer(attemptId, questionId, staged.getSubmitTime());
 
         return new AnswerSubmissionResult(
-            savedAnswer.getId(),
+            null, // 答案落库后才有ID
             questionId,
             studentAnswer,
-            LocalDateTime.now(),
+            staged.getSubmitTime(),
             true,
             "答案提交成功"
         );
     }
 
+    /**
+     * 批量提交答案
+     *
+     * 考试会话只校验一次，题目归属用一次IN查询确认，所有有效答案用一条多行upsert写入，
+     * 数据库往返次数与答案数量无关。不属于该考试的题目和序号过期的写入单独返回失败结果
+     */
+    public List<AnswerSubmissionResult> submitAnswersBatch(Long examId, Long studentId, Long attemptId,
+                                                           List<AnswerInput> answers) {
+        AttemptSnapshot attempt = attemptSnapshotCache.get(attemptId);
+
+        if (!attempt.belongsTo(studentId, examId)) {
+            throw new RuntimeException("无效的考试会话");
+        }
+
+        if (!attempt.isInProgress()) {
+            throw new RuntimeException("考试已结束，无法提交答案");
+        }
+
+        if (LocalDateTime.now().isAfter(attempt.getEndTime())) {
+            finishExam(attemptId, studentId);
+            throw new RuntimeException("考试时间已到，无法提交答案");
+        }
+
+        List<AnswerSubmissionResult> results = new ArrayList<>(answers.size());
+        if (answers.isEmpty()) {
+            return results;
+        }
+
+        // 同一题目重复提交时保留较新的一条
+        LocalDateTime submitTime = LocalDateTime.now();
+        Map<Long, AnswerRow> latest = new java.util.LinkedHashMap<>();
+        for (AnswerInput input : answers) {
+            AnswerRow row = new AnswerRow(attemptId, input.getQuestionId(), input.getStudentAnswer(),
+                submitTime, input.getSequence());
+            latest.merge(row.getQuestionId(), row,
+                (existing, candidate) -> candidate.isNewerThan(existing) ? candidate : existing);
+        }
+
+        Set<Long> validQuestionIds = new HashSet<>(
+            examQuestionRepository.findQuestionIdsByExamIdAndQuestionIdIn(examId, latest.keySet()));
+
+        List<AnswerRow> rows = new ArrayList<>(validQuestionIds.size());
+        for (AnswerRow row : latest.values()) {
+            if (!validQuestionIds.contains(row.getQuestionId())) {
+                results.add(new AnswerSubmissionResult(
+                    null, row.getQuestionId(), row.getStudentAnswer(), submitTime, false, "题目不存在"));
+            } else if (row.getClientSequence() != null && examSecurityService.checkDuplicateSubmission(
+                    attemptId, row.getQuestionId(), row.getClientSequence()).isDuplicate()) {
+                results.add(new AnswerSubmissionResult(
+                    null, row.getQuestionId(), row.getStudentAnswer(), submitTime, false, "答案序号已过期，本次写入已忽略"));
+            } else {
+                rows.add(row);
+                results.add(new AnswerSubmissionResult(
+                    null, row.getQuestionId(), row.getStudentAnswer(), submitTime, true, "答案提交成功"));
+            }
+        }
+
+        try {
+            answerWriteBuffer.writeThrough(attemptId, rows);
+        } catch (RuntimeException e) {
+            for (AnswerRow row : rows) {
+                if (row.getClientSequence() != null) {
+                    examSecurityService.revertSubmission(attemptId, row.getQuestionId(), row.getClientSequence());
+                }
+            }
+            throw e;
+        }
+        attemptProgressTracker.recordAnswers(attemptId, rows);
+        return results;
+    }
+
+    /**
+     * 获取答题进度
+     */
+    @Transactional(readOnly = true)
+    public AttemptProgress getExamProgress(Long examId, Long studentId, Long attemptId) {
+        AttemptSnapshot attempt = attemptSnapshotCache.get(attemptId);
+
+        if (!attempt.belongsTo(studentId, examId)) {
+            throw new RuntimeException("无效的考试会话");
+        }
+
+        return attemptProgressTracker.getProgress(attemptId);
+    }
+
     /**
      * 完成考试
      */
@@ -257,16 +415,29 @@ public class StudentExamService {
             throw new RuntimeException("考试已结束或未开始");
         }
 
+        // 交卷前将暂存答案全部落库
+        answerWriteBuffer.flushAttempt(attemptId);
+
         // 更新考试状态
         attempt.setStatus("COMPLETED");
         attempt.setSubmitTime(LocalDateTime.now());
 
-        // 计算成绩
-        ExamGradingResult gradingResult = calculateExamScore(attemptId);
+        // 汇总答案写入时已评出的得分
+        ExamGradingResult gradingResult = sealExamScore(attempt);
         attempt.setScore(gradingResult.getTotalScore());
         attempt.setGradedAt(LocalDateTime.now());
 
         ExamAttempt savedAttempt = examAttemptRepository.save(attempt);
+        attemptSnapshotCache.update(savedAttempt);
+        examSecurityService.releaseSubmissionRecords(attemptId);
+        attemptProgressTracker.release(attemptId);
+        attemptDeadlineScheduler.cancel(attemptId);
+        examAggregateBuffer.recordAttemptCompleted(savedAttempt.getExamId(), savedAttempt.getStartTime(),
+            savedAttempt.getSubmitTime());
+        examAggregateBuffer.recordScoreChanged(attemptId);
+
+        // 完整评分（评语、主观题标记）由评分队列异步完成
+        eventPublisher.publishEvent(new AttemptFinishedEvent(attemptId, "COMPLETED"));
 
         return new ExamCompletionResult(
             savedAttempt.getId(),
@@ -353,6 +524,12 @@ public class StudentExamService {
 
     // 私有辅助方法
 
+    // 预创建的考试记录在学生认领前不算作考试尝试
+    private List<ExamAttempt> findStartedAttempts(Long examId, Long studentId) {
+        return examAttemptRepository.findByUserIdAndExamIdAndStatusNotOrderByStartedAtAsc(
+            studentId, examId, AttemptStatus.PROVISIONED);
+    }
+
     private boolean canStudentTakeExam(Long studentId, Long examId) {
         // 这里应该检查学生权限，比如课程注册、考试权限等
         // 暂时返回true，实际实现需要根据业务规则
@@ -397,48 +574,61 @@ public class StudentExamService {
         );
     }
 
-    private ExamGradingResult calculateExamScore(Long attemptId) {
-        List<Answer> answers = answerRepository.findByAttemptId(attemptId);
-        List<Question> questions = questionRepository.findByAttemptIdQuestions(attemptId);
+    /**
+     * 交卷封存成绩：客观题已在答案落库时评分，这里只做一次汇总；
+     * 主观题记为0分并保持待人工评分。存在未评分的答案（如旧数据）时回退为完整计算
+     */
+    private ExamGradingResult sealExamScore(ExamAttempt attempt) {
+        AttemptScoreTotals totals = gradingResultBatchRepository.sumAttemptScores(attempt.getId());
+        if (totals.getUngradedAnswers() > 0) {
+            return calculateExamScore(attempt);
+        }
+
+        ExamPaper paper = examPaperCache.get(attempt.getExamId());
+        BigDecimal percentageScore = ScoreUnits.percentage(totals.getEarnedUnits(), paper.getMaxScoreUnits(), 2);
+
+        Exam exam = examRepository.findById(attempt.getExamId())
+            .orElseThrow(() -> new RuntimeException("考试不存在"));
+        boolean passed = percentageScore.compareTo(exam.getPassingScore()) >= 0;
+
+        return new ExamGradingResult(
+            percentageScore,
+            totals.getCorrectAnswers(),
+            paper.getQuestions().size(),
+            passed
+        );
+    }
+
+    // 回退路径与写入时评分使用同一套编译后的标准答案和本场考试的题目分值
+    private ExamGradingResult calculateExamScore(ExamAttempt attempt) {
+        List<Answer> answers = answerRepository.findByAttemptId(attempt.getId());
+        ExamPaper paper = examPaperCache.get(attempt.getExamId());
 
-        int totalQuestions = questions.size();
         int correctAnswers = 0;
-        BigDecimal totalScore = BigDecimal.ZERO;
+        long totalUnits = 0L; // 定点累加，见ScoreUnits
 
+        List<QuestionGradingResult> grades = new ArrayList<>(answers.size());
         for (Answer answer : answers) {
-            Question question = questions.stream()
-                .filter(q -> q.getId().equals(answer.getQuestionId()))
-                .findFirst()
-                .orElse(null);
-
-            if (question != null) {
-                boolean isCorrect = checkAnswer(question, answer.getStudentAnswer());
-                answer.setIsCorrect(isCorrect);
-                
-                if (isCorrect) {
-                    correctAnswers++;
-                    answer.setScore(question.getPoints());
-                    totalScore = totalScore.add(question.getPoints());
-                } else {
-                    answer.setScore(BigDecimal.ZERO);
-                }
-                
-                answerRepository.save(answer);
+            Question question = paper.getAnswerKey(answer.getQuestionId());
+            if (question == null) {
+                continue;
+            }
+            QuestionGradingResult grade = answerKeyCache.get(question).grade(question.getId(),
+                answer.getStudentAnswer(), paper.getPointsUnits(question.getId()));
+            if (grade.isCorrect()) {
+                correctAnswers++;
             }
+            // 启用负分时得分可能为负
+            totalUnits += grade.getScoreUnits();
+            grades.add(grade);
         }
 
-        // 计算总分百分比
-        BigDecimal maxPossibleScore = questions.stream()
-            .map(Question::getPoints)
-            .reduce(BigDecimal.ZERO, BigDecimal::add);
+        // 全部答案评分一条语句写入
+        gradingResultBatchRepository.saveAnswerGrades(attempt.getId(), grades);
 
-        BigDecimal percentageScore = maxPossibleScore.compareTo(BigDecimal.ZERO) > 0 
-            ? totalScore.divide(maxPossibleScore, 2, java.math.RoundingMode.HALF_UP).multiply(BigDecimal.valueOf(100))
-            : BigDecimal.ZERO;
+        // 计算总分百分比
+        BigDecimal percentageScore = ScoreUnits.percentage(totalUnits, paper.getMaxScoreUnits(), 2);
 
-        ExamAttempt attempt = examAttemptRepository.findById(attemptId)
-            .orElseThrow(() -> new RuntimeException("考试记录不存在"));
-        
         Exam exam = examRepository.findById(attempt.getExamId())
             .orElseThrow(() -> new RuntimeException("考试不存在"));
 
@@ -447,32 +637,11 @@ public class StudentExamService {
         return new ExamGradingResult(
             percentageScore,
             correctAnswers,
-            totalQuestions,
+            paper.getQuestions().size(),
             passed
         );
     }
 
-    private boolean checkAnswer(Question question, String studentAnswer) {
-        if (studentAnswer == null || question.getCorrectAnswer() == null) {
-            return false;
-        }
-
-        switch (question.getType()) {
-            case "SINGLE_CHOICE":
-            case "MULTIPLE_CHOICE":
-            case "TRUE_FALSE":
-                return question.getCorrectAnswer().trim().equalsIgnoreCase(studentAnswer.trim());
-            case "FILL_BLANK":
-                // 简单的文本匹配，可以扩展为更复杂的匹配规则
-                return question.getCorrectAnswer().trim().equalsIgnoreCase(studentAnswer.trim());
-            case "ESSAY":
-                // 主观题需要人工评分，暂时返回false
-                return false;
-            default:
-                return false;
-        }
-    }
-
     // 内部类定义
 
     public static class StudentExamInfo {
@@ -553,35 +722,44 @@ public class StudentExamService {
         public Long getRemainingMinutes() { return remainingMinutes; }
     }
 
+    /**
+     * 学生视角的题目：题目内容来自共享的试卷缓存，只有作答状态属于学生本人
+     */
+    @JsonSerialize(using = StudentQuestion.Serializer.class)
     public static class StudentQuestion {
-        private final Long questionId;
-        private final String type;
-        private final String content;
-        private final String options;
-        private final Integer orderNumber;
+        private final PaperQuestion question;
         private final String studentAnswer;
         private final boolean answered;
 
-        public StudentQuestion(Long questionId, String type, String content,
-                             String options, Integer orderNumber,
-                             String studentAnswer, boolean answered) {
-            this.questionId = questionId;
-            this.type = type;
-            this.content = content;
-            this.options = options;
-            this.orderNumber = orderNumber;
+        public StudentQuestion(PaperQuestion question, String studentAnswer, boolean answered) {
+            this.question = question;
             this.studentAnswer = studentAnswer;
             this.answered = answered;
         }
 
         // Getters
-        public Long getQuestionId() { return questionId; }
-        public String getType() { return type; }
-        public String getContent() { return content; }
-        public String getOptions() { return options; }
-        public Integer getOrderNumber() { return orderNumber; }
+        public Long getQuestionId() { return question.getQuestionId(); }
+        public String getType() { return question.getType(); }
+        public String getContent() { return question.getContent(); }
+        public String getOptions() { return question.getOptions(); }
+        public Integer getOrderNumber() { return question.getOrderNumber(); }
         public String getStudentAnswer() { return studentAnswer; }
         public boolean isAnswered() { return answered; }
+
+        /**
+         * 写出作答状态后直接拼接试卷中预序列化的题目片段
+         */
+        public static class Serializer extends JsonSerializer<StudentQuestion> {
+            @Override
+            public void serialize(StudentQuestion value, JsonGenerator gen, SerializerProvider provider)
+                    throws IOException {
+                gen.writeStartObject();
+                gen.writeStringField("studentAnswer", value.getStudentAnswer());
+                gen.writeBooleanField("answered", value.isAnswered());
+                gen.writeRaw(value.question.getFragment());
+                gen.writeEndObject();
+            }
+        }
     }
 
     public static class AnswerSubmissionResult {
@@ -611,6 +789,26 @@ public class StudentExamService {
         public String getMessage() { return message; }
     }
 
+    /**
+     * 批量提交中的单条答案
+     */
+    public static class AnswerInput {
+        private final Long questionId;
+        private final String studentAnswer;
+        private final Long sequence;
+
+        public AnswerInput(Long questionId, String studentAnswer, Long sequence) {
+            this.questionId = questionId;
+            this.studentAnswer = studentAnswer;
+            this.sequence = sequence;
+        }
+
+        // Getters
+        public Long getQuestionId() { return questionId; }
+        public String getStudentAnswer() { return studentAnswer; }
+        public Long getSequence() { return sequence; }
+    }
+
     public static class ExamCompletionResult {
         private final Long attemptId;
         private final BigDecimal score;
@@ -0,0 +1,124 @@
+package com.examSystem.userService.repository;
+
+import com.examSystem.userService.service.grading.AutoGradingService.GradingResult;
+import com.examSystem.userService.service.grading.AutoGradingService.QuestionGradingResult;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 评分结果批量写入集成测试
+ *
+ * 在PostgreSQL容器中验证写入自动评分结果时不会覆盖已人工评分的主观题
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class GradingResultBatchRepositoryTest {
+
+    private static final long ATTEMPT_ID = 1L;
+    private static final long CHOICE_QUESTION_ID = 10L;
+    private static final long ESSAY_QUESTION_ID = 11L;
+
+    private static PostgreSQLContainer<?> postgres;
+    private static JdbcTemplate jdbcTemplate;
+
+    private GradingResultBatchRepository repository;
+
+    @BeforeAll
+    static void startDatabase() {
+        postgres = new PostgreSQLContainer<>("postgres:15-alpine");
+        postgres.start();
+        jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource(
+            postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword()));
+        jdbcTemplate.execute("CREATE TABLE exam_attempts (id bigint PRIMARY KEY, score numeric(5,2), " +
+            "status varchar(20), graded_at timestamp)");
+        jdbcTemplate.execute("CREATE TABLE answers (id bigserial PRIMARY KEY, attempt_id bigint NOT NULL, " +
+            "question_id bigint NOT NULL, user_answer text, is_correct boolean, points_earned numeric(6,2), " +
+            "feedback text, graded_at timestamp, UNIQUE (attempt_id, question_id))");
+    }
+
+    @AfterAll
+    static void stopDatabase() {
+        postgres.stop();
+    }
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("TRUNCATE answers, exam_attempts");
+        jdbcTemplate.update("INSERT INTO exam_attempts (id, status) VALUES (?, 'COMPLETED')", ATTEMPT_ID);
+        jdbcTemplate.update("INSERT INTO answers (attempt_id, question_id, user_answer) VALUES (?, ?, 'A')",
+            ATTEMPT_ID, CHOICE_QUESTION_ID);
+        // 评分员已给出人工评分的主观题
+        jdbcTemplate.update("INSERT INTO answers (attempt_id, question_id, user_answer, is_correct, " +
+            "points_earned, feedback, graded_at) VALUES (?, ?, '论述', true, 8.50, '论证充分', now())",
+            ATTEMPT_ID, ESSAY_QUESTION_ID);
+
+        repository = new GradingResultBatchRepository();
+        ReflectionTestUtils.setField(repository, "jdbcTemplate", jdbcTemplate);
+    }
+
+    @Test
+    void testSaveResult_ManualEssayGradeSurvives() {
+        // When: 重新自动评分，主观题的自动评分结果为0分
+        repository.saveResult(autoGradingResult());
+
+        // Then
+        Map<String, Object> essay = findAnswer(ESSAY_QUESTION_ID);
+        assertEquals(0, new BigDecimal("8.50").compareTo((BigDecimal) essay.get("points_earned")));
+        assertEquals(Boolean.TRUE, essay.get("is_correct"));
+        assertEquals("论证充分", essay.get("feedback"));
+
+        Map<String, Object> choice = findAnswer(CHOICE_QUESTION_ID);
+        assertEquals(0, new BigDecimal("2.00").compareTo((BigDecimal) choice.get("points_earned")));
+        assertEquals("GRADED", jdbcTemplate.queryForObject(
+            "SELECT status FROM exam_attempts WHERE id = ?", String.class, ATTEMPT_ID));
+    }
+
+    @Test
+    void testSaveResults_ManualEssayGradeSurvives() {
+        // When: 批量评分路径
+        repository.saveResults(List.of(autoGradingResult()));
+
+        // Then
+        Map<String, Object> essay = findAnswer(ESSAY_QUESTION_ID);
+        assertEquals(0, new BigDecimal("8.50").compareTo((BigDecimal) essay.get("points_earned")));
+        assertEquals(Boolean.TRUE, essay.get("is_correct"));
+        assertEquals("论证充分", essay.get("feedback"));
+        assertEquals(0, new BigDecimal("2.00").compareTo((BigDecimal) findAnswer(CHOICE_QUESTION_ID).get("points_earned")));
+    }
+
+    @Test
+    void testResetAnswerGrades_ManualEssayGradeSurvives() {
+        // When
+        repository.resetAnswerGrades(ATTEMPT_ID);
+
+        // Then
+        assertEquals(0, new BigDecimal("8.50").compareTo((BigDecimal) findAnswer(ESSAY_QUESTION_ID).get("points_earned")));
+        assertNull(findAnswer(CHOICE_QUESTION_ID).get("points_earned"));
+    }
+
+    // 私有辅助方法
+
+    private GradingResult autoGradingResult() {
+        List<QuestionGradingResult> questionResults = List.of(
+            new QuestionGradingResult(CHOICE_QUESTION_ID, true, new BigDecimal("2.00"), null),
+            new QuestionGradingResult(ESSAY_QUESTION_ID, false, BigDecimal.ZERO, "主观题，需要人工评分"));
+        return new GradingResult(ATTEMPT_ID, new BigDecimal("20.00"), 1, 2, false, questionResults, "考试未通过");
+    }
+
+    private Map<String, Object> findAnswer(long questionId) {
+        return jdbcTemplate.queryForMap("SELECT is_correct, points_earned, feedback FROM answers " +
+            "WHERE attempt_id = ? AND question_id = ?", ATTEMPT_ID, questionId);
+    }
+}
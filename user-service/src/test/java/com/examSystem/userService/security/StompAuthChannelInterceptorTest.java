@@ -0,0 +1,93 @@
+package com.examSystem.userService.security;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageDeliveryException;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.util.HashMap;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * STOMP订阅授权单元测试
+ */
+class StompAuthChannelInterceptorTest {
+
+    private StompAuthChannelInterceptor interceptor;
+
+    @BeforeEach
+    void setUp() {
+        interceptor = new StompAuthChannelInterceptor();
+    }
+
+    @Test
+    void testSubscribe_StudentRejectedFromProctorTopics() {
+        // When & Then
+        for (String topic : List.of("alerts", "room-status", "student-status", "activity")) {
+            Message<?> message = subscribe("42", "ROLE_STUDENT", "/topic/exam/7/" + topic);
+            assertThrows(MessageDeliveryException.class, () -> interceptor.preSend(message, null));
+        }
+    }
+
+    @Test
+    void testSubscribe_TeacherAndAdminAllowedOnProctorTopics() {
+        // Given
+        Message<?> teacher = subscribe("5", "ROLE_TEACHER", "/topic/exam/7/alerts");
+        Message<?> admin = subscribe("1", "ROLE_ADMIN", "/topic/exam/7/student-status");
+
+        // When & Then
+        assertSame(teacher, interceptor.preSend(teacher, null));
+        assertSame(admin, interceptor.preSend(admin, null));
+    }
+
+    @Test
+    void testSubscribe_OwnUserQueueAllowed() {
+        // Given
+        Message<?> message = subscribe("42", "ROLE_STUDENT", "/user/queue/answer-acks");
+
+        // When & Then
+        assertSame(message, interceptor.preSend(message, null));
+    }
+
+    @Test
+    void testSubscribe_OtherUsersQueueRejected() {
+        // Given: 直接订阅其他会话解析后的队列，或绕过用户目标解析
+        Message<?> sessionQueue = subscribe("42", "ROLE_STUDENT", "/queue/answer-acks-userabc123");
+        Message<?> namedUserQueue = subscribe("42", "ROLE_STUDENT", "/user/43/queue/answer-acks");
+
+        // When & Then
+        assertThrows(MessageDeliveryException.class, () -> interceptor.preSend(sessionQueue, null));
+        assertThrows(MessageDeliveryException.class, () -> interceptor.preSend(namedUserQueue, null));
+    }
+
+    @Test
+    void testSubscribe_UnauthenticatedRejected() {
+        // Given
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.SUBSCRIBE);
+        accessor.setDestination("/user/queue/answer-acks");
+        accessor.setSessionAttributes(new HashMap<>());
+        Message<?> message = MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+
+        // When & Then
+        assertThrows(MessageDeliveryException.class, () -> interceptor.preSend(message, null));
+    }
+
+    // 私有辅助方法
+
+    private Message<?> subscribe(String userId, String authority, String destination) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.SUBSCRIBE);
+        accessor.setSessionId("session-" + userId);
+        accessor.setDestination(destination);
+        accessor.setSessionAttributes(new HashMap<>());
+        accessor.setUser(new UsernamePasswordAuthenticationToken(
+            userId, null, List.of(new SimpleGrantedAuthority(authority))));
+        return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+    }
+}
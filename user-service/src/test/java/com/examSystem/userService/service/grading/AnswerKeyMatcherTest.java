@@ -0,0 +1,88 @@
+package com.examSystem.userService.service.grading;
+
+import com.examSystem.userService.service.grading.AnswerKeyMatcher.Match;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 标准答案匹配器单元测试
+ */
+class AnswerKeyMatcherTest {
+
+    @Test
+    void testSingleChoice_IgnoresCaseAndWhitespace() {
+        AnswerKeyMatcher matcher = AnswerKeyMatcher.compile("SINGLE_CHOICE", " B ");
+
+        assertTrue(matcher.match("b").isCorrect());
+        assertFalse(matcher.match("C").isCorrect());
+    }
+
+    @Test
+    void testMultipleChoice_LetterOptionsUsePartialCredit() {
+        AnswerKeyMatcher matcher = AnswerKeyMatcher.compile("MULTIPLE_CHOICE", "A,C");
+
+        assertTrue(matcher.match("c, a").isCorrect());
+
+        Match partial = matcher.match("A,B");
+        assertFalse(partial.isCorrect());
+        assertEquals(1.0 / 3, partial.getCreditRatio(), 1e-9);
+
+        assertEquals(0.0, matcher.match("B,D").getCreditRatio());
+    }
+
+    @Test
+    void testMultipleChoice_NonLetterOptionsFallBackToSets() {
+        AnswerKeyMatcher matcher = AnswerKeyMatcher.compile("MULTIPLE_CHOICE", "opt1,opt2");
+
+        assertTrue(matcher.match("OPT2, opt1").isCorrect());
+        assertEquals(0.5, matcher.match("opt1").getCreditRatio(), 1e-9);
+
+        // 标准答案为字母、学生答案含多字符选项
+        AnswerKeyMatcher letters = AnswerKeyMatcher.compile("MULTIPLE_CHOICE", "A,B");
+        assertEquals(1.0 / 3, letters.match("A,AB").getCreditRatio(), 1e-9);
+    }
+
+    @Test
+    void testMultipleChoice_ScoringFlags() {
+        AnswerKeyMatcher allOrNothing = AnswerKeyMatcher.compile("MULTIPLE_CHOICE", "A,B,C", false, false);
+        assertEquals(0.0, allOrNothing.match("A,B").getCreditRatio());
+
+        AnswerKeyMatcher negative = AnswerKeyMatcher.compile("MULTIPLE_CHOICE", "A,B", false, true);
+        assertEquals(-0.5, negative.match("A,C").getCreditRatio(), 1e-9);
+        assertEquals(-1.0, negative.match("C,D,E").getCreditRatio(), 1e-9);
+
+        AnswerKeyMatcher both = AnswerKeyMatcher.compile("MULTIPLE_CHOICE", "A,B", true, true);
+        // 命中/并集 = 1/3，再扣除一个错选 1/2
+        assertEquals(1.0 / 3 - 0.5, both.match("A,C").getCreditRatio(), 1e-9);
+        assertTrue(both.match("b,a").isCorrect());
+    }
+
+    @Test
+    void testTrueFalse_NormalizesBothSides() {
+        AnswerKeyMatcher matcher = AnswerKeyMatcher.compile("TRUE_FALSE", "正确");
+
+        assertTrue(matcher.match("T").isCorrect());
+        assertFalse(matcher.match("0").isCorrect());
+    }
+
+    @Test
+    void testFillBlank_MatchingOrder() {
+        AnswerKeyMatcher alternates = AnswerKeyMatcher.compile("FILL_BLANK", "Beijing;北京");
+        assertEquals("匹配可选答案", alternates.match(" beijing ").getComment());
+        assertFalse(alternates.match("Shanghai").isCorrect());
+
+        AnswerKeyMatcher numeric = AnswerKeyMatcher.compile("FILL_BLANK", "100");
+        assertEquals("数值匹配（容差范围内）", numeric.match("100.5").getComment());
+        assertFalse(numeric.match("102").isCorrect());
+
+        AnswerKeyMatcher text = AnswerKeyMatcher.compile("FILL_BLANK", "Hello, World");
+        assertEquals("文本匹配", text.match("hello world!").getComment());
+        assertEquals("不匹配，正确答案: 100", numeric.match("one hundred").getComment());
+    }
+
+    @Test
+    void testUnsupportedType_ReturnsNull() {
+        assertNull(AnswerKeyMatcher.compile("ESSAY", "anything"));
+    }
+}
@@ -0,0 +1,118 @@
+package com.examSystem.userService.service.grading;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 多选题评分基准测试：原HashSet实现 vs 编译后的位掩码匹配器
+ *
+ * 运行：mvn test-compile 后执行本类的main方法（不在单元测试中运行）
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MultipleChoiceScoringBenchmark {
+
+    private static final String[] LETTERS = {"A", "B", "C", "D", "E", "F"};
+    private static final BigDecimal POINTS = BigDecimal.valueOf(5);
+
+    @Param({"A,C", "A,B,D,F"})
+    private String correctAnswer;
+
+    private String[] studentAnswers;
+    private AnswerKeyMatcher matcher;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        studentAnswers = new String[1024];
+        for (int i = 0; i < studentAnswers.length; i++) {
+            StringBuilder answer = new StringBuilder();
+            for (String letter : LETTERS) {
+                if (random.nextBoolean()) {
+                    if (answer.length() > 0) {
+                        answer.append(random.nextBoolean() ? "," : ", ");
+                    }
+                    answer.append(random.nextBoolean() ? letter : letter.toLowerCase());
+                }
+            }
+            studentAnswers[i] = answer.length() > 0 ? answer.toString() : "A";
+        }
+        matcher = AnswerKeyMatcher.compile("MULTIPLE_CHOICE", correctAnswer, true, false);
+    }
+
+    @Benchmark
+    public void legacyHashSets(Blackhole blackhole) {
+        for (String studentAnswer : studentAnswers) {
+            blackhole.consume(legacyScore(correctAnswer, studentAnswer));
+        }
+    }
+
+    @Benchmark
+    public void compiledBitmask(Blackhole blackhole) {
+        for (String studentAnswer : studentAnswers) {
+            AnswerKeyMatcher.Match match = matcher.match(studentAnswer);
+            double ratio = match.getCreditRatio();
+            blackhole.consume(ratio >= 1.0 ? POINTS
+                : ratio == 0.0 ? BigDecimal.ZERO : POINTS.multiply(BigDecimal.valueOf(ratio)));
+        }
+    }
+
+    // 原 AutoGradingService.gradeMultipleChoice 的计分部分
+    private static BigDecimal legacyScore(String correctAnswer, String studentAnswer) {
+        Set<String> correctOptions = clean(new HashSet<>(Arrays.asList(correctAnswer.split(","))));
+        Set<String> studentOptions = clean(new HashSet<>(Arrays.asList(studentAnswer.split(","))));
+        if (correctOptions.equals(studentOptions)) {
+            return POINTS;
+        }
+
+        Set<String> intersection = new HashSet<>(correctOptions);
+        intersection.retainAll(studentOptions);
+        Set<String> union = new HashSet<>(correctOptions);
+        union.addAll(studentOptions);
+        if (intersection.isEmpty()) {
+            return BigDecimal.ZERO;
+        }
+        double partialRatio = (double) intersection.size() / union.size();
+        return POINTS.multiply(BigDecimal.valueOf(partialRatio));
+    }
+
+    private static Set<String> clean(Set<String> options) {
+        Set<String> cleaned = new HashSet<>();
+        for (String option : options) {
+            if (option != null && !option.trim().isEmpty()) {
+                cleaned.add(option.trim().toUpperCase());
+            }
+        }
+        return cleaned;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+            .include(MultipleChoiceScoringBenchmark.class.getSimpleName())
+            .build()).run();
+    }
+}
@@ -0,0 +1,100 @@
+package com.examSystem.userService.service.grading;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 考试记录总分计算基准测试：逐题 BigDecimal 累加 vs 定点 long 累加
+ *
+ * 每次调用计算一份答卷的百分比分数（含部分得分题）。
+ * 运行：mvn test-compile 后执行本类的main方法，分配情况见 gc 分析器的 gc.alloc.rate.norm
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ScoreArithmeticBenchmark {
+
+    @Param({"20", "100"})
+    private int questionCount;
+
+    private BigDecimal[] points;
+    private long[] pointsUnits;
+    // 每题得分比例 numerator/denominator（1/1 正确，0/1 错误，其余为部分得分）
+    private long[] numerators;
+    private long[] denominators;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(7);
+        points = new BigDecimal[questionCount];
+        pointsUnits = new long[questionCount];
+        numerators = new long[questionCount];
+        denominators = new long[questionCount];
+        for (int i = 0; i < questionCount; i++) {
+            points[i] = BigDecimal.valueOf(100 + random.nextInt(900), 2);
+            pointsUnits[i] = ScoreUnits.toUnits(points[i]);
+            int outcome = random.nextInt(4);
+            numerators[i] = outcome == 0 ? 0 : outcome == 1 ? 1 : random.nextInt(3) + 1;
+            denominators[i] = outcome <= 1 ? 1 : 4;
+        }
+    }
+
+    @Benchmark
+    public BigDecimal bigDecimal() {
+        BigDecimal totalScore = BigDecimal.ZERO;
+        BigDecimal maxPossibleScore = BigDecimal.ZERO;
+        for (int i = 0; i < questionCount; i++) {
+            maxPossibleScore = maxPossibleScore.add(points[i]);
+            BigDecimal score;
+            if (numerators[i] == denominators[i]) {
+                score = points[i];
+            } else if (numerators[i] == 0) {
+                score = BigDecimal.ZERO;
+            } else {
+                score = points[i].multiply(BigDecimal.valueOf((double) numerators[i] / denominators[i]));
+            }
+            totalScore = totalScore.add(score);
+        }
+        return maxPossibleScore.compareTo(BigDecimal.ZERO) > 0
+            ? totalScore.divide(maxPossibleScore, 4, RoundingMode.HALF_UP).multiply(BigDecimal.valueOf(100))
+            : BigDecimal.ZERO;
+    }
+
+    @Benchmark
+    public BigDecimal fixedPoint() {
+        long totalUnits = 0L;
+        long maxPossibleUnits = 0L;
+        for (int i = 0; i < questionCount; i++) {
+            maxPossibleUnits += pointsUnits[i];
+            totalUnits += ScoreUnits.scale(pointsUnits[i], numerators[i], denominators[i]);
+        }
+        return ScoreUnits.percentage(totalUnits, maxPossibleUnits, 4);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+            .include(ScoreArithmeticBenchmark.class.getSimpleName())
+            .addProfiler("gc")
+            .build()).run();
+    }
+}
@@ -0,0 +1,56 @@
+package com.examSystem.userService.service.grading;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 定点分值运算单元测试
+ */
+class ScoreUnitsTest {
+
+    @Test
+    void testPercentage_IdenticalToBigDecimalHalfUp() {
+        Random random = new Random(20240101L);
+        for (int i = 0; i < 100_000; i++) {
+            // 分值为两位小数，与题目分值列精度一致
+            BigDecimal earned = BigDecimal.valueOf(random.nextInt(2_000_001) - 200_000, 2);
+            BigDecimal possible = BigDecimal.valueOf(random.nextInt(2_000_000) + 1, 2);
+            int decimals = random.nextBoolean() ? 2 : 4;
+
+            BigDecimal expected = earned.divide(possible, decimals, RoundingMode.HALF_UP)
+                .multiply(BigDecimal.valueOf(100));
+            BigDecimal actual = ScoreUnits.percentage(
+                ScoreUnits.toUnits(earned), ScoreUnits.toUnits(possible), decimals);
+
+            assertEquals(expected, actual, earned + " / " + possible);
+        }
+    }
+
+    @Test
+    void testPercentage_ZeroPossibleScore() {
+        assertEquals(BigDecimal.ZERO, ScoreUnits.percentage(500, 0, 4));
+    }
+
+    @Test
+    void testScale_RoundsHalfUpAwayFromZero() {
+        long fivePoints = ScoreUnits.toUnits(BigDecimal.valueOf(5));
+
+        assertEquals(1_666_667L, ScoreUnits.scale(fivePoints, 1, 3));
+        assertEquals(-1_666_667L, ScoreUnits.scale(fivePoints, -1, 3));
+        assertEquals(fivePoints, ScoreUnits.scale(fivePoints, 2, 2));
+        assertEquals(0L, ScoreUnits.scale(fivePoints, 0, 7));
+    }
+
+    @Test
+    void testDivideHalfUp() {
+        assertEquals(3L, ScoreUnits.divideHalfUp(5, 2));
+        assertEquals(-3L, ScoreUnits.divideHalfUp(-5, 2));
+        assertEquals(2L, ScoreUnits.divideHalfUp(7, 4));
+        assertEquals(1L, ScoreUnits.divideHalfUp(5, 4));
+    }
+}
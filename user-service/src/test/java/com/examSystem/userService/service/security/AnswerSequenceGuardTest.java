@@ -0,0 +1,97 @@
+package com.examSystem.userService.service.security;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 答案写入序号校验单元测试
+ */
+class AnswerSequenceGuardTest {
+
+    private AnswerSequenceGuard guard;
+
+    @BeforeEach
+    void setUp() {
+        guard = new AnswerSequenceGuard();
+    }
+
+    @Test
+    void testTryAdvance_IncreasingSequenceAccepted() {
+        // When & Then
+        assertTrue(guard.tryAdvance(1L, 10L, 1));
+        assertTrue(guard.tryAdvance(1L, 10L, 5));
+    }
+
+    @Test
+    void testTryAdvance_StaleAndReplayedRejected() {
+        // Given
+        guard.tryAdvance(1L, 10L, 5);
+
+        // When & Then
+        assertFalse(guard.tryAdvance(1L, 10L, 5));
+        assertFalse(guard.tryAdvance(1L, 10L, 3));
+    }
+
+    @Test
+    void testTryAdvance_QuestionsTrackedIndependently() {
+        // Given
+        guard.tryAdvance(1L, 10L, 5);
+
+        // When & Then
+        assertTrue(guard.tryAdvance(1L, 11L, 2));
+        assertTrue(guard.tryAdvance(2L, 10L, 1));
+    }
+
+    @Test
+    void testRevert_AllowsRetryWithSameSequence() {
+        // Given
+        guard.tryAdvance(1L, 10L, 5);
+
+        // When
+        guard.revert(1L, 10L, 5);
+
+        // Then
+        assertTrue(guard.tryAdvance(1L, 10L, 5));
+    }
+
+    @Test
+    void testRevert_RestoresPreviousSequence() {
+        // Given: 序号不连续时撤销应回到之前接受的序号，而不是序号减一
+        guard.tryAdvance(1L, 10L, 3);
+        guard.tryAdvance(1L, 10L, 7);
+
+        // When
+        guard.revert(1L, 10L, 7);
+
+        // Then
+        assertFalse(guard.tryAdvance(1L, 10L, 3));
+        assertTrue(guard.tryAdvance(1L, 10L, 5));
+    }
+
+    @Test
+    void testRevert_IgnoredAfterNewerSequence() {
+        // Given
+        guard.tryAdvance(1L, 10L, 5);
+        guard.tryAdvance(1L, 10L, 6);
+
+        // When
+        guard.revert(1L, 10L, 5);
+
+        // Then
+        assertFalse(guard.tryAdvance(1L, 10L, 6));
+    }
+
+    @Test
+    void testRelease_ForgetsAttempt() {
+        // Given
+        guard.tryAdvance(1L, 10L, 5);
+
+        // When
+        guard.release(1L);
+
+        // Then
+        assertTrue(guard.tryAdvance(1L, 10L, 1));
+    }
+}